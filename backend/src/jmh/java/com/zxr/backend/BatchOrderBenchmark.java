@@ -0,0 +1,124 @@
+package com.zxr.backend;
+
+import com.zxr.backend.benchmark.Catalog;
+import com.zxr.backend.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Placing many carts one request at a time versus in one batch request
+ * <p>
+ * Both benchmarks create {@link #carts} orders of two lines each against a running server.
+ * Single requests pay HTTP round trip, parsing and a journal write per cart; the batch pays
+ * them once per request and once per chunk. With {@code journal=group-commit} every single
+ * request also waits out its own group-commit window, so the gap widens.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class BatchOrderBenchmark {
+
+    /** none: in-memory only, group-commit: write-ahead log with group commit */
+    @Param({"none", "group-commit"})
+    public String journal;
+
+    @Param({"256"})
+    public int carts;
+
+    Path directory;
+    ConfigurableApplicationContext context;
+    HttpClient client;
+    HttpRequest single;
+    HttpRequest batch;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        directory = Files.createTempDirectory("batch-order-benchmark");
+        context = new SpringApplicationBuilder(BackendApplication.class)
+                .properties(
+                        "server.port=0",
+                        "order.wal.enabled=" + !"none".equals(journal),
+                        "order.wal.directory=" + directory,
+                        "order.wal.durability=group-commit",
+                        "order.events.enabled=false",
+                        "logging.level.com.zxr.backend=WARN")
+                .run();
+        Catalog.restock(context.getBean(ProductRepository.class));
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        String cart = "{\"items\":[{\"productId\":3,\"quantity\":1},{\"productId\":7,\"quantity\":2}]}";
+        StringBuilder body = new StringBuilder("{\"orders\":[");
+        for (int i = 0; i < carts; i++) {
+            body.append(i == 0 ? "" : ",").append(cart);
+        }
+        body.append("]}");
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        single = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/orders"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(cart))
+                .build();
+        batch = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/orders/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    @Benchmark
+    public int singleRequests() throws IOException, InterruptedException {
+        int created = 0;
+        for (int i = 0; i < carts; i++) {
+            HttpResponse<Void> response = client.send(single, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() == 201) {
+                created++;
+            }
+        }
+        return created;
+    }
+
+    @Benchmark
+    public long batchRequest() throws IOException, InterruptedException {
+        try (Stream<String> lines = client.send(batch, HttpResponse.BodyHandlers.ofLines()).body()) {
+            return lines.filter(line -> line.contains("\"created\"")).count();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws IOException {
+        context.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
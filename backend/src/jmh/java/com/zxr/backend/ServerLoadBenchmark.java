@@ -0,0 +1,163 @@
+package com.zxr.backend;
+
+import com.zxr.backend.benchmark.Catalog;
+import com.zxr.backend.metrics.LatencyHistogram;
+import com.zxr.backend.metrics.OrderMetrics;
+import com.zxr.backend.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Whole-server load test: a burst of concurrent clients each place one order
+ * <p>
+ * Every order waits for a write-ahead log group commit, so request threads block on I/O.
+ * The platform stack caps concurrency at the Tomcat pool size; virtual threads and the
+ * reactive stack let every client be served at once and fill much larger commit batches. The score is the time
+ * to serve the whole burst; server peak concurrency and client-side p50/p99 latency are
+ * printed after every iteration. Admission control is turned off, otherwise most of the
+ * burst would be answered with an immediate 429 and the score would measure load shedding.
+ * </p>
+ * <p>
+ * Client and server share the fork, so every client holds two sockets: raise {@code ulimit -n}
+ * above twice the client count, or pass e.g. {@code -p clients=4000}.
+ * </p>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ServerLoadBenchmark {
+
+    private static final String ORDER = "{\"items\":[{\"productId\":3,\"quantity\":1}]}";
+
+    /** platform: Tomcat thread pool, virtual: Tomcat on virtual threads, reactive: WebFlux on Netty */
+    @Param({"platform", "virtual", "reactive"})
+    public String stack;
+
+    @Param({"10000"})
+    public int clients;
+
+    Path directory;
+    ConfigurableApplicationContext context;
+    OrderMetrics metrics;
+    ExecutorService clientThreads;
+    HttpClient client;
+    HttpRequest request;
+    LatencyHistogram latencies;
+    AtomicInteger failures;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        directory = Files.createTempDirectory("server-load-benchmark");
+        context = new SpringApplicationBuilder(BackendApplication.class)
+                .profiles("platform".equals(stack) ? new String[0] : new String[] {stack})
+                .properties(
+                        "server.port=0",
+                        "server.tomcat.max-connections=" + (clients * 2),
+                        "server.tomcat.accept-count=" + clients,
+                        "order.wal.enabled=true",
+                        "order.wal.directory=" + directory,
+                        "order.wal.durability=group-commit",
+                        "order.events.enabled=false",
+                        "admission.enabled=false",
+                        "logging.level.com.zxr.backend=WARN")
+                .run();
+        Catalog.restock(context.getBean(ProductRepository.class));
+        metrics = context.getBean(OrderMetrics.class);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientThreads)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/orders"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(ORDER))
+                .build();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetClients() {
+        latencies = new LatencyHistogram();
+        failures = new AtomicInteger();
+    }
+
+    @Benchmark
+    public long burst() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int i = 0; i < clients; i++) {
+            clientThreads.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() != 201) {
+                        failures.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    failures.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latencies.record(System.nanoTime() - start);
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return latencies.snapshot().count();
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        LatencyHistogram.Snapshot snapshot = latencies.snapshot();
+        System.out.printf("%n%s: server peak concurrency %d, p50 %.1f ms, p99 %.1f ms, max %.1f ms, %d failed%n",
+                stack, metrics.peakInFlight(), snapshot.valueAt(0.5) / 1e6, snapshot.valueAt(0.99) / 1e6,
+                snapshot.max() / 1e6, failures.get());
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws IOException {
+        clientThreads.shutdownNow();
+        context.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
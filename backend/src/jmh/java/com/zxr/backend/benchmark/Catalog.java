@@ -0,0 +1,35 @@
+package com.zxr.backend.benchmark;
+
+import com.zxr.backend.model.Product;
+import com.zxr.backend.repository.ProductRepository;
+
+/**
+ * Catalog helpers shared by the benchmarks
+ */
+public final class Catalog {
+
+    /** Stock given to every product so measurements never run out */
+    public static final int UNLIMITED_STOCK = Integer.MAX_VALUE;
+
+    private Catalog() {
+    }
+
+    /**
+     * Refill every product of the sample catalog
+     * @param repository Product repository
+     */
+    public static void restock(ProductRepository repository) {
+        for (Product product : repository.findAll()) {
+            product.setStock(UNLIMITED_STOCK);
+        }
+    }
+
+    /**
+     * Number of products in the sample catalog
+     * @param repository Product repository
+     * @return Product count
+     */
+    public static int size(ProductRepository repository) {
+        return repository.findAll().size();
+    }
+}
@@ -0,0 +1,50 @@
+package com.zxr.backend.benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * Product key distributions used by the benchmarks
+ * UNIFORM spreads requests over the whole catalog, HOT sends most of them to one SKU
+ */
+public enum KeyDistribution {
+
+    /** Every product is equally likely */
+    UNIFORM,
+
+    /** 90% of requests hit product 1, the rest are uniform */
+    HOT;
+
+    /** Number of precomputed keys per thread, a power of two */
+    public static final int KEY_COUNT = 4096;
+
+    /** Mask for cycling through the precomputed keys */
+    public static final int KEY_MASK = KEY_COUNT - 1;
+
+    /**
+     * Parse a JMH parameter value
+     * @param name Parameter value, case insensitive
+     * @return Distribution
+     */
+    public static KeyDistribution of(String name) {
+        return valueOf(name.toUpperCase());
+    }
+
+    /**
+     * Precompute product IDs so key generation stays out of the measured code
+     * @param productCount Number of products, IDs are 1..productCount
+     * @param seed Random seed, usually different per thread
+     * @return KEY_COUNT product IDs
+     */
+    public long[] keys(int productCount, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] keys = new long[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            if (this == HOT && random.nextInt(10) != 0) {
+                keys[i] = 1L;
+            } else {
+                keys[i] = 1L + random.nextInt(productCount);
+            }
+        }
+        return keys;
+    }
+}
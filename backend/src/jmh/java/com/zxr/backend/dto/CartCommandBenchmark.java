@@ -0,0 +1,65 @@
+package com.zxr.backend.dto;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order request body decoding: streaming into a cart command versus binding item maps
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CartCommandBenchmark {
+
+    @Param({"1", "5", "50"})
+    public int cartSize;
+
+    byte[] body;
+    ObjectReader commandReader;
+    ObjectReader itemMapsReader;
+
+    @Setup
+    public void setUp() {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < cartSize; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"productId\":").append(1000 + i * 37).append(",\"quantity\":")
+                    .append(1 + i % 3).append('}');
+        }
+        body = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        ObjectMapper mapper = new ObjectMapper();
+        commandReader = mapper.readerFor(CartCommand.class);
+        itemMapsReader = mapper.readerFor(new TypeReference<Map<String, List<Map<String, Object>>>>() {
+        });
+    }
+
+    @Benchmark
+    public CartCommand cartCommand() throws IOException {
+        return commandReader.readValue(body);
+    }
+
+    @Benchmark
+    public Map<String, List<Map<String, Object>>> itemMaps() throws IOException {
+        return itemMapsReader.readValue(body);
+    }
+}
@@ -0,0 +1,79 @@
+package com.zxr.backend.event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of recording one order outcome on the request thread
+ * Compare the ring buffer publish with the INFO log line it replaced; gc.alloc.rate.norm
+ * should be 0 for the ring buffer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderEventsBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger("order-events-benchmark");
+
+    Path directory;
+    RingBufferOrderEvents events;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("order-events-benchmark");
+        events = new RingBufferOrderEvents(65536, directory.toString(), DataSize.ofMegabytes(64), 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        events.destroy();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void publish() {
+        events.publish(OrderEventType.PERSISTED, 123_456_789L, 7L, 2, 398L);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void publishContended() {
+        events.publish(OrderEventType.PERSISTED, 123_456_789L, 7L, 2, 398L);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void infoLog() {
+        logger.info("Order created successfully: Order ID[{}], Product name[{}], Total price[{}]",
+                123_456_789L, "Hainan Mango", 3.98);
+    }
+}
@@ -0,0 +1,89 @@
+package com.zxr.backend.inventory;
+
+import com.zxr.backend.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flash sale on one SKU: 64 threads reserve one unit each, direct compare-and-set
+ * against the inventory sequencer
+ * <p>
+ * Every iteration restocks {@link #stock} units, so most requests arrive after the
+ * SKU is sold out, as in a real flash sale. After every iteration the sequencer
+ * prints how many micro-batches it applied and how many requests it rejected in bulk.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class FlashSaleBenchmark {
+
+    @Param({"direct", "sequencer"})
+    public String mode;
+
+    @Param({"100000"})
+    public int stock;
+
+    StockReservations reservations;
+    Product hot;
+
+    @State(Scope.Thread)
+    public static class Cart {
+        Product[] products;
+        final int[] quantities = {1};
+
+        @Setup
+        public void setUp(FlashSaleBenchmark state) {
+            products = new Product[] {state.hot};
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        hot = new Product(1L, "Hot", 999, 0);
+        reservations = "sequencer".equals(mode) ? new InventorySequencer(4, 4096, 256) : new DirectStockReservations();
+    }
+
+    @Setup(Level.Iteration)
+    public void restock() {
+        hot.setStock(stock);
+    }
+
+    @Benchmark
+    public int reserve(Cart cart) {
+        return reservations.reserve(cart.products, cart.quantities, 1).join();
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        if (reservations instanceof InventorySequencer sequencer) {
+            System.out.printf("%nbatches %d, bulk rejected %d, overflowed %d%n",
+                    sequencer.batches(), sequencer.bulkRejected(), sequencer.overflowed());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if (reservations instanceof InventorySequencer sequencer) {
+            sequencer.destroy();
+        }
+    }
+}
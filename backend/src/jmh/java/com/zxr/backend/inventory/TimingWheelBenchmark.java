@@ -0,0 +1,63 @@
+package com.zxr.backend.inventory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservation expiry bookkeeping with a thousand and with four million reservations open
+ * Opening and confirming one reservation should cost the same at either size. A 100 ms
+ * tick costs in proportion to the reservations expiring in it (about 440 at four million
+ * over a 15 minute ttl), not to those open.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class TimingWheelBenchmark {
+
+    static final long TTL_MILLIS = 15 * 60_000L;
+
+    @Param({"1000", "4000000"})
+    public int open;
+
+    TimingWheel<Long> wheel;
+    long now;
+    long sequence;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        now = 1_700_000_000_000L;
+        wheel = new TimingWheel<>(100, now);
+        // Expiries spread over the whole ttl, as with a steady order rate
+        for (long i = 0; i < open; i++) {
+            wheel.schedule(i, now + 1 + i * TTL_MILLIS / open);
+        }
+    }
+
+    @Benchmark
+    public boolean openAndConfirm() {
+        TimingWheel.Timeout<Long> timeout = wheel.schedule(++sequence, now + TTL_MILLIS);
+        return wheel.cancel(timeout);
+    }
+
+    @Benchmark
+    public int advanceOneTick() {
+        // Each expired reservation is replaced, so the number open stays the same
+        now += 100;
+        return wheel.advance(now, id -> wheel.schedule(id, now + TTL_MILLIS));
+    }
+}
@@ -0,0 +1,43 @@
+package com.zxr.backend.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording one request latency, including the clock reads around the request
+ * Should stay well under a microsecond with or without contention
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LatencyHistogramBenchmark {
+
+    final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Benchmark
+    @Threads(1)
+    public void record() {
+        long start = System.nanoTime();
+        histogram.record(System.nanoTime() - start);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void recordContended() {
+        long start = System.nanoTime();
+        histogram.record(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,117 @@
+package com.zxr.backend.model;
+
+import com.zxr.backend.benchmark.Catalog;
+import com.zxr.backend.benchmark.KeyDistribution;
+import com.zxr.backend.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stock deduction throughput: the former synchronized(product) path against
+ * the lock-free Product.tryReserveStock, at 1, 8 and 64 threads
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StockReservationBenchmark {
+
+    @Param({"uniform", "hot"})
+    public String distribution;
+
+    Product[] products;
+
+    @State(Scope.Thread)
+    public static class Keys {
+        long[] keys;
+        int cursor;
+
+        @Setup
+        public void setUp(StockReservationBenchmark state) {
+            keys = KeyDistribution.of(state.distribution)
+                    .keys(state.products.length - 1, Thread.currentThread().threadId());
+        }
+
+        int next() {
+            return (int) keys[cursor++ & KeyDistribution.KEY_MASK];
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUpCatalog() {
+        ProductRepository repository = new ProductRepository();
+        products = new Product[Catalog.size(repository) + 1];
+        for (Product product : repository.findAll()) {
+            products[product.getId().intValue()] = product;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void restock() {
+        for (int i = 1; i < products.length; i++) {
+            products[i].setStock(Catalog.UNLIMITED_STOCK);
+        }
+    }
+
+    /** The deduction as OrderService did it before the CAS counter */
+    private static boolean synchronizedDeduct(Product product, int quantity) {
+        synchronized (product) {
+            if (product.getStock() < quantity) {
+                return false;
+            }
+            product.setStock(product.getStock() - quantity);
+            return true;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean synchronized01(Keys keys) {
+        return synchronizedDeduct(products[keys.next()], 1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean synchronized08(Keys keys) {
+        return synchronizedDeduct(products[keys.next()], 1);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean synchronized64(Keys keys) {
+        return synchronizedDeduct(products[keys.next()], 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean cas01(Keys keys) {
+        return products[keys.next()].tryReserveStock(1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean cas08(Keys keys) {
+        return products[keys.next()].tryReserveStock(1);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean cas64(Keys keys) {
+        return products[keys.next()].tryReserveStock(1);
+    }
+}
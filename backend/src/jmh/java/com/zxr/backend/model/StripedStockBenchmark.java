@@ -0,0 +1,63 @@
+package com.zxr.backend.model;
+
+import com.zxr.backend.benchmark.Catalog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single hot SKU: every thread reserves one unit of the same product, with one
+ * compare-and-set counter against per-core striped stock, at 1, 4 and all cores
+ * The striped stock should scale with the thread count where the single counter flattens.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StripedStockBenchmark {
+
+    @Param({"false", "true"})
+    public boolean striped;
+
+    Product product;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        product = new Product(1L, "Hot SKU", 199, Catalog.UNLIMITED_STOCK);
+        if (striped) {
+            product.enableStripedStock();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean reserve01() {
+        return product.tryReserveStock(1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean reserve04() {
+        return product.tryReserveStock(1);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean reserveAllCores() {
+        return product.tryReserveStock(1);
+    }
+}
@@ -0,0 +1,100 @@
+package com.zxr.backend.persistence;
+
+import com.zxr.backend.config.BackgroundThreads;
+import com.zxr.backend.model.Order;
+import com.zxr.backend.repository.InMemoryOrderRepository;
+import com.zxr.backend.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time from opening the journal until orders can be served, for a growing order history
+ * With snapshots the time should stay flat: only the fixed-size tail after the snapshot is replayed
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class RecoveryBenchmark {
+
+    /** Orders logged after the snapshot */
+    private static final int TAIL = 1_000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int history;
+
+    @Param({"true", "false"})
+    public boolean snapshot;
+
+    Path directory;
+    WalOrderJournal journal;
+
+    @Setup(Level.Trial)
+    public void writeHistory() throws Exception {
+        directory = Files.createTempDirectory("recovery-benchmark");
+        WalOrderJournal writer = open(new ProductRepository());
+        append(writer, 1, history);
+        if (snapshot) {
+            writer.snapshot();
+        }
+        append(writer, history + 1, TAIL);
+        writer.destroy();
+    }
+
+    @Benchmark
+    public WalOrderJournal recover() throws IOException {
+        journal = open(new ProductRepository());
+        return journal;
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() throws Exception {
+        journal.destroy();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteHistory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private WalOrderJournal open(ProductRepository products) throws IOException {
+        return new WalOrderJournal(directory.toString(), "os-buffered", Duration.ofMillis(1), Duration.ZERO, 2,
+                products, new InMemoryOrderRepository(), new BackgroundThreads(false));
+    }
+
+    private static void append(WalOrderJournal journal, long firstId, int count) {
+        List<CompletableFuture<Void>> pending = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            pending.add(journal.recordOrder(List.of(new Order(firstId + i, 1L + (i % 20), 1, 199))));
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+    }
+}
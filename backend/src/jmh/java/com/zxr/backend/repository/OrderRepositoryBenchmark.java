@@ -0,0 +1,114 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.config.BackgroundThreads;
+import com.zxr.backend.model.Order;
+import com.zxr.backend.model.OrderIds;
+import com.zxr.backend.service.SnowflakeOrderIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order store write, lookup and query cost per backend
+ * Watch gc.alloc.rate and gc.time: the off-heap store should keep both flat as orders pile up.
+ * The queries read one 100-line page out of all preloaded orders. The tiered store keeps
+ * 100k lines hot and serves the rest from segment files in a temporary directory.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-XX:MaxDirectMemorySize=4g"})
+@State(Scope.Benchmark)
+public class OrderRepositoryBenchmark {
+
+    /** Orders preloaded before lookups are measured */
+    private static final int PRELOADED = 1 << 20;
+
+    @Param({"memory", "offheap", "tiered"})
+    public String store;
+
+    OrderRepository repository;
+    SnowflakeOrderIdGenerator idGenerator;
+    long[] ids;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int value;
+
+        int next() {
+            return value++ & (PRELOADED - 1);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        repository = switch (store) {
+            case "offheap" -> new OffHeapOrderRepository(65536);
+            case "tiered" -> new TieredOrderRepository(Files.createTempDirectory("orders").toString(), 100_000,
+                    16_384, Duration.ofMinutes(10), new BackgroundThreads(false));
+            default -> new InMemoryOrderRepository();
+        };
+        idGenerator = new SnowflakeOrderIdGenerator(0);
+        ids = new long[PRELOADED];
+        for (int i = 0; i < PRELOADED; i++) {
+            ids[i] = idGenerator.nextId();
+            repository.save(new Order(ids[i], 1L + (i & 1023), 1, 199));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        if (repository instanceof TieredOrderRepository tiered) {
+            tiered.destroy();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long save() {
+        long id = idGenerator.nextId();
+        repository.save(new Order(id, 7L, 2, 398));
+        return id;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Order findById(Cursor cursor) {
+        return repository.findById(ids[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Order findByIdContended(Cursor cursor) {
+        return repository.findById(ids[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public OrderRepository.Slice findByProduct(Cursor cursor) {
+        return repository.findByProduct(1L + (cursor.next() & 1023), 0, 100);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public OrderRepository.Slice findCreatedBetween(Cursor cursor) {
+        long from = OrderIds.createdAtMillis(ids[cursor.next()]);
+        return repository.findCreatedBetween(from, from + 3_600_000L, 0, 100);
+    }
+}
@@ -0,0 +1,115 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup latency of the primitive ProductIndex against ConcurrentHashMap&lt;Long, Product&gt;
+ * for a 1M-product catalog. The retained heap of each structure is printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ProductIndexBenchmark {
+
+    private static final int CATALOG_SIZE = 1_000_000;
+
+    Map<Long, Product> map;
+    ProductIndex index;
+
+    @State(Scope.Thread)
+    public static class Keys {
+        final long[] keys = new long[1 << 16];
+        int cursor;
+
+        @Setup
+        public void setUp() {
+            SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = 1L + random.nextInt(CATALOG_SIZE);
+            }
+        }
+
+        long next() {
+            return keys[cursor++ & (keys.length - 1)];
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Product[] products = new Product[CATALOG_SIZE];
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            products[i] = new Product((long) i + 1, "Product " + (i + 1), 100, 10);
+        }
+
+        long before = usedHeap();
+        index = new ProductIndex();
+        for (Product product : products) {
+            index.put(product);
+        }
+        long indexBytes = usedHeap() - before;
+
+        before = usedHeap();
+        map = new ConcurrentHashMap<>();
+        for (Product product : products) {
+            map.put(product.getId(), product);
+        }
+        long mapBytes = usedHeap() - before;
+
+        // Product objects are shared, so both numbers are the structure overhead only
+        System.out.printf("%nRetained heap for %,d products: ConcurrentHashMap %,d bytes, ProductIndex %,d bytes%n",
+                CATALOG_SIZE, mapBytes, indexBytes);
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Product concurrentHashMap(Keys keys) {
+        return map.get(keys.next());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Product productIndex(Keys keys) {
+        return index.get(keys.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Product concurrentHashMapContended(Keys keys) {
+        return map.get(keys.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Product productIndexContended(Keys keys) {
+        return index.get(keys.next());
+    }
+}
@@ -0,0 +1,90 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.benchmark.Catalog;
+import com.zxr.backend.benchmark.KeyDistribution;
+import com.zxr.backend.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog read paths: ProductRepository.findById and findAll
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductRepositoryBenchmark {
+
+    @Param({"uniform", "hot"})
+    public String distribution;
+
+    ProductRepository productRepository;
+
+    @State(Scope.Thread)
+    public static class Keys {
+        long[] keys;
+        int cursor;
+
+        @Setup
+        public void setUp(ProductRepositoryBenchmark state) {
+            keys = KeyDistribution.of(state.distribution)
+                    .keys(Catalog.size(state.productRepository), Thread.currentThread().threadId());
+        }
+
+        long next() {
+            return keys[cursor++ & KeyDistribution.KEY_MASK];
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        productRepository = new ProductRepository();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Product findById(Keys keys) {
+        return productRepository.findById(keys.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Product findByIdContended(Keys keys) {
+        return productRepository.findById(keys.next());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long findAll() {
+        return sumStock();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long findAllContended() {
+        return sumStock();
+    }
+
+    /** Walk the whole result so the collection view is really traversed */
+    private long sumStock() {
+        long total = 0;
+        for (Product product : productRepository.findAll()) {
+            total += product.getStock();
+        }
+        return total;
+    }
+}
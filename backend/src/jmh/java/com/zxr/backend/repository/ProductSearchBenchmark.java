@@ -0,0 +1,115 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product name search over a 1M-product catalog: the search index against filtering
+ * every product name, which is what the frontend did with the full product list
+ * <p>
+ * Names combine one of 1000 brands, a variety, a fruit and a pack size, so a fruit
+ * matches about 20k products, a brand about 1k and a brand with a fruit about 20.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ProductSearchBenchmark {
+
+    private static final String[] VARIETIES = {
+        "Red", "Golden", "Green", "Sweet", "Organic", "Wild", "Baby", "Giant", "Seedless", "Sunshine",
+        "Royal", "Honey", "Snow", "Black", "Pink", "Crisp", "Juicy", "Fresh", "Dried", "Frozen"
+    };
+
+    private static final String[] FRUITS = {
+        "Apple", "Banana", "Grape", "Durian", "Orange", "Mango", "Kiwifruit", "Coconut", "Cherry", "Blueberry",
+        "Strawberry", "Avocado", "Grapefruit", "Pineapple", "Watermelon", "Pomegranate", "Fig", "Lemon", "Peach",
+        "Pear", "Plum", "Apricot", "Lychee", "Longan", "Papaya", "Guava", "Persimmon", "Melon", "Lime", "Raspberry",
+        "Blackberry", "Cranberry", "Tangerine", "Nectarine", "Kumquat", "Jackfruit", "Dragonfruit", "Passionfruit",
+        "Starfruit", "Quince", "Mulberry", "Gooseberry", "Currant", "Date", "Olive", "Rambutan", "Mangosteen",
+        "Loquat", "Pomelo", "Yuzu"
+    };
+
+    private static final String[] SIZES = {"250g", "500g", "1kg", "2kg", "5kg", "Box", "Pack", "Crate", "Tray", "Bag"};
+
+    @Param({"1000000"})
+    public int products;
+
+    /** fruit: one common term; prefix: a short prefix of many terms; brand: a rarer term; narrow: brand and fruit */
+    @Param({"fruit", "prefix", "brand", "narrow"})
+    public String query;
+
+    ProductRepository repository;
+    List<Product> catalog;
+    String text;
+    String[] terms;
+
+    @Setup
+    public void setUp() {
+        repository = new ProductRepository();
+        Random random = new Random(42);
+        for (long id = 21; id <= products; id++) {
+            String name = brand(random.nextInt(1000)) + " " + VARIETIES[random.nextInt(VARIETIES.length)] + " "
+                    + FRUITS[random.nextInt(FRUITS.length)] + " " + SIZES[random.nextInt(SIZES.length)];
+            repository.save(new Product(id, name, 199, 100));
+        }
+        catalog = new ArrayList<>(repository.findAll());
+        text = switch (query) {
+            case "fruit" -> "mango";
+            case "prefix" -> "pe";
+            case "brand" -> brand(377);
+            case "narrow" -> brand(377) + " mango";
+            default -> throw new IllegalArgumentException(query);
+        };
+        terms = text.toLowerCase(Locale.ROOT).split(" ");
+    }
+
+    private static String brand(int n) {
+        return "Farm" + (char) ('a' + n % 26) + (char) ('a' + n / 26 % 26) + (char) ('a' + n / 676);
+    }
+
+    /** First page of ranked hits from the search index */
+    @Benchmark
+    public ProductSearchIndex.Result index() {
+        return repository.search(text, 0, 20);
+    }
+
+    /** Lower-case every name and keep those containing every query word, unranked */
+    @Benchmark
+    public int filterAll() {
+        int hits = 0;
+        for (Product product : catalog) {
+            String name = product.getName().toLowerCase(Locale.ROOT);
+            boolean all = true;
+            for (String term : terms) {
+                if (!name.contains(term)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
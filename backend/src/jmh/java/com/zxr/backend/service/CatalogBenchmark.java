@@ -0,0 +1,62 @@
+package com.zxr.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zxr.backend.model.Product;
+import com.zxr.backend.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product list response body: Jackson serialization on every request against the
+ * pre-encoded catalog snapshot, for the sample catalog and a large one
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+
+    @Param({"20", "10000"})
+    public int products;
+
+    ObjectMapper objectMapper;
+    ProductRepository repository;
+    CatalogCache cache;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        repository = new ProductRepository();
+        for (long id = 21; id <= products; id++) {
+            repository.save(new Product(id, "Product " + id, 100 + id % 100 * 100, 100));
+        }
+        cache = new CatalogCache(repository, objectMapper, Duration.ofMillis(500), true);
+    }
+
+    /** What GET /products did before: serialize the whole catalog */
+    @Benchmark
+    public byte[] serializeEveryRequest() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(repository.findAll());
+    }
+
+    /** Pre-encoded snapshot, unchanged catalog */
+    @Benchmark
+    public byte[] snapshot() {
+        return cache.current().json();
+    }
+}
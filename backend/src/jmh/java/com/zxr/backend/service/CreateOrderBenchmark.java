@@ -0,0 +1,56 @@
+package com.zxr.backend.service;
+
+import com.zxr.backend.benchmark.KeyDistribution;
+import com.zxr.backend.model.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderService.createOrder throughput, single product per order
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CreateOrderBenchmark extends OrderServiceState {
+
+    @State(Scope.Thread)
+    public static class Keys {
+        long[] keys;
+        int cursor;
+
+        @Setup
+        public void setUp(CreateOrderBenchmark state) {
+            keys = state.keys(Thread.currentThread().threadId());
+        }
+
+        long next() {
+            return keys[cursor++ & KeyDistribution.KEY_MASK];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Order createOrder(Keys keys) {
+        return orderService.createOrder(keys.next(), 1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Order createOrderContended(Keys keys) {
+        return orderService.createOrder(keys.next(), 1);
+    }
+}
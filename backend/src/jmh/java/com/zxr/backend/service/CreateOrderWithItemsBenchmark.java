@@ -0,0 +1,72 @@
+package com.zxr.backend.service;
+
+import com.zxr.backend.benchmark.KeyDistribution;
+import com.zxr.backend.dto.CartCommand;
+import com.zxr.backend.dto.CreateOrderResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderService.createOrderWithItems throughput for 1-, 5- and 50-item carts
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CreateOrderWithItemsBenchmark extends OrderServiceState {
+
+    /** Number of distinct carts each thread cycles through */
+    private static final int CART_COUNT = 256;
+
+    @Param({"1", "5", "50"})
+    public int cartSize;
+
+    @State(Scope.Thread)
+    public static class Carts {
+        CartCommand[] carts;
+        int cursor;
+
+        @Setup
+        public void setUp(CreateOrderWithItemsBenchmark state) {
+            long[] keys = state.keys(Thread.currentThread().threadId());
+            carts = new CartCommand[CART_COUNT];
+            int k = 0;
+            for (int c = 0; c < CART_COUNT; c++) {
+                carts[c] = new CartCommand(state.cartSize);
+                for (int i = 0; i < state.cartSize; i++) {
+                    carts[c].add(keys[k++ & KeyDistribution.KEY_MASK], 1);
+                }
+            }
+        }
+
+        CartCommand next() {
+            return carts[cursor++ & (CART_COUNT - 1)];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public CreateOrderResponse createOrderWithItems(Carts carts) {
+        return orderService.createOrderWithItems(carts.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public CreateOrderResponse createOrderWithItemsContended(Carts carts) {
+        return orderService.createOrderWithItems(carts.next());
+    }
+}
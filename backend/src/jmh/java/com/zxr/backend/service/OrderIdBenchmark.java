@@ -0,0 +1,53 @@
+package com.zxr.backend.service;
+
+import com.zxr.backend.model.OrderIds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order ID generation cost, and the text encoding paid only at the API boundary
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderIdBenchmark {
+
+    OrderIdGenerator orderIdGenerator;
+
+    @Setup
+    public void setUp() {
+        orderIdGenerator = new SnowflakeOrderIdGenerator(0);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long generateOrderId() {
+        return orderIdGenerator.nextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long generateOrderIdContended() {
+        return orderIdGenerator.nextId();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String generateAndFormatOrderId() {
+        return OrderIds.format(orderIdGenerator.nextId());
+    }
+}
@@ -0,0 +1,70 @@
+package com.zxr.backend.service;
+
+import com.zxr.backend.benchmark.Catalog;
+import com.zxr.backend.benchmark.KeyDistribution;
+import com.zxr.backend.admission.AdmissionController;
+import com.zxr.backend.config.BackgroundThreads;
+import com.zxr.backend.event.NoopOrderEvents;
+import com.zxr.backend.inventory.DirectStockReservations;
+import com.zxr.backend.metrics.OrderMetrics;
+import com.zxr.backend.persistence.NoopOrderJournal;
+import com.zxr.backend.repository.InMemoryOrderRepository;
+import com.zxr.backend.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+
+/**
+ * Shared order service fixture
+ * The catalog lives for the whole trial, the order store is recreated every
+ * iteration so heap growth from saved orders does not leak into later iterations
+ */
+@State(Scope.Benchmark)
+public abstract class OrderServiceState {
+
+    @Param({"uniform", "hot"})
+    public String distribution;
+
+    ProductRepository productRepository;
+    OrderReservations orderReservations;
+    OrderService orderService;
+
+    @Setup(Level.Trial)
+    public void setUpCatalog() {
+        productRepository = new ProductRepository();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetOrders() {
+        Catalog.restock(productRepository);
+        NoopOrderJournal journal = new NoopOrderJournal();
+        NoopOrderEvents events = new NoopOrderEvents();
+        // Every order holds a reservation, as in the service; none expires within an iteration
+        orderReservations = new OrderReservations(Duration.ofMinutes(15), Duration.ofMillis(100), journal,
+                productRepository, events, new BackgroundThreads(false));
+        orderService = new OrderService(productRepository, new InMemoryOrderRepository(), new SnowflakeOrderIdGenerator(0),
+                journal, events, new DirectStockReservations(), orderReservations,
+                new OrderMetrics(productRepository,
+                        new StaticListableBeanFactory().getBeanProvider(AdmissionController.class), orderReservations));
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopReservations() throws InterruptedException {
+        orderReservations.destroy();
+    }
+
+    /**
+     * Precomputed product keys for one benchmark thread
+     * @param seed Per-thread seed
+     * @return Product IDs following the configured distribution
+     */
+    long[] keys(long seed) {
+        return KeyDistribution.of(distribution).keys(Catalog.size(productRepository), seed);
+    }
+}
@@ -0,0 +1,77 @@
+package com.zxr.backend.service;
+
+import com.zxr.backend.admission.AdmissionController;
+import com.zxr.backend.config.BackgroundThreads;
+import com.zxr.backend.model.Product;
+import com.zxr.backend.event.NoopOrderEvents;
+import com.zxr.backend.inventory.DirectStockReservations;
+import com.zxr.backend.metrics.OrderMetrics;
+import com.zxr.backend.persistence.NoopOrderJournal;
+import com.zxr.backend.repository.InMemoryOrderRepository;
+import com.zxr.backend.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Line price calculation cost
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingBenchmark {
+
+    OrderService orderService;
+    Product product;
+
+    @State(Scope.Thread)
+    public static class Quantity {
+        int value;
+
+        int next() {
+            value = (value & 63) + 1;
+            return value;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        ProductRepository productRepository = new ProductRepository();
+        NoopOrderJournal journal = new NoopOrderJournal();
+        NoopOrderEvents events = new NoopOrderEvents();
+        OrderReservations orderReservations = new OrderReservations(Duration.ZERO, Duration.ofSeconds(1), journal,
+                productRepository, events, new BackgroundThreads(false));
+        orderService = new OrderService(productRepository, new InMemoryOrderRepository(), new SnowflakeOrderIdGenerator(0),
+                journal, events, new DirectStockReservations(), orderReservations,
+                new OrderMetrics(productRepository,
+                        new StaticListableBeanFactory().getBeanProvider(AdmissionController.class), orderReservations));
+        product = productRepository.findById(3L);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long calculateTotalPrice(Quantity quantity) {
+        return orderService.calculateTotalPrice(product, quantity.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long calculateTotalPriceContended(Quantity quantity) {
+        return orderService.calculateTotalPrice(product, quantity.next());
+    }
+}
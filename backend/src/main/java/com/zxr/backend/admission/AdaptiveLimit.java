@@ -0,0 +1,164 @@
+package com.zxr.backend.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive concurrency limit
+ * <p>
+ * Admits a request only while fewer than {@link #limit()} are in flight, and rejects
+ * the rest at once instead of queueing them. The limit follows the observed latency,
+ * Vegas-style: with {@code minRtt} the latency of an unqueued request and {@code rtt}
+ * a sample, {@code limit * (1 - minRtt / rtt)} estimates how many requests are queued
+ * behind the server's real concurrency. While that queue is short the limit grows;
+ * once it is long the limit shrinks, so admitted requests keep close to the no-load
+ * latency however much load is offered. Growth pauses while less than half the limit
+ * is used, so an idle period does not inflate it.
+ * </p>
+ * <p>
+ * Under sustained overload every request waits a little, so {@code minRtt} cannot simply
+ * be the fastest recent sample: it would creep up with the queue and the limit with it.
+ * Instead, every {@value #PROBE_MULTIPLIER} x limit samples the limit is halved until
+ * about two limits' worth of requests have completed, which drains the queue, and
+ * {@code minRtt} is re-measured from those samples. It thus follows a real change in
+ * the service's speed in either direction, at the cost of a short dip in admissions.
+ * When less than half the limit is in use there is no queue to drain, and the fastest
+ * sample since the last probe is taken instead.
+ * </p>
+ */
+public final class AdaptiveLimit {
+
+    /** Queued requests tolerated, as multiples of log10(limit) */
+    private static final int ALPHA = 3;
+    private static final int BETA = 6;
+    /** Limit kept by {@link #backOff()} */
+    private static final double BACK_OFF_RATIO = 0.9;
+    /** Samples between two probes of minRtt, as a multiple of the limit */
+    private static final int PROBE_MULTIPLIER = 60;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    /** Guards the estimator; samples arriving while it is held are skipped */
+    private final ReentrantLock estimator = new ReentrantLock();
+    private double estimate;
+    private long minRtt = Long.MAX_VALUE;
+    private int samplesToProbe;
+    private long windowMinRtt = Long.MAX_VALUE;
+    /** Samples still to take while probing, 0 when not probing */
+    private int probeSamples;
+    private long probeMinRtt;
+
+    /**
+     * @param initialLimit Limit before any latency is observed
+     * @param minLimit Smallest limit
+     * @param maxLimit Largest limit
+     */
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit <= 0 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 0 < min <= initial <= max: "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.estimate = initialLimit;
+    }
+
+    /**
+     * Admit a request if the limit allows
+     * @return true if admitted; the caller must then call {@link #release}
+     */
+    public boolean tryAcquire() {
+        int current = inFlight.get();
+        while (current < limit) {
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+            current = inFlight.get();
+        }
+        return false;
+    }
+
+    /**
+     * Finish an admitted request and feed its latency to the limit
+     * @param rttNanos Time from admission to completion
+     */
+    public void release(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (rttNanos > 0 && estimator.tryLock()) {
+            try {
+                update(rttNanos, inFlightBefore);
+            } finally {
+                estimator.unlock();
+            }
+        }
+    }
+
+    /**
+     * Shrink the limit multiplicatively, when a higher-priority workload is being shed
+     */
+    public void backOff() {
+        estimator.lock();
+        try {
+            estimate = Math.max(minLimit, estimate * BACK_OFF_RATIO);
+            limit = probeSamples > 0 ? Math.min(limit, (int) estimate) : (int) estimate;
+        } finally {
+            estimator.unlock();
+        }
+    }
+
+    private void update(long rtt, int inFlightBefore) {
+        if (probeSamples > 0) {
+            probeMinRtt = Math.min(probeMinRtt, rtt);
+            if (--probeSamples == 0) {
+                minRtt = probeMinRtt;
+                limit = (int) estimate;
+            }
+            return;
+        }
+        windowMinRtt = Math.min(windowMinRtt, rtt);
+        if (minRtt == Long.MAX_VALUE || ++samplesToProbe >= PROBE_MULTIPLIER * estimate) {
+            samplesToProbe = 0;
+            if (inFlightBefore * 2 < limit) {
+                minRtt = windowMinRtt;
+                windowMinRtt = Long.MAX_VALUE;
+                return;
+            }
+            // Hold the limit at half until the requests admitted before have drained
+            windowMinRtt = Long.MAX_VALUE;
+            probeSamples = 2 * (int) estimate;
+            probeMinRtt = rtt;
+            limit = Math.max(minLimit, (int) estimate / 2);
+            return;
+        }
+        minRtt = Math.min(minRtt, rtt);
+
+        double queued = estimate * (1 - (double) minRtt / rtt);
+        double step = Math.max(1, Math.log10(estimate));
+        if (queued >= BETA * step) {
+            estimate = Math.max(minLimit, estimate - step);
+        } else if (queued <= ALPHA * step && inFlightBefore * 2 >= limit) {
+            estimate = Math.min(maxLimit, estimate + step);
+        }
+        limit = (int) estimate;
+    }
+
+    /**
+     * Get the current limit
+     * @return Requests admitted at once
+     */
+    public int limit() {
+        return limit;
+    }
+
+    /**
+     * Get the number of admitted requests not yet released
+     * @return Requests in flight
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,117 @@
+package com.zxr.backend.admission;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission controller in front of the order and catalog endpoints ({@code admission.enabled}, on by default)
+ * <p>
+ * Each {@link Workload} has its own {@link AdaptiveLimit}; requests beyond it are shed
+ * with 429 Too Many Requests and a {@code Retry-After} header instead of queueing up
+ * and slowing every request down. Catalog reads have priority over order writes: whenever
+ * a catalog read is shed, the order-write limit backs off too, so writes give way before
+ * browsing degrades further.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionController.class);
+
+    /** Body of a shed request */
+    static final byte[] OVERLOADED_BODY = "{\"message\":\"Server overloaded, retry later\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final AdaptiveLimit[] limits = new AdaptiveLimit[Workload.values().length];
+    private final LongAdder[] shed = new LongAdder[Workload.values().length];
+    private final String retryAfterSeconds;
+
+    /**
+     * Construct admission controller
+     * @param catalogInitialLimit Limit of catalog reads before any latency is observed
+     * @param catalogMinLimit Smallest limit of catalog reads
+     * @param catalogMaxLimit Largest limit of catalog reads
+     * @param orderInitialLimit Limit of order writes before any latency is observed
+     * @param orderMinLimit Smallest limit of order writes
+     * @param orderMaxLimit Largest limit of order writes
+     * @param retryAfter Time clients are asked to wait before retrying a shed request
+     */
+    public AdmissionController(@Value("${admission.catalog.initial-limit:256}") int catalogInitialLimit,
+            @Value("${admission.catalog.min-limit:32}") int catalogMinLimit,
+            @Value("${admission.catalog.max-limit:4096}") int catalogMaxLimit,
+            @Value("${admission.orders.initial-limit:64}") int orderInitialLimit,
+            @Value("${admission.orders.min-limit:8}") int orderMinLimit,
+            @Value("${admission.orders.max-limit:1024}") int orderMaxLimit,
+            @Value("${admission.retry-after:1s}") Duration retryAfter) {
+        limits[Workload.CATALOG_READS.ordinal()] =
+                new AdaptiveLimit(catalogInitialLimit, catalogMinLimit, catalogMaxLimit);
+        limits[Workload.ORDER_WRITES.ordinal()] =
+                new AdaptiveLimit(orderInitialLimit, orderMinLimit, orderMaxLimit);
+        // Retry-After is in whole seconds
+        this.retryAfterSeconds = Long.toString(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+        for (int i = 0; i < shed.length; i++) {
+            shed[i] = new LongAdder();
+        }
+        logger.info("Admission control initialized: catalog limit {}, order limit {}",
+                limit(Workload.CATALOG_READS).limit(), limit(Workload.ORDER_WRITES).limit());
+    }
+
+    /**
+     * Admit a request of a workload
+     * @param workload Workload of the request
+     * @return true if admitted; the caller must then call {@link #complete}
+     */
+    public boolean tryAdmit(Workload workload) {
+        if (limit(workload).tryAcquire()) {
+            return true;
+        }
+        shed[workload.ordinal()].increment();
+        if (workload == Workload.CATALOG_READS) {
+            limit(Workload.ORDER_WRITES).backOff();
+        }
+        return false;
+    }
+
+    /**
+     * Finish an admitted request
+     * @param workload Workload of the request
+     * @param nanos Time from admission to completion
+     */
+    public void complete(Workload workload, long nanos) {
+        limit(workload).release(nanos);
+    }
+
+    /**
+     * Get the limit of a workload
+     * @param workload Workload
+     * @return Adaptive limit
+     */
+    public AdaptiveLimit limit(Workload workload) {
+        return limits[workload.ordinal()];
+    }
+
+    /**
+     * Get the number of shed requests of a workload
+     * @param workload Workload
+     * @return Requests rejected with 429 since startup
+     */
+    public long shed(Workload workload) {
+        return shed[workload.ordinal()].sum();
+    }
+
+    /**
+     * Get the Retry-After header value of shed requests
+     * @return Seconds to wait
+     */
+    public String retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,85 @@
+package com.zxr.backend.admission;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds order and catalog requests beyond their {@link AdmissionController} limit with 429
+ * A request that goes async, such as a streamed batch, holds its slot until the response completes.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final AdmissionController admission;
+
+    /**
+     * Construct admission filter
+     * @param admission Admission controller
+     */
+    public AdmissionFilter(AdmissionController admission) {
+        this.admission = admission;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Workload workload = Workload.of(request.getMethod(),
+                request.getRequestURI().substring(request.getContextPath().length()));
+        if (workload == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!admission.tryAdmit(workload)) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, admission.retryAfterSeconds());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(AdmissionController.OVERLOADED_BODY);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        admission.complete(workload, System.nanoTime() - start);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                admission.complete(workload, System.nanoTime() - start);
+            }
+        }
+    }
+}
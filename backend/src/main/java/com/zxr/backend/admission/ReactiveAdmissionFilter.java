@@ -0,0 +1,52 @@
+package com.zxr.backend.admission;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link AdmissionFilter}
+ * Holds the slot until the response completes, not until the handler returns
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(name = "admission.enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveAdmissionFilter implements WebFilter {
+
+    private final AdmissionController admission;
+
+    /**
+     * Construct reactive admission filter
+     * @param admission Admission controller
+     */
+    public ReactiveAdmissionFilter(AdmissionController admission) {
+        this.admission = admission;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        Workload workload = Workload.of(request.getMethod().name(), request.getPath().pathWithinApplication().value());
+        if (workload == null) {
+            return chain.filter(exchange);
+        }
+        if (!admission.tryAdmit(workload)) {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, admission.retryAfterSeconds());
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(AdmissionController.OVERLOADED_BODY)));
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> admission.complete(workload, System.nanoTime() - start));
+    }
+}
@@ -0,0 +1,48 @@
+package com.zxr.backend.admission;
+
+/**
+ * Request class with its own adaptive concurrency limit
+ * Declared from the highest priority down: under overload the last is shed first.
+ */
+public enum Workload {
+
+    /** GET /products and below: browsing degrades last */
+    CATALOG_READS("catalog"),
+
+    /** POST /orders and below */
+    ORDER_WRITES("orders");
+
+    private final String label;
+
+    Workload(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Get the metrics label
+     * @return Label value
+     */
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Find the workload of a request
+     * @param method HTTP method
+     * @param path Request path without the context path
+     * @return Workload, or null if the request is not limited
+     */
+    public static Workload of(String method, String path) {
+        if ("GET".equals(method) && isUnder(path, "/products")) {
+            return CATALOG_READS;
+        }
+        if ("POST".equals(method) && isUnder(path, "/orders")) {
+            return ORDER_WRITES;
+        }
+        return null;
+    }
+
+    private static boolean isUnder(String path, String prefix) {
+        return path.startsWith(prefix) && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/');
+    }
+}
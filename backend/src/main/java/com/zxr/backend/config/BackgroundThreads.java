@@ -0,0 +1,74 @@
+package com.zxr.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Creates the service's background threads.
+ * <p>
+ * Short-lived or periodic background work follows the request threads: it runs on
+ * virtual threads when {@code spring.threads.virtual.enabled=true} and on platform
+ * daemon threads otherwise. Long-running single-writer loops, such as the write-ahead
+ * log writer, always get a dedicated platform thread so they are never queued behind
+ * thousands of request virtual threads on the carrier pool.
+ * </p>
+ */
+@Component
+public class BackgroundThreads {
+
+      private final boolean virtual;
+
+      /**
+       * @param virtual whether background work runs on virtual threads
+       */
+      public BackgroundThreads(@Value("${spring.threads.virtual.enabled:false}") boolean virtual) {
+            this.virtual = virtual;
+      }
+
+      /**
+       * @return whether background work runs on virtual threads
+       */
+      public boolean isVirtual() {
+            return virtual;
+      }
+
+      /**
+       * Create an unstarted thread for background work.
+       *
+       * @param name thread name
+       * @param task work to run
+       * @return virtual or platform daemon thread, depending on the mode
+       */
+      public Thread newThread(String name, Runnable task) {
+            return virtual
+                        ? Thread.ofVirtual().name(name).unstarted(task)
+                        : Thread.ofPlatform().name(name).daemon().unstarted(task);
+      }
+
+      /**
+       * Create a single-threaded scheduler for periodic background work.
+       *
+       * @param name thread name
+       * @return scheduler running on a virtual or platform daemon thread
+       */
+      public ScheduledExecutorService newScheduler(String name) {
+            return Executors.newSingleThreadScheduledExecutor(virtual
+                        ? Thread.ofVirtual().name(name).factory()
+                        : Thread.ofPlatform().name(name).daemon().factory());
+      }
+
+      /**
+       * Create an unstarted dedicated platform thread for a long-running loop,
+       * whatever the mode.
+       *
+       * @param name thread name
+       * @param task loop to run
+       * @return platform daemon thread
+       */
+      public static Thread dedicated(String name, Runnable task) {
+            return Thread.ofPlatform().name(name).daemon().unstarted(task);
+      }
+}
@@ -3,6 +3,7 @@ package com.zxr.backend.config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -16,8 +17,10 @@ import java.util.stream.Collectors;
  * Global CORS configuration.
  * Reads allowed origins from `spring.web.cors.allowed-origins` to keep behavior
  * configurable per-environment (do NOT use "*" when allow-credentials=true).
+ * The reactive stack registers the same mapping in {@link ReactiveConfig}.
  */
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class CorsConfig implements WebMvcConfigurer {
 
       private static final Logger log = LoggerFactory.getLogger(CorsConfig.class);
@@ -27,6 +30,10 @@ public class CorsConfig implements WebMvcConfigurer {
       private String allowedOriginsProp;
 
       private List<String> parseOrigins() {
+            return parseOrigins(allowedOriginsProp);
+      }
+
+      static List<String> parseOrigins(String allowedOriginsProp) {
             if (!StringUtils.hasText(allowedOriginsProp))
                   return List.of();
             return Arrays.stream(allowedOriginsProp.split(","))
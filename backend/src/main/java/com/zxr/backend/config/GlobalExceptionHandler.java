@@ -1,20 +1,34 @@
 package com.zxr.backend.config;
 
+import com.zxr.backend.exception.IdempotencyKeyReuseException;
 import com.zxr.backend.exception.InsufficientStockException;
+import com.zxr.backend.exception.OrderNotFoundException;
+import com.zxr.backend.exception.OrderNotPendingException;
+import com.zxr.backend.exception.OrderPersistenceException;
 import com.zxr.backend.exception.ProductNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.server.ServerWebInputException;
 
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Centralized exception handling for controllers.
+ * Rejected orders are counted by {@link com.zxr.backend.service.OrderService}, which knows
+ * their cause, not here.
  */
 @ControllerAdvice
 @ResponseBody
@@ -34,12 +48,50 @@ public class GlobalExceptionHandler {
        */
       @ExceptionHandler(IllegalArgumentException.class)
       public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException ex) {
-            logger.warn("Bad request: {}", ex.getMessage());
+            logger.debug("Bad request: {}", ex.getMessage());
             Map<String, String> body = new HashMap<>();
             body.put("message", ex.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
       }
 
+      /**
+       * Handle request bodies that fail bean validation ({@code @Valid}).
+       * <p>
+       * Maps to HTTP 400 Bad Request on both the servlet and the reactive stack,
+       * with the first field error as the <code>message</code>.
+       * </p>
+       *
+       * @param ex the binding exception, which carries the validation errors
+       * @return ResponseEntity with status 400 and body { message }
+       */
+      @ExceptionHandler({MethodArgumentNotValidException.class, WebExchangeBindException.class})
+      public ResponseEntity<Map<String, String>> handleInvalidBody(Exception ex) {
+            FieldError error = ((BindingResult) ex).getFieldError();
+            String message = error != null ? error.getDefaultMessage() : "Invalid request body";
+            logger.debug("Bad request: {}", message);
+            Map<String, String> body = new HashMap<>();
+            body.put("message", message);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+      }
+
+      /**
+       * Handle request parameters or bodies that are missing or cannot be converted, e.g. a non-numeric cursor.
+       * <p>
+       * Maps to HTTP 400 Bad Request on both the servlet and the reactive stack.
+       * </p>
+       *
+       * @param ex the conversion exception
+       * @return ResponseEntity with status 400 and body { message }
+       */
+      @ExceptionHandler({MethodArgumentTypeMismatchException.class, MissingServletRequestParameterException.class,
+                  HttpMessageNotReadableException.class, ServerWebInputException.class})
+      public ResponseEntity<Map<String, String>> handleMalformedRequest(Exception ex) {
+            logger.debug("Bad request: {}", ex.getMessage());
+            Map<String, String> body = new HashMap<>();
+            body.put("message", "Malformed request");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+      }
+
       /**
        * Handle cases where a requested resource (product) cannot be found.
        * <p>
@@ -53,7 +105,25 @@ public class GlobalExceptionHandler {
        */
       @ExceptionHandler(ProductNotFoundException.class)
       public ResponseEntity<Map<String, String>> handleNotFound(ProductNotFoundException ex) {
-            logger.warn("Not found: {}", ex.getMessage());
+            logger.debug("Not found: {}", ex.getMessage());
+            Map<String, String> body = new HashMap<>();
+            body.put("message", ex.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
+      }
+
+      /**
+       * Handle confirmations and cancellations of orders that do not exist.
+       * <p>
+       * Maps to HTTP 404 Not Found.
+       * </p>
+       *
+       * @param ex the OrderNotFoundException thrown by the service layer
+       * @return ResponseEntity with status 404 and body { message }
+       * @see com.zxr.backend.exception.OrderNotFoundException
+       */
+      @ExceptionHandler(OrderNotFoundException.class)
+      public ResponseEntity<Map<String, String>> handleOrderNotFound(OrderNotFoundException ex) {
+            logger.debug("Not found: {}", ex.getMessage());
             Map<String, String> body = new HashMap<>();
             body.put("message", ex.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
@@ -72,12 +142,68 @@ public class GlobalExceptionHandler {
        */
       @ExceptionHandler(InsufficientStockException.class)
       public ResponseEntity<Map<String, String>> handleConflict(InsufficientStockException ex) {
-            logger.warn("Conflict: {}", ex.getMessage());
+            logger.debug("Conflict: {}", ex.getMessage());
             Map<String, String> body = new HashMap<>();
             body.put("message", ex.getMessage());
             return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
       }
 
+      /**
+       * Handle confirmations and cancellations of orders whose reservation has ended.
+       * <p>
+       * Maps to HTTP 409 Conflict: the order was already confirmed, cancelled or expired.
+       * </p>
+       *
+       * @param ex the OrderNotPendingException thrown by the service layer
+       * @return ResponseEntity with status 409 and body { message }
+       * @see com.zxr.backend.exception.OrderNotPendingException
+       */
+      @ExceptionHandler(OrderNotPendingException.class)
+      public ResponseEntity<Map<String, String>> handleNotPending(OrderNotPendingException ex) {
+            logger.debug("Conflict: {}", ex.getMessage());
+            Map<String, String> body = new HashMap<>();
+            body.put("message", ex.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+      }
+
+      /**
+       * Handle an idempotency key sent again with a different order.
+       * <p>
+       * Maps to HTTP 422 Unprocessable Entity; the order first sent with the key is
+       * left as it is.
+       * </p>
+       *
+       * @param ex the IdempotencyKeyReuseException thrown for the reused key
+       * @return ResponseEntity with status 422 and body { message }
+       * @see com.zxr.backend.exception.IdempotencyKeyReuseException
+       */
+      @ExceptionHandler(IdempotencyKeyReuseException.class)
+      public ResponseEntity<Map<String, String>> handleKeyReuse(IdempotencyKeyReuseException ex) {
+            logger.debug("Idempotency key reused: {}", ex.getMessage());
+            Map<String, String> body = new HashMap<>();
+            body.put("message", ex.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(body);
+      }
+
+      /**
+       * Handle orders that could not be made durable.
+       * <p>
+       * Maps to HTTP 503 Service Unavailable; the stock reserved for the order has
+       * already been released, so the client may safely retry.
+       * </p>
+       *
+       * @param ex the OrderPersistenceException thrown by the service layer
+       * @return ResponseEntity with status 503 and body { message }
+       * @see com.zxr.backend.exception.OrderPersistenceException
+       */
+      @ExceptionHandler(OrderPersistenceException.class)
+      public ResponseEntity<Map<String, String>> handleUnavailable(OrderPersistenceException ex) {
+            logger.error("Persistence failure: {}", ex.getMessage(), ex.getCause());
+            Map<String, String> body = new HashMap<>();
+            body.put("message", ex.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(body);
+      }
+
       /**
        * Catch-all handler for unexpected exceptions.
        * <p>
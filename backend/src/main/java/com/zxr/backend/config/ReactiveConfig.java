@@ -0,0 +1,57 @@
+package com.zxr.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.CorsRegistry;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import java.util.List;
+
+/**
+ * Reactive stack configuration, active with the "reactive" profile.
+ * Runs WebFlux on Netty and applies the same CORS mapping as {@link CorsConfig}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfig implements WebFluxConfigurer {
+
+      private static final Logger log = LoggerFactory.getLogger(ReactiveConfig.class);
+
+      // comma-separated origins from application.yaml or ENV
+      @Value("${spring.web.cors.allowed-origins:}")
+      private String allowedOriginsProp;
+
+      /**
+       * Tomcat is on the classpath for the servlet stack and would otherwise be picked
+       * as the reactive server too.
+       *
+       * @return Netty server factory
+       */
+      @Bean
+      public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+            return new NettyReactiveWebServerFactory();
+      }
+
+      @Override
+      public void addCorsMappings(CorsRegistry registry) {
+            List<String> origins = CorsConfig.parseOrigins(allowedOriginsProp);
+            if (origins.isEmpty()) {
+                  log.warn("No CORS allowed-origins configured — CORS requests will be rejected by default.");
+                  return;
+            }
+
+            log.info("Registering global CORS mapping for origins: {}", origins);
+
+            registry.addMapping("/**")
+                        .allowedOrigins(origins.toArray(String[]::new))
+                        .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+                        .allowedHeaders("*")
+                        .allowCredentials(true)
+                        .maxAge(3600);
+      }
+}
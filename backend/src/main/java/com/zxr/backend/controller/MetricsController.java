@@ -0,0 +1,39 @@
+package com.zxr.backend.controller;
+
+import com.zxr.backend.metrics.OrderMetrics;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Metrics controller class
+ * Serves the metrics registry for Prometheus scraping
+ */
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    /** Prometheus text exposition format */
+    private static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain;version=0.0.4;charset=utf-8");
+
+    private final OrderMetrics metrics;
+
+    /**
+     * Construct metrics controller
+     * @param metrics Metrics registry
+     */
+    public MetricsController(OrderMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get all metrics
+     * @return Metrics in the Prometheus text format
+     */
+    @GetMapping
+    public ResponseEntity<String> scrape() {
+        return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(metrics.scrape());
+    }
+}
@@ -1,80 +1,250 @@
 package com.zxr.backend.controller;
 
-import com.zxr.backend.dto.CreateOrderRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zxr.backend.dto.BatchOrderRequest;
+import com.zxr.backend.dto.BatchOrderResult;
+import com.zxr.backend.dto.CartCommand;
+import com.zxr.backend.dto.OrderPage;
+import com.zxr.backend.service.IdempotencyCache;
+import com.zxr.backend.service.OrderQueryService;
 import com.zxr.backend.service.OrderService;
 import com.zxr.backend.dto.CreateOrderResponse;
+import com.zxr.backend.model.Money;
+import com.zxr.backend.model.OrderIds;
+import com.zxr.backend.model.OrderStatus;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.ArrayList;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Order controller class
- * Handles order-related HTTP requests
+ * Handles order-related HTTP requests on the servlet stack;
+ * {@link ReactiveOrderController} serves the same contract on the reactive stack
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/orders")
 public class OrderController {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
 
+    /** Request header making order creation idempotent */
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    /** Response header marking a response replayed for a repeated idempotency key */
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     private final OrderService service;
+    private final OrderQueryService queries;
+    private final IdempotencyCache idempotency;
+    private final ObjectMapper objectMapper;
+    private final int batchChunkSize;
 
     /**
      * Construct order controller
      * 
-     * @param service Order service
+     * @param service        Order service
+     * @param queries        Order query service
+     * @param idempotency    Orders created per idempotency key
+     * @param objectMapper   JSON mapper for streamed batch results
+     * @param batchChunkSize Carts processed and flushed together in a batch request
      */
-    public OrderController(OrderService service) {
+    public OrderController(OrderService service, OrderQueryService queries, IdempotencyCache idempotency,
+            ObjectMapper objectMapper, @Value("${order.batch.chunk-size:256}") int batchChunkSize) {
         this.service = service;
+        this.queries = queries;
+        this.idempotency = idempotency;
+        this.objectMapper = objectMapper;
+        this.batchChunkSize = Math.max(1, batchChunkSize);
         logger.info("Order controller initialized");
     }
 
     /**
      * Create order with multiple products
+     * With an {@code Idempotency-Key} header the order is created once per key: a
+     * duplicate sent while it is created waits for it, a later one gets the same
+     * response again.
      * 
-     * @param request Order creation request
+     * @param request        Order creation request
+     * @param idempotencyKey Idempotency key, optional
      * @return Order creation response
      */
     @PostMapping
-    public ResponseEntity<Map<String, Object>> createOrder(@Valid @RequestBody CreateOrderRequest request) {
-        logger.info("Received order creation request: {}", request);
-
+    public ResponseEntity<Map<String, Object>> createOrder(@RequestBody CartCommand request,
+            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         // Basic input validation kept at controller level for fast-fail
-        if (request.getItems() == null || request.getItems().isEmpty()) {
-            logger.error("Order creation failed: No items in request");
+        if (request.count() == 0) {
             return ResponseEntity.badRequest().build();
         }
 
-        // Convert items to map format expected by service
-        List<Map<String, Object>> items = new ArrayList<>();
-        for (CreateOrderRequest.Item item : request.getItems()) {
-            Map<String, Object> itemMap = new HashMap<>();
-            itemMap.put("productId", item.getProductId());
-            itemMap.put("quantity", item.getQuantity());
-            items.add(itemMap);
-        }
-
         // Delegate full business logic to service (price calculation, stock,
         // persistence)
-        CreateOrderResponse svcResp = service.createOrderWithItems(items);
+        if (idempotencyKey == null) {
+            return toResponse(service.createOrderWithItems(request), false);
+        }
+        IdempotencyCache.Outcome outcome = idempotency.execute(idempotencyKey, request,
+                () -> CompletableFuture.completedFuture(service.createOrderWithItems(request)));
+        return toResponse(await(outcome.response()), outcome.replayed());
+    }
 
-        // Build API response (keeps previous shape expected by frontend)
+    /**
+     * Wait for an order created by this or a concurrent request
+     * 
+     * @param response Future of the order response
+     * @return Order response
+     */
+    private static CreateOrderResponse await(CompletableFuture<CreateOrderResponse> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            // Surface the service exception itself, so it maps to the same status
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Create many orders in one request
+     * Carts are processed in chunks: one product lookup, one journal write and one
+     * repository write per chunk. Results are streamed back as NDJSON, one line per
+     * cart in request order, flushed after every chunk.
+     * 
+     * @param request Batch order request
+     * @return Stream of batch order results
+     */
+    @PostMapping(path = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> createOrderBatch(@Valid @RequestBody BatchOrderRequest request) {
+        int size = request.getOrders().size();
+        StreamingResponseBody body = out -> {
+            for (int first = 0; first < size; first += batchChunkSize) {
+                int end = Math.min(size, first + batchChunkSize);
+                List<BatchOrderResult> results = service.createOrderBatch(request.toCarts(first, end), first);
+                for (BatchOrderResult result : results) {
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                }
+                out.flush();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Query orders by product or by creation time
+     * Pass either {@code productId} or both {@code from} and {@code to} (ISO-8601 instants,
+     * {@code to} exclusive). Keyset pagination: pass the {@code nextCursor} of a page as
+     * {@code after} to get the next one.
+     * 
+     * @param productId Product ID
+     * @param from      Creation time range start, inclusive
+     * @param to        Creation time range end, exclusive
+     * @param after     Cursor: last order ID of the previous page
+     * @param limit     Page size in order lines
+     * @return Order lines in ascending order ID order
+     */
+    @GetMapping
+    public OrderPage findOrders(@RequestParam(required = false) Long productId,
+            @RequestParam(required = false) Instant from, @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${order.query.default-limit:100}") int limit) {
+        return queries.findOrders(productId, from, to, after, limit);
+    }
+
+    /**
+     * Get order by ID
+     * 
+     * @param id Order ID in its text form
+     * @return Every line of the order, or 404 if not found
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<OrderPage> getOrder(@PathVariable String id) {
+        OrderPage order = queries.getOrder(id);
+        return order != null ? ResponseEntity.ok(order) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Confirm an order, e.g. once it is paid, keeping its reserved stock deducted
+     * 
+     * @param id Order ID in its text form
+     * @return Order ID and status; 404 if not found, 409 if no longer pending
+     */
+    @PostMapping("/{id}/confirm")
+    public Map<String, Object> confirmOrder(@PathVariable String id) {
+        return toStatusBody(id, service.confirmOrder(id));
+    }
+
+    /**
+     * Cancel an order, giving its reserved stock back
+     * 
+     * @param id Order ID in its text form
+     * @return Order ID and status; 404 if not found, 409 if no longer pending
+     */
+    @PostMapping("/{id}/cancel")
+    public Map<String, Object> cancelOrder(@PathVariable String id) {
+        return toStatusBody(id, service.cancelOrder(id));
+    }
+
+    /**
+     * Build created order response
+     * 
+     * @param svcResp  Service response
+     * @param replayed Whether the order was created by an earlier request with the same idempotency key
+     * @return Response with status 201
+     */
+    static ResponseEntity<Map<String, Object>> toResponse(CreateOrderResponse svcResp, boolean replayed) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.CREATED);
+        if (replayed) {
+            response.header(IDEMPOTENT_REPLAYED, "true");
+        }
+        return response.body(toResponseBody(svcResp));
+    }
+
+    /**
+     * Build API response (keeps previous shape expected by frontend)
+     * 
+     * @param svcResp Service response
+     * @return Response body
+     */
+    static Map<String, Object> toResponseBody(CreateOrderResponse svcResp) {
         Map<String, Object> response = new HashMap<>();
-        response.put("orderId", svcResp.getOrderId());
-        response.put("totalPrice", svcResp.getTotalPrice());
-        response.put("status", "pending");
-        response.put("createdAt", new java.util.Date());
+        response.put("orderId", OrderIds.format(svcResp.getOrderId()));
+        response.put("totalPrice", Money.toDecimal(svcResp.getTotalPriceCents()));
+        response.put("status", svcResp.getStatus().label());
+        response.put("createdAt", svcResp.getCreatedAt());
+        if (svcResp.getExpiresAt() != null) {
+            response.put("expiresAt", svcResp.getExpiresAt());
+        }
+        return response;
+    }
 
-        logger.info("Order created successfully, response: {}", response);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    /**
+     * Build order status response
+     * 
+     * @param orderId Order ID in its text form
+     * @param status  New order status
+     * @return Response body
+     */
+    static Map<String, Object> toStatusBody(String orderId, OrderStatus status) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("orderId", orderId);
+        response.put("status", status.label());
+        return response;
     }
 
 }
@@ -1,56 +1,168 @@
 package com.zxr.backend.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.zxr.backend.dto.ProductPage;
+import com.zxr.backend.dto.ProductSearchPage;
 import com.zxr.backend.model.Product;
+import com.zxr.backend.service.CatalogCache;
 import com.zxr.backend.service.ProductService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.Collection;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Product controller class
- * Handles product-related HTTP requests
+ * Handles product-related HTTP requests on the servlet stack;
+ * {@link ReactiveProductController} serves the same contract on the reactive stack
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/products")
 public class ProductController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
     
     private final ProductService service;
+    private final ObjectWriter streamWriter;
+    private final int streamChunkSize;
 
     /**
      * Construct product controller
      * @param service Product service
+     * @param objectMapper JSON mapper for streamed products
+     * @param streamChunkSize Products written between two flushes of a streamed listing
      */
-    public ProductController(ProductService service) {
+    public ProductController(ProductService service, ObjectMapper objectMapper,
+            @Value("${catalog.stream.chunk-size:256}") int streamChunkSize) {
         this.service = service;
+        this.streamWriter = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+        this.streamChunkSize = Math.max(1, streamChunkSize);
         logger.info("Product controller initialized");
     }
 
     /**
      * Get all products
-     * @return Product collection
+     * Served from the pre-encoded catalog snapshot; a client that sends the current
+     * ETag in {@code If-None-Match} gets 304 Not Modified.
+     * @param ifNoneMatch ETags the client already has
+     * @param acceptEncoding Encodings the client accepts
+     * @return Product list as JSON
      */
-    @GetMapping
-    public ResponseEntity<Collection<Product>> getProducts() {
-        logger.info("Received request to get all products");
-        
+    @GetMapping(params = {"!after", "!limit"})
+    public ResponseEntity<byte[]> getProducts(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            Collection<Product> products = service.getProducts();
-            logger.info("Successfully retrieved {} products", products.size());
-            return ResponseEntity.ok(products);
+            return toCatalogResponse(service.getCatalog(), ifNoneMatch, acceptEncoding);
         } catch (Exception e) {
             logger.error("Failed to retrieve products: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    /**
+     * Get one page of products, for catalogs too large for one response
+     * Keyset pagination: pass the {@code nextCursor} of a page as {@code after} to get the next one.
+     * @param after Cursor: last product ID of the previous page, 0 for the first page
+     * @param limit Page size
+     * @return Product page
+     */
+    @GetMapping
+    public ProductPage getProductPage(@RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "${catalog.page.default-limit:100}") int limit) {
+        return service.getProductPage(after, limit);
+    }
+
+    /**
+     * Search products by name, ranked and paginated
+     * @param q Query text; every term must prefix a term of the product name
+     * @param offset Ranked hits to skip
+     * @param limit Page size
+     * @return Page of ranked hits
+     */
+    @GetMapping("/search")
+    public ProductSearchPage searchProducts(@RequestParam String q, @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "${catalog.search.default-limit:20}") int limit) {
+        return service.searchProducts(q, offset, limit);
+    }
+
+    /**
+     * Stream all products as NDJSON, one product per line
+     * Products are written straight to the response in chunks, so memory per request
+     * stays bounded whatever the catalog size.
+     * @return Product stream
+     */
+    @GetMapping(path = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamProducts() {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = streamWriter.createGenerator(out)) {
+                int written = 0;
+                for (Product product : service.getProducts()) {
+                    streamWriter.writeValue(generator, product);
+                    if (++written % streamChunkSize == 0) {
+                        generator.flush();
+                    }
+                }
+                if (written > 0) {
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Build the product list response from a catalog snapshot
+     * @param snapshot Catalog snapshot
+     * @param ifNoneMatch ETags the client already has, may be null
+     * @param acceptEncoding Encodings the client accepts, may be null
+     * @return 304 if the client is up to date, otherwise the JSON, gzipped if accepted
+     */
+    static ResponseEntity<byte[]> toCatalogResponse(CatalogCache.Snapshot snapshot, String ifNoneMatch,
+            String acceptEncoding) {
+        if (CatalogCache.matches(ifNoneMatch, snapshot.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.etag()).build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (snapshot.gzip() != null && acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzip());
+        }
+        return response.body(snapshot.json());
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
     
     /**
      * Get product by ID
@@ -59,23 +171,32 @@ public class ProductController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<Product> getProduct(@PathVariable Long id) {
-        logger.info("Received request to get product, product ID: {}", id);
-        
         try {
             Product product = service.getProduct(id);
-            if (product != null) {
-                logger.info("Successfully retrieved product: {}", product.getName());
-                return ResponseEntity.ok(product);
-            } else {
-                logger.warn("Product not found with ID: {}", id);
-                return ResponseEntity.notFound().build();
-            }
+            return product != null ? ResponseEntity.ok(product) : ResponseEntity.notFound().build();
         } catch (IllegalArgumentException e) {
-            logger.error("Parameter error: {}", e.getMessage());
+            logger.debug("Parameter error: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             logger.error("Failed to retrieve product: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Turn striped stock of a hot product on or off
+     * @param id Product ID
+     * @param enabled Whether the stock should be striped
+     * @return Product object
+     */
+    @PutMapping("/{id}/stock-striping")
+    public ResponseEntity<Product> setStockStriping(@PathVariable Long id, @RequestParam boolean enabled) {
+        try {
+            Product product = service.setStripedStock(id, enabled);
+            return product != null ? ResponseEntity.ok(product) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            logger.error("Parameter error: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.zxr.backend.controller;
+
+import com.zxr.backend.dto.BatchOrderRequest;
+import com.zxr.backend.dto.BatchOrderResult;
+import com.zxr.backend.dto.CartCommand;
+import com.zxr.backend.dto.CreateOrderResponse;
+import com.zxr.backend.dto.OrderPage;
+import com.zxr.backend.service.IdempotencyCache;
+import com.zxr.backend.service.OrderQueryService;
+import com.zxr.backend.service.OrderService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Reactive order controller class
+ * Serves the {@link OrderController} contract on the reactive stack ("reactive" profile)
+ */
+@RestController
+@RequestMapping("/orders")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOrderController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveOrderController.class);
+
+    private final OrderService service;
+    private final OrderQueryService queries;
+    private final IdempotencyCache idempotency;
+    private final int batchChunkSize;
+
+    /**
+     * Construct reactive order controller
+     * 
+     * @param service        Order service
+     * @param queries        Order query service
+     * @param idempotency    Orders created per idempotency key
+     * @param batchChunkSize Carts processed together in a batch request
+     */
+    public ReactiveOrderController(OrderService service, OrderQueryService queries, IdempotencyCache idempotency,
+            @Value("${order.batch.chunk-size:256}") int batchChunkSize) {
+        this.service = service;
+        this.queries = queries;
+        this.idempotency = idempotency;
+        this.batchChunkSize = Math.max(1, batchChunkSize);
+        logger.info("Reactive order controller initialized");
+    }
+
+    /**
+     * Create order with multiple products
+     * No step blocks a thread: validation, lookup, reservation and pricing are CPU only,
+     * and persistence completes when the order journal signals durability. Idempotency
+     * keys work as in {@link OrderController#createOrder}; duplicates wait without
+     * blocking a thread.
+     * 
+     * @param request        Order creation request
+     * @param idempotencyKey Idempotency key, optional
+     * @return Order creation response
+     */
+    @PostMapping
+    public Mono<ResponseEntity<Map<String, Object>>> createOrder(@RequestBody Mono<CartCommand> request,
+            @RequestHeader(name = OrderController.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return request.flatMap(body -> {
+            // Basic input validation kept at controller level for fast-fail
+            if (body.count() == 0) {
+                return Mono.just(ResponseEntity.badRequest().<Map<String, Object>>build());
+            }
+            if (idempotencyKey == null) {
+                return create(body).map(svcResp -> OrderController.toResponse(svcResp, false));
+            }
+            // The order runs to completion even if this client goes away, as duplicates may be waiting for it
+            IdempotencyCache.Outcome outcome = idempotency.execute(idempotencyKey, body, () -> create(body).toFuture());
+            return Mono.fromFuture(outcome.response(), true)
+                    .map(svcResp -> OrderController.toResponse(svcResp, outcome.replayed()));
+        });
+    }
+
+    private Mono<CreateOrderResponse> create(CartCommand body) {
+        return Mono.fromFuture(() -> service.prepareOrderAsync(body))
+                // The inventory sequencer completes reservations on its shard thread; continue elsewhere
+                .publishOn(Schedulers.parallel())
+                .flatMap(order -> Mono.fromFuture(() -> service.recordOrder(order))
+                        // The journal completes on its writer thread; save where the store may block on disk
+                        .publishOn(Schedulers.boundedElastic())
+                        .then(Mono.fromCallable(() -> service.completeOrder(order))));
+    }
+
+    /**
+     * Create many orders in one request
+     * Chunks are pipelined: the next chunk is looked up and reserved while the
+     * journal write of the previous one is still pending. Results are streamed back
+     * as NDJSON in request order.
+     * 
+     * @param request Batch order request
+     * @return Stream of batch order results
+     */
+    @PostMapping(path = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchOrderResult> createOrderBatch(@Valid @RequestBody Mono<BatchOrderRequest> request) {
+        return request.flatMapMany(body -> {
+            int size = body.getOrders().size();
+            int chunks = (size + batchChunkSize - 1) / batchChunkSize;
+            return Flux.range(0, chunks).flatMapSequential(chunk -> {
+                int first = chunk * batchChunkSize;
+                int end = Math.min(size, first + batchChunkSize);
+                return Mono.fromCallable(() -> service.prepareOrderBatch(body.toCarts(first, end), first))
+                        // Waits for the inventory sequencer when it is enabled
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMap(batch -> Mono.fromFuture(() -> service.recordOrderBatch(batch))
+                                // The journal completes on its writer thread; save where the store may block on disk
+                                .publishOn(Schedulers.boundedElastic())
+                                .then(Mono.fromCallable(() -> service.completeOrderBatch(batch))))
+                        .flatMapIterable(results -> results);
+            }, 2);
+        });
+    }
+
+    /**
+     * Query orders by product or by creation time
+     * Same contract as {@link OrderController#findOrders}. Reads on a bounded elastic
+     * thread, as the store may take locks or read segment files.
+     * 
+     * @param productId Product ID
+     * @param from      Creation time range start, inclusive
+     * @param to        Creation time range end, exclusive
+     * @param after     Cursor: last order ID of the previous page
+     * @param limit     Page size in order lines
+     * @return Order lines in ascending order ID order
+     */
+    @GetMapping
+    public Mono<OrderPage> findOrders(@RequestParam(required = false) Long productId,
+            @RequestParam(required = false) Instant from, @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "${order.query.default-limit:100}") int limit) {
+        return Mono.fromCallable(() -> queries.findOrders(productId, from, to, after, limit))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Get order by ID
+     * Reads on a bounded elastic thread, like {@link #findOrders}.
+     * 
+     * @param id Order ID in its text form
+     * @return Every line of the order, or 404 if not found
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<OrderPage>> getOrder(@PathVariable String id) {
+        return Mono.<ResponseEntity<OrderPage>>fromCallable(() -> {
+            OrderPage order = queries.getOrder(id);
+            return order != null ? ResponseEntity.ok(order) : ResponseEntity.<OrderPage>notFound().build();
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Confirm an order, keeping its reserved stock deducted
+     * Waits for the journal on a bounded elastic thread.
+     * 
+     * @param id Order ID in its text form
+     * @return Order ID and status; 404 if not found, 409 if no longer pending
+     */
+    @PostMapping("/{id}/confirm")
+    public Mono<Map<String, Object>> confirmOrder(@PathVariable String id) {
+        return Mono.fromCallable(() -> OrderController.toStatusBody(id, service.confirmOrder(id)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Cancel an order, giving its reserved stock back
+     * Waits for the journal on a bounded elastic thread.
+     * 
+     * @param id Order ID in its text form
+     * @return Order ID and status; 404 if not found, 409 if no longer pending
+     */
+    @PostMapping("/{id}/cancel")
+    public Mono<Map<String, Object>> cancelOrder(@PathVariable String id) {
+        return Mono.fromCallable(() -> OrderController.toStatusBody(id, service.cancelOrder(id)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
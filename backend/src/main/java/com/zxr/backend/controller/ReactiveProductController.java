@@ -0,0 +1,121 @@
+package com.zxr.backend.controller;
+
+import com.zxr.backend.dto.ProductPage;
+import com.zxr.backend.dto.ProductSearchPage;
+import com.zxr.backend.model.Product;
+import com.zxr.backend.service.ProductService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive product controller class
+ * Serves the {@link ProductController} contract on the reactive stack ("reactive" profile)
+ */
+@RestController
+@RequestMapping("/products")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveProductController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveProductController.class);
+
+    private final ProductService service;
+
+    /**
+     * Construct reactive product controller
+     * @param service Product service
+     */
+    public ReactiveProductController(ProductService service) {
+        this.service = service;
+        logger.info("Reactive product controller initialized");
+    }
+
+    /**
+     * Get all products
+     * Served from the pre-encoded catalog snapshot, see {@link ProductController#getProducts}
+     * @param ifNoneMatch ETags the client already has
+     * @param acceptEncoding Encodings the client accepts
+     * @return Product list as JSON
+     */
+    @GetMapping(params = {"!after", "!limit"})
+    public Mono<ResponseEntity<byte[]>> getProducts(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return Mono.fromCallable(() -> ProductController.toCatalogResponse(service.getCatalog(), ifNoneMatch,
+                acceptEncoding));
+    }
+
+    /**
+     * Get one page of products, see {@link ProductController#getProductPage}
+     * @param after Cursor: last product ID of the previous page, 0 for the first page
+     * @param limit Page size
+     * @return Product page
+     */
+    @GetMapping
+    public Mono<ProductPage> getProductPage(@RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "${catalog.page.default-limit:100}") int limit) {
+        return Mono.fromCallable(() -> service.getProductPage(after, limit));
+    }
+
+    /**
+     * Search products by name, see {@link ProductController#searchProducts}
+     * @param q Query text; every term must prefix a term of the product name
+     * @param offset Ranked hits to skip
+     * @param limit Page size
+     * @return Page of ranked hits
+     */
+    @GetMapping("/search")
+    public Mono<ProductSearchPage> searchProducts(@RequestParam String q, @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "${catalog.search.default-limit:20}") int limit) {
+        return Mono.fromCallable(() -> service.searchProducts(q, offset, limit));
+    }
+
+    /**
+     * Stream all products as NDJSON, one product per line
+     * Products are pulled from the catalog only as fast as the client consumes them.
+     * @return Product stream
+     */
+    @GetMapping(path = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Product> streamProducts() {
+        return Flux.fromIterable(service.getProducts());
+    }
+
+    /**
+     * Get product by ID
+     * @param id Product ID
+     * @return Product object
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Product>> getProduct(@PathVariable Long id) {
+        return Mono.fromCallable(() -> service.getProduct(id))
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    /**
+     * Turn striped stock of a hot product on or off
+     * @param id Product ID
+     * @param enabled Whether the stock should be striped
+     * @return Product object
+     */
+    @PutMapping("/{id}/stock-striping")
+    public Mono<ResponseEntity<Product>> setStockStriping(@PathVariable Long id, @RequestParam boolean enabled) {
+        return Mono.fromCallable(() -> service.setStripedStock(id, enabled))
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+}
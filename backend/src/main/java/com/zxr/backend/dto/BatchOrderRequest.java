@@ -0,0 +1,50 @@
+package com.zxr.backend.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import jakarta.validation.constraints.NotEmpty;
+
+/**
+ * Batch order request DTO
+ * Carries many carts in one request; each cart is validated on its own, so an invalid
+ * cart is reported in its result instead of failing the whole batch
+ */
+public class BatchOrderRequest {
+
+    @NotEmpty(message = "orders must not be empty")
+    private List<CartCommand> orders;
+
+    /**
+     * Get carts
+     * 
+     * @return List of carts, in result order
+     */
+    public List<CartCommand> getOrders() {
+        return orders;
+    }
+
+    /**
+     * Set carts
+     * 
+     * @param orders List of carts
+     */
+    public void setOrders(List<CartCommand> orders) {
+        this.orders = orders;
+    }
+
+    /**
+     * Get a range of carts for the order service
+     * A missing cart becomes an empty cart, which the service rejects as invalid.
+     * 
+     * @param from First cart, inclusive
+     * @param to   Last cart, exclusive
+     * @return One cart command per cart
+     */
+    public List<CartCommand> toCarts(int from, int to) {
+        List<CartCommand> carts = new ArrayList<>(to - from);
+        for (CartCommand cart : orders.subList(from, to)) {
+            carts.add(cart == null ? new CartCommand() : cart);
+        }
+        return carts;
+    }
+}
@@ -0,0 +1,130 @@
+package com.zxr.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.zxr.backend.model.Money;
+import com.zxr.backend.model.OrderIds;
+
+import java.util.Locale;
+
+/**
+ * Batch order result DTO
+ * Outcome of one cart of a batch, streamed back as one line of NDJSON
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchOrderResult {
+
+    /**
+     * Cart outcome, serialized in lower case
+     */
+    public enum Status {
+        CREATED, INVALID, NOT_FOUND, INSUFFICIENT_STOCK, FAILED;
+
+        @JsonValue
+        public String text() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** Position of the cart in the request */
+    private final int index;
+
+    /** Cart outcome */
+    private final Status status;
+
+    /** Order ID of a created cart, see {@link OrderIds} */
+    private final Long orderId;
+
+    /** Total price of a created cart, in cents */
+    private final Long totalPriceCents;
+
+    /** Reason a cart was not created */
+    private final String message;
+
+    private BatchOrderResult(int index, Status status, Long orderId, Long totalPriceCents, String message) {
+        this.index = index;
+        this.status = status;
+        this.orderId = orderId;
+        this.totalPriceCents = totalPriceCents;
+        this.message = message;
+    }
+
+    /**
+     * Result of a created cart
+     * @param index Position of the cart in the request
+     * @param orderId Order ID
+     * @param totalPriceCents Order total price in cents
+     * @return Batch order result
+     */
+    public static BatchOrderResult created(int index, long orderId, long totalPriceCents) {
+        return new BatchOrderResult(index, Status.CREATED, orderId, totalPriceCents, null);
+    }
+
+    /**
+     * Result of a rejected cart
+     * @param index Position of the cart in the request
+     * @param status Reason the cart was rejected
+     * @param message Error message
+     * @return Batch order result
+     */
+    public static BatchOrderResult rejected(int index, Status status, String message) {
+        return new BatchOrderResult(index, status, null, null, message);
+    }
+
+    /**
+     * Get position of the cart in the request
+     * @return Cart index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Get cart outcome
+     * @return Status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Get order ID
+     * Serialized in its {@code ORD-...} text form
+     * @return Order ID, or null if the cart was not created
+     */
+    @JsonSerialize(using = OrderIds.TextSerializer.class)
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Get order total price
+     * Serialized as {@code totalPrice} in its decimal form
+     * @return Total price in cents, or null if the cart was not created
+     */
+    @JsonProperty("totalPrice")
+    @JsonSerialize(using = Money.DecimalSerializer.class)
+    public Long getTotalPriceCents() {
+        return totalPriceCents;
+    }
+
+    /**
+     * Get error message
+     * @return Reason the cart was not created, or null if it was
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchOrderResult{" +
+                "index=" + index +
+                ", status=" + status +
+                (orderId != null ? ", orderId='" + OrderIds.format(orderId) + "'" : "") +
+                (message != null ? ", message='" + message + "'" : "") +
+                '}';
+    }
+}
@@ -0,0 +1,264 @@
+package com.zxr.backend.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Typed cart command
+ * <p>
+ * The lines of one order as parallel primitive arrays: product IDs as {@code long[]}
+ * and quantities as {@code int[]}, with no object per line. Request bodies of the form
+ * {@code {"items":[{"productId":1,"quantity":2}]}} are read into it token by token by
+ * {@link Reader}, without binding intermediate item objects. A command can be
+ * {@link #clear() cleared} and refilled; the order service copies what it keeps, so a
+ * command may be reused once the service call it was passed to has returned.
+ * </p>
+ * <p>
+ * A line whose product ID or quantity is missing or null holds {@link #MISSING} there
+ * and is rejected by the service like any other invalid value.
+ * </p>
+ */
+@JsonDeserialize(using = CartCommand.Reader.class)
+public final class CartCommand {
+
+    /** Value of a missing product ID or quantity */
+    public static final int MISSING = 0;
+
+    /** Most lines one order may have; larger carts are rejected while they are read */
+    public static final int MAX_LINES = 1000;
+
+    private long[] productIds;
+    private int[] quantities;
+    private int count;
+
+    /**
+     * Create an empty cart command
+     */
+    public CartCommand() {
+        this(4);
+    }
+
+    /**
+     * Create an empty cart command
+     * @param capacity Lines to make room for
+     */
+    public CartCommand(int capacity) {
+        this.productIds = new long[Math.max(1, capacity)];
+        this.quantities = new int[productIds.length];
+    }
+
+    /**
+     * Create a cart command from parallel arrays
+     * @param productIds Product IDs
+     * @param quantities Purchase quantities, same indexes as the product IDs
+     * @return Cart command holding copies of the arrays
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public static CartCommand of(long[] productIds, int[] quantities) {
+        if (productIds.length != quantities.length) {
+            throw new IllegalArgumentException("Product IDs and quantities must have the same length");
+        }
+        CartCommand command = new CartCommand(productIds.length);
+        System.arraycopy(productIds, 0, command.productIds, 0, productIds.length);
+        System.arraycopy(quantities, 0, command.quantities, 0, quantities.length);
+        command.count = productIds.length;
+        return command;
+    }
+
+    /**
+     * Append a line
+     * @param productId Product ID
+     * @param quantity Purchase quantity
+     * @return This command
+     */
+    public CartCommand add(long productId, int quantity) {
+        if (count == productIds.length) {
+            productIds = Arrays.copyOf(productIds, count * 2);
+            quantities = Arrays.copyOf(quantities, count * 2);
+        }
+        productIds[count] = productId;
+        quantities[count] = quantity;
+        count++;
+        return this;
+    }
+
+    /**
+     * Remove every line, keeping the arrays for reuse
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Get number of lines
+     * @return Line count
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Get product ID of a line
+     * @param line Line index
+     * @return Product ID
+     */
+    public long productId(int line) {
+        return productIds[checkLine(line)];
+    }
+
+    /**
+     * Get purchase quantity of a line
+     * @param line Line index
+     * @return Quantity
+     */
+    public int quantity(int line) {
+        return quantities[checkLine(line)];
+    }
+
+    /**
+     * Copy the product IDs into an array
+     * @param target Destination array
+     * @param offset Destination index of the first line
+     */
+    public void copyProductIds(long[] target, int offset) {
+        System.arraycopy(productIds, 0, target, offset, count);
+    }
+
+    /**
+     * Copy the quantities into an array
+     * @param target Destination array
+     * @param offset Destination index of the first line
+     */
+    public void copyQuantities(int[] target, int offset) {
+        System.arraycopy(quantities, 0, target, offset, count);
+    }
+
+    /**
+     * Copy this command
+     * @return Command with the same lines, sized to fit
+     */
+    public CartCommand copy() {
+        return of(Arrays.copyOf(productIds, count), Arrays.copyOf(quantities, count));
+    }
+
+    private int checkLine(int line) {
+        if (line < 0 || line >= count) {
+            throw new IndexOutOfBoundsException("Line " + line + " of " + count);
+        }
+        return line;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof CartCommand that) || count != that.count) {
+            return false;
+        }
+        return Arrays.equals(productIds, 0, count, that.productIds, 0, count)
+                && Arrays.equals(quantities, 0, count, that.quantities, 0, count);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = count;
+        for (int i = 0; i < count; i++) {
+            hash = 31 * (31 * hash + Long.hashCode(productIds[i])) + quantities[i];
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("CartCommand{");
+        for (int i = 0; i < count; i++) {
+            text.append(i == 0 ? "" : ", ").append(productIds[i]).append('x').append(quantities[i]);
+        }
+        return text.append('}').toString();
+    }
+
+    /**
+     * Streaming reader of the order request body into a cart command
+     * Unknown fields are skipped; numbers given as strings are accepted like Jackson's
+     * default binding did. Reading stops at the first line past {@link #MAX_LINES}.
+     */
+    public static class Reader extends StdDeserializer<CartCommand> {
+
+        public Reader() {
+            super(CartCommand.class);
+        }
+
+        @Override
+        public CartCommand deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            CartCommand command = new CartCommand();
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                return (CartCommand) context.handleUnexpectedToken(CartCommand.class, parser);
+            }
+            for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+                JsonToken value = parser.nextToken();
+                if (field.equals("items") && value == JsonToken.START_ARRAY) {
+                    readItems(parser, context, command);
+                } else if (field.equals("items") && value != JsonToken.VALUE_NULL) {
+                    return (CartCommand) context.handleUnexpectedToken(CartCommand.class, parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return command;
+        }
+
+        private static void readItems(JsonParser parser, DeserializationContext context, CartCommand command)
+                throws IOException {
+            for (JsonToken item = parser.nextToken(); item != JsonToken.END_ARRAY; item = parser.nextToken()) {
+                long productId = MISSING;
+                long quantity = MISSING;
+                if (item == JsonToken.START_OBJECT) {
+                    for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+                        JsonToken value = parser.nextToken();
+                        if (field.equals("productId")) {
+                            productId = readLong(parser, context, value);
+                        } else if (field.equals("quantity")) {
+                            quantity = readLong(parser, context, value);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else if (item != JsonToken.VALUE_NULL) {
+                    context.reportInputMismatch(CartCommand.class, "Order item must be an object");
+                }
+                if (quantity < Integer.MIN_VALUE || quantity > Integer.MAX_VALUE) {
+                    context.reportInputMismatch(CartCommand.class, "quantity out of range: %d", quantity);
+                }
+                if (command.count() == MAX_LINES) {
+                    context.reportInputMismatch(CartCommand.class, "Order must have at most %d items", MAX_LINES);
+                }
+                command.add(productId, (int) quantity);
+            }
+        }
+
+        private static long readLong(JsonParser parser, DeserializationContext context, JsonToken value)
+                throws IOException {
+            switch (value) {
+                case VALUE_NUMBER_INT:
+                    return parser.getLongValue();
+                case VALUE_NULL:
+                    return MISSING;
+                case VALUE_NUMBER_FLOAT:
+                    return (long) parser.getDoubleValue();
+                case VALUE_STRING:
+                    try {
+                        return Long.parseLong(parser.getText().trim());
+                    } catch (NumberFormatException e) {
+                        return ((Number) context.handleWeirdStringValue(Long.class, parser.getText(),
+                                "not a valid number")).longValue();
+                    }
+                default:
+                    return ((Number) context.handleUnexpectedToken(Long.class, parser)).longValue();
+            }
+        }
+    }
+}
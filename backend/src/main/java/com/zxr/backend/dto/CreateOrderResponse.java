@@ -1,41 +1,96 @@
 package com.zxr.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.zxr.backend.model.Money;
+import com.zxr.backend.model.OrderIds;
+import com.zxr.backend.model.OrderStatus;
+
+import java.util.Date;
+
 /**
  * Order creation response DTO
  * Used to return order creation results to the frontend
  */
 public class CreateOrderResponse {
     
-    /** Order ID */
-    private String orderId;
+    /** Order ID, see {@link OrderIds} */
+    private long orderId;
     
-    /** Order total price */
-    private double totalPrice;
+    /** Order total price in cents, see {@link Money} */
+    private long totalPriceCents;
+
+    /** When the order was created */
+    private final Date createdAt = new Date();
+
+    /** When the order's stock reservation expires, 0 if the stock is deducted for good */
+    private final long expiresAtMillis;
+
+    /**
+     * Construct order creation response for an order whose stock is deducted for good
+     * @param orderId Order ID
+     * @param totalPriceCents Order total price in cents
+     */
+    public CreateOrderResponse(long orderId, long totalPriceCents) {
+        this(orderId, totalPriceCents, 0L);
+    }
 
     /**
      * Construct order creation response
      * @param orderId Order ID
-     * @param totalPrice Order total price
+     * @param totalPriceCents Order total price in cents
+     * @param expiresAtMillis Expiry of the order's stock reservation, 0 if the stock is deducted for good
      */
-    public CreateOrderResponse(String orderId, double totalPrice) {
+    public CreateOrderResponse(long orderId, long totalPriceCents, long expiresAtMillis) {
         this.orderId = orderId;
-        this.totalPrice = totalPrice;
+        this.totalPriceCents = totalPriceCents;
+        this.expiresAtMillis = expiresAtMillis;
     }
 
     /**
      * Get order ID
+     * Serialized in its {@code ORD-...} text form
      * @return Order ID
      */
-    public String getOrderId() { 
+    @JsonSerialize(using = OrderIds.TextSerializer.class)
+    public long getOrderId() { 
         return orderId; 
     }
     
     /**
      * Get order total price
-     * @return Order total price
+     * Serialized as {@code totalPrice} in its decimal form
+     * @return Order total price in cents
+     */
+    @JsonProperty("totalPrice")
+    @JsonSerialize(using = Money.DecimalSerializer.class)
+    public long getTotalPriceCents() { 
+        return totalPriceCents; 
+    }
+
+    /**
+     * Get order creation time
+     * Fixed when the order is created, so a replayed response repeats it
+     * @return Creation time
+     */
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Get order status
+     * @return Pending while the stock is reserved, confirmed if it is deducted for good
+     */
+    public OrderStatus getStatus() {
+        return expiresAtMillis > 0 ? OrderStatus.PENDING : OrderStatus.CONFIRMED;
+    }
+
+    /**
+     * Get when the order's stock reservation expires unless it is confirmed
+     * @return Expiry, or null if the stock is deducted for good
      */
-    public double getTotalPrice() { 
-        return totalPrice; 
+    public Date getExpiresAt() {
+        return expiresAtMillis > 0 ? new Date(expiresAtMillis) : null;
     }
 
     /**
@@ -45,8 +100,8 @@ public class CreateOrderResponse {
     @Override
     public String toString() {
         return "CreateOrderResponse{" +
-                "orderId='" + orderId + "'" +
-                ", totalPrice=" + totalPrice +
+                "orderId='" + OrderIds.format(orderId) + "'" +
+                ", totalPrice=" + Money.format(totalPriceCents) +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.zxr.backend.dto;
+
+import com.zxr.backend.model.Order;
+
+import java.util.List;
+
+/**
+ * Order page DTO
+ * One page of a cursor-paginated order query
+ */
+public class OrderPage {
+
+    /** Order lines of this page, in ascending order ID order */
+    private final List<Order> items;
+
+    /** Cursor for the next page, null on the last page */
+    private final String nextCursor;
+
+    /**
+     * Construct order page
+     * @param items Order lines of this page
+     * @param nextCursor Cursor for the next page, or null on the last page
+     */
+    public OrderPage(List<Order> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Get order lines of this page
+     * Lines of one order are never split across pages
+     * @return Order line list
+     */
+    public List<Order> getItems() {
+        return items;
+    }
+
+    /**
+     * Get cursor for the next page
+     * Pass it back as {@code after} to continue the query
+     * @return Last order ID of this page in its text form, or null if there are no more orders
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
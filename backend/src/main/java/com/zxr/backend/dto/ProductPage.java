@@ -0,0 +1,45 @@
+package com.zxr.backend.dto;
+
+import com.zxr.backend.model.Product;
+
+import java.util.List;
+
+/**
+ * Product page DTO
+ * One page of a cursor-paginated product listing
+ */
+public class ProductPage {
+
+    /** Products of this page, in ascending ID order */
+    private final List<Product> items;
+
+    /** Cursor for the next page, null on the last page */
+    private final Long nextCursor;
+
+    /**
+     * Construct product page
+     * @param items Products of this page
+     * @param nextCursor Cursor for the next page, or null on the last page
+     */
+    public ProductPage(List<Product> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Get products of this page
+     * @return Product list
+     */
+    public List<Product> getItems() {
+        return items;
+    }
+
+    /**
+     * Get cursor for the next page
+     * Pass it back as {@code after} to continue the listing
+     * @return Last product ID of this page, or null if there are no more products
+     */
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+}
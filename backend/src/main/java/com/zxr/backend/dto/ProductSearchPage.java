@@ -0,0 +1,58 @@
+package com.zxr.backend.dto;
+
+import com.zxr.backend.model.Product;
+
+import java.util.List;
+
+/**
+ * Product search page DTO
+ * One page of ranked product search hits
+ */
+public class ProductSearchPage {
+
+    /** Hits of this page, best match first */
+    private final List<Product> items;
+
+    /** Number of products matching the query */
+    private final int total;
+
+    /** Offset of the next page, null on the last page */
+    private final Integer nextOffset;
+
+    /**
+     * Construct product search page
+     * @param items Hits of this page
+     * @param total Number of products matching the query
+     * @param nextOffset Offset of the next page, or null on the last page
+     */
+    public ProductSearchPage(List<Product> items, int total, Integer nextOffset) {
+        this.items = items;
+        this.total = total;
+        this.nextOffset = nextOffset;
+    }
+
+    /**
+     * Get hits of this page
+     * @return Product list, best match first
+     */
+    public List<Product> getItems() {
+        return items;
+    }
+
+    /**
+     * Get number of products matching the query
+     * @return Total hit count
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Get offset of the next page
+     * Pass it back as {@code offset} to continue the results
+     * @return Next offset, or null if there are no more hits or they are beyond the search window
+     */
+    public Integer getNextOffset() {
+        return nextOffset;
+    }
+}
@@ -0,0 +1,20 @@
+package com.zxr.backend.event;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Order event channel used when events are disabled ({@code order.events.enabled=false})
+ */
+@Component
+@ConditionalOnProperty(name = "order.events.enabled", havingValue = "false")
+public class NoopOrderEvents implements OrderEvents {
+
+    @Override
+    public void publish(OrderEventType type, long orderId, long productId, int quantity, long amountCents) {
+    }
+
+    @Override
+    public void reject(RejectReason reason, long orderId, long productId, int quantity) {
+    }
+}
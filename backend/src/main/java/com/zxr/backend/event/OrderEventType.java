@@ -0,0 +1,29 @@
+package com.zxr.backend.event;
+
+/**
+ * Order event type
+ * Stored as one byte in each event record, so constants must only be appended
+ */
+public enum OrderEventType {
+
+    /** Order request passed validation; quantity holds the number of lines */
+    ACCEPTED,
+
+    /** Stock reserved for one order line */
+    STOCK_RESERVED,
+
+    /** Order request rejected, see {@link RejectReason} */
+    REJECTED,
+
+    /** Order line made durable and saved; amount holds the line price in cents */
+    PERSISTED,
+
+    /** Order stock reservation confirmed; quantity holds the number of lines */
+    CONFIRMED,
+
+    /** Order stock reservation cancelled and its stock given back; quantity holds the number of lines */
+    CANCELLED,
+
+    /** Order stock reservation expired and its stock given back; quantity holds the number of lines */
+    EXPIRED
+}
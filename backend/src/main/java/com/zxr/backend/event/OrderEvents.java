@@ -0,0 +1,28 @@
+package com.zxr.backend.event;
+
+/**
+ * Order event channel
+ * Records what happens to each order request instead of per-request log lines.
+ * Publishing must not block or allocate on the request thread.
+ */
+public interface OrderEvents {
+
+    /**
+     * Publish an order event
+     * @param type Event type
+     * @param orderId Order ID, 0 before one is assigned
+     * @param productId Product ID, 0 if not known
+     * @param quantity Purchase quantity, or number of lines for {@link OrderEventType#ACCEPTED}
+     * @param amountCents Line price in cents, 0 if not known
+     */
+    void publish(OrderEventType type, long orderId, long productId, int quantity, long amountCents);
+
+    /**
+     * Publish a rejection
+     * @param reason Why the request was rejected
+     * @param orderId Order ID, 0 before one is assigned
+     * @param productId Product ID, 0 if not known
+     * @param quantity Purchase quantity
+     */
+    void reject(RejectReason reason, long orderId, long productId, int quantity);
+}
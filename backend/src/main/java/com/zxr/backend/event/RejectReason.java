@@ -0,0 +1,23 @@
+package com.zxr.backend.event;
+
+/**
+ * Why an order request was rejected
+ * Stored as one byte in each event record, so constants must only be appended
+ */
+public enum RejectReason {
+
+    /** Not a rejection */
+    NONE,
+
+    /** Missing or malformed product ID or quantity */
+    INVALID_REQUEST,
+
+    /** Product does not exist */
+    PRODUCT_NOT_FOUND,
+
+    /** Not enough stock left */
+    INSUFFICIENT_STOCK,
+
+    /** Order could not be made durable */
+    PERSISTENCE_FAILED
+}
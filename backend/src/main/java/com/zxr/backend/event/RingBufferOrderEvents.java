@@ -0,0 +1,283 @@
+package com.zxr.backend.event;
+
+import com.zxr.backend.config.BackgroundThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Order event channel backed by a preallocated ring buffer ({@code order.events.enabled=true}, the default)
+ * <p>
+ * Request threads claim a slot with a compare-and-set and write the event fields into a
+ * flat {@code long[]}; nothing is allocated. A single consumer thread drains published
+ * slots in sequence order and appends them as fixed-layout binary records to rolling
+ * files. When the buffer is full the event is dropped and counted, so a slow disk never
+ * slows down orders.
+ * </p>
+ * <p>
+ * Record layout, little-endian, {@value #RECORD_BYTES} bytes:
+ * {@code [timestamp millis:8][type:1][reason:1][reserved:2][quantity:4][orderId:8][productId:8][amountCents:8]}
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "order.events.enabled", havingValue = "true", matchIfMissing = true)
+public class RingBufferOrderEvents implements OrderEvents, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(RingBufferOrderEvents.class);
+
+    /** Size of one event record in the files */
+    static final int RECORD_BYTES = 40;
+
+    /** Event file name prefix; files are named {@code order-events-<first timestamp>.bin} */
+    static final String FILE_PREFIX = "order-events-";
+
+    static final String FILE_SUFFIX = ".bin";
+
+    /** Longs per slot: timestamp, header, orderId, productId, amountCents */
+    private static final int SLOT_FIELDS = 5;
+
+    /** Records encoded before they are written out */
+    private static final int WRITE_BATCH = 1024;
+
+    private static final long IDLE_PARK_NANOS = 1_000_000L;
+
+    private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int mask;
+    private final long[] slots;
+    /** Sequence number last published into each slot, -1 while empty */
+    private final long[] published;
+    /** Next sequence to claim */
+    private final AtomicLong claimed = new AtomicLong();
+    /** Next sequence to drain; slots below it are free again */
+    private final AtomicLong drained = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(WRITE_BATCH * RECORD_BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private final Thread consumer;
+    private volatile boolean running = true;
+    private FileChannel file;
+    private long fileBytes;
+
+    /**
+     * Create the ring buffer and start its consumer thread
+     * @param bufferSize Number of event slots, rounded up to a power of two
+     * @param directory Directory the event files are written to
+     * @param maxFileSize Size at which the current event file is rolled
+     * @param maxFiles Number of event files to keep
+     * @throws IOException if the directory cannot be created
+     */
+    public RingBufferOrderEvents(@Value("${order.events.buffer-size:65536}") int bufferSize,
+            @Value("${order.events.directory:logs/events}") String directory,
+            @Value("${order.events.max-file-size:64MB}") DataSize maxFileSize,
+            @Value("${order.events.max-files:8}") int maxFiles) throws IOException {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Event buffer size must be greater than 0");
+        }
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.mask = capacity - 1;
+        this.slots = new long[capacity * SLOT_FIELDS];
+        this.published = new long[capacity];
+        Arrays.fill(published, -1L);
+        this.directory = Path.of(directory);
+        this.maxFileBytes = Math.max(RECORD_BYTES, maxFileSize.toBytes());
+        this.maxFiles = Math.max(1, maxFiles);
+        Files.createDirectories(this.directory);
+
+        this.consumer = BackgroundThreads.dedicated("order-event-writer", this::drainLoop);
+        consumer.start();
+        logger.info("Order event channel started: {} slots, writing to {}", capacity, this.directory);
+    }
+
+    @Override
+    public void publish(OrderEventType type, long orderId, long productId, int quantity, long amountCents) {
+        write(type, RejectReason.NONE, orderId, productId, quantity, amountCents);
+    }
+
+    @Override
+    public void reject(RejectReason reason, long orderId, long productId, int quantity) {
+        write(OrderEventType.REJECTED, reason, orderId, productId, quantity, 0L);
+    }
+
+    /**
+     * Number of events dropped because the buffer was full
+     * @return Dropped event count
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Number of events written out so far
+     * @return Drained event count
+     */
+    public long drained() {
+        return drained.get();
+    }
+
+    private void write(OrderEventType type, RejectReason reason, long orderId, long productId, int quantity,
+            long amountCents) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - drained.get() > mask) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) (sequence & mask);
+        int base = slot * SLOT_FIELDS;
+        slots[base] = System.currentTimeMillis();
+        slots[base + 1] = (long) type.ordinal() << 40 | (long) reason.ordinal() << 32 | (quantity & 0xFFFFFFFFL);
+        slots[base + 2] = orderId;
+        slots[base + 3] = productId;
+        slots[base + 4] = amountCents;
+        PUBLISHED.setRelease(published, slot, sequence);
+    }
+
+    private void drainLoop() {
+        try {
+            while (true) {
+                boolean stopping = !running;
+                int count = drainBatch();
+                if (count > 0) {
+                    writeBatch();
+                } else if (stopping) {
+                    break;
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Order event writer stopped: {}", e.getMessage(), e);
+            // Keep draining so publishers see free slots instead of dropping forever
+            while (running) {
+                drained.lazySet(publishedUpTo());
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Copy published slots into the write batch, in sequence order
+     * @return Number of records copied
+     */
+    private int drainBatch() {
+        long sequence = drained.get();
+        int count = 0;
+        batch.clear();
+        while (count < WRITE_BATCH) {
+            int slot = (int) (sequence & mask);
+            if ((long) PUBLISHED.getAcquire(published, slot) != sequence) {
+                break;
+            }
+            int base = slot * SLOT_FIELDS;
+            long header = slots[base + 1];
+            batch.putLong(slots[base])
+                    .put((byte) (header >>> 40))
+                    .put((byte) (header >>> 32))
+                    .putShort((short) 0)
+                    .putInt((int) header)
+                    .putLong(slots[base + 2])
+                    .putLong(slots[base + 3])
+                    .putLong(slots[base + 4]);
+            sequence++;
+            count++;
+        }
+        if (count > 0) {
+            // Release the slots only after they have been copied out
+            drained.lazySet(sequence);
+        }
+        batch.flip();
+        return count;
+    }
+
+    private long publishedUpTo() {
+        long sequence = drained.get();
+        while ((long) PUBLISHED.getAcquire(published, (int) (sequence & mask)) == sequence) {
+            sequence++;
+        }
+        return sequence;
+    }
+
+    private void writeBatch() throws IOException {
+        if (file == null || fileBytes + batch.remaining() > maxFileBytes) {
+            roll(batch.getLong(0));
+        }
+        while (batch.hasRemaining()) {
+            fileBytes += file.write(batch);
+        }
+    }
+
+    private void roll(long firstTimestamp) throws IOException {
+        if (file != null) {
+            file.close();
+        }
+        Path next = directory.resolve(FILE_PREFIX + firstTimestamp + FILE_SUFFIX);
+        file = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        fileBytes = file.size();
+        prune();
+    }
+
+    private void prune() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+            }).sorted((a, b) -> Long.compare(timestampOf(b), timestampOf(a))).toList();
+        }
+        for (int i = maxFiles; i < files.size(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private static long timestampOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        running = false;
+        LockSupport.unpark(consumer);
+        consumer.join();
+        if (file != null) {
+            file.close();
+        }
+        long lost = dropped.sum();
+        if (lost > 0) {
+            logger.warn("Order event channel dropped {} events because the buffer was full", lost);
+        }
+    }
+}
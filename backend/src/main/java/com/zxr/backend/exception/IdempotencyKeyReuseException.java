@@ -0,0 +1,22 @@
+package com.zxr.backend.exception;
+
+/**
+ * Thrown when an idempotency key is sent again with a different order.
+ */
+public class IdempotencyKeyReuseException extends RuntimeException {
+      /**
+       * Default constructor.
+       */
+      public IdempotencyKeyReuseException() {
+            super();
+      }
+
+      /**
+       * Construct with a message naming the reused key.
+       *
+       * @param message human-readable message
+       */
+      public IdempotencyKeyReuseException(String message) {
+            super(message);
+      }
+}
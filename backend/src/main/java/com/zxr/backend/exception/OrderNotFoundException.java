@@ -0,0 +1,22 @@
+package com.zxr.backend.exception;
+
+/**
+ * Thrown when a referenced order cannot be found.
+ */
+public class OrderNotFoundException extends RuntimeException {
+      /**
+       * Default constructor.
+       */
+      public OrderNotFoundException() {
+            super();
+      }
+
+      /**
+       * Construct with a message naming the missing order.
+       *
+       * @param message human-readable message (used in API error body)
+       */
+      public OrderNotFoundException(String message) {
+            super(message);
+      }
+}
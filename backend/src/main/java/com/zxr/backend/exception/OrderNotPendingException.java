@@ -0,0 +1,22 @@
+package com.zxr.backend.exception;
+
+/**
+ * Thrown when an order is confirmed or cancelled after its reservation has ended.
+ */
+public class OrderNotPendingException extends RuntimeException {
+      /**
+       * Default constructor.
+       */
+      public OrderNotPendingException() {
+            super();
+      }
+
+      /**
+       * Construct with a message naming the order.
+       *
+       * @param message human-readable message (used in API error body)
+       */
+      public OrderNotPendingException(String message) {
+            super(message);
+      }
+}
@@ -0,0 +1,32 @@
+package com.zxr.backend.exception;
+
+/**
+ * Thrown when a created order cannot be made durable.
+ */
+public class OrderPersistenceException extends RuntimeException {
+      /**
+       * Default constructor.
+       */
+      public OrderPersistenceException() {
+            super();
+      }
+
+      /**
+       * Construct with a message describing the persistence failure.
+       *
+       * @param message human-readable message
+       */
+      public OrderPersistenceException(String message) {
+            super(message);
+      }
+
+      /**
+       * Construct with message and cause.
+       *
+       * @param message human-readable message
+       * @param cause   original cause
+       */
+      public OrderPersistenceException(String message, Throwable cause) {
+            super(message, cause);
+      }
+}
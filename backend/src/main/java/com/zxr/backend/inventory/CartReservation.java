@@ -0,0 +1,79 @@
+package com.zxr.backend.inventory;
+
+import com.zxr.backend.model.Product;
+
+/**
+ * Cart reservation primitive
+ * Reserves stock for every line of a cart in one operation, either all or none
+ */
+public final class CartReservation {
+
+    /** Returned by {@link #reserveAll} when every line was reserved */
+    public static final int RESERVED = -1;
+
+    private CartReservation() {
+    }
+
+    /**
+     * Reserve stock for all cart lines, all or nothing.
+     * <p>
+     * Lines are reserved in ascending product ID order so concurrent carts with
+     * overlapping products always contend in the same order, while carts with no
+     * products in common never touch the same counter. On failure the lines
+     * already reserved are released by walking the same order array backwards,
+     * without allocating anything per line.
+     * </p>
+     *
+     * @param products   Products of the cart lines
+     * @param quantities Quantities of the cart lines, same indexes as products
+     * @param count      Number of lines to reserve
+     * @return {@link #RESERVED}, or the index of the first line that could not be reserved
+     */
+    public static int reserveAll(Product[] products, int[] quantities, int count) {
+        int[] order = sortedLineOrder(products, count);
+        for (int i = 0; i < count; i++) {
+            int line = order[i];
+            if (!products[line].tryReserveStock(quantities[line])) {
+                for (int j = i - 1; j >= 0; j--) {
+                    int reserved = order[j];
+                    products[reserved].releaseStock(quantities[reserved]);
+                }
+                return line;
+            }
+        }
+        return RESERVED;
+    }
+
+    /**
+     * Give back the stock of a cart that was reserved with {@link #reserveAll}
+     *
+     * @param products   Products of the cart lines
+     * @param quantities Quantities of the cart lines, same indexes as products
+     * @param count      Number of lines to release
+     */
+    public static void releaseAll(Product[] products, int[] quantities, int count) {
+        for (int i = 0; i < count; i++) {
+            products[i].releaseStock(quantities[i]);
+        }
+    }
+
+    /**
+     * Build the line visiting order, sorted by product ID.
+     * Carts are capped at {@link com.zxr.backend.dto.CartCommand#MAX_LINES} lines, mostly a
+     * handful, so an insertion sort over one int array is enough.
+     */
+    private static int[] sortedLineOrder(Product[] products, int count) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            int line = i;
+            long id = products[line].getId();
+            int j = i - 1;
+            while (j >= 0 && products[order[j]].getId() > id) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = line;
+        }
+        return order;
+    }
+}
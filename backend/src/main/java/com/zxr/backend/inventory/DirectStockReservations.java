@@ -0,0 +1,22 @@
+package com.zxr.backend.inventory;
+
+import com.zxr.backend.model.Product;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stock reservations made directly on the request thread ({@code order.inventory.mode=direct}, the default)
+ * Every request competes for the product counters with {@link CartReservation}; the
+ * returned future is always already complete.
+ */
+@Component
+@ConditionalOnProperty(name = "order.inventory.mode", havingValue = "direct", matchIfMissing = true)
+public class DirectStockReservations implements StockReservations {
+
+    @Override
+    public CompletableFuture<Integer> reserve(Product[] products, int[] quantities, int count) {
+        return CompletableFuture.completedFuture(CartReservation.reserveAll(products, quantities, count));
+    }
+}
@@ -0,0 +1,399 @@
+package com.zxr.backend.inventory;
+
+import com.zxr.backend.config.BackgroundThreads;
+import com.zxr.backend.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer inventory sequencer ({@code order.inventory.mode=sequencer}), for flash sales
+ * <p>
+ * Products are partitioned into shards by ID and every shard is owned by one thread.
+ * Request threads publish their cart into the shard's preallocated ring buffer with a
+ * compare-and-set and wait on a future. The owner drains the buffer in micro-batches and
+ * sums the demand of each product against one read of its stock: requests that fit are
+ * granted and deducted with a single compare-and-set per product and batch, and once a
+ * product is used up every further request for it in the batch is rejected without
+ * touching the counter, as is every later single-line request on arrival. Request
+ * threads therefore never contend on a hot product.
+ * </p>
+ * <p>
+ * Carts whose products live in different shards, requests arriving while a shard's
+ * buffer is full, and requests after shutdown are reserved directly on the calling
+ * thread with {@link CartReservation}. A request published while the sequencer shuts
+ * down may miss the final drain; its publisher then drains the shard itself. Stock
+ * given back by failed orders is released directly as well; the owner detects such
+ * concurrent changes when it deducts.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "order.inventory.mode", havingValue = "sequencer")
+public class InventorySequencer implements StockReservations, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventorySequencer.class);
+
+    private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /** Outcome of a request granted against the batch's stock snapshot, not yet deducted */
+    private static final int GRANTED = Integer.MIN_VALUE;
+
+    /** Shared outcome of single-line requests for a sold-out product */
+    private static final CompletableFuture<Integer> SOLD_OUT = CompletableFuture.completedFuture(0);
+
+    private final Shard[] shards;
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder soldOut = new LongAdder();
+    private volatile boolean running = true;
+
+    /**
+     * Create the shards and start their owner threads
+     * @param shards Number of shards, each with its own owner thread
+     * @param bufferSize Request slots per shard, rounded up to a power of two
+     * @param batchSize Most requests applied in one micro-batch
+     */
+    public InventorySequencer(@Value("${order.inventory.shards:4}") int shards,
+            @Value("${order.inventory.buffer-size:4096}") int bufferSize,
+            @Value("${order.inventory.batch-size:256}") int batchSize) {
+        if (shards <= 0 || bufferSize <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Inventory shards, buffer size and batch size must be greater than 0");
+        }
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(i, capacity, Math.min(batchSize, capacity));
+        }
+        for (Shard shard : this.shards) {
+            shard.owner.start();
+        }
+        logger.info("Inventory sequencer started: {} shards of {} slots", shards, capacity);
+    }
+
+    @Override
+    public CompletableFuture<Integer> reserve(Product[] products, int[] quantities, int count) {
+        if (count == 1 && products[0].getStock() < quantities[0]) {
+            // Sold out already: nothing to sequence
+            soldOut.increment();
+            return SOLD_OUT;
+        }
+        int shard = shardOf(products[0].getId());
+        for (int i = 1; i < count; i++) {
+            if (shardOf(products[i].getId()) != shard) {
+                return CompletableFuture.completedFuture(CartReservation.reserveAll(products, quantities, count));
+            }
+        }
+        if (running) {
+            CompletableFuture<Integer> result = new CompletableFuture<>();
+            Shard target = shards[shard];
+            if (target.offer(products, quantities, count, result)) {
+                if (!running) {
+                    // destroy() may have drained the shard before this request was published
+                    target.drainStopped();
+                }
+                return result;
+            }
+            overflowed.increment();
+        }
+        return CompletableFuture.completedFuture(CartReservation.reserveAll(products, quantities, count));
+    }
+
+    /**
+     * Number of micro-batches applied by all shard owners
+     * @return Batch count
+     */
+    public long batches() {
+        long batches = 0;
+        for (Shard shard : shards) {
+            batches += shard.batches.get();
+        }
+        return batches;
+    }
+
+    /**
+     * Number of single-line requests rejected because their product was used up,
+     * either by a shard owner within a micro-batch or on arrival
+     * @return Rejected request count
+     */
+    public long bulkRejected() {
+        long rejected = soldOut.sum();
+        for (Shard shard : shards) {
+            rejected += shard.bulkRejected.get();
+        }
+        return rejected;
+    }
+
+    /**
+     * Number of requests reserved on the calling thread because their shard buffer was full
+     * @return Overflowed request count
+     */
+    public long overflowed() {
+        return overflowed.sum();
+    }
+
+    private int shardOf(long productId) {
+        return (int) Math.floorMod(productId, (long) shards.length);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.owner);
+            shard.owner.join();
+            // Requests published while the owner was stopping
+            shard.drainAll();
+        }
+    }
+
+    /**
+     * One shard: a multi-producer ring buffer drained by its owner thread
+     */
+    private final class Shard {
+
+        private final int mask;
+        private final int batchSize;
+        private final Product[][] products;
+        private final int[][] quantities;
+        private final int[] counts;
+        private final CompletableFuture<?>[] results;
+        /** Sequence number last published into each slot, -1 while empty */
+        private final long[] published;
+        /** Next sequence to claim */
+        private final AtomicLong claimed = new AtomicLong();
+        /** Next sequence to drain; slots below it are free again */
+        private final AtomicLong drained = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong bulkRejected = new AtomicLong();
+        private final Thread owner;
+        private volatile boolean sleeping;
+
+        // Owner-only batch state
+        private final Product[][] batchProducts;
+        private final int[][] batchQuantities;
+        private final int[] batchCounts;
+        private final CompletableFuture<?>[] batchResults;
+        private final int[] outcomes;
+        private final int[] grants;
+        private final Product[] hot;
+        private final int[] hotAvailable;
+        private final int[] hotGranted;
+        private final boolean[] hotConflicted;
+        private int hotCount;
+
+        Shard(int index, int capacity, int batchSize) {
+            this.mask = capacity - 1;
+            this.batchSize = batchSize;
+            this.products = new Product[capacity][];
+            this.quantities = new int[capacity][];
+            this.counts = new int[capacity];
+            this.results = new CompletableFuture<?>[capacity];
+            this.published = new long[capacity];
+            Arrays.fill(published, -1L);
+            this.batchProducts = new Product[batchSize][];
+            this.batchQuantities = new int[batchSize][];
+            this.batchCounts = new int[batchSize];
+            this.batchResults = new CompletableFuture<?>[batchSize];
+            this.outcomes = new int[batchSize];
+            this.grants = new int[batchSize];
+            this.hot = new Product[batchSize];
+            this.hotAvailable = new int[batchSize];
+            this.hotGranted = new int[batchSize];
+            this.hotConflicted = new boolean[batchSize];
+            this.owner = BackgroundThreads.dedicated("inventory-shard-" + index, this::run);
+        }
+
+        boolean offer(Product[] cartProducts, int[] cartQuantities, int count, CompletableFuture<Integer> result) {
+            long sequence;
+            do {
+                sequence = claimed.get();
+                if (sequence - drained.get() > mask) {
+                    return false;
+                }
+            } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+            int slot = (int) (sequence & mask);
+            products[slot] = cartProducts;
+            quantities[slot] = cartQuantities;
+            counts[slot] = count;
+            results[slot] = result;
+            PUBLISHED.setVolatile(published, slot, sequence);
+            if (sleeping) {
+                LockSupport.unpark(owner);
+            }
+            return true;
+        }
+
+        private void run() {
+            while (true) {
+                boolean stopping = !running;
+                int count = drainBatch();
+                if (count > 0) {
+                    applySafely(count);
+                } else if (stopping) {
+                    break;
+                } else {
+                    // Publishers unpark the owner only while it is flagged as sleeping
+                    sleeping = true;
+                    long next = drained.get();
+                    if ((long) PUBLISHED.getVolatile(published, (int) (next & mask)) != next && running) {
+                        LockSupport.park(this);
+                    }
+                    sleeping = false;
+                }
+            }
+        }
+
+        /**
+         * Apply every published request; only once the owner has stopped
+         */
+        synchronized void drainAll() {
+            int count;
+            while ((count = drainBatch()) > 0) {
+                applySafely(count);
+            }
+        }
+
+        /**
+         * Wait for the stopping owner to exit, then drain what it left behind
+         */
+        void drainStopped() {
+            boolean interrupted = false;
+            while (owner.isAlive()) {
+                try {
+                    owner.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            drainAll();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Move published requests into the batch arrays, in sequence order
+         * @return Number of requests moved
+         */
+        private int drainBatch() {
+            long sequence = drained.get();
+            int count = 0;
+            while (count < batchSize) {
+                int slot = (int) (sequence & mask);
+                if ((long) PUBLISHED.getAcquire(published, slot) != sequence) {
+                    break;
+                }
+                batchProducts[count] = products[slot];
+                batchQuantities[count] = quantities[slot];
+                batchCounts[count] = counts[slot];
+                batchResults[count] = results[slot];
+                products[slot] = null;
+                quantities[slot] = null;
+                results[slot] = null;
+                sequence++;
+                count++;
+            }
+            if (count > 0) {
+                // Release the slots only after they have been copied out
+                drained.lazySet(sequence);
+            }
+            return count;
+        }
+
+        private void applySafely(int count) {
+            try {
+                apply(count);
+            } catch (RuntimeException e) {
+                logger.error("Inventory shard failed to apply a batch: {}", e.getMessage(), e);
+                for (int i = 0; i < count; i++) {
+                    batchResults[i].completeExceptionally(e);
+                }
+            } finally {
+                Arrays.fill(batchProducts, 0, count, null);
+                Arrays.fill(batchQuantities, 0, count, null);
+                Arrays.fill(batchResults, 0, count, null);
+            }
+        }
+
+        /**
+         * Apply one micro-batch in arrival order and complete every request
+         */
+        @SuppressWarnings("unchecked")
+        private void apply(int count) {
+            int segmentStart = 0;
+            for (int i = 0; i < count; i++) {
+                if (batchCounts[i] == 1) {
+                    int h = hotIndex(batchProducts[i][0]);
+                    int quantity = batchQuantities[i][0];
+                    if (hotAvailable[h] - hotGranted[h] >= quantity) {
+                        hotGranted[h] += quantity;
+                        outcomes[i] = GRANTED;
+                        grants[i] = h;
+                    } else {
+                        outcomes[i] = 0;
+                        bulkRejected.lazySet(bulkRejected.get() + 1);
+                    }
+                } else {
+                    // A multi-line cart must see the counters with earlier grants deducted
+                    settle(segmentStart, i);
+                    segmentStart = i + 1;
+                    outcomes[i] = CartReservation.reserveAll(batchProducts[i], batchQuantities[i], batchCounts[i]);
+                }
+            }
+            settle(segmentStart, count);
+
+            for (int i = 0; i < count; i++) {
+                ((CompletableFuture<Integer>) batchResults[i]).complete(outcomes[i]);
+            }
+            batches.lazySet(batches.get() + 1);
+        }
+
+        /**
+         * Deduct the granted demand of every product with one compare-and-set each.
+         * If the stock changed since it was read, the grants of that product are
+         * retried one request at a time.
+         */
+        private void settle(int from, int to) {
+            for (int h = 0; h < hotCount; h++) {
+                hotConflicted[h] = hotGranted[h] > 0 && !hot[h].tryReserveStock(hotGranted[h]);
+            }
+            for (int i = from; i < to; i++) {
+                if (outcomes[i] == GRANTED) {
+                    int h = grants[i];
+                    outcomes[i] = !hotConflicted[h] || hot[h].tryReserveStock(batchQuantities[i][0])
+                            ? CartReservation.RESERVED
+                            : 0;
+                }
+            }
+            Arrays.fill(hot, 0, hotCount, null);
+            hotCount = 0;
+        }
+
+        /**
+         * Find the product in the current segment, reading its stock on first use
+         */
+        private int hotIndex(Product product) {
+            for (int h = 0; h < hotCount; h++) {
+                if (hot[h] == product) {
+                    return h;
+                }
+            }
+            int h = hotCount++;
+            hot[h] = product;
+            hotAvailable[h] = product.getStock();
+            hotGranted[h] = 0;
+            return h;
+        }
+    }
+}
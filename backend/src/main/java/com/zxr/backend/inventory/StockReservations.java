@@ -0,0 +1,24 @@
+package com.zxr.backend.inventory;
+
+import com.zxr.backend.model.Product;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stock reservation strategy
+ * Reserves the stock of a cart, all or nothing; the strategy is selected with
+ * {@code order.inventory.mode}
+ */
+public interface StockReservations {
+
+    /**
+     * Reserve stock for all cart lines, all or nothing
+     *
+     * @param products   Products of the cart lines
+     * @param quantities Quantities of the cart lines, same indexes as products
+     * @param count      Number of lines to reserve
+     * @return Future of {@link CartReservation#RESERVED}, or of the index of the first line
+     *         that could not be reserved; may complete on another thread
+     */
+    CompletableFuture<Integer> reserve(Product[] products, int[] quantities, int count);
+}
@@ -0,0 +1,196 @@
+package com.zxr.backend.inventory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel
+ * <p>
+ * Deadlines are rounded up to whole ticks and hashed into {@value #LEVELS} wheels of
+ * {@value #SLOTS} slots: the first wheel holds deadlines less than 64 ticks away, one
+ * tick per slot, the next less than 64^2 ticks away, 64 ticks per slot, and so on.
+ * Each slot is an intrusive doubly linked list, so scheduling and cancelling are O(1)
+ * whatever the number of timeouts. When the first wheel wraps around, the due slot of
+ * the next wheel is cascaded down into finer slots; every timeout is moved at most
+ * once per level before it fires. Deadlines beyond the last wheel wait in its furthest
+ * slot and are placed again each time it comes round.
+ * </p>
+ * <p>
+ * A timeout never fires before its deadline, and at most one tick after it once
+ * {@link #advance} is called. All methods are safe to call from any thread; expired
+ * values are handed over outside the lock.
+ * </p>
+ * @param <T> Value carried by a timeout
+ */
+public final class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    /** Furthest a timeout can be placed, in ticks */
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    /**
+     * Scheduled timeout, a node of its slot's list
+     * @param <T> Value carried by the timeout
+     */
+    public static final class Timeout<T> {
+        private final T value;
+        private final long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        /** Slot holding the timeout, -1 once it has fired or been cancelled */
+        private int slot = -1;
+
+        private Timeout(T value, long deadlineTick) {
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Get the value carried by the timeout
+         * @return Value
+         */
+        public T value() {
+            return value;
+        }
+    }
+
+    private final long tickMillis;
+    /** Slot list heads, level by level */
+    private final Timeout<T>[] heads;
+    /** Next tick to expire */
+    private long currentTick;
+    private int size;
+
+    /**
+     * Construct an empty timing wheel
+     * @param tickMillis Tick length, the resolution of deadlines
+     * @param startMillis Current time
+     * @throws IllegalArgumentException if the tick is not positive
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.heads = new Timeout[LEVELS * SLOTS];
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /**
+     * Schedule a timeout
+     * @param value Value to hand over once the deadline has passed
+     * @param deadlineMillis Deadline in epoch milliseconds
+     * @return Timeout, for {@link #cancel}
+     */
+    public synchronized Timeout<T> schedule(T value, long deadlineMillis) {
+        // Round up, so the timeout never fires early
+        Timeout<T> timeout = new Timeout<>(value, Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis));
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Cancel a timeout
+     * @param timeout Timeout returned by {@link #schedule}
+     * @return true if cancelled, false if it had already fired or been cancelled
+     */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.slot < 0) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Expire every timeout whose deadline has passed
+     * @param nowMillis Current time
+     * @param expired Receives the values of expired timeouts, in deadline order by tick
+     * @return Number of expired timeouts
+     */
+    public int advance(long nowMillis, Consumer<? super T> expired) {
+        List<T> due = new ArrayList<>();
+        synchronized (this) {
+            long lastTick = Math.floorDiv(nowMillis, tickMillis);
+            while (currentTick <= lastTick) {
+                // Cascade coarse slots first, so what they hand down is cascaded again below
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                        cascade(level * SLOTS + (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+                    }
+                }
+                int slot = (int) (currentTick & SLOT_MASK);
+                for (Timeout<T> timeout = heads[slot]; timeout != null; timeout = heads[slot]) {
+                    unlink(timeout);
+                    size--;
+                    due.add(timeout.value);
+                }
+                currentTick++;
+            }
+        }
+        due.forEach(expired);
+        return due.size();
+    }
+
+    /**
+     * Get the number of scheduled timeouts
+     * @return Timeouts neither fired nor cancelled
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Add a timeout to the slot its deadline falls in, as seen from the current tick
+     */
+    private void place(Timeout<T> timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        int slot;
+        if (delta < SLOTS) {
+            // Overdue timeouts fire with the current tick
+            slot = (int) (Math.max(timeout.deadlineTick, currentTick) & SLOT_MASK);
+        } else {
+            long tick = delta < SPAN ? timeout.deadlineTick : currentTick + SPAN - 1;
+            int level = (63 - Long.numberOfLeadingZeros(tick - currentTick)) / SLOT_BITS;
+            slot = level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        }
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = heads[slot];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        heads[slot] = timeout;
+    }
+
+    private void cascade(int slot) {
+        Timeout<T> timeout = heads[slot];
+        heads[slot] = null;
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            heads[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.slot = -1;
+    }
+}
@@ -0,0 +1,175 @@
+package com.zxr.backend.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Striped log-linear latency histogram
+ * <p>
+ * Buckets follow the HdrHistogram layout: every power of two is split into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so a recorded value is off by at most
+ * about 6%. Each recording thread hashes to one of several stripes, so concurrent
+ * requests rarely touch the same counter and recording stays a couple of atomic adds.
+ * Stripes are merged only when a snapshot is taken.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+
+    /** Linear sub-buckets per power of two */
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /** Largest tracked power of two; anything longer (about 18 minutes) lands in the last bucket */
+    private static final int MAX_EXPONENT = 40;
+
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    /** Extra slot per stripe holding the sum of recorded values */
+    private static final int SUM = BUCKETS;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    /**
+     * Create a histogram with one stripe per available processor, rounded up to a power of two
+     */
+    public LatencyHistogram() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a histogram
+     * @param stripes Number of stripes, rounded up to a power of two
+     */
+    LatencyHistogram(int stripes) {
+        int count = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new AtomicLongArray[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new AtomicLongArray(BUCKETS + 1);
+        }
+        this.stripeMask = count - 1;
+    }
+
+    /**
+     * Record one latency
+     * @param nanos Latency in nanoseconds, negative values count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        long thread = Thread.currentThread().threadId();
+        AtomicLongArray stripe = stripes[(int) ((thread * 0x9E3779B97F4A7C15L) >>> 40) & stripeMask];
+        stripe.getAndIncrement(bucketOf(value));
+        stripe.getAndAdd(SUM, value);
+    }
+
+    /**
+     * Merge all stripes into a point-in-time view
+     * Recordings racing with the snapshot may be only partly included.
+     * @return Snapshot of the histogram
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long sum = 0L;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+            sum += stripe.get(SUM);
+        }
+        return new Snapshot(counts, sum);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Highest value that falls into a bucket
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        return ((SUB_BUCKETS + sub) << (exponent - SUB_BITS)) + width - 1;
+    }
+
+    /**
+     * Merged histogram counts
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+
+        Snapshot(long[] counts, long sum) {
+            this.counts = counts;
+            long total = 0L;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+            this.sum = sum;
+        }
+
+        /**
+         * Get the number of recorded values
+         * @return Value count
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Get the sum of recorded values
+         * @return Sum in nanoseconds
+         */
+        public long sum() {
+            return sum;
+        }
+
+        /**
+         * Get the value at a quantile, rounded up to its bucket's highest value
+         * @param quantile Quantile between 0 and 1
+         * @return Value in nanoseconds, 0 if nothing was recorded
+         */
+        public long valueAt(double quantile) {
+            if (count == 0) {
+                return 0L;
+            }
+            long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+            long seen = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValueOf(i);
+                }
+            }
+            return highestValueOf(counts.length - 1);
+        }
+
+        /**
+         * Get the largest recorded value, rounded up to its bucket's highest value
+         * @return Value in nanoseconds, 0 if nothing was recorded
+         */
+        public long max() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return highestValueOf(i);
+                }
+            }
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.zxr.backend.metrics;
+
+import com.zxr.backend.admission.AdmissionController;
+import com.zxr.backend.admission.Workload;
+import com.zxr.backend.event.RejectReason;
+import com.zxr.backend.model.Product;
+import com.zxr.backend.model.StockContention;
+import com.zxr.backend.repository.ProductRepository;
+import com.zxr.backend.service.OrderReservations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics registry
+ * Holds request latency histograms and rejection counters, and renders them together
+ * with per-product stock contention in the Prometheus text format
+ */
+@Component
+public class OrderMetrics {
+
+    /** Endpoints with a latency histogram */
+    public enum Route {
+        CREATE_ORDER("POST", "/orders"),
+        CREATE_ORDER_BATCH("POST", "/orders/batch"),
+        LIST_PRODUCTS("GET", "/products"),
+        STREAM_PRODUCTS("GET", "/products/stream"),
+        SEARCH_PRODUCTS("GET", "/products/search"),
+        GET_PRODUCT("GET", "/products/{id}"),
+        QUERY_ORDERS("GET", "/orders"),
+        GET_ORDER("GET", "/orders/{id}");
+
+        private final String method;
+        private final String pattern;
+
+        Route(String method, String pattern) {
+            this.method = method;
+            this.pattern = pattern;
+        }
+
+        /**
+         * Find the route of a request
+         * @param method HTTP method
+         * @param pattern Matched handler path pattern, without the context path
+         * @return Route, or null if the request is not tracked
+         */
+        public static Route of(String method, String pattern) {
+            for (Route route : values()) {
+                if (route.pattern.equals(pattern) && route.method.equals(method)) {
+                    return route;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final ProductRepository productRepository;
+    private final ObjectProvider<AdmissionController> admission;
+    private final OrderReservations reservations;
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Route.values().length];
+    private final LongAdder[] rejections = new LongAdder[RejectReason.values().length];
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    /**
+     * Construct metrics registry
+     * @param productRepository Product repository, read for stock contention
+     * @param admission Admission controller, read for concurrency limits and shed requests when enabled
+     * @param reservations Order reservations, read for open and expired reservations
+     */
+    public OrderMetrics(ProductRepository productRepository, ObjectProvider<AdmissionController> admission,
+            OrderReservations reservations) {
+        this.productRepository = productRepository;
+        this.admission = admission;
+        this.reservations = reservations;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < rejections.length; i++) {
+            rejections[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Count a request entering the server
+     */
+    public void requestStarted() {
+        int current = inFlight.incrementAndGet();
+        int peak = peakInFlight.get();
+        while (current > peak && !peakInFlight.compareAndSet(peak, current)) {
+            peak = peakInFlight.get();
+        }
+    }
+
+    /**
+     * Count a request leaving the server
+     */
+    public void requestFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Get the highest number of requests handled at the same time
+     * @return Peak concurrency since startup
+     */
+    public int peakInFlight() {
+        return peakInFlight.get();
+    }
+
+    /**
+     * Record the latency of a request
+     * @param route Request route
+     * @param nanos Latency in nanoseconds
+     */
+    public void recordLatency(Route route, long nanos) {
+        latencies[route.ordinal()].record(nanos);
+    }
+
+    /**
+     * Count a rejected order request
+     * @param reason Rejection cause
+     */
+    public void recordRejection(RejectReason reason) {
+        rejections[reason.ordinal()].increment();
+    }
+
+    /**
+     * Get the latency histogram of a route
+     * @param route Request route
+     * @return Latency histogram
+     */
+    public LatencyHistogram latency(Route route) {
+        return latencies[route.ordinal()];
+    }
+
+    /**
+     * Get the number of rejections with a cause
+     * @param reason Rejection cause
+     * @return Rejection count since startup
+     */
+    public long rejections(RejectReason reason) {
+        return rejections[reason.ordinal()].sum();
+    }
+
+    /**
+     * Render all metrics in the Prometheus text exposition format, version 0.0.4
+     * @return Metrics text
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+
+        out.append("# HELP http_request_duration_seconds Request latency since startup\n");
+        out.append("# TYPE http_request_duration_seconds summary\n");
+        for (Route route : Route.values()) {
+            LatencyHistogram.Snapshot snapshot = latencies[route.ordinal()].snapshot();
+            String labels = "method=\"" + route.method + "\",route=\"" + route.pattern + "\"";
+            for (double quantile : QUANTILES) {
+                sample(out, "http_request_duration_seconds", labels + ",quantile=\"" + quantile + "\"",
+                        seconds(snapshot.valueAt(quantile)));
+            }
+            sample(out, "http_request_duration_seconds_sum", labels, seconds(snapshot.sum()));
+            sample(out, "http_request_duration_seconds_count", labels, Long.toString(snapshot.count()));
+        }
+
+        out.append("# HELP http_requests_in_flight Requests being handled right now\n");
+        out.append("# TYPE http_requests_in_flight gauge\n");
+        out.append("http_requests_in_flight ").append(inFlight.get()).append('\n');
+        out.append("# HELP http_requests_in_flight_max Highest number of requests handled at the same time\n");
+        out.append("# TYPE http_requests_in_flight_max gauge\n");
+        out.append("http_requests_in_flight_max ").append(peakInFlight.get()).append('\n');
+
+        out.append("# HELP order_rejections_total Rejected order requests by cause\n");
+        out.append("# TYPE order_rejections_total counter\n");
+        for (RejectReason reason : RejectReason.values()) {
+            if (reason != RejectReason.NONE) {
+                sample(out, "order_rejections_total",
+                        "cause=\"" + reason.name().toLowerCase(Locale.ROOT) + "\"",
+                        Long.toString(rejections[reason.ordinal()].sum()));
+            }
+        }
+
+        out.append("# HELP order_reservations_open Orders whose stock is reserved, waiting for confirmation\n");
+        out.append("# TYPE order_reservations_open gauge\n");
+        out.append("order_reservations_open ").append(reservations.openCount()).append('\n');
+        out.append("# HELP order_reservations_expired_total Reservations expired and their stock given back\n");
+        out.append("# TYPE order_reservations_expired_total counter\n");
+        out.append("order_reservations_expired_total ").append(reservations.expiredCount()).append('\n');
+
+        AdmissionController controller = admission.getIfAvailable();
+        if (controller != null) {
+            out.append("# HELP admission_concurrency_limit Requests admitted at once by workload\n");
+            out.append("# TYPE admission_concurrency_limit gauge\n");
+            for (Workload workload : Workload.values()) {
+                sample(out, "admission_concurrency_limit", "workload=\"" + workload.label() + "\"",
+                        Integer.toString(controller.limit(workload).limit()));
+            }
+            out.append("# HELP http_requests_shed_total Requests rejected with 429 by workload\n");
+            out.append("# TYPE http_requests_shed_total counter\n");
+            for (Workload workload : Workload.values()) {
+                sample(out, "http_requests_shed_total", "workload=\"" + workload.label() + "\"",
+                        Long.toString(controller.shed(workload)));
+            }
+        }
+
+        StringBuilder retries = new StringBuilder();
+        StringBuilder waits = new StringBuilder();
+        for (Product product : productRepository.findAll()) {
+            StockContention contention = product.stockContention();
+            if (contention != null) {
+                String labels = "product_id=\"" + product.getId() + "\"";
+                sample(retries, "order_stock_reserve_retries_total", labels, Long.toString(contention.retries()));
+                sample(waits, "order_stock_reserve_wait_seconds_total", labels, seconds(contention.waitNanos()));
+            }
+        }
+        out.append("# HELP order_stock_reserve_retries_total Stock reservation compare-and-set retries by product\n");
+        out.append("# TYPE order_stock_reserve_retries_total counter\n");
+        out.append(retries);
+        out.append("# HELP order_stock_reserve_wait_seconds_total Time stock reservations spent retrying by product\n");
+        out.append("# TYPE order_stock_reserve_wait_seconds_total counter\n");
+        out.append(waits);
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+}
@@ -0,0 +1,45 @@
+package com.zxr.backend.metrics;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link RequestMetricsFilter}
+ * Stops the clock when the response completes, not when the handler returns
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveRequestMetricsFilter implements WebFilter {
+
+    private final OrderMetrics metrics;
+
+    /**
+     * Construct reactive request metrics filter
+     * @param metrics Metrics registry
+     */
+    public ReactiveRequestMetricsFilter(OrderMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long start = System.nanoTime();
+        metrics.requestStarted();
+        return chain.filter(exchange).doFinally(signal -> {
+            metrics.requestFinished();
+            Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (pattern != null) {
+                OrderMetrics.Route route = OrderMetrics.Route.of(exchange.getRequest().getMethod().name(),
+                        pattern.toString());
+                if (route != null) {
+                    metrics.recordLatency(route, System.nanoTime() - start);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package com.zxr.backend.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Times every request and records it under its matched route, and tracks how many requests are in flight
+ * The route is only known after dispatch, so it is read from the request once the chain returns.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private final OrderMetrics metrics;
+
+    /**
+     * Construct request metrics filter
+     * @param metrics Metrics registry
+     */
+    public RequestMetricsFilter(OrderMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        metrics.requestStarted();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            metrics.requestFinished();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (pattern != null) {
+                OrderMetrics.Route route = OrderMetrics.Route.of(request.getMethod(), pattern.toString());
+                if (route != null) {
+                    metrics.recordLatency(route, System.nanoTime() - start);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.zxr.backend.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point money arithmetic
+ * <p>
+ * Amounts are {@code long} minor units (cents) everywhere inside the service, so
+ * pricing is exact and allocation-free; every operation fails with an
+ * {@link ArithmeticException} instead of silently overflowing. Amounts are converted
+ * to their decimal form, e.g. {@code 12.99}, only at the API boundary.
+ * </p>
+ */
+public final class Money {
+
+    /** Decimal places of an amount in major units */
+    public static final int SCALE = 2;
+
+    /** Minor units per major unit */
+    public static final long CENTS_PER_UNIT = 100;
+
+    /** Largest decimal amount that still fits in cents */
+    private static final double MAX_DECIMAL = Long.MAX_VALUE / (double) CENTS_PER_UNIT;
+
+    private Money() {
+    }
+
+    /**
+     * Convert a decimal amount to cents, rounding to the nearest cent
+     * For amounts entering the service as decimals, e.g. catalog data.
+     * @param amount Amount in major units
+     * @return Amount in cents
+     * @throws IllegalArgumentException if the amount is not a finite number or does not fit in cents
+     */
+    public static long ofDecimal(double amount) {
+        if (!(Math.abs(amount) < MAX_DECIMAL)) {
+            throw new IllegalArgumentException("Amount out of range: " + amount);
+        }
+        return Math.round(amount * CENTS_PER_UNIT);
+    }
+
+    /**
+     * Multiply a unit price by a quantity
+     * @param cents Unit price in cents
+     * @param quantity Quantity
+     * @return Line price in cents
+     * @throws ArithmeticException if the result overflows
+     */
+    public static long times(long cents, int quantity) {
+        return Math.multiplyExact(cents, (long) quantity);
+    }
+
+    /**
+     * Add two amounts
+     * @param cents Amount in cents
+     * @param moreCents Amount in cents
+     * @return Sum in cents
+     * @throws ArithmeticException if the result overflows
+     */
+    public static long plus(long cents, long moreCents) {
+        return Math.addExact(cents, moreCents);
+    }
+
+    /**
+     * Format an amount in its decimal form, e.g. {@code 1299} as {@code 12.99}
+     * @param cents Amount in cents
+     * @return Decimal text with exactly {@link #SCALE} decimals
+     */
+    public static String format(long cents) {
+        char[] chars = new char[22];
+        int at = chars.length;
+        // Work on the negative value so that Long.MIN_VALUE formats too
+        long value = cents < 0 ? cents : -cents;
+        for (int digit = 0; digit < SCALE || value != 0 || digit == SCALE; digit++) {
+            if (digit == SCALE) {
+                chars[--at] = '.';
+            }
+            chars[--at] = (char) ('0' - value % 10);
+            value /= 10;
+        }
+        if (cents < 0) {
+            chars[--at] = '-';
+        }
+        return new String(chars, at, chars.length - at);
+    }
+
+    /**
+     * Convert an amount to a decimal
+     * @param cents Amount in cents
+     * @return Exact decimal with scale {@link #SCALE}
+     */
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * Jackson serializer writing amounts in cents as decimal JSON numbers, e.g. {@code 12.99}
+     */
+    public static class DecimalSerializer extends StdSerializer<Long> {
+
+        public DecimalSerializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long cents, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(format(cents));
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package com.zxr.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
 /**
  * Order model class
  * Represents order information in the system
  */
 public class Order {
 
-    /** Order ID */
-    private final String id;
+    /** Order ID, see {@link OrderIds} */
+    private final long id;
     
     /** Product ID */
     private final Long productId;
@@ -15,20 +18,20 @@ public class Order {
     /** Purchase quantity */
     private final int quantity;
     
-    /** Order total price */
-    private final double totalPrice;
+    /** Order total price in cents, see {@link Money} */
+    private final long totalPriceCents;
 
     /**
      * Construct order object
      * @param id Order ID
      * @param productId Product ID
      * @param quantity Purchase quantity
-     * @param totalPrice Order total price
+     * @param totalPriceCents Order total price in cents
      * @throws IllegalArgumentException if parameters are invalid
      */
-    public Order(String id, Long productId, int quantity, double totalPrice) {
-        if (id == null || id.trim().isEmpty()) {
-            throw new IllegalArgumentException("Order ID cannot be empty");
+    public Order(long id, Long productId, int quantity, long totalPriceCents) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Order ID must be a positive number");
         }
         if (productId == null || productId <= 0) {
             throw new IllegalArgumentException("Product ID must be a positive number");
@@ -36,21 +39,23 @@ public class Order {
         if (quantity <= 0) {
             throw new IllegalArgumentException("Purchase quantity must be greater than 0");
         }
-        if (totalPrice < 0) {
+        if (totalPriceCents < 0) {
             throw new IllegalArgumentException("Order total price cannot be negative");
         }
         
         this.id = id;
         this.productId = productId;
         this.quantity = quantity;
-        this.totalPrice = totalPrice;
+        this.totalPriceCents = totalPriceCents;
     }
 
     /**
      * Get order ID
+     * Serialized in its {@code ORD-...} text form
      * @return Order ID
      */
-    public String getId() { 
+    @JsonSerialize(using = OrderIds.TextSerializer.class)
+    public long getId() { 
         return id; 
     }
     
@@ -72,10 +77,13 @@ public class Order {
     
     /**
      * Get order total price
-     * @return Order total price
+     * Serialized as {@code totalPrice} in its decimal form
+     * @return Order total price in cents
      */
-    public double getTotalPrice() { 
-        return totalPrice; 
+    @JsonProperty("totalPrice")
+    @JsonSerialize(using = Money.DecimalSerializer.class)
+    public long getTotalPriceCents() { 
+        return totalPriceCents; 
     }
     
     /**
@@ -85,10 +93,10 @@ public class Order {
     @Override
     public String toString() {
         return "Order{" +
-                "id='" + id + '\'' +
+                "id='" + OrderIds.format(id) + '\'' +
                 ", productId=" + productId +
                 ", quantity=" + quantity +
-                ", totalPrice=" + totalPrice +
+                ", totalPrice=" + Money.format(totalPriceCents) +
                 '}';
     }
 }
\ No newline at end of file
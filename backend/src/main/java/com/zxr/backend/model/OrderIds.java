@@ -0,0 +1,103 @@
+package com.zxr.backend.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Order ID layout and text encoding
+ * <p>
+ * Order IDs are 64-bit, time-ordered values:
+ * 41 bits of milliseconds since {@link #EPOCH_MILLIS}, 10 bits of node ID and a
+ * 12-bit per-millisecond sequence. They stay numeric inside the service and are
+ * encoded to the {@code ORD-...} text form only at the API boundary.
+ * </p>
+ */
+public final class OrderIds {
+
+    /** Custom epoch, 2024-01-01T00:00:00Z */
+    public static final long EPOCH_MILLIS = 1704067200000L;
+
+    /** Bits of the per-millisecond sequence */
+    public static final int SEQUENCE_BITS = 12;
+
+    /** Bits of the node ID */
+    public static final int NODE_BITS = 10;
+
+    /** Highest node ID */
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    /** Shift of the timestamp part */
+    public static final int TIMESTAMP_SHIFT = SEQUENCE_BITS + NODE_BITS;
+
+    /** Text prefix of encoded order IDs */
+    private static final String PREFIX = "ORD-";
+
+    /** Encoded IDs are zero-padded to this many digits so the text form sorts like the number */
+    private static final int DIGITS = 19;
+
+    private OrderIds() {
+    }
+
+    /**
+     * Encode an order ID to its text form, e.g. {@code ORD-0000391234567890123}
+     * @param id Order ID
+     * @return Text form
+     */
+    public static String format(long id) {
+        char[] chars = new char[PREFIX.length() + DIGITS];
+        PREFIX.getChars(0, PREFIX.length(), chars, 0);
+        long value = id;
+        for (int i = chars.length - 1; i >= PREFIX.length(); i--) {
+            chars[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Decode the text form of an order ID
+     * @param text Text form
+     * @return Order ID, or -1 if the text is not a valid order ID
+     */
+    public static long parse(String text) {
+        if (text == null || text.length() != PREFIX.length() + DIGITS || !text.startsWith(PREFIX)) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = PREFIX.length(); i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Creation time encoded in an order ID
+     * @param id Order ID
+     * @return Epoch milliseconds
+     */
+    public static long createdAtMillis(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH_MILLIS;
+    }
+
+    /**
+     * Jackson serializer writing numeric order IDs in their text form
+     */
+    public static class TextSerializer extends StdSerializer<Long> {
+
+        public TextSerializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long id, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeString(format(id));
+        }
+    }
+}
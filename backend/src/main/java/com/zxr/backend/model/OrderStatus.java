@@ -0,0 +1,31 @@
+package com.zxr.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Order status
+ * Stored as one byte in the write-ahead log, so constants must only be appended
+ */
+public enum OrderStatus {
+
+    /** Stock reserved, waiting for payment until the reservation expires */
+    PENDING,
+
+    /** Paid; the stock stays deducted */
+    CONFIRMED,
+
+    /** Cancelled by the customer; the stock went back to the products */
+    CANCELLED,
+
+    /** Not confirmed in time; the stock went back to the products */
+    EXPIRED;
+
+    /**
+     * Get the API form of the status
+     * @return Lower-case name, e.g. {@code pending}
+     */
+    @JsonValue
+    public String label() {
+        return name().toLowerCase();
+    }
+}
@@ -1,9 +1,17 @@
 package com.zxr.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 /**
  * Product model class
  * Represents product information in the system
  */
+@JsonPropertyOrder({"id", "name", "price", "stock"})
 public class Product {
 
     /** Product ID */
@@ -12,28 +20,54 @@ public class Product {
     /** Product name */
     private final String name;
     
-    /** Product price */
-    private final double price;
+    /** Product price in cents, see {@link Money} */
+    private final long priceCents;
     
-    /** Product stock */
-    private int stock;
+    /** Product stock, updated lock-free through {@link #STOCK} */
+    private volatile int stock;
+
+    /** Reservation contention, null until a reservation first has to retry */
+    private volatile StockContention contention;
+
+    /** Striped stock of a hot product, null while the stock is a single counter */
+    private volatile StripedStock striped;
+
+    /** CAS handle over {@link #stock} */
+    private static final VarHandle STOCK;
+
+    /** CAS handle over {@link #contention} */
+    private static final VarHandle CONTENTION;
+
+    /** CAS handle over {@link #striped} */
+    private static final VarHandle STRIPED;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            STOCK = lookup.findVarHandle(Product.class, "stock", int.class);
+            CONTENTION = lookup.findVarHandle(Product.class, "contention", StockContention.class);
+            STRIPED = lookup.findVarHandle(Product.class, "striped", StripedStock.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     /**
      * Construct product object
      * @param id Product ID
      * @param name Product name
-     * @param price Product price
+     * @param priceCents Product price in cents
      * @param stock Product stock
      * @throws IllegalArgumentException if parameters are invalid
      */
-    public Product(Long id, String name, double price, int stock) {
+    public Product(Long id, String name, long priceCents, int stock) {
         if (id == null || id <= 0) {
             throw new IllegalArgumentException("Product ID must be a positive number");
         }
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Product name cannot be empty");
         }
-        if (price < 0) {
+        if (priceCents < 0) {
             throw new IllegalArgumentException("Product price cannot be negative");
         }
         if (stock < 0) {
@@ -42,7 +76,7 @@ public class Product {
         
         this.id = id;
         this.name = name;
-        this.price = price;
+        this.priceCents = priceCents;
         this.stock = stock;
     }
 
@@ -64,10 +98,13 @@ public class Product {
     
     /**
      * Get product price
-     * @return Product price
+     * Serialized as {@code price} in its decimal form
+     * @return Product price in cents
      */
-    public double getPrice() { 
-        return price; 
+    @JsonProperty("price")
+    @JsonSerialize(using = Money.DecimalSerializer.class)
+    public long getPriceCents() { 
+        return priceCents; 
     }
     
     /**
@@ -75,7 +112,8 @@ public class Product {
      * @return Product stock
      */
     public int getStock() { 
-        return stock; 
+        StripedStock stripes = striped;
+        return stripes != null ? stripes.sum() : stock;
     }
     
     /**
@@ -87,7 +125,160 @@ public class Product {
         if (stock < 0) {
             throw new IllegalArgumentException("Product stock cannot be negative");
         }
-        this.stock = stock; 
+        StripedStock stripes = striped;
+        if (stripes != null) {
+            stripes.reset(stock);
+        } else {
+            this.stock = stock;
+        }
+    }
+
+    /**
+     * Try to reserve stock without blocking.
+     * Retries the compare-and-set only while enough stock remains, so a failed
+     * reservation never changes the counter. Retries and the time spent on them are
+     * recorded in {@link #stockContention()}; the uncontended path records nothing.
+     * With {@link #enableStripedStock striped stock} the reservation goes to the
+     * calling thread's stripe instead.
+     * @param quantity Quantity to reserve, must be greater than 0
+     * @return true if the stock was deducted, false if stock is insufficient
+     * @throws IllegalArgumentException if quantity is not positive
+     */
+    public boolean tryReserveStock(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Reserved quantity must be greater than 0");
+        }
+        StripedStock stripes = striped;
+        if (stripes != null) {
+            return stripes.tryReserve(quantity);
+        }
+        if (reserveCentral(quantity)) {
+            return true;
+        }
+        // Striping may have been turned on meanwhile and moved the stock into stripes
+        stripes = striped;
+        return stripes != null && stripes.tryReserve(quantity);
+    }
+
+    /**
+     * Reserve from the product's own counter
+     */
+    boolean reserveCentral(int quantity) {
+        int current = stock;
+        int retries = 0;
+        long waitStart = 0L;
+        while (current >= quantity) {
+            int witness = (int) STOCK.compareAndExchange(this, current, current - quantity);
+            if (witness == current) {
+                if (retries > 0) {
+                    recordContention(retries, waitStart);
+                }
+                return true;
+            }
+            if (retries++ == 0) {
+                waitStart = System.nanoTime();
+            }
+            current = witness;
+        }
+        if (retries > 0) {
+            recordContention(retries, waitStart);
+        }
+        return false;
+    }
+
+    /** Stock in the product's own counter */
+    int centralStock() {
+        return stock;
+    }
+
+    /** Empty the product's own counter */
+    int drainCentral() {
+        return (int) STOCK.getAndSet(this, 0);
+    }
+
+    /** Add to the product's own counter */
+    void addCentral(int quantity) {
+        STOCK.getAndAdd(this, quantity);
+    }
+
+    /**
+     * Split the stock over per-core stripes, for a hot product reserved from many threads at once
+     * Can be turned on and off while reservations run; the stock is never oversold.
+     * @param stripes Stripe count, rounded up to a power of two; see {@link #enableStripedStock()}
+     * @return true if striping was turned on, false if it already was
+     * @throws IllegalArgumentException if the stripe count is not positive
+     */
+    public boolean enableStripedStock(int stripes) {
+        StripedStock created = new StripedStock(this, stripes);
+        if (!STRIPED.compareAndSet(this, null, created)) {
+            return false;
+        }
+        created.open();
+        return true;
+    }
+
+    /**
+     * Split the stock over one stripe per available processor
+     * @return true if striping was turned on, false if it already was
+     */
+    public boolean enableStripedStock() {
+        return enableStripedStock(StripedStock.defaultStripes());
+    }
+
+    /**
+     * Gather the striped stock back into one counter
+     * @return true if striping was turned off, false if it was not on
+     */
+    public boolean disableStripedStock() {
+        StripedStock stripes = (StripedStock) STRIPED.getAndSet(this, null);
+        if (stripes == null) {
+            return false;
+        }
+        stripes.close();
+        return true;
+    }
+
+    /**
+     * Whether the stock is striped
+     * @return true while {@link #enableStripedStock striped stock} is on
+     */
+    public boolean hasStripedStock() {
+        return striped != null;
+    }
+
+    /**
+     * Get stock reservation contention
+     * @return Contention counters, or null if no reservation of this product ever had to retry
+     */
+    public StockContention stockContention() {
+        return contention;
+    }
+
+    private void recordContention(int retries, long waitStart) {
+        StockContention counters = contention;
+        if (counters == null) {
+            StockContention created = new StockContention();
+            StockContention witness = (StockContention) CONTENTION.compareAndExchange(this, null, created);
+            counters = witness == null ? created : witness;
+        }
+        counters.record(retries, System.nanoTime() - waitStart);
+    }
+
+    /**
+     * Give previously reserved stock back
+     * @param quantity Quantity to return, must be greater than 0
+     * @throws IllegalArgumentException if quantity is not positive
+     */
+    public void releaseStock(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Released quantity must be greater than 0");
+        }
+        StripedStock stripes = striped;
+        if (stripes != null) {
+            stripes.release(quantity);
+        } else {
+            STOCK.getAndAdd(this, quantity);
+        }
     }
     
     /**
@@ -99,8 +290,8 @@ public class Product {
         return "Product{" +
                 "id=" + id +
                 ", name='" + name + '\'' +
-                ", price=" + price +
-                ", stock=" + stock +
+                ", price=" + Money.format(priceCents) +
+                ", stock=" + getStock() +
                 '}';
     }
 }
\ No newline at end of file
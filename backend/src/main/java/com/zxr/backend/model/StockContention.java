@@ -0,0 +1,34 @@
+package com.zxr.backend.model;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stock reservation contention of one product
+ * Created on the first failed compare-and-set, so uncontended products carry no counters
+ */
+public final class StockContention {
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    void record(int retries, long waitNanos) {
+        this.retries.add(retries);
+        this.waitNanos.add(waitNanos);
+    }
+
+    /**
+     * Get the number of compare-and-set retries
+     * @return Retries since startup
+     */
+    public long retries() {
+        return retries.sum();
+    }
+
+    /**
+     * Get the time reservations spent retrying
+     * @return Wait time in nanoseconds since startup
+     */
+    public long waitNanos() {
+        return waitNanos.sum();
+    }
+}
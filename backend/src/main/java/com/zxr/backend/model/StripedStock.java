@@ -0,0 +1,224 @@
+package com.zxr.backend.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped stock of one hot product
+ * <p>
+ * Splits the product's stock over per-stripe counters, each padded onto its own cache
+ * lines, so threads reserving the same product mostly compare-and-set different memory.
+ * A thread reserves from the stripe its thread ID hashes to; when that stripe runs dry
+ * it takes the whole quantity from another stripe, then from the product's own counter.
+ * Like {@link Product#tryReserveStock}, a stripe is only decremented while it holds the
+ * full quantity, so no counter ever drops below zero and stock is never oversold.
+ * </p>
+ * <p>
+ * When no single counter holds the quantity, the reservation takes the slow path: under
+ * the stock's lock it drains every stripe and the product counter, reserves from the
+ * total, and spreads the rest evenly over the stripes again. Fast-path reservations that
+ * miss units in transit end up on the slow path behind the lock, so a reservation only
+ * fails once the whole stock is short. The lock is a {@link ReentrantLock} rather than
+ * a monitor, so a virtual thread waiting on it does not pin its carrier.
+ * </p>
+ * <p>
+ * The product counter stays part of the stock while striping is on, which makes turning
+ * it on and off safe under load: see {@link Product#enableStripedStock} and
+ * {@link #close()}.
+ * </p>
+ */
+final class StripedStock {
+
+    /** Longs per stripe: 128 bytes, so neighbouring stripes never share a cache line or prefetched pair */
+    private static final int PAD = 16;
+
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Product product;
+    private final int stripes;
+    private final long[] cells;
+    /** Guards the slow path and the open, close and reset transitions */
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean closed;
+
+    /**
+     * @param product Product whose stock is striped
+     * @param stripes Stripe count, rounded up to a power of two
+     */
+    StripedStock(Product product, int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripe count must be greater than 0");
+        }
+        int rounded = Integer.highestOneBit(stripes);
+        this.product = product;
+        this.stripes = rounded < stripes ? rounded << 1 : rounded;
+        this.cells = new long[(this.stripes + 1) * PAD];
+    }
+
+    /** Default stripe count: one per available processor */
+    static int defaultStripes() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /** Stripe count */
+    int stripes() {
+        return stripes;
+    }
+
+    /**
+     * Try to reserve stock
+     * @param quantity Quantity to reserve, greater than 0
+     * @return true if the stock was deducted, false if the stock is insufficient
+     */
+    boolean tryReserve(int quantity) {
+        int home = home();
+        for (int i = 0; i < stripes; i++) {
+            if (take((home + i) & (stripes - 1), quantity)) {
+                return true;
+            }
+        }
+        return product.reserveCentral(quantity) || reserveSlow(quantity);
+    }
+
+    /**
+     * Give reserved stock back to the calling thread's stripe
+     * @param quantity Quantity to return, greater than 0
+     */
+    void release(int quantity) {
+        int home = home();
+        CELLS.getAndAdd(cells, slot(home), (long) quantity);
+        // close() drains after setting the flag: either it saw this add or this sees the flag
+        if (closed) {
+            moveToProduct(home);
+        }
+    }
+
+    /** Stock over all stripes and the product counter; exact only while no reservation runs */
+    int sum() {
+        long sum = product.centralStock();
+        for (int i = 0; i < stripes; i++) {
+            sum += (long) CELLS.getVolatile(cells, slot(i));
+        }
+        return (int) sum;
+    }
+
+    /**
+     * Spread the product counter over the stripes
+     */
+    void open() {
+        lock.lock();
+        try {
+            if (!closed) {
+                spread(product.drainCentral());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Move every stripe back to the product counter; later releases go there too
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            for (int i = 0; i < stripes; i++) {
+                moveToProduct(i);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replace the stock
+     * @param stock New stock, not negative
+     */
+    void reset(int stock) {
+        lock.lock();
+        try {
+            for (int i = 0; i < stripes; i++) {
+                CELLS.getAndSet(cells, slot(i), 0L);
+            }
+            product.drainCentral();
+            if (closed) {
+                product.addCentral(stock);
+            } else {
+                spread(stock);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserve from the consolidated stock
+     */
+    private boolean reserveSlow(int quantity) {
+        lock.lock();
+        try {
+            long total = product.drainCentral();
+            for (int i = 0; i < stripes; i++) {
+                total += (long) CELLS.getAndSet(cells, slot(i), 0L);
+            }
+            boolean reserved = total >= quantity;
+            if (reserved) {
+                total -= quantity;
+            }
+            if (closed) {
+                product.addCentral((int) total);
+            } else {
+                spread(total);
+            }
+            return reserved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Take the whole quantity from one stripe, or nothing */
+    private boolean take(int stripe, int quantity) {
+        int index = slot(stripe);
+        long current = (long) CELLS.getVolatile(cells, index);
+        while (current >= quantity) {
+            long witness = (long) CELLS.compareAndExchange(cells, index, current, current - quantity);
+            if (witness == current) {
+                return true;
+            }
+            current = witness;
+        }
+        return false;
+    }
+
+    /** Add stock evenly to the stripes; caller holds the lock */
+    private void spread(long stock) {
+        long share = stock / stripes;
+        long rest = stock - share * stripes;
+        for (int i = 0; i < stripes; i++) {
+            long add = share + (i < rest ? 1 : 0);
+            if (add > 0) {
+                CELLS.getAndAdd(cells, slot(i), add);
+            }
+        }
+    }
+
+    private void moveToProduct(int stripe) {
+        long moved = (long) CELLS.getAndSet(cells, slot(stripe), 0L);
+        if (moved > 0) {
+            product.addCentral((int) moved);
+        }
+    }
+
+    /** Stripe of the calling thread */
+    private int home() {
+        long h = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (stripes - 1);
+    }
+
+    /** Array index of a stripe, with a full pad before the first one */
+    private static int slot(int stripe) {
+        return (stripe + 1) * PAD;
+    }
+}
@@ -0,0 +1,26 @@
+package com.zxr.backend.persistence;
+
+/**
+ * Write-ahead log durability modes
+ */
+public enum Durability {
+
+    /** Every append is written and fsynced on its own before it completes */
+    SYNC,
+
+    /** Appends arriving within the group-commit window share one write and one fsync */
+    GROUP_COMMIT,
+
+    /** Appends complete once written to the OS page cache, fsync is left to the OS */
+    OS_BUFFERED;
+
+    /**
+     * Parse a configuration value such as {@code group-commit}
+     * @param value Configuration value, case insensitive, dashes or underscores
+     * @return Durability mode
+     * @throws IllegalArgumentException if the value is unknown
+     */
+    public static Durability of(String value) {
+        return valueOf(value.trim().replace('-', '_').toUpperCase());
+    }
+}
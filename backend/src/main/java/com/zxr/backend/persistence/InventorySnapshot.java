@@ -0,0 +1,201 @@
+package com.zxr.backend.persistence;
+
+import com.zxr.backend.model.Product;
+import com.zxr.backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact binary snapshot of the catalog and stock levels at a write-ahead log position
+ * <p>
+ * Layout (little-endian): magic, version, log position, highest order ID logged
+ * before it, product count, then per
+ * product its ID, price in cents, stock and UTF-8 name, followed by a CRC32C of
+ * everything before it. Files are named {@code inventory-<log position>.snap}, written
+ * to a temporary file first and moved into place atomically.
+ * </p>
+ */
+final class InventorySnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventorySnapshot.class);
+
+    private static final int MAGIC = 0x534E5649; // "INVS"
+    private static final int VERSION = 2;
+    private static final int HEADER = Integer.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES;
+    private static final String PREFIX = "inventory-";
+    private static final String SUFFIX = ".snap";
+
+    private InventorySnapshot() {
+    }
+
+    /**
+     * Restored snapshot
+     * @param logPosition Log position of the snapshot, 0 if none was usable
+     * @param maxOrderId Highest order ID logged before the position, 0 if none
+     */
+    record Restored(long logPosition, long maxOrderId) {
+    }
+
+    /**
+     * Write a snapshot
+     * @param directory Snapshot directory
+     * @param logPosition Log position the stock levels correspond to
+     * @param maxOrderId Highest order ID logged before the position, 0 if none
+     * @param products Catalog, for IDs, names and prices
+     * @param stock Stock by product ID as of the log position
+     * @return Snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    static Path write(Path directory, long logPosition, long maxOrderId, Collection<Product> products,
+            int[] stock)
+            throws IOException {
+        List<Product> catalog = new ArrayList<>(products);
+        List<byte[]> names = new ArrayList<>(catalog.size());
+        int size = HEADER + Integer.BYTES;
+        for (Product product : catalog) {
+            byte[] name = product.getName().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES + name.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(logPosition).putLong(maxOrderId).putInt(catalog.size());
+        for (int i = 0; i < catalog.size(); i++) {
+            Product product = catalog.get(i);
+            long id = product.getId();
+            int level = id < stock.length && stock[(int) id] != ShadowInventory.UNKNOWN
+                    ? stock[(int) id] : product.getStock();
+            byte[] name = names.get(i);
+            buffer.putLong(id).putLong(product.getPriceCents()).putInt(level)
+                    .putInt(name.length).put(name);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue()).flip();
+
+        Files.createDirectories(directory);
+        Path target = directory.resolve(PREFIX + logPosition + SUFFIX);
+        Path temp = directory.resolve(PREFIX + logPosition + SUFFIX + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    /**
+     * Restore the newest valid snapshot into the product repository
+     * @param directory Snapshot directory
+     * @param maxLogPosition Size of the log; snapshots beyond it belong to another log
+     * @param productRepository Product repository to restore into
+     * @return Restored snapshot, at log position 0 if none was usable
+     * @throws IOException if the directory cannot be listed
+     */
+    static Restored restoreLatest(Path directory, long maxLogPosition, ProductRepository productRepository)
+            throws IOException {
+        for (Path file : list(directory)) {
+            long position = positionOf(file);
+            if (position > maxLogPosition) {
+                logger.warn("Ignoring snapshot {} beyond the end of the write-ahead log", file);
+                continue;
+            }
+            long maxOrderId = restore(file, productRepository);
+            if (maxOrderId >= 0) {
+                return new Restored(position, maxOrderId);
+            }
+        }
+        return new Restored(0, 0);
+    }
+
+    /**
+     * Delete all but the newest snapshots
+     * @param directory Snapshot directory
+     * @param retain Number of snapshots to keep
+     * @throws IOException if a file cannot be deleted
+     */
+    static void prune(Path directory, int retain) throws IOException {
+        List<Path> files = list(directory);
+        for (int i = retain; i < files.size(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    /**
+     * Map a snapshot file and load it
+     * @return Highest order ID logged before the snapshot, or -1 if the snapshot was not valid
+     */
+    private static long restore(Path file, ProductRepository productRepository) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER + Integer.BYTES || size > Integer.MAX_VALUE) {
+                logger.warn("Ignoring snapshot {} with invalid size {}", file, size);
+                return -1;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(0, (int) size - Integer.BYTES));
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION
+                    || buffer.getInt((int) size - Integer.BYTES) != (int) crc.getValue()) {
+                logger.warn("Ignoring corrupt snapshot {}", file);
+                return -1;
+            }
+            buffer.position(HEADER - Long.BYTES - Integer.BYTES);
+            long maxOrderId = buffer.getLong();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                long id = buffer.getLong();
+                long priceCents = buffer.getLong();
+                int stock = buffer.getInt();
+                byte[] name = new byte[buffer.getInt()];
+                buffer.get(name);
+                productRepository.save(new Product(id, new String(name, StandardCharsets.UTF_8),
+                        priceCents, stock));
+            }
+            logger.info("Restored {} products from snapshot {}", count, file);
+            return maxOrderId;
+        }
+    }
+
+    /** Snapshot files, newest first */
+    private static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> {
+                String name = f.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted(Comparator.comparingLong(InventorySnapshot::positionOf).reversed()).toList();
+        }
+    }
+
+    private static long positionOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.zxr.backend.persistence;
+
+import com.zxr.backend.model.Order;
+import com.zxr.backend.model.OrderStatus;
+import com.zxr.backend.model.Product;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Order journal used when the write-ahead log is disabled ({@code order.wal.enabled=false})
+ * Orders live only in the order repository and are lost on restart
+ */
+@Component
+@ConditionalOnProperty(name = "order.wal.enabled", havingValue = "false", matchIfMissing = true)
+public class NoopOrderJournal implements OrderJournal {
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    @Override
+    public CompletableFuture<Void> recordOrder(List<Order> lines, long expiresAtMillis) {
+        return DONE;
+    }
+
+    @Override
+    public CompletableFuture<Void> recordStatus(long orderId, OrderStatus status, Product[] released,
+            int[] quantities) {
+        return DONE;
+    }
+
+    @Override
+    public CompletableFuture<List<OpenReservation>> openReservations() {
+        return CompletableFuture.completedFuture(List.of());
+    }
+}
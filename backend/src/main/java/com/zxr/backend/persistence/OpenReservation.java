@@ -0,0 +1,11 @@
+package com.zxr.backend.persistence;
+
+/**
+ * Reservation found open in the write-ahead log on startup
+ * @param orderId Order ID
+ * @param expiresAtMillis Expiry in epoch milliseconds, possibly already past
+ * @param productIds Product IDs of the order lines
+ * @param quantities Reserved quantities, same indexes as the product IDs
+ */
+public record OpenReservation(long orderId, long expiresAtMillis, long[] productIds, int[] quantities) {
+}
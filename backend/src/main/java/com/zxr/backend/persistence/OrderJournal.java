@@ -0,0 +1,56 @@
+package com.zxr.backend.persistence;
+
+import com.zxr.backend.model.Order;
+import com.zxr.backend.model.OrderStatus;
+import com.zxr.backend.model.Product;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Order journal
+ * Makes created orders and their stock deductions durable before they become visible
+ */
+public interface OrderJournal {
+
+    /**
+     * Record order lines together with the stock they deducted, in one durable write
+     * @param lines Order lines, of one order or of a whole batch
+     * @param expiresAtMillis Expiry of the orders' stock reservations, 0 if the stock is deducted for good
+     * @return Future completed once the order is as durable as configured
+     */
+    CompletableFuture<Void> recordOrder(List<Order> lines, long expiresAtMillis);
+
+    /**
+     * Record order lines whose stock is deducted for good
+     * @param lines Order lines, of one order or of a whole batch
+     * @return Future completed once the order is as durable as configured
+     */
+    default CompletableFuture<Void> recordOrder(List<Order> lines) {
+        return recordOrder(lines, 0L);
+    }
+
+    /**
+     * Record the end of a stock reservation together with the stock it gives back
+     * @param orderId Order ID
+     * @param status Status the order moves to
+     * @param released Products whose stock goes back, none for a confirmation
+     * @param quantities Quantities given back, same indexes as the products
+     * @return Future completed once the status is as durable as configured
+     */
+    CompletableFuture<Void> recordStatus(long orderId, OrderStatus status, Product[] released, int[] quantities);
+
+    /**
+     * Get the reservations that were still open when the service last stopped
+     * @return Future completed once the journal has been read far enough back to know them
+     */
+    CompletableFuture<List<OpenReservation>> openReservations();
+
+    /**
+     * Get the highest order ID recorded before the service last stopped
+     * @return Order ID, 0 if no order was recorded
+     */
+    default long maxRecoveredOrderId() {
+        return 0L;
+    }
+}
@@ -0,0 +1,165 @@
+package com.zxr.backend.persistence;
+
+import com.zxr.backend.model.Order;
+import com.zxr.backend.model.OrderStatus;
+import com.zxr.backend.model.Product;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Binary record layout of the order write-ahead log
+ * <p>
+ * A frame payload is a sequence of fixed-width, little-endian records, each
+ * starting with a one-byte type:
+ * <ul>
+ *     <li>ORDER_LINE: order ID, product ID, quantity, price in cents</li>
+ *     <li>STOCK_DELTA: product ID, signed stock change</li>
+ *     <li>STOCK_SET: product ID, absolute stock level</li>
+ *     <li>RESERVATION: order ID, expiry in epoch milliseconds; follows the lines of an
+ *     order whose stock is only reserved until it is confirmed</li>
+ *     <li>ORDER_STATUS: order ID, {@link OrderStatus} ordinal; closes a reservation</li>
+ * </ul>
+ * </p>
+ */
+public final class OrderLogRecords {
+
+    static final byte ORDER_LINE = 1;
+    static final byte STOCK_DELTA = 2;
+    static final byte STOCK_SET = 3;
+    static final byte RESERVATION = 4;
+    static final byte ORDER_STATUS = 5;
+
+    static final int ORDER_LINE_SIZE = 1 + Long.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES;
+    static final int STOCK_SIZE = 1 + Long.BYTES + Integer.BYTES;
+    static final int RESERVATION_SIZE = 1 + Long.BYTES + Long.BYTES;
+    static final int ORDER_STATUS_SIZE = 1 + Long.BYTES + 1;
+
+    /**
+     * Receives decoded records
+     */
+    public interface Handler {
+
+        /**
+         * Handle an order line
+         * @param orderId Order ID
+         * @param productId Product ID
+         * @param quantity Purchase quantity
+         * @param priceCents Line price in cents
+         */
+        void onOrderLine(long orderId, long productId, int quantity, long priceCents);
+
+        /**
+         * Handle a stock change
+         * @param productId Product ID
+         * @param delta Signed change, negative for deductions
+         */
+        void onStockDelta(long productId, int delta);
+
+        /**
+         * Handle an absolute stock level
+         * @param productId Product ID
+         * @param stock Stock level
+         */
+        void onStockSet(long productId, int stock);
+
+        /**
+         * Handle the reservation of the order whose lines came just before
+         * @param orderId Order ID
+         * @param expiresAtMillis Expiry in epoch milliseconds
+         */
+        void onReservation(long orderId, long expiresAtMillis);
+
+        /**
+         * Handle the end of a reservation; released stock comes in stock changes before it
+         * @param orderId Order ID
+         * @param status Status the order moved to
+         */
+        void onOrderStatus(long orderId, OrderStatus status);
+    }
+
+    private OrderLogRecords() {
+    }
+
+    /**
+     * Encode the lines of orders and the stock each line deducted
+     * @param lines Order lines, those of one order next to each other
+     * @param expiresAtMillis Expiry of the orders' reservations, 0 if their stock is deducted for good
+     * @return Payload ready to append
+     */
+    public static ByteBuffer encodeOrder(List<Order> lines, long expiresAtMillis) {
+        int size = lines.size();
+        int reservationSize = expiresAtMillis > 0 ? RESERVATION_SIZE : 0;
+        ByteBuffer payload = allocate(size * (STOCK_SIZE + ORDER_LINE_SIZE + reservationSize));
+        for (int i = 0; i < size; i++) {
+            Order line = lines.get(i);
+            payload.put(STOCK_DELTA).putLong(line.getProductId()).putInt(-line.getQuantity());
+            payload.put(ORDER_LINE).putLong(line.getId()).putLong(line.getProductId())
+                    .putInt(line.getQuantity()).putLong(line.getTotalPriceCents());
+            if (expiresAtMillis > 0 && (i == size - 1 || lines.get(i + 1).getId() != line.getId())) {
+                payload.put(RESERVATION).putLong(line.getId()).putLong(expiresAtMillis);
+            }
+        }
+        return payload.flip();
+    }
+
+    /**
+     * Encode the end of a reservation and the stock it gives back
+     * @param orderId Order ID
+     * @param status Status the order moves to
+     * @param released Products whose stock goes back, none for a confirmation
+     * @param quantities Quantities given back, same indexes as the products
+     * @return Payload ready to append
+     */
+    public static ByteBuffer encodeStatus(long orderId, OrderStatus status, Product[] released, int[] quantities) {
+        ByteBuffer payload = allocate(released.length * STOCK_SIZE + ORDER_STATUS_SIZE);
+        for (int i = 0; i < released.length; i++) {
+            payload.put(STOCK_DELTA).putLong(released[i].getId()).putInt(quantities[i]);
+        }
+        payload.put(ORDER_STATUS).putLong(orderId).put((byte) status.ordinal());
+        return payload.flip();
+    }
+
+    /**
+     * Encode the current stock level of every product
+     * @param products Products
+     * @return Payload ready to append
+     */
+    public static ByteBuffer encodeStockLevels(Collection<Product> products) {
+        ByteBuffer payload = allocate(products.size() * STOCK_SIZE);
+        for (Product product : products) {
+            if (payload.remaining() < STOCK_SIZE) {
+                break;
+            }
+            payload.put(STOCK_SET).putLong(product.getId()).putInt(product.getStock());
+        }
+        return payload.flip();
+    }
+
+    /**
+     * Decode every record of a payload
+     * @param payload Frame payload, little-endian
+     * @param handler Record handler
+     * @throws IllegalStateException if an unknown record type is found
+     */
+    public static void decode(ByteBuffer payload, Handler handler) {
+        while (payload.hasRemaining()) {
+            byte type = payload.get();
+            switch (type) {
+                case ORDER_LINE -> handler.onOrderLine(payload.getLong(), payload.getLong(), payload.getInt(),
+                        payload.getLong());
+                case STOCK_DELTA -> handler.onStockDelta(payload.getLong(), payload.getInt());
+                case STOCK_SET -> handler.onStockSet(payload.getLong(), payload.getInt());
+                case RESERVATION -> handler.onReservation(payload.getLong(), payload.getLong());
+                case ORDER_STATUS -> handler.onOrderStatus(payload.getLong(), OrderStatus.values()[payload.get()]);
+                default -> throw new IllegalStateException("Unknown write-ahead log record type: " + type);
+            }
+        }
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,83 @@
+package com.zxr.backend.persistence;
+
+import com.zxr.backend.model.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Follows reservations through replayed log records
+ * <p>
+ * A reservation record follows the lines of its order, so the lines of the order
+ * being replayed are buffered until the next order starts. Only reservations still
+ * open are kept, so memory follows the number of open reservations, not the length
+ * of the log. Status records for reservations opened before the replayed range are
+ * remembered, so they can close reservations found in an earlier range.
+ * </p>
+ */
+class ReservationTracker {
+
+    private final Map<Long, OpenReservation> open = new LinkedHashMap<>();
+    private final Set<Long> closedEarlier = new HashSet<>();
+    private long currentOrderId;
+    private long[] productIds = new long[4];
+    private int[] quantities = new int[4];
+    private int lines;
+
+    void onOrderLine(long orderId, long productId, int quantity) {
+        if (orderId != currentOrderId) {
+            currentOrderId = orderId;
+            lines = 0;
+        }
+        if (lines == productIds.length) {
+            productIds = Arrays.copyOf(productIds, lines * 2);
+            quantities = Arrays.copyOf(quantities, lines * 2);
+        }
+        productIds[lines] = productId;
+        quantities[lines] = quantity;
+        lines++;
+    }
+
+    void onReservation(long orderId, long expiresAtMillis) {
+        if (orderId != currentOrderId) {
+            // Written right after the order's lines, so this only happens in a damaged log
+            return;
+        }
+        open.put(orderId, new OpenReservation(orderId, expiresAtMillis, Arrays.copyOf(productIds, lines),
+                Arrays.copyOf(quantities, lines)));
+    }
+
+    void onOrderStatus(long orderId, OrderStatus status) {
+        if (open.remove(orderId) == null) {
+            closedEarlier.add(orderId);
+        }
+    }
+
+    /**
+     * Get the reservations opened and not closed in the replayed range
+     * @param closedLater Orders whose reservations were closed in a later range
+     * @return Open reservations in log order
+     */
+    List<OpenReservation> open(Set<Long> closedLater) {
+        List<OpenReservation> result = new ArrayList<>(open.size());
+        for (OpenReservation reservation : open.values()) {
+            if (!closedLater.contains(reservation.orderId())) {
+                result.add(reservation);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the orders whose reservations were closed in the replayed range but opened before it
+     * @return Order IDs
+     */
+    Set<Long> closedEarlier() {
+        return closedEarlier;
+    }
+}
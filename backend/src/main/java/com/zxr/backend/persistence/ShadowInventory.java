@@ -0,0 +1,94 @@
+package com.zxr.backend.persistence;
+
+import com.zxr.backend.model.OrderStatus;
+import com.zxr.backend.model.Product;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Stock levels as of the last written log frame
+ * <p>
+ * Live product stock runs ahead of the log (reservations happen before the order
+ * is logged), so snapshots are not taken from it. Instead the log writer applies
+ * each written frame's stock records here, and a snapshot copies this table at an
+ * exact log position, together with the highest order ID written so far. Only the
+ * writer thread touches it once the log is started.
+ * </p>
+ */
+class ShadowInventory implements OrderLogRecords.Handler {
+
+    /** Marks product IDs without a known stock level */
+    static final int UNKNOWN = -1;
+
+    /** Stock by product ID; catalog IDs are dense, so a plain array is enough */
+    private int[] stock;
+
+    /** Highest order ID of the written frames */
+    private long maxOrderId;
+
+    /**
+     * Start from the current, fully recovered stock levels
+     * @param products Products
+     * @param maxOrderId Highest order ID already in the log, 0 if none
+     */
+    ShadowInventory(Collection<Product> products, long maxOrderId) {
+        this.maxOrderId = maxOrderId;
+        stock = new int[16];
+        Arrays.fill(stock, UNKNOWN);
+        for (Product product : products) {
+            onStockSet(product.getId(), product.getStock());
+        }
+    }
+
+    @Override
+    public void onOrderLine(long orderId, long productId, int quantity, long priceCents) {
+        // Stock changes are carried by their own records
+        maxOrderId = Math.max(maxOrderId, orderId);
+    }
+
+    @Override
+    public void onStockDelta(long productId, int delta) {
+        if (productId < stock.length && stock[(int) productId] != UNKNOWN) {
+            stock[(int) productId] = Math.max(0, stock[(int) productId] + delta);
+        }
+    }
+
+    @Override
+    public void onStockSet(long productId, int level) {
+        if (productId >= stock.length) {
+            int grown = stock.length;
+            while (grown <= productId) {
+                grown *= 2;
+            }
+            int old = stock.length;
+            stock = Arrays.copyOf(stock, grown);
+            Arrays.fill(stock, old, grown, UNKNOWN);
+        }
+        stock[(int) productId] = level;
+    }
+
+    @Override
+    public void onReservation(long orderId, long expiresAtMillis) {
+    }
+
+    @Override
+    public void onOrderStatus(long orderId, OrderStatus status) {
+    }
+
+    /**
+     * Copy the current levels
+     * @return Stock by product ID, {@link #UNKNOWN} where not tracked
+     */
+    int[] copy() {
+        return stock.clone();
+    }
+
+    /**
+     * Get the highest order ID written so far
+     * @return Order ID, 0 if none
+     */
+    long maxOrderId() {
+        return maxOrderId;
+    }
+}
@@ -0,0 +1,296 @@
+package com.zxr.backend.persistence;
+
+import com.zxr.backend.config.BackgroundThreads;
+import com.zxr.backend.model.Order;
+import com.zxr.backend.model.OrderStatus;
+import com.zxr.backend.model.Product;
+import com.zxr.backend.repository.OrderRepository;
+import com.zxr.backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order journal backed by the write-ahead log ({@code order.wal.enabled=true})
+ * <p>
+ * On startup the latest inventory snapshot is memory-mapped and restored, and only
+ * the log tail after it is replayed, so the time to serve stays flat as order
+ * history grows. Orders from before the snapshot are loaded into the order
+ * repository by a background thread afterwards. A fresh log starts with the stock
+ * level of every product, so later deductions always replay onto a known base.
+ * </p>
+ * <p>
+ * Snapshots are written periodically in the background. Their stock levels come
+ * from a shadow table that the log writer keeps in step with the frames it writes,
+ * copied at an exact log position, so order traffic never pauses.
+ * </p>
+ * <p>
+ * Stock reservations still open are picked up from the log tail and, once it has been
+ * loaded, from the history before the snapshot, whose stock they still hold.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "order.wal.enabled", havingValue = "true")
+public class WalOrderJournal implements OrderJournal, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalOrderJournal.class);
+
+    /** Log file name inside the configured directory */
+    static final String LOG_FILE = "orders.wal";
+
+    private final Path directory;
+    private final int snapshotRetain;
+    private final ProductRepository productRepository;
+    private final WriteAheadLog log;
+    private final ShadowInventory shadow;
+    private final ScheduledExecutorService snapshotExecutor;
+    private final Thread historyLoader;
+    private final long recoveryMillis;
+    private final long maxRecoveredOrderId;
+    private final CompletableFuture<List<OpenReservation>> openReservations = new CompletableFuture<>();
+    private volatile boolean closed;
+    private long lastSnapshotPosition;
+
+    /**
+     * Open the write-ahead log and recover from the latest snapshot and the log tail
+     * @param directory Directory holding the log file and snapshots
+     * @param durability Durability mode: sync, group-commit or os-buffered
+     * @param groupCommitWindow How long a group commit waits for more orders
+     * @param snapshotInterval Time between inventory snapshots, zero to disable them
+     * @param snapshotRetain Number of snapshot files to keep
+     * @param productRepository Product repository, stock levels are restored into it
+     * @param orderRepository Order repository, replayed orders are saved into it
+     * @param backgroundThreads Creates the snapshot and history loader threads
+     * @throws IOException if the log or a snapshot cannot be read
+     */
+    public WalOrderJournal(@Value("${order.wal.directory:data}") String directory,
+            @Value("${order.wal.durability:group-commit}") String durability,
+            @Value("${order.wal.group-commit-window:2ms}") Duration groupCommitWindow,
+            @Value("${order.snapshot.interval:60s}") Duration snapshotInterval,
+            @Value("${order.snapshot.retain:2}") int snapshotRetain,
+            ProductRepository productRepository, OrderRepository orderRepository,
+            BackgroundThreads backgroundThreads) throws IOException {
+        this.directory = Path.of(directory);
+        this.snapshotRetain = Math.max(1, snapshotRetain);
+        this.productRepository = productRepository;
+        Path logFile = this.directory.resolve(LOG_FILE);
+        this.log = new WriteAheadLog(logFile, Durability.of(durability), groupCommitWindow);
+
+        long start = System.nanoTime();
+        InventorySnapshot.Restored restored = InventorySnapshot.restoreLatest(this.directory, Files.size(logFile),
+                productRepository);
+        long snapshotPosition = restored.logPosition();
+        Recovery tail = new Recovery(productRepository, orderRepository, true);
+        long end = log.replay(snapshotPosition, (payload, position) -> OrderLogRecords.decode(payload, tail));
+        // The history before the snapshot is loaded later, its highest order ID is in the snapshot
+        this.maxRecoveredOrderId = Math.max(restored.maxOrderId(), tail.maxOrderId);
+        this.shadow = new ShadowInventory(productRepository.findAll(), maxRecoveredOrderId);
+        log.setFrameListener((payload, position) -> OrderLogRecords.decode(payload, shadow));
+        log.start();
+        if (end == 0) {
+            // Fresh log: record the starting stock so deductions replay onto the same base
+            log.append(OrderLogRecords.encodeStockLevels(productRepository.findAll())).join();
+        }
+        this.lastSnapshotPosition = snapshotPosition;
+        this.recoveryMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Write-ahead log recovered in {} ms: snapshot at {}, replayed {} bytes of log tail, {} order lines",
+                recoveryMillis, snapshotPosition, end - snapshotPosition, tail.orderLines);
+
+        this.historyLoader = backgroundThreads.newThread("order-history-loader",
+                () -> loadHistory(orderRepository, snapshotPosition, tail.reservations));
+        if (snapshotPosition > 0) {
+            historyLoader.start();
+        } else {
+            openReservations.complete(tail.reservations.open(Set.of()));
+        }
+
+        this.snapshotExecutor = backgroundThreads.newScheduler("inventory-snapshot");
+        if (!snapshotInterval.isZero() && !snapshotInterval.isNegative()) {
+            long millis = snapshotInterval.toMillis();
+            snapshotExecutor.scheduleWithFixedDelay(this::snapshotQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> recordOrder(List<Order> lines, long expiresAtMillis) {
+        return log.append(OrderLogRecords.encodeOrder(lines, expiresAtMillis)).thenRun(() -> {
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> recordStatus(long orderId, OrderStatus status, Product[] released,
+            int[] quantities) {
+        return log.append(OrderLogRecords.encodeStatus(orderId, status, released, quantities)).thenRun(() -> {
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<OpenReservation>> openReservations() {
+        return openReservations;
+    }
+
+    @Override
+    public long maxRecoveredOrderId() {
+        return maxRecoveredOrderId;
+    }
+
+    /**
+     * Write an inventory snapshot now, unless nothing was logged since the last one
+     * @return Log position of the snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public long snapshot() throws IOException {
+        if (log.position() == lastSnapshotPosition) {
+            return lastSnapshotPosition;
+        }
+        long start = System.nanoTime();
+        SnapshotPoint point = log.atPosition(
+                position -> new SnapshotPoint(position, shadow.maxOrderId(), shadow.copy())).join();
+        Path file = InventorySnapshot.write(directory, point.position(), point.maxOrderId(),
+                productRepository.findAll(), point.stock());
+        InventorySnapshot.prune(directory, snapshotRetain);
+        lastSnapshotPosition = point.position();
+        logger.info("Inventory snapshot {} written in {} ms", file, (System.nanoTime() - start) / 1_000_000);
+        return point.position();
+    }
+
+    /**
+     * Time the last startup spent restoring the snapshot and replaying the log tail
+     * @return Recovery time in milliseconds
+     */
+    public long recoveryMillis() {
+        return recoveryMillis;
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        closed = true;
+        snapshotExecutor.shutdown();
+        snapshotExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        // Not interrupted: an interrupt would close the log's shared file channel
+        if (historyLoader.isAlive()) {
+            historyLoader.join();
+        }
+        log.close();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Inventory snapshot failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Load the orders logged before the restored snapshot; their stock effect is already in the snapshot
+     * Reservations opened there and not closed in the tail are added to those of the tail.
+     */
+    private void loadHistory(OrderRepository orderRepository, long snapshotPosition, ReservationTracker tail) {
+        Recovery history = new Recovery(null, orderRepository, false);
+        long start = System.nanoTime();
+        List<OpenReservation> open = new ArrayList<>();
+        try {
+            log.read(0, snapshotPosition, (payload, position) -> {
+                if (closed) {
+                    throw new CancellationException();
+                }
+                OrderLogRecords.decode(payload, history);
+            });
+            logger.info("Loaded {} historical order lines in {} ms", history.orderLines,
+                    (System.nanoTime() - start) / 1_000_000);
+            open.addAll(history.reservations.open(tail.closedEarlier()));
+        } catch (CancellationException e) {
+            logger.info("Historical order loading stopped");
+        } catch (IOException e) {
+            logger.error("Historical order loading failed, reservations before the snapshot stay deducted: {}",
+                    e.getMessage(), e);
+        } finally {
+            open.addAll(tail.open(Set.of()));
+            openReservations.complete(open);
+        }
+    }
+
+    private record SnapshotPoint(long position, long maxOrderId, int[] stock) {
+    }
+
+    /**
+     * Applies replayed records to the repositories
+     */
+    private static class Recovery implements OrderLogRecords.Handler {
+        private final ProductRepository productRepository;
+        private final OrderRepository orderRepository;
+        private final boolean restoreStock;
+        private final ReservationTracker reservations = new ReservationTracker();
+        private long orderLines;
+        private long maxOrderId;
+
+        Recovery(ProductRepository productRepository, OrderRepository orderRepository, boolean restoreStock) {
+            this.productRepository = productRepository;
+            this.orderRepository = orderRepository;
+            this.restoreStock = restoreStock;
+        }
+
+        @Override
+        public void onOrderLine(long orderId, long productId, int quantity, long priceCents) {
+            orderRepository.save(new Order(orderId, productId, quantity, priceCents));
+            reservations.onOrderLine(orderId, productId, quantity);
+            orderLines++;
+            maxOrderId = Math.max(maxOrderId, orderId);
+        }
+
+        @Override
+        public void onReservation(long orderId, long expiresAtMillis) {
+            reservations.onReservation(orderId, expiresAtMillis);
+        }
+
+        @Override
+        public void onOrderStatus(long orderId, OrderStatus status) {
+            reservations.onOrderStatus(orderId, status);
+        }
+
+        @Override
+        public void onStockDelta(long productId, int delta) {
+            if (!restoreStock) {
+                return;
+            }
+            Product product = productRepository.findById(productId);
+            if (product == null) {
+                logger.warn("Skipping stock change for unknown product {} during recovery", productId);
+            } else if (delta > 0) {
+                product.releaseStock(delta);
+            } else if (delta < 0 && !product.tryReserveStock(-delta)) {
+                logger.warn("Recovered stock for product {} would go negative, clamping to 0", productId);
+                product.setStock(0);
+            }
+        }
+
+        @Override
+        public void onStockSet(long productId, int stock) {
+            if (!restoreStock) {
+                return;
+            }
+            Product product = productRepository.findById(productId);
+            if (product == null) {
+                logger.warn("Skipping stock level for unknown product {} during recovery", productId);
+            } else {
+                product.setStock(stock);
+            }
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.zxr.backend.persistence;
+
+import com.zxr.backend.config.BackgroundThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, checksummed write-ahead log
+ * <p>
+ * Each append becomes one frame: {@code [payload length][CRC32C of payload][payload]}.
+ * A frame is replayed entirely or not at all, so callers put every record that
+ * must be atomic (e.g. all lines of one order) into a single payload.
+ * </p>
+ * <p>
+ * Frames are written by a single writer thread. Depending on {@link Durability}
+ * it fsyncs after every frame, once per group-commit batch, or never. Appends
+ * complete their future once the frame is as durable as the mode promises.
+ * Once the log is closed, appends fail at once and nothing queued is left waiting.
+ * </p>
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    /** Frame header: payload length and checksum */
+    static final int FRAME_HEADER = 2 * Integer.BYTES;
+
+    /** Largest accepted payload, anything bigger is treated as corruption on replay */
+    static final int MAX_PAYLOAD = 1 << 24;
+
+    /** Upper bound of bytes gathered into one group-commit batch */
+    private static final int MAX_BATCH_BYTES = 1 << 20;
+
+    /**
+     * Receives frame payloads during replay
+     */
+    @FunctionalInterface
+    public interface FrameVisitor {
+
+        /**
+         * Handle one frame
+         * @param payload Payload, positioned at its start, little-endian
+         * @param endPosition Log position right after this frame
+         */
+        void onFrame(ByteBuffer payload, long endPosition);
+    }
+
+    /**
+     * Queued work for the writer: a frame to append, or a barrier task that runs
+     * between frames at an exact log position. Failing {@code done} fails either.
+     */
+    private record Entry(ByteBuffer frame, CompletableFuture<Long> done, LongConsumer barrier) {
+    }
+
+    /** Poison entry that stops the writer */
+    private static final Entry STOP = new Entry(null, null, null);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Durability durability;
+    private final long windowNanos;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    /** Set under the queue lock, so no entry is queued behind {@link #STOP} */
+    private boolean closed;
+
+    /** End of the last fully written frame, owned by the writer thread once started */
+    private volatile long position;
+
+    /** Notified on the writer thread of every frame once written, in log order */
+    private volatile FrameVisitor frameListener;
+
+    /**
+     * Open or create a log file. Call {@link #replay} before {@link #start}.
+     * @param file Log file
+     * @param durability Durability mode
+     * @param groupCommitWindow How long the writer waits for more frames before a group fsync
+     * @throws IOException if the file cannot be opened
+     */
+    public WriteAheadLog(Path file, Durability durability, Duration groupCommitWindow) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.durability = durability;
+        this.windowNanos = groupCommitWindow.toNanos();
+        this.writer = BackgroundThreads.dedicated("order-wal-writer", this::writeLoop);
+    }
+
+    /**
+     * Replay every valid frame from the given position. A torn or corrupt tail,
+     * e.g. from a crash during a write, is truncated so new frames follow the last
+     * valid one.
+     * @param from Position of the first frame to read
+     * @param visitor Frame visitor
+     * @return Position after the last valid frame
+     * @throws IOException if the file cannot be read
+     */
+    public long replay(long from, FrameVisitor visitor) throws IOException {
+        long size = channel.size();
+        long pos = scan(from, size, visitor);
+        if (pos < size) {
+            logger.warn("Truncating write-ahead log {} from {} to {} bytes (torn or corrupt tail)", file, size, pos);
+            channel.truncate(pos);
+            channel.force(true);
+        }
+        position = pos;
+        return pos;
+    }
+
+    /**
+     * Read the frames of an already replayed range, without modifying the log.
+     * Safe to call while the writer is running.
+     * @param from Position of the first frame to read
+     * @param to Position after the last frame to read
+     * @param visitor Frame visitor
+     * @return Position after the last frame read
+     * @throws IOException if the file cannot be read
+     */
+    public long read(long from, long to, FrameVisitor visitor) throws IOException {
+        return scan(from, Math.min(to, position), visitor);
+    }
+
+    private long scan(long from, long to, FrameVisitor visitor) throws IOException {
+        long pos = from;
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32C crc = new CRC32C();
+        while (pos + FRAME_HEADER <= to) {
+            header.clear();
+            readFully(header, pos);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || length > MAX_PAYLOAD || pos + FRAME_HEADER + length > to) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(payload, pos + FRAME_HEADER);
+            payload.flip();
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            pos += FRAME_HEADER + length;
+            visitor.onFrame(payload, pos);
+        }
+        return pos;
+    }
+
+    /**
+     * Register a listener notified of every frame written from now on. It runs on
+     * the writer thread, in log order, so it must be quick.
+     * @param listener Frame listener, receives a little-endian payload view
+     */
+    public void setFrameListener(FrameVisitor listener) {
+        this.frameListener = listener;
+    }
+
+    /**
+     * Start the writer thread
+     */
+    public void start() {
+        writer.start();
+        logger.info("Write-ahead log {} started, durability {}, position {}", file, durability, position);
+    }
+
+    /**
+     * Append one frame
+     * @param payload Payload bytes from position to limit, little-endian records
+     * @return Future completed with the log position after the frame once it is durable
+     * @throws IllegalArgumentException if the payload is empty or too large
+     */
+    public CompletableFuture<Long> append(ByteBuffer payload) {
+        int length = payload.remaining();
+        if (length == 0 || length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("Write-ahead log payload size out of range: " + length);
+        }
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + length).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        frame.putInt(length).putInt((int) crc.getValue()).put(payload).flip();
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        enqueue(new Entry(frame, done, null));
+        return done;
+    }
+
+    /**
+     * Run a task on the writer thread after every frame appended before this call
+     * is written and before any later frame is. Together with a frame listener this
+     * gives a consistent point-in-time view at an exact log position, without
+     * pausing appenders.
+     * @param task Task receiving the log position
+     * @param <T> Result type
+     * @return Future completed with the task result
+     */
+    public <T> CompletableFuture<T> atPosition(LongFunction<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<Long> abandoned = new CompletableFuture<>();
+        abandoned.whenComplete((pos, failure) -> result.completeExceptionally(failure));
+        enqueue(new Entry(null, abandoned, pos -> {
+            try {
+                result.complete(task.apply(pos));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }));
+        return result;
+    }
+
+    /**
+     * Log position after the last written frame
+     * @return Position in bytes
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Stop the writer after the queued frames are written, then close the file.
+     * Anything the writer did not get to, e.g. because it was never started or did
+     * not stop in time, is failed rather than left waiting.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(STOP);
+        }
+        if (writer.isAlive()) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        failPending();
+        channel.force(true);
+        channel.close();
+    }
+
+    /**
+     * Queue an entry for the writer, or fail it if the log is closed
+     */
+    private void enqueue(Entry entry) {
+        synchronized (queue) {
+            if (!closed) {
+                queue.add(entry);
+                return;
+            }
+        }
+        entry.done().completeExceptionally(closedFailure());
+    }
+
+    private void failPending() {
+        IOException failure = closedFailure();
+        for (Entry entry = queue.poll(); entry != null; entry = queue.poll()) {
+            if (entry != STOP) {
+                entry.done().completeExceptionally(failure);
+            }
+        }
+    }
+
+    private IOException closedFailure() {
+        return new IOException("Write-ahead log " + file + " is closed");
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        try {
+            while (true) {
+                Entry first = queue.take();
+                if (first == STOP) {
+                    return;
+                }
+                if (first.barrier() != null) {
+                    first.barrier().accept(position);
+                    continue;
+                }
+                batch.add(first);
+                Entry last = collectBatch(batch);
+                writeBatch(batch);
+                batch.clear();
+                if (last == STOP) {
+                    return;
+                }
+                if (last != null) {
+                    last.barrier().accept(position);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gather more frames according to the durability mode
+     * @return The stop or barrier entry that ended the batch, or null
+     */
+    private Entry collectBatch(List<Entry> batch) throws InterruptedException {
+        if (durability == Durability.SYNC) {
+            return null;
+        }
+        long bytes = batch.get(0).frame().remaining();
+        long deadline = System.nanoTime() + windowNanos;
+        while (bytes < MAX_BATCH_BYTES) {
+            Entry next;
+            if (durability == Durability.GROUP_COMMIT) {
+                long remaining = deadline - System.nanoTime();
+                next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            } else {
+                next = queue.poll();
+            }
+            if (next == null) {
+                return null;
+            }
+            if (next == STOP || next.barrier() != null) {
+                return next;
+            }
+            batch.add(next);
+            bytes += next.frame().remaining();
+        }
+        return null;
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = position;
+        try {
+            ByteBuffer[] frames = new ByteBuffer[batch.size()];
+            for (int i = 0; i < frames.length; i++) {
+                frames[i] = batch.get(i).frame();
+            }
+            long pos = start;
+            for (ByteBuffer frame : frames) {
+                pos += frame.remaining();
+            }
+            channel.position(start);
+            while (frames[frames.length - 1].hasRemaining()) {
+                channel.write(frames);
+            }
+            if (durability != Durability.OS_BUFFERED) {
+                channel.force(false);
+            }
+            position = pos;
+            FrameVisitor listener = frameListener;
+            long end = start;
+            for (Entry entry : batch) {
+                ByteBuffer frame = entry.frame();
+                end += frame.limit();
+                if (listener != null) {
+                    notifyListener(listener, frame, end);
+                }
+                entry.done().complete(end);
+            }
+        } catch (IOException e) {
+            logger.error("Write-ahead log write failed at position {}: {}", start, e.getMessage(), e);
+            try {
+                // Drop the partial batch so later frames do not follow garbage
+                channel.truncate(start);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            for (Entry entry : batch) {
+                entry.done().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void notifyListener(FrameVisitor listener, ByteBuffer frame, long end) {
+        try {
+            listener.onFrame(frame.slice(FRAME_HEADER, frame.limit() - FRAME_HEADER)
+                    .order(ByteOrder.LITTLE_ENDIAN), end);
+        } catch (RuntimeException e) {
+            logger.error("Write-ahead log frame listener failed at position {}: {}", end, e.getMessage(), e);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long pos) throws IOException {
+        long offset = pos;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new IOException("Unexpected end of write-ahead log " + file);
+            }
+            offset += read;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.model.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory order repository
+ * Keeps every order as a heap object; the default backend ({@code order.store.type=memory}).
+ * Lookups by ID are lock-free; every saved line is also appended to a row log that
+ * {@link OrderIndex} points into for queries by product and creation time.
+ */
+@Repository
+@ConditionalOnProperty(name = "order.store.type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOrderRepository implements OrderRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryOrderRepository.class);
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /** Order storage container */
+    private final Map<Long, Order> store = new ConcurrentHashMap<>();
+
+    /** Guards the row log and its index */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Row log: every saved line in save order, in chunks of {@link #CHUNK_SIZE} */
+    private Order[][] chunks = new Order[8][];
+    private long rowCount;
+
+    private final OrderIndex index = new OrderIndex();
+
+    @Override
+    public void save(Order order) {
+        if (order == null) {
+            logger.error("Order object is null when saving");
+            throw new IllegalArgumentException("Order object cannot be null");
+        }
+        store.put(order.getId(), order);
+        lock.writeLock().lock();
+        try {
+            append(order);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index all orders under a single write-lock acquisition
+     */
+    @Override
+    public void saveAll(List<Order> orders) {
+        for (Order order : orders) {
+            if (order == null) {
+                logger.error("Order object is null when saving");
+                throw new IllegalArgumentException("Order object cannot be null");
+            }
+        }
+        for (Order order : orders) {
+            store.put(order.getId(), order);
+        }
+        lock.writeLock().lock();
+        try {
+            for (Order order : orders) {
+                append(order);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Append one line to the row log and index it; caller holds the write lock
+     */
+    private void append(Order order) {
+        long row = rowCount;
+        int chunkNo = (int) (row >>> CHUNK_BITS);
+        if (chunkNo == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if (chunks[chunkNo] == null) {
+            chunks[chunkNo] = new Order[CHUNK_SIZE];
+        }
+        chunks[chunkNo][(int) (row & (CHUNK_SIZE - 1))] = order;
+        index.add(order.getId(), order.getProductId(), row);
+        rowCount = row + 1;
+    }
+
+    @Override
+    public Order findById(long id) {
+        return store.get(id);
+    }
+
+    @Override
+    public Slice findByProduct(long productId, long after, int limit) {
+        lock.readLock().lock();
+        try {
+            return toSlice(index.findByProduct(productId, after, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Slice findCreatedBetween(long fromMillis, long toMillis, long after, int limit) {
+        lock.readLock().lock();
+        try {
+            return toSlice(index.findCreatedBetween(fromMillis, toMillis, after, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Slice toSlice(OrderIndex.Hits hits) {
+        List<Order> orders = new ArrayList<>(hits.count());
+        for (int i = 0; i < hits.count(); i++) {
+            long row = hits.row(i);
+            orders.add(chunks[(int) (row >>> CHUNK_BITS)][(int) (row & (CHUNK_SIZE - 1))]);
+        }
+        return new Slice(orders, hits.more());
+    }
+}
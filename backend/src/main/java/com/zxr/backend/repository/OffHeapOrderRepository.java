@@ -0,0 +1,319 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.model.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Off-heap columnar order repository ({@code order.store.type=offheap})
+ * <p>
+ * Orders are appended as rows to fixed-width columns (ID, product ID, quantity,
+ * price in cents) inside direct {@link ByteBuffer} segments, and an off-heap
+ * open-addressing table maps each order ID to its row. The table is split over
+ * direct buffer pages, so it keeps doubling past what one buffer can hold. The heap
+ * only holds one buffer reference per segment or page, so heap usage stays flat
+ * however many orders are stored; {@link #findById} materializes an {@link Order} on demand.
+ * Like the in-memory store, saving an existing ID makes the latest row win.
+ * </p>
+ * <p>
+ * Queries by product and creation time go through an {@link OrderIndex} that points at
+ * rows and keeps its posting lists in direct buffers as well.
+ * </p>
+ */
+@Repository
+@ConditionalOnProperty(name = "order.store.type", havingValue = "offheap")
+public class OffHeapOrderRepository implements OrderRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapOrderRepository.class);
+
+    /** Column widths in bytes */
+    private static final int ID_WIDTH = Long.BYTES;
+    private static final int PRODUCT_WIDTH = Long.BYTES;
+    private static final int QUANTITY_WIDTH = Integer.BYTES;
+    private static final int PRICE_WIDTH = Long.BYTES;
+    private static final int ROW_WIDTH = ID_WIDTH + PRODUCT_WIDTH + QUANTITY_WIDTH + PRICE_WIDTH;
+
+    /** Index slot: order ID (0 = empty) followed by row number */
+    private static final int SLOT_WIDTH = 2 * Long.BYTES;
+    private static final int INITIAL_SLOTS = 1 << 12;
+    /** Default slots per index page: 64 MiB, well within one direct buffer */
+    private static final int PAGE_SHIFT = 22;
+
+    private final int segmentRows;
+    private final int segmentShift;
+    /** Slots per index page, a power of two */
+    private final int pageShift;
+    private final int pageSlots;
+
+    /** Column offsets within a segment */
+    private final int productOffset;
+    private final int quantityOffset;
+    private final int priceOffset;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Segments, grown by copying the (small) reference array */
+    private ByteBuffer[] segments = new ByteBuffer[8];
+
+    /** Rows appended so far */
+    private long rowCount;
+
+    /** ID-to-row table in pages, power-of-two slot count, at most half full */
+    private ByteBuffer[] index;
+    private long indexSlots = INITIAL_SLOTS;
+    private long indexSize;
+
+    /** Secondary indexes over the rows */
+    private final OrderIndex orderIndex = new OrderIndex(true);
+
+    /**
+     * Construct off-heap order repository
+     * @param segmentRows Rows per segment, rounded up to a power of two
+     */
+    @Autowired
+    public OffHeapOrderRepository(@Value("${order.store.offheap.segment-rows:65536}") int segmentRows) {
+        this(segmentRows, PAGE_SHIFT);
+    }
+
+    OffHeapOrderRepository(int segmentRows, int pageShift) {
+        if (segmentRows <= 0 || segmentRows > Integer.MAX_VALUE / ROW_WIDTH) {
+            throw new IllegalArgumentException("Segment rows out of range: " + segmentRows);
+        }
+        int rows = Integer.highestOneBit(segmentRows);
+        this.segmentRows = rows < segmentRows ? rows << 1 : rows;
+        this.segmentShift = Integer.numberOfTrailingZeros(this.segmentRows);
+        this.productOffset = this.segmentRows * ID_WIDTH;
+        this.quantityOffset = productOffset + this.segmentRows * PRODUCT_WIDTH;
+        this.priceOffset = quantityOffset + this.segmentRows * QUANTITY_WIDTH;
+        this.pageShift = pageShift;
+        this.pageSlots = 1 << pageShift;
+        this.index = allocateTable(INITIAL_SLOTS);
+        logger.info("Off-heap order repository initialized, {} rows per segment", this.segmentRows);
+    }
+
+    @Override
+    public void save(Order order) {
+        if (order == null) {
+            logger.error("Order object is null when saving");
+            throw new IllegalArgumentException("Order object cannot be null");
+        }
+        lock.writeLock().lock();
+        try {
+            append(order);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Append all orders under a single write-lock acquisition
+     */
+    @Override
+    public void saveAll(List<Order> orders) {
+        for (Order order : orders) {
+            if (order == null) {
+                logger.error("Order object is null when saving");
+                throw new IllegalArgumentException("Order object cannot be null");
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            for (Order order : orders) {
+                append(order);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Write one order into the next row; caller holds the write lock
+     */
+    private void append(Order order) {
+        long row = rowCount;
+        ByteBuffer segment = segmentForAppend(row);
+        int slot = (int) (row & (segmentRows - 1));
+        segment.putLong(slot * ID_WIDTH, order.getId());
+        segment.putLong(productOffset + slot * PRODUCT_WIDTH, order.getProductId());
+        segment.putInt(quantityOffset + slot * QUANTITY_WIDTH, order.getQuantity());
+        segment.putLong(priceOffset + slot * PRICE_WIDTH, order.getTotalPriceCents());
+        indexPut(order.getId(), row);
+        orderIndex.add(order.getId(), order.getProductId(), row);
+        rowCount = row + 1;
+    }
+
+    @Override
+    public Order findById(long id) {
+        if (id <= 0) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            long row = indexGet(id);
+            return row < 0 ? null : readRow(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Slice findByProduct(long productId, long after, int limit) {
+        lock.readLock().lock();
+        try {
+            return toSlice(orderIndex.findByProduct(productId, after, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Slice findCreatedBetween(long fromMillis, long toMillis, long after, int limit) {
+        lock.readLock().lock();
+        try {
+            return toSlice(orderIndex.findCreatedBetween(fromMillis, toMillis, after, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Materialize the rows found by a query; caller holds the read lock
+     */
+    private Slice toSlice(OrderIndex.Hits hits) {
+        List<Order> orders = new ArrayList<>(hits.count());
+        for (int i = 0; i < hits.count(); i++) {
+            orders.add(readRow(hits.row(i)));
+        }
+        return new Slice(orders, hits.more());
+    }
+
+    private Order readRow(long row) {
+        ByteBuffer segment = segments[(int) (row >>> segmentShift)];
+        int slot = (int) (row & (segmentRows - 1));
+        return new Order(
+                segment.getLong(slot * ID_WIDTH),
+                segment.getLong(productOffset + slot * PRODUCT_WIDTH),
+                segment.getInt(quantityOffset + slot * QUANTITY_WIDTH),
+                segment.getLong(priceOffset + slot * PRICE_WIDTH));
+    }
+
+    /**
+     * Number of stored rows
+     * @return Row count
+     */
+    public long rowCount() {
+        lock.readLock().lock();
+        try {
+            return rowCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private ByteBuffer segmentForAppend(long row) {
+        int segmentNo = (int) (row >>> segmentShift);
+        if (segmentNo == segments.length) {
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        }
+        ByteBuffer segment = segments[segmentNo];
+        if (segment == null) {
+            segment = allocate(segmentRows * ROW_WIDTH);
+            segments[segmentNo] = segment;
+        }
+        return segment;
+    }
+
+    private long indexGet(long id) {
+        long mask = indexSlots - 1;
+        for (long slot = mix(id) & mask; ; slot = (slot + 1) & mask) {
+            ByteBuffer page = index[(int) (slot >>> pageShift)];
+            int offset = offset(slot);
+            long key = page.getLong(offset);
+            if (key == id) {
+                return page.getLong(offset + Long.BYTES);
+            }
+            if (key == 0) {
+                return -1;
+            }
+        }
+    }
+
+    private void indexPut(long id, long row) {
+        if (indexSize + 1 > indexSlots >>> 1) {
+            resizeIndex();
+        }
+        if (insert(index, indexSlots, id, row)) {
+            indexSize++;
+        }
+    }
+
+    private void resizeIndex() {
+        long grownSlots = indexSlots << 1;
+        ByteBuffer[] grown = allocateTable(grownSlots);
+        for (long slot = 0; slot < indexSlots; slot++) {
+            ByteBuffer page = index[(int) (slot >>> pageShift)];
+            int offset = offset(slot);
+            long key = page.getLong(offset);
+            if (key != 0) {
+                insert(grown, grownSlots, key, page.getLong(offset + Long.BYTES));
+            }
+        }
+        index = grown;
+        indexSlots = grownSlots;
+    }
+
+    /**
+     * Insert or update a table entry
+     * @return true if a new key was added
+     */
+    private boolean insert(ByteBuffer[] table, long slots, long id, long row) {
+        long mask = slots - 1;
+        for (long slot = mix(id) & mask; ; slot = (slot + 1) & mask) {
+            ByteBuffer page = table[(int) (slot >>> pageShift)];
+            int offset = offset(slot);
+            long key = page.getLong(offset);
+            if (key == 0 || key == id) {
+                page.putLong(offset, id);
+                page.putLong(offset + Long.BYTES, row);
+                return key == 0;
+            }
+        }
+    }
+
+    /** Pages of a table with a power-of-two slot count */
+    private ByteBuffer[] allocateTable(long slots) {
+        int slotsPerPage = (int) Math.min(slots, pageSlots);
+        ByteBuffer[] pages = new ByteBuffer[(int) (slots / slotsPerPage)];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = allocate(slotsPerPage * SLOT_WIDTH);
+        }
+        return pages;
+    }
+
+    /** Byte offset of a slot within its page */
+    private int offset(long slot) {
+        return (int) (slot & (pageSlots - 1)) * SLOT_WIDTH;
+    }
+
+    /** Spread sequential, time-ordered IDs over the table */
+    private static long mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+}
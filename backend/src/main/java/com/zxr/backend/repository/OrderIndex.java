@@ -0,0 +1,261 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.model.OrderIds;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Secondary indexes of an order store
+ * <p>
+ * Maps order lines to their row offsets in the store, by creation time and by product.
+ * The time index is partitioned into buckets of {@value #BUCKET_MILLIS} ms of creation
+ * time, which order IDs encode, so a range query only visits the buckets it overlaps.
+ * The product index keeps one posting list per product. Every posting list is sorted by
+ * order ID; rows arrive nearly in ID order, so keeping it sorted is an append in the
+ * common case. A query binary-searches its start and then reads only matching entries,
+ * so its cost follows the result size rather than the number of stored orders.
+ * </p>
+ * <p>
+ * Posting entries are kept in {@link ByteBuffer}s, either on the heap or, for stores
+ * that keep their rows off the heap, in direct buffers. The heap then only holds one
+ * small object per product and per time bucket, however many lines are indexed.
+ * </p>
+ * <p>
+ * Not thread-safe: the store serializes additions against queries.
+ * </p>
+ */
+final class OrderIndex {
+
+    /** Creation time covered by one time bucket */
+    static final long BUCKET_MILLIS = 3_600_000L;
+
+    /** Time buckets keyed by bucket number, i.e. milliseconds since the order ID epoch / bucket size */
+    private final TreeMap<Long, Postings> buckets = new TreeMap<>();
+
+    private final Map<Long, Postings> products = new HashMap<>();
+
+    /** Whether posting entries live in direct buffers */
+    private final boolean direct;
+
+    /**
+     * Construct an index with its posting entries on the heap
+     */
+    OrderIndex() {
+        this(false);
+    }
+
+    /**
+     * Construct an index
+     * @param direct true to keep the posting entries in direct buffers, off the heap
+     */
+    OrderIndex(boolean direct) {
+        this.direct = direct;
+    }
+
+    /**
+     * Index an order line
+     * @param orderId Order ID
+     * @param productId Product ID of the line
+     * @param row Row offset of the line in the store
+     */
+    void add(long orderId, long productId, long row) {
+        buckets.computeIfAbsent(bucketOf(orderId), bucket -> new Postings(direct)).add(orderId, row);
+        products.computeIfAbsent(productId, product -> new Postings(direct)).add(orderId, row);
+    }
+
+    /**
+     * Find the lines of a product
+     * @param productId Product ID
+     * @param after Cursor: only lines of orders with a greater ID are returned
+     * @param limit Lines wanted; see {@link Hits}
+     * @return Rows of matching lines in order ID order
+     */
+    Hits findByProduct(long productId, long after, int limit) {
+        Hits hits = new Hits(limit);
+        Postings postings = products.get(productId);
+        if (postings != null) {
+            hits.collect(postings, after, Long.MAX_VALUE);
+        }
+        return hits;
+    }
+
+    /**
+     * Find the lines of orders created in a time range
+     * @param fromMillis Range start in epoch milliseconds, inclusive
+     * @param toMillis Range end in epoch milliseconds, exclusive
+     * @param after Cursor: only lines of orders with a greater ID are returned
+     * @param limit Lines wanted; see {@link Hits}
+     * @return Rows of matching lines in order ID order
+     */
+    Hits findCreatedBetween(long fromMillis, long toMillis, long after, int limit) {
+        Hits hits = new Hits(limit);
+        long end = firstIdAt(toMillis);
+        long lower = Math.max(after, firstIdAt(fromMillis) - 1);
+        if (lower + 1 >= end) {
+            return hits;
+        }
+        // Only the buckets the range overlaps; entries outside it are skipped by ID
+        for (Postings bucket : buckets.subMap(bucketOf(lower + 1), true, bucketOf(end - 1), true).values()) {
+            if (!hits.collect(bucket, lower, end)) {
+                break;
+            }
+        }
+        return hits;
+    }
+
+    private static long bucketOf(long orderId) {
+        return (orderId >>> OrderIds.TIMESTAMP_SHIFT) / BUCKET_MILLIS;
+    }
+
+    /** Smallest order ID created at or after a time */
+    static long firstIdAt(long epochMillis) {
+        long sinceEpoch = Math.max(0, epochMillis - OrderIds.EPOCH_MILLIS);
+        return sinceEpoch >= 1L << (Long.SIZE - 1 - OrderIds.TIMESTAMP_SHIFT)
+                ? Long.MAX_VALUE : sinceEpoch << OrderIds.TIMESTAMP_SHIFT;
+    }
+
+    /**
+     * Order IDs and rows of indexed lines, sorted by order ID
+     * Each entry is an order ID followed by its row. Lines of one order keep the order
+     * they were added in.
+     */
+    private static final class Postings {
+
+        private static final int ENTRY_WIDTH = 2 * Long.BYTES;
+        /** Largest posting buffer, 2^26 entries */
+        private static final int MAX_CAPACITY = 1 << 30;
+
+        private final boolean direct;
+        private ByteBuffer entries;
+        private int size;
+
+        Postings(boolean direct) {
+            this.direct = direct;
+            this.entries = allocate(direct, 4 * ENTRY_WIDTH);
+        }
+
+        void add(long orderId, long row) {
+            if ((size + 1) * ENTRY_WIDTH > entries.capacity()) {
+                grow();
+            }
+            // Rows arrive nearly in ID order, so this rarely moves more than a few entries
+            int at = size;
+            while (at > 0 && orderId(at - 1) > orderId) {
+                put(at, orderId(at - 1), row(at - 1));
+                at--;
+            }
+            put(at, orderId, row);
+            size++;
+        }
+
+        long orderId(int index) {
+            return entries.getLong(index * ENTRY_WIDTH);
+        }
+
+        long row(int index) {
+            return entries.getLong(index * ENTRY_WIDTH + Long.BYTES);
+        }
+
+        private void put(int index, long orderId, long row) {
+            entries.putLong(index * ENTRY_WIDTH, orderId);
+            entries.putLong(index * ENTRY_WIDTH + Long.BYTES, row);
+        }
+
+        private void grow() {
+            if (entries.capacity() >= MAX_CAPACITY) {
+                throw new IllegalStateException("Order index posting list is full");
+            }
+            ByteBuffer grown = allocate(direct, entries.capacity() * 2);
+            grown.put(0, entries, 0, size * ENTRY_WIDTH);
+            entries = grown;
+        }
+
+        /** Index of the first entry with an order ID greater than the given one */
+        int firstAfter(long orderId) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (orderId(mid) <= orderId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static ByteBuffer allocate(boolean direct, int bytes) {
+            return (direct ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes))
+                    .order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Rows found by a query
+     * Holds at least {@code limit} lines unless the query ran out, and never splits an
+     * order: once the limit is reached, the remaining lines of the last order are still
+     * added. {@link #more()} tells whether lines of further orders match.
+     */
+    static final class Hits {
+
+        private final int limit;
+        private long[] rows;
+        private int count;
+        private long lastOrderId;
+        private boolean more;
+
+        Hits(int limit) {
+            this.limit = limit;
+            this.rows = new long[Math.max(1, Math.min(limit, 64))];
+        }
+
+        /**
+         * Add matching entries of a posting list
+         * @return false once the hits are complete
+         */
+        private boolean collect(Postings postings, long after, long end) {
+            for (int i = postings.firstAfter(after); i < postings.size; i++) {
+                long orderId = postings.orderId(i);
+                if (orderId >= end) {
+                    return true;
+                }
+                if (count >= limit && orderId != lastOrderId) {
+                    more = true;
+                    return false;
+                }
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, count * 2);
+                }
+                rows[count++] = postings.row(i);
+                lastOrderId = orderId;
+            }
+            return true;
+        }
+
+        /** Number of rows found */
+        int count() {
+            return count;
+        }
+
+        /** Row offset of a found line */
+        long row(int index) {
+            return rows[index];
+        }
+
+        /** Whether lines of orders after the last one found match too */
+        boolean more() {
+            return more;
+        }
+
+        /** ID of the last order found, the cursor of the next query */
+        long lastOrderId() {
+            return lastOrderId;
+        }
+    }
+}
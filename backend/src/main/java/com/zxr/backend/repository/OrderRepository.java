@@ -1,57 +1,89 @@
 package com.zxr.backend.repository;
 
 import com.zxr.backend.model.Order;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Repository;
+import com.zxr.backend.model.OrderIds;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
 
 /**
- * Order repository class
- * Responsible for order data storage and access
+ * Order repository
+ * Responsible for order data storage and access; the backend is selected with
+ * {@code order.store.type}
  */
-@Repository
-public class OrderRepository {
-
-    private static final Logger logger = LoggerFactory.getLogger(OrderRepository.class);
-    
-    /** Order storage container */
-    private final Map<String, Order> store = new ConcurrentHashMap<>();
+public interface OrderRepository {
 
     /**
      * Save order
      * @param order Order object
      * @throws IllegalArgumentException if order object is null
      */
-    public void save(Order order) {
-        if (order == null) {
-            logger.error("Order object is null when saving");
-            throw new IllegalArgumentException("Order object cannot be null");
+    void save(Order order);
+
+    /**
+     * Save a batch of orders in one repository write
+     * @param orders Order objects
+     * @throws IllegalArgumentException if any order object is null
+     */
+    default void saveAll(List<Order> orders) {
+        for (Order order : orders) {
+            save(order);
         }
-        logger.debug("Saving order: {}", order.getId());
-        store.put(order.getId(), order);
-        logger.info("Order saved successfully: {}", order.getId());
     }
 
     /**
-     * Query order by ID
+     * Query order by numeric ID
      * @param id Order ID
      * @return Order object, or null if not found
      */
-    public Order findById(String id) {
-        if (id == null || id.trim().isEmpty()) {
-            logger.warn("Order ID is empty when querying");
-            return null;
-        }
-        logger.debug("Querying order by ID: {}", id);
-        Order order = store.get(id);
-        if (order != null) {
-            logger.info("Found order: {}", order.getId());
-        } else {
-            logger.warn("Order not found with ID: {}", id);
-        }
-        return order;
+    Order findById(long id);
+
+    /**
+     * Query the order lines of a product
+     * @param productId Product ID
+     * @param after Cursor: only orders with a greater ID are returned, 0 for the first page
+     * @param limit Lines wanted; the lines of the last order are never split across pages
+     * @return Order lines in ascending order ID order
+     */
+    Slice findByProduct(long productId, long after, int limit);
+
+    /**
+     * Query the order lines created in a time range
+     * @param fromMillis Range start in epoch milliseconds, inclusive
+     * @param toMillis Range end in epoch milliseconds, exclusive
+     * @param after Cursor: only orders with a greater ID are returned, 0 for the first page
+     * @param limit Lines wanted; the lines of the last order are never split across pages
+     * @return Order lines in ascending order ID order
+     */
+    Slice findCreatedBetween(long fromMillis, long toMillis, long after, int limit);
+
+    /**
+     * Query every line of an order
+     * Served by the creation time index: the order's millisecond, starting right
+     * before its ID, one order wanted, whose lines a query never splits.
+     * @param id Order ID
+     * @return Order lines in saved order, empty if not found
+     */
+    default List<Order> findLines(long id) {
+        long createdAt = OrderIds.createdAtMillis(id);
+        List<Order> lines = findCreatedBetween(createdAt, createdAt + 1, id - 1, 1).orders();
+        return lines.stream().filter(line -> line.getId() == id).toList();
+    }
+
+    /**
+     * Query order by ID
+     * @param id Order ID in its text form
+     * @return Order object, or null if not found or not a valid order ID
+     */
+    default Order findById(String id) {
+        long orderId = OrderIds.parse(id);
+        return orderId > 0 ? findById(orderId) : null;
+    }
+
+    /**
+     * Order lines found by a query
+     * @param orders Order lines, at least the requested number unless no more match
+     * @param more Whether lines of later orders match too
+     */
+    record Slice(List<Order> orders, boolean more) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,362 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.model.Order;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable segment file of the cold order tier
+ * <p>
+ * Layout: a 16-byte header, the order lines as fixed-width rows sorted by order ID,
+ * then two index sections: the order ID of every row, and (product ID, row) pairs
+ * sorted by product and order ID. The file is memory-mapped once and its channel
+ * closed, so an open segment holds no file descriptor; rows and indexes are read in
+ * the page cache without touching the heap. The heap holds nothing per row.
+ * </p>
+ * <p>
+ * Segments of one {@link #level()} are merged into one of the next level by
+ * {@link #merge}, which streams the sources' sorted sections into the new file.
+ * </p>
+ */
+final class OrderSegment {
+
+    /** Most rows in one segment, so a whole file fits one mapping */
+    static final int MAX_ROWS = 1 << 23;
+
+    private static final int MAGIC = 0x4F534547; // "OSEG"
+    private static final int VERSION = 1;
+    private static final int HEADER_WIDTH = 16;
+
+    /** Row: order ID, product ID, quantity, price in cents */
+    private static final int ROW_WIDTH = Long.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES;
+    private static final int ID_WIDTH = Long.BYTES;
+    /** Product entry: product ID, row */
+    private static final int PRODUCT_WIDTH = Long.BYTES + Integer.BYTES;
+
+    /** Write buffer of {@link #merge} */
+    private static final int MERGE_BUFFER_BYTES = 1 << 20;
+
+    private final Path file;
+    private final int count;
+    private final int level;
+    private final long minId;
+    private final long maxId;
+    /** Whole file: header, rows, ID section, product section */
+    private final MappedByteBuffer data;
+    private final int idsOffset;
+    private final int productsOffset;
+
+    private OrderSegment(Path file, int count, int level) throws IOException {
+        this.file = file;
+        this.count = count;
+        this.level = level;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid once the channel is closed
+            this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize(count));
+        }
+        this.data.order(ByteOrder.LITTLE_ENDIAN);
+        this.idsOffset = HEADER_WIDTH + count * ROW_WIDTH;
+        this.productsOffset = idsOffset + count * ID_WIDTH;
+        this.minId = idAt(0);
+        this.maxId = idAt(count - 1);
+    }
+
+    /**
+     * Write order lines to a new level 0 segment file and open it
+     * @param file Segment file, must not exist
+     * @param lines Order lines, at least one and at most {@link #MAX_ROWS}; lines of one
+     *              order keep their relative order
+     * @return Open segment
+     * @throws IOException if the file cannot be written
+     */
+    static OrderSegment write(Path file, Order[] lines) throws IOException {
+        checkRows(lines.length);
+        Order[] rows = lines.clone();
+        // Stable, so the latest saved line of an order stays last
+        Arrays.sort(rows, Comparator.comparingLong(Order::getId));
+        int count = rows.length;
+        Integer[] byProduct = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            byProduct[i] = i;
+        }
+        Arrays.sort(byProduct, Comparator.comparingLong((Integer row) -> rows[row].getProductId())
+                .thenComparingInt(row -> row));
+
+        ByteBuffer buffer = ByteBuffer.allocate(fileSize(count)).order(ByteOrder.LITTLE_ENDIAN);
+        putHeader(buffer, count);
+        for (Order row : rows) {
+            buffer.putLong(row.getId()).putLong(row.getProductId()).putInt(row.getQuantity())
+                    .putLong(row.getTotalPriceCents());
+        }
+        for (Order row : rows) {
+            buffer.putLong(row.getId());
+        }
+        for (Integer row : byProduct) {
+            buffer.putLong(rows[row].getProductId()).putInt(row);
+        }
+        buffer.flip();
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+        return new OrderSegment(file, count, 0);
+    }
+
+    /**
+     * Merge segments into a new segment file one level above the highest of them, and
+     * open it. Where sources hold lines of the same order, the later source's lines come
+     * last, as if they had been saved into one segment in source order.
+     * @param file Segment file, must not exist
+     * @param sources Segments to merge, oldest first, together at most {@link #MAX_ROWS} rows
+     * @return Open segment
+     * @throws IOException if the file cannot be written
+     */
+    static OrderSegment merge(Path file, OrderSegment[] sources) throws IOException {
+        long total = 0;
+        int level = 0;
+        for (OrderSegment source : sources) {
+            total += source.count;
+            level = Math.max(level, source.level + 1);
+        }
+        checkRows(total);
+        int count = (int) total;
+        // Row of every source row in the merged segment, to renumber the product entries
+        int[][] merged = new int[sources.length][];
+        for (int s = 0; s < sources.length; s++) {
+            merged[s] = new int[sources[s].count];
+        }
+
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(MERGE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            putHeader(buffer, count);
+            int[] next = new int[sources.length];
+            for (int row = 0; row < count; row++) {
+                int s = nextById(sources, next);
+                OrderSegment source = sources[s];
+                flushIfFull(out, buffer, ROW_WIDTH);
+                buffer.put(buffer.position(), source.data, HEADER_WIDTH + next[s] * ROW_WIDTH, ROW_WIDTH);
+                buffer.position(buffer.position() + ROW_WIDTH);
+                merged[s][next[s]++] = row;
+            }
+            // Same order again for the ID section
+            Arrays.fill(next, 0);
+            for (int row = 0; row < count; row++) {
+                int s = nextById(sources, next);
+                flushIfFull(out, buffer, ID_WIDTH);
+                buffer.putLong(sources[s].idAt(next[s]++));
+            }
+            // Each source's product entries are sorted by product and row, and its rows keep
+            // their relative order in the merged segment, so a k-way merge keeps the order
+            Arrays.fill(next, 0);
+            for (int entry = 0; entry < count; entry++) {
+                int pick = -1;
+                long pickProduct = 0;
+                int pickRow = 0;
+                for (int s = 0; s < sources.length; s++) {
+                    if (next[s] == sources[s].count) {
+                        continue;
+                    }
+                    long product = sources[s].productAt(next[s]);
+                    int row = merged[s][sources[s].productRowAt(next[s])];
+                    if (pick < 0 || product < pickProduct || (product == pickProduct && row < pickRow)) {
+                        pick = s;
+                        pickProduct = product;
+                        pickRow = row;
+                    }
+                }
+                next[pick]++;
+                flushIfFull(out, buffer, PRODUCT_WIDTH);
+                buffer.putLong(pickProduct).putInt(pickRow);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+        return new OrderSegment(file, count, level);
+    }
+
+    /**
+     * Source holding the next row in merged order: the smallest order ID, the earliest
+     * source on ties
+     */
+    private static int nextById(OrderSegment[] sources, int[] next) {
+        int pick = -1;
+        long pickId = 0;
+        for (int s = 0; s < sources.length; s++) {
+            if (next[s] < sources[s].count) {
+                long id = sources[s].idAt(next[s]);
+                if (pick < 0 || id < pickId) {
+                    pick = s;
+                    pickId = id;
+                }
+            }
+        }
+        return pick;
+    }
+
+    private static void flushIfFull(FileChannel out, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() < needed) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static void putHeader(ByteBuffer buffer, int count) {
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0);
+    }
+
+    private static void checkRows(long rows) {
+        if (rows <= 0 || rows > MAX_ROWS) {
+            throw new IllegalArgumentException("Order segment rows out of range: " + rows);
+        }
+    }
+
+    private static int fileSize(int count) {
+        return HEADER_WIDTH + count * (ROW_WIDTH + ID_WIDTH + PRODUCT_WIDTH);
+    }
+
+    /** Smallest order ID in the segment */
+    long minId() {
+        return minId;
+    }
+
+    /** Largest order ID in the segment */
+    long maxId() {
+        return maxId;
+    }
+
+    /** Number of order lines */
+    int count() {
+        return count;
+    }
+
+    /** Merge level: 0 for a spilled generation, one more than its sources for a merged segment */
+    int level() {
+        return level;
+    }
+
+    /**
+     * Look up an order
+     * @param id Order ID
+     * @return Last saved line of the order, or null if not in this segment
+     */
+    Order findById(long id) {
+        if (id < minId || id > maxId) {
+            return null;
+        }
+        int row = firstIdAfter(id) - 1;
+        return row >= 0 && idAt(row) == id ? readRows(row, 1).get(0) : null;
+    }
+
+    /**
+     * Add the lines of orders in an ID range to a query result
+     * @param after Only orders with a greater ID
+     * @param end Only orders with a smaller ID
+     * @param hits Query result
+     */
+    void collectBetween(long after, long end, TieredOrderRepository.Hits hits) {
+        if (maxId <= after || minId >= end) {
+            return;
+        }
+        int first = firstIdAfter(after);
+        int last = first;
+        while (last < count && idAt(last) < end && hits.accept(idAt(last))) {
+            last++;
+        }
+        // The matching rows are contiguous
+        hits.addAll(readRows(first, last - first));
+    }
+
+    /**
+     * Add the lines of a product to a query result
+     * @param productId Product ID
+     * @param after Only orders with a greater ID
+     * @param hits Query result
+     */
+    void collectByProduct(long productId, long after, TieredOrderRepository.Hits hits) {
+        if (maxId <= after) {
+            return;
+        }
+        // First entry of the product with an order ID above the cursor; rows are in ID order
+        int low = 0;
+        int high = count;
+        int firstRowAfter = firstIdAfter(after);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long product = productAt(mid);
+            if (product < productId || (product == productId && productRowAt(mid) < firstRowAfter)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        List<Order> found = new ArrayList<>();
+        int entry = low;
+        while (entry < count && productAt(entry) == productId && hits.accept(idAt(productRowAt(entry)))) {
+            found.addAll(readRows(productRowAt(entry), 1));
+            entry++;
+        }
+        hits.addAll(found);
+    }
+
+    /** Index of the first row with an order ID greater than the given one */
+    private int firstIdAfter(long id) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (idAt(mid) <= id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long idAt(int row) {
+        return data.getLong(idsOffset + row * ID_WIDTH);
+    }
+
+    private long productAt(int entry) {
+        return data.getLong(productsOffset + entry * PRODUCT_WIDTH);
+    }
+
+    private int productRowAt(int entry) {
+        return data.getInt(productsOffset + entry * PRODUCT_WIDTH + Long.BYTES);
+    }
+
+    private List<Order> readRows(int first, int rows) {
+        List<Order> orders = new ArrayList<>(rows);
+        for (int offset = HEADER_WIDTH + first * ROW_WIDTH, i = 0; i < rows; i++, offset += ROW_WIDTH) {
+            orders.add(new Order(data.getLong(offset), data.getLong(offset + Long.BYTES),
+                    data.getInt(offset + 2 * Long.BYTES), data.getLong(offset + 2 * Long.BYTES + Integer.BYTES)));
+        }
+        return orders;
+    }
+
+    /**
+     * Delete the segment file. Readers still holding the segment keep reading its
+     * mapping until they let go of it.
+     * @throws IOException if the file cannot be deleted
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,209 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.model.Product;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Primitive-keyed product index
+ * <p>
+ * Catalog IDs are dense positive longs, so products are stored in a paged array
+ * indexed directly by ID: no hashing and no boxing on lookup. Reads are lock-free
+ * (acquire loads of the page directory, page and slot). Slot writes are lock-free
+ * too; only creating a page or growing the directory takes a lock, which happens
+ * once per {@value #PAGE_SIZE} IDs.
+ * </p>
+ */
+class ProductIndex {
+
+    private static final int PAGE_BITS = 12;
+
+    /** Products per page */
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /** Highest supported ID, keeps the page number within an int */
+    static final long MAX_ID = ((long) Integer.MAX_VALUE << PAGE_BITS) | PAGE_MASK;
+
+    private static final VarHandle PAGES = MethodHandles.arrayElementVarHandle(Product[][].class);
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Product[].class);
+
+    /** Page directory, replaced by a larger copy when it grows */
+    private volatile Product[][] pages = new Product[1][];
+
+    /** Guards page creation and directory growth */
+    private final ReentrantLock growLock = new ReentrantLock();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Look up a product
+     * @param id Product ID
+     * @return Product, or null if not present
+     */
+    Product get(long id) {
+        if (id <= 0 || id > MAX_ID) {
+            return null;
+        }
+        Product[][] dir = pages;
+        int pageNo = (int) (id >>> PAGE_BITS);
+        if (pageNo >= dir.length) {
+            return null;
+        }
+        Product[] page = (Product[]) PAGES.getAcquire(dir, pageNo);
+        if (page == null) {
+            return null;
+        }
+        return (Product) SLOTS.getAcquire(page, (int) id & PAGE_MASK);
+    }
+
+    /**
+     * Insert or replace a product
+     * @param product Product, keyed by its ID
+     * @return Previous product with the same ID, or null
+     * @throws IllegalArgumentException if the ID is beyond {@link #MAX_ID}
+     */
+    Product put(Product product) {
+        long id = product.getId();
+        if (id > MAX_ID) {
+            throw new IllegalArgumentException("Product ID too large for the catalog index: " + id);
+        }
+        Product[] page = pageFor(id);
+        Product previous = (Product) SLOTS.getAndSetRelease(page, (int) id & PAGE_MASK, product);
+        if (previous == null) {
+            size.incrementAndGet();
+        }
+        return previous;
+    }
+
+    /**
+     * Number of products
+     * @return Product count
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Live, ID-ordered view of all products
+     * @return Collection view, weakly consistent like the map view it replaces
+     */
+    Collection<Product> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Product> iterator() {
+                return new ProductIterator();
+            }
+
+            @Override
+            public int size() {
+                return size.get();
+            }
+        };
+    }
+
+    /**
+     * Iterate products with an ID greater than a cursor, in ascending ID order.
+     * Seeks straight to the cursor's page and slot, so the cost does not depend
+     * on how many products come before it.
+     * @param after Cursor, 0 to start at the first product
+     * @return Weakly consistent iterator
+     */
+    Iterator<Product> iteratorAfter(long after) {
+        return new ProductIterator(after);
+    }
+
+    private Product[] pageFor(long id) {
+        int pageNo = (int) (id >>> PAGE_BITS);
+        Product[][] dir = pages;
+        if (pageNo < dir.length) {
+            Product[] page = (Product[]) PAGES.getAcquire(dir, pageNo);
+            if (page != null) {
+                return page;
+            }
+        }
+        growLock.lock();
+        try {
+            dir = pages;
+            if (pageNo >= dir.length) {
+                Product[][] grown = new Product[Math.max(pageNo + 1, dir.length * 2)][];
+                System.arraycopy(dir, 0, grown, 0, dir.length);
+                pages = grown;
+                dir = grown;
+            }
+            Product[] page = dir[pageNo];
+            if (page == null) {
+                page = new Product[PAGE_SIZE];
+                PAGES.setRelease(dir, pageNo, page);
+            }
+            return page;
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    /**
+     * Iterates products in ascending ID order, skipping missing pages
+     */
+    private class ProductIterator implements Iterator<Product> {
+        private final Product[][] dir = pages;
+        private int pageNo;
+        private int slot;
+        private Product next;
+
+        ProductIterator() {
+            this(0L);
+        }
+
+        ProductIterator(long after) {
+            if (after >= MAX_ID) {
+                pageNo = dir.length;
+            } else if (after > 0) {
+                long first = after + 1;
+                pageNo = (int) Math.min(first >>> PAGE_BITS, dir.length);
+                slot = (int) first & PAGE_MASK;
+            }
+            next = advance();
+        }
+
+        private Product advance() {
+            while (pageNo < dir.length) {
+                Product[] page = (Product[]) PAGES.getAcquire(dir, pageNo);
+                if (page != null) {
+                    while (slot < PAGE_SIZE) {
+                        Product product = (Product) SLOTS.getAcquire(page, slot++);
+                        if (product != null) {
+                            return product;
+                        }
+                    }
+                }
+                pageNo++;
+                slot = 0;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Product next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Product current = next;
+            next = advance();
+            return current;
+        }
+    }
+}
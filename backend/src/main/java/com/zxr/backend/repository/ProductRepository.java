@@ -5,10 +5,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Product repository class
@@ -19,37 +21,47 @@ public class ProductRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductRepository.class);
 
-    /** Product storage container */
-    private final Map<Long, Product> store = new ConcurrentHashMap<>();
+    /** Product storage container, keyed by primitive product ID */
+    private final ProductIndex store = new ProductIndex();
+
+    /** Name search index over {@link #store} */
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex(store);
+
+    /** Catalog version, bumped whenever a product is inserted or replaced */
+    private final AtomicLong version = new AtomicLong();
 
     /**
      * Initialize product repository with sample data
      */
     public ProductRepository() {
         logger.info("Initializing product repository");
-        store.put(1L, new Product(1L, "Red Fuji Apple", 1.99, getRandomStock()));
-        store.put(2L, new Product(2L, "Imported Banana", 0.99, getRandomStock()));
-        store.put(3L, new Product(3L, "Sunshine Rose Grape", 4.99, getRandomStock()));
-        store.put(4L, new Product(4L, "Thai Golden Pillow Durian", 12.99, getRandomStock()));
-        store.put(5L, new Product(5L, "Gannan Navel Orange", 1.49, getRandomStock()));
-        store.put(6L, new Product(6L, "Hainan Mango", 2.99, getRandomStock()));
-        store.put(7L, new Product(7L, "Zespri Kiwifruit", 3.49, getRandomStock()));
-        store.put(8L, new Product(8L, "Hainan Coconut", 2.49, getRandomStock()));
-        store.put(9L, new Product(9L, "Washington Red Cherry", 7.99, getRandomStock()));
-        store.put(10L, new Product(10L, "Peruvian Blueberry", 4.99, getRandomStock()));
-        store.put(11L, new Product(11L, "Australian Strawberry", 3.99, getRandomStock()));
-        store.put(12L, new Product(12L, "Florida Orange", 1.79, getRandomStock()));
-        store.put(13L, new Product(13L, "California Avocado", 3.29, getRandomStock()));
-        store.put(14L, new Product(14L, "Chilean Grapefruit", 2.19, getRandomStock()));
-        store.put(15L, new Product(15L, "Philippine Pineapple", 2.79, getRandomStock()));
-        store.put(16L, new Product(16L, "Mexican Watermelon", 3.49, getRandomStock()));
-        store.put(17L, new Product(17L, "Egyptian Pomegranate", 3.99, getRandomStock()));
-        store.put(18L, new Product(18L, "Turkish Fig", 4.79, getRandomStock()));
-        store.put(19L, new Product(19L, "Spanish Lemon", 1.19, getRandomStock()));
-        store.put(20L, new Product(20L, "Italian Peach", 2.19, getRandomStock()));
+        put(new Product(1L, "Red Fuji Apple", 199, getRandomStock()));
+        put(new Product(2L, "Imported Banana", 99, getRandomStock()));
+        put(new Product(3L, "Sunshine Rose Grape", 499, getRandomStock()));
+        put(new Product(4L, "Thai Golden Pillow Durian", 1299, getRandomStock()));
+        put(new Product(5L, "Gannan Navel Orange", 149, getRandomStock()));
+        put(new Product(6L, "Hainan Mango", 299, getRandomStock()));
+        put(new Product(7L, "Zespri Kiwifruit", 349, getRandomStock()));
+        put(new Product(8L, "Hainan Coconut", 249, getRandomStock()));
+        put(new Product(9L, "Washington Red Cherry", 799, getRandomStock()));
+        put(new Product(10L, "Peruvian Blueberry", 499, getRandomStock()));
+        put(new Product(11L, "Australian Strawberry", 399, getRandomStock()));
+        put(new Product(12L, "Florida Orange", 179, getRandomStock()));
+        put(new Product(13L, "California Avocado", 329, getRandomStock()));
+        put(new Product(14L, "Chilean Grapefruit", 219, getRandomStock()));
+        put(new Product(15L, "Philippine Pineapple", 279, getRandomStock()));
+        put(new Product(16L, "Mexican Watermelon", 349, getRandomStock()));
+        put(new Product(17L, "Egyptian Pomegranate", 399, getRandomStock()));
+        put(new Product(18L, "Turkish Fig", 479, getRandomStock()));
+        put(new Product(19L, "Spanish Lemon", 119, getRandomStock()));
+        put(new Product(20L, "Italian Peach", 219, getRandomStock()));
         logger.info("Product repository initialized with {} products", store.size());
     }
 
+    private void put(Product product) {
+        searchIndex.update(product, store.put(product));
+    }
+
     /**
      * Gets a random stock quantity
      * 
@@ -59,16 +71,71 @@ public class ProductRepository {
         return new Random().nextInt(10) + 5;
     }
 
+    /**
+     * Save product, inserting or replacing it by ID.
+     * Safe to call concurrently with lookups, e.g. while the catalog is reloaded.
+     * 
+     * @param product Product object
+     * @throws IllegalArgumentException if product object is null
+     */
+    public void save(Product product) {
+        if (product == null) {
+            logger.error("Product object is null when saving");
+            throw new IllegalArgumentException("Product object cannot be null");
+        }
+        put(product);
+        version.incrementAndGet();
+        logger.debug("Product saved: {}", product.getId());
+    }
+
+    /**
+     * Get the catalog version
+     * Changes whenever a product is inserted or replaced; stock changes of existing
+     * products do not change it.
+     * 
+     * @return Catalog version
+     */
+    public long version() {
+        return version.get();
+    }
+
     /**
      * Query all products
      * 
-     * @return Product collection
+     * @return Product collection, in ascending ID order
      */
     public Collection<Product> findAll() {
-        logger.debug("Querying all products");
-        Collection<Product> products = store.values();
-        logger.info("Found {} products", products.size());
-        return products;
+        return store.values();
+    }
+
+    /**
+     * Query one page of products after a cursor, in ascending ID order
+     * 
+     * @param after Cursor: the last product ID of the previous page, 0 for the first page
+     * @param limit Maximum number of products
+     * @return Up to {@code limit} products with an ID greater than {@code after}
+     */
+    public List<Product> findPage(long after, int limit) {
+        List<Product> page = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<Product> products = store.iteratorAfter(after);
+        while (page.size() < limit && products.hasNext()) {
+            page.add(products.next());
+        }
+        return page;
+    }
+
+    /**
+     * Search products by name
+     * Every query term must prefix a term of the product name; see {@link ProductSearchIndex#search}
+     * for the ranking.
+     * 
+     * @param query Query text
+     * @param offset Ranked hits to skip
+     * @param limit Most hits to return
+     * @return Ranked hits and their total count
+     */
+    public ProductSearchIndex.Result search(String query, int offset, int limit) {
+        return searchIndex.search(query, offset, limit);
     }
 
     /**
@@ -82,13 +149,30 @@ public class ProductRepository {
             logger.warn("Product ID is null when querying");
             return null;
         }
-        logger.debug("Querying product by ID: {}", id);
-        Product product = store.get(id);
-        if (product != null) {
-            logger.info("Found product: {}", product.getName());
-        } else {
-            logger.warn("Product not found with ID: {}", id);
+        return findById(id.longValue());
+    }
+
+    /**
+     * Query many products at once, e.g. every line of an order batch
+     * 
+     * @param ids Product IDs
+     * @return Products at the same indexes as their IDs, null where not found
+     */
+    public Product[] findByIds(long[] ids) {
+        Product[] products = new Product[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            products[i] = store.get(ids[i]);
         }
-        return product;
+        return products;
+    }
+
+    /**
+     * Query product by primitive ID, without boxing
+     * 
+     * @param id Product ID
+     * @return Product object, or null if not found
+     */
+    public Product findById(long id) {
+        return store.get(id);
     }
 }
\ No newline at end of file
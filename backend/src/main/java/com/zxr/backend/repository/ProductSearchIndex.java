@@ -0,0 +1,493 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Product name search index
+ * <p>
+ * An inverted index from name terms to the sorted IDs of the products containing them,
+ * each ID flagged if the term is the first word of the name. Terms are kept in a sorted
+ * map, so the terms starting with a query prefix are one contiguous range. A search
+ * expands the prefix of every query term and drives the search with the term that has
+ * the fewest candidates, merging its posting lists in ID order. Every candidate is
+ * scored from the postings alone: the other query terms are found by binary search,
+ * resuming where the previous candidate left off. Only the requested window of hits is
+ * kept while ranking and only its products are read.
+ * </p>
+ * <p>
+ * Updates happen when products are saved, searches far more often, so a read-write
+ * lock lets searches run in parallel. The index is owned and kept up to date by
+ * {@link ProductRepository}.
+ * </p>
+ */
+public final class ProductSearchIndex {
+
+    /** Most query terms considered, further terms are ignored */
+    static final int MAX_QUERY_TERMS = 8;
+
+    /** Non-driving query terms expanding to more terms than this are checked against the name instead */
+    private static final int MAX_PROBED_TERMS = 32;
+
+    private static final int PREFIX = 1;
+    private static final int EXACT = 2;
+    private static final int MATCH = 3;
+    private static final int LEADING = 4;
+
+    private final ProductIndex products;
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Create an empty search index
+     * @param products Product storage the indexed IDs refer to
+     */
+    ProductSearchIndex(ProductIndex products) {
+        this.products = products;
+    }
+
+    /**
+     * Index a saved product
+     * @param product Saved product
+     * @param previous Product it replaced, or null
+     */
+    void update(Product product, Product previous) {
+        if (previous != null && previous.getName().equals(product.getName())) {
+            return;
+        }
+        long id = product.getId();
+        lock.writeLock().lock();
+        try {
+            if (previous != null) {
+                for (String term : tokenize(previous.getName())) {
+                    Postings postings = terms.get(term);
+                    if (postings != null && postings.remove(id) && postings.size == 0) {
+                        terms.remove(term);
+                    }
+                }
+            }
+            List<String> tokens = tokenize(product.getName());
+            for (int i = 0; i < tokens.size(); i++) {
+                terms.computeIfAbsent(tokens.get(i), t -> new Postings()).add(id, i == 0);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of distinct terms
+     * @return Term count
+     */
+    int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Search product names
+     * <p>
+     * Every query term must be a prefix of a term in the name. Hits are ranked by score,
+     * then by ascending ID: a query term scores 2 when it matches a name term exactly
+     * and 1 when it only prefixes one, plus 1 if the name starts with the first query term.
+     * </p>
+     * @param query Query text
+     * @param offset Hits to skip
+     * @param limit Most hits to return
+     * @return Requested window of ranked hits and the total number of hits
+     */
+    Result search(String query, int offset, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return new Result(Collections.emptyList(), 0);
+        }
+        if (queryTerms.size() > MAX_QUERY_TERMS) {
+            queryTerms = queryTerms.subList(0, MAX_QUERY_TERMS);
+        }
+        lock.readLock().lock();
+        try {
+            TermMatch[] matches = new TermMatch[queryTerms.size()];
+            int driver = 0;
+            for (int t = 0; t < matches.length; t++) {
+                matches[t] = new TermMatch(queryTerms.get(t), terms);
+                if (matches[t].candidates < matches[driver].candidates) {
+                    driver = t;
+                }
+            }
+            if (matches[driver].candidates == 0) {
+                return new Result(Collections.emptyList(), 0);
+            }
+
+            int window = offset + limit;
+            PriorityQueue<Hit> top = new PriorityQueue<>(Math.min(window, 1024) + 1, Hit.WORST_FIRST);
+            int total = 0;
+            Merge merge = new Merge(matches[driver]);
+            while (merge.size > 0) {
+                long id = merge.headId();
+                int flags = merge.next(id);
+                int score = flags & MATCH;
+                boolean leading = driver == 0 && (flags & LEADING) != 0;
+                for (int t = 0; t < matches.length && score > 0; t++) {
+                    if (t != driver) {
+                        int other = matches[t].probe(id, products);
+                        score = (other & MATCH) == 0 ? 0 : score + (other & MATCH);
+                        leading |= t == 0 && (other & LEADING) != 0;
+                    }
+                }
+                if (score == 0) {
+                    continue;
+                }
+                if (leading) {
+                    score++;
+                }
+                total++;
+                if (top.size() < window) {
+                    top.add(new Hit(id, score));
+                } else if (Hit.WORST_FIRST.compare(top.peek(), score, id) < 0) {
+                    top.poll();
+                    top.add(new Hit(id, score));
+                }
+            }
+
+            Hit[] ranked = top.toArray(new Hit[0]);
+            Arrays.sort(ranked, Hit.WORST_FIRST.reversed());
+            List<Product> hits = new ArrayList<>(Math.max(0, ranked.length - offset));
+            for (int i = offset; i < ranked.length; i++) {
+                Product product = products.get(ranked[i].id);
+                if (product != null) {
+                    hits.add(product);
+                }
+            }
+            return new Result(hits, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Match one query term against the terms of a name, without tokenizing the name
+     * @return 2 for an exact term match, 1 for a prefix match, 0 for none
+     */
+    private static int match(String name, String term) {
+        int best = 0;
+        int length = name.length();
+        int start = 0;
+        while (start < length) {
+            while (start < length && !isTermChar(name.charAt(start))) {
+                start++;
+            }
+            int end = start;
+            while (end < length && isTermChar(name.charAt(end))) {
+                end++;
+            }
+            if (end - start >= term.length() && name.regionMatches(true, start, term, 0, term.length())) {
+                if (end - start == term.length()) {
+                    return 2;
+                }
+                best = 1;
+            }
+            start = end;
+        }
+        return best;
+    }
+
+    private static boolean startsWithTerm(String name, String term) {
+        int start = 0;
+        while (start < name.length() && !isTermChar(name.charAt(start))) {
+            start++;
+        }
+        return name.regionMatches(true, start, term, 0, term.length());
+    }
+
+    private static boolean isTermChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * Split text into lower-case terms of letters and digits, without duplicates
+     * @param text Text to split
+     * @return Terms in order of first occurrence
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>(4);
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            while (start < length && !isTermChar(text.charAt(start))) {
+                start++;
+            }
+            int end = start;
+            while (end < length && isTermChar(text.charAt(end))) {
+                end++;
+            }
+            if (end > start) {
+                String token = text.substring(start, end).toLowerCase(Locale.ROOT);
+                if (!tokens.contains(token)) {
+                    tokens.add(token);
+                }
+            }
+            start = end;
+        }
+        return tokens;
+    }
+
+    /**
+     * Search result
+     * @param products Ranked hits of the requested window
+     * @param total Number of hits in all
+     */
+    public record Result(List<Product> products, int total) {
+    }
+
+    /**
+     * Ranked hit
+     */
+    private static final class Hit {
+
+        /** Lowest score first, then highest ID first: the head is the hit to evict */
+        static final HitOrder WORST_FIRST = new HitOrder();
+
+        final long id;
+        final int score;
+
+        Hit(long id, int score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    private static final class HitOrder implements Comparator<Hit> {
+
+        @Override
+        public int compare(Hit a, Hit b) {
+            return compare(a, b.score, b.id);
+        }
+
+        int compare(Hit a, int score, long id) {
+            if (a.score != score) {
+                return Integer.compare(a.score, score);
+            }
+            return Long.compare(id, a.id);
+        }
+    }
+
+    /**
+     * One query term expanded to the index terms it prefixes
+     */
+    private static final class TermMatch {
+
+        final String term;
+        /** Posting lists of the expanded terms, the exact term first if indexed */
+        final Postings[] lists;
+        final boolean exact;
+        final long candidates;
+        /** Where the next probe of each list starts; candidates arrive in ascending ID order */
+        final int[] from;
+
+        TermMatch(String term, NavigableMap<String, Postings> terms) {
+            NavigableMap<String, Postings> expanded = terms.subMap(term, true, term + Character.MAX_VALUE, false);
+            this.term = term;
+            this.lists = expanded.values().toArray(new Postings[0]);
+            this.exact = lists.length > 0 && expanded.firstKey().equals(term);
+            long count = 0;
+            for (Postings postings : lists) {
+                count += postings.size;
+            }
+            this.candidates = count;
+            this.from = new int[lists.length];
+        }
+
+        /**
+         * Match a candidate that is not driving the search
+         * @return {@link #EXACT} or {@link #PREFIX}, with {@link #LEADING} if it is the first name term; 0 if no match
+         */
+        int probe(long id, ProductIndex products) {
+            if (lists.length > MAX_PROBED_TERMS) {
+                Product product = products.get(id);
+                if (product == null) {
+                    return 0;
+                }
+                int match = match(product.getName(), term);
+                return match == 0 || !startsWithTerm(product.getName(), term) ? match : match | LEADING;
+            }
+            int flags = 0;
+            for (int j = 0; j < lists.length; j++) {
+                int at = lists[j].find(id, from[j]);
+                if (at >= 0) {
+                    from[j] = at;
+                    flags |= (j == 0 && exact ? EXACT : PREFIX) | (lists[j].isLeading(at) ? LEADING : 0);
+                } else {
+                    from[j] = -at - 1;
+                }
+            }
+            return (flags & EXACT) != 0 ? flags & ~PREFIX : flags;
+        }
+    }
+
+    /**
+     * Merge of the posting lists of the driving term into ascending ID order, as a
+     * binary heap of list indexes keyed by each list's current ID
+     */
+    private static final class Merge {
+
+        private final TermMatch match;
+        private final int[] position;
+        private final int[] heap;
+        int size;
+
+        Merge(TermMatch match) {
+            this.match = match;
+            this.position = new int[match.lists.length];
+            this.heap = new int[match.lists.length];
+            for (int j = 0; j < match.lists.length; j++) {
+                if (match.lists[j].size > 0) {
+                    heap[size] = j;
+                    siftUp(size++);
+                }
+            }
+        }
+
+        long headId() {
+            return idAt(heap[0]);
+        }
+
+        /**
+         * Consume every posting of a product
+         * @param id Current head ID
+         * @return Match flags of the product, as in {@link TermMatch#probe}
+         */
+        int next(long id) {
+            int flags = 0;
+            while (size > 0 && idAt(heap[0]) == id) {
+                int j = heap[0];
+                flags |= (j == 0 && match.exact ? EXACT : PREFIX)
+                        | (match.lists[j].isLeading(position[j]) ? LEADING : 0);
+                if (++position[j] == match.lists[j].size) {
+                    heap[0] = heap[--size];
+                }
+                if (size > 0) {
+                    siftDown(0);
+                }
+            }
+            return (flags & EXACT) != 0 ? flags & ~PREFIX : flags;
+        }
+
+        private long idAt(int list) {
+            return match.lists[list].id(position[list]);
+        }
+
+        private void siftUp(int i) {
+            int list = heap[i];
+            long id = idAt(list);
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (idAt(heap[parent]) <= id) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = list;
+        }
+
+        private void siftDown(int i) {
+            int list = heap[i];
+            long id = idAt(list);
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && idAt(heap[child + 1]) < idAt(heap[child])) {
+                    child++;
+                }
+                if (id <= idAt(heap[child])) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = list;
+        }
+    }
+
+    /**
+     * Sorted product IDs of one term, each shifted left by one with the low bit set
+     * if the term is the first word of the product name
+     */
+    private static final class Postings {
+
+        long[] entries = new long[2];
+        int size;
+
+        long id(int at) {
+            return entries[at] >>> 1;
+        }
+
+        boolean isLeading(int at) {
+            return (entries[at] & 1) != 0;
+        }
+
+        void add(long id, boolean leading) {
+            long entry = id << 1 | (leading ? 1 : 0);
+            // Catalogs are mostly loaded in ID order, which appends
+            if (size > 0 && id(size - 1) >= id) {
+                int at = find(id, 0);
+                if (at >= 0) {
+                    entries[at] = entry;
+                    return;
+                }
+                insert(-at - 1, entry);
+                return;
+            }
+            insert(size, entry);
+        }
+
+        private void insert(int at, long entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            System.arraycopy(entries, at, entries, at + 1, size - at);
+            entries[at] = entry;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int at = find(id, 0);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(entries, at + 1, entries, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * Find a product ID
+         * @param id Product ID
+         * @param from First position to search
+         * @return Position of the ID, or {@code -(insertion point) - 1} if absent
+         */
+        int find(long id, int from) {
+            int at = Arrays.binarySearch(entries, from, size, id << 1);
+            if (at >= 0) {
+                return at;
+            }
+            at = -at - 1;
+            return at < size && id(at) == id ? at : -at - 1;
+        }
+    }
+}
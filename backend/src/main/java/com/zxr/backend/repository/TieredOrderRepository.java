@@ -0,0 +1,624 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.config.BackgroundThreads;
+import com.zxr.backend.model.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Tiered order repository ({@code order.store.type=tiered})
+ * <p>
+ * Recent orders stay on the heap in a hot tier; older ones are spilled to
+ * {@link OrderSegment} files on local disk. The hot tier is a list of generations:
+ * saved lines go into the active generation, which is sealed once it holds
+ * {@code generation-size} lines or its first line is older than {@code max-age}.
+ * A background thread spills sealed generations, oldest first, whenever the hot tier
+ * holds more than {@code hot-capacity} lines or the oldest generation has aged out;
+ * each becomes one segment file. If saves outrun the spill thread and the hot tier
+ * reaches twice its capacity, the saving thread spills too, so heap usage stays bounded
+ * however many orders exist.
+ * </p>
+ * <p>
+ * Once the newest {@value #FAN_IN} segments share a merge level, the spill thread merges
+ * them into one segment of the next level, up to {@link OrderSegment#MAX_ROWS} lines per
+ * segment. Segments thus stay few: a handful per level, then one per full-size segment.
+ * An open segment is a memory mapping and a few fields; it holds no file descriptor.
+ * </p>
+ * <p>
+ * {@link #findById} checks the hot tier's map first, then the segments whose ID range
+ * covers the ID, newest first. Segments are spilled in age order and order IDs are time
+ * ordered, so their ranges barely overlap: two binary searches over the ranges find the
+ * candidates, each then searched in its mapped ID index. Queries by product and creation
+ * time merge the generations' {@link OrderIndex} hits with the segments' on-disk indexes.
+ * </p>
+ * <p>
+ * The segment files are a cache of the write-ahead log, not a second copy of it: they
+ * are deleted on startup and shutdown, and the log's history loader refills the store.
+ * </p>
+ */
+@Repository
+@ConditionalOnProperty(name = "order.store.type", havingValue = "tiered")
+public class TieredOrderRepository implements OrderRepository, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TieredOrderRepository.class);
+
+    private static final String SEGMENT_GLOB = "orders-*.seg";
+
+    /** Segments of one level merged together */
+    static final int FAN_IN = 8;
+
+    private final Path directory;
+    private final int hotCapacity;
+    private final int generationSize;
+    private final long maxAgeMillis;
+    private final LongSupplier clock;
+
+    /** Hot lines by order ID, for lock-free lookups; the latest saved line wins */
+    private final Map<Long, Order> hotById = new ConcurrentHashMap<>();
+
+    /** Guards the generations, the hot line count and the segment list */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Generation active;
+    /** Sealed generations, oldest first */
+    private final ArrayDeque<Generation> sealed = new ArrayDeque<>();
+    private int hotLines;
+
+    /** Cold tier; replaced on every spill and merge */
+    private volatile ColdTier cold = ColdTier.EMPTY;
+
+    /** Serializes spills; only the spilling thread removes sealed generations */
+    private final ReentrantLock spillLock = new ReentrantLock();
+    private int segmentSequence;
+
+    private final ScheduledExecutorService spillExecutor;
+    private final AtomicBoolean spillPending = new AtomicBoolean();
+
+    /**
+     * Construct tiered order repository
+     * @param directory Directory of the segment files
+     * @param hotCapacity Order lines kept on the heap before the oldest are spilled
+     * @param generationSize Order lines spilled together into one segment file
+     * @param maxAge Time after which saved lines are spilled regardless of the capacity
+     * @param backgroundThreads Creates the spill thread
+     * @throws IOException if the directory cannot be prepared
+     */
+    @Autowired
+    public TieredOrderRepository(@Value("${order.store.tiered.directory:data/orders}") String directory,
+                                 @Value("${order.store.tiered.hot-capacity:100000}") int hotCapacity,
+                                 @Value("${order.store.tiered.generation-size:16384}") int generationSize,
+                                 @Value("${order.store.tiered.max-age:10m}") Duration maxAge,
+                                 BackgroundThreads backgroundThreads) throws IOException {
+        this(Path.of(directory), hotCapacity, generationSize, maxAge, backgroundThreads, System::currentTimeMillis);
+    }
+
+    TieredOrderRepository(Path directory, int hotCapacity, int generationSize, Duration maxAge,
+                          BackgroundThreads backgroundThreads, LongSupplier clock) throws IOException {
+        if (generationSize <= 0 || hotCapacity < generationSize) {
+            throw new IllegalArgumentException("Hot capacity " + hotCapacity
+                    + " must be at least the generation size " + generationSize + ", which must be positive");
+        }
+        if (generationSize > OrderSegment.MAX_ROWS) {
+            throw new IllegalArgumentException("Generation size " + generationSize
+                    + " must be at most " + OrderSegment.MAX_ROWS);
+        }
+        if (maxAge.isZero() || maxAge.isNegative()) {
+            throw new IllegalArgumentException("Max age must be positive: " + maxAge);
+        }
+        this.directory = directory;
+        this.hotCapacity = hotCapacity;
+        this.generationSize = generationSize;
+        this.maxAgeMillis = maxAge.toMillis();
+        this.clock = clock;
+        this.active = new Generation(generationSize);
+
+        Files.createDirectories(directory);
+        int stale = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_GLOB)) {
+            for (Path file : files) {
+                Files.delete(file);
+                stale++;
+            }
+        }
+
+        this.spillExecutor = backgroundThreads.newScheduler("order-spill");
+        long ageCheckMillis = Math.max(1000, maxAgeMillis / 4);
+        spillExecutor.scheduleWithFixedDelay(this::spillAgedQuietly, ageCheckMillis, ageCheckMillis,
+                TimeUnit.MILLISECONDS);
+        logger.info("Tiered order repository initialized in {}, {} hot lines, {} lines per segment, "
+                + "removed {} stale segments", directory, hotCapacity, generationSize, stale);
+    }
+
+    @Override
+    public void save(Order order) {
+        if (order == null) {
+            logger.error("Order object is null when saving");
+            throw new IllegalArgumentException("Order object cannot be null");
+        }
+        int lines;
+        lock.writeLock().lock();
+        try {
+            append(order);
+            lines = hotLines;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        afterAppend(lines);
+    }
+
+    /**
+     * Append all orders to the same generation under a single write-lock acquisition
+     */
+    @Override
+    public void saveAll(List<Order> orders) {
+        for (Order order : orders) {
+            if (order == null) {
+                logger.error("Order object is null when saving");
+                throw new IllegalArgumentException("Order object cannot be null");
+            }
+        }
+        int lines;
+        lock.writeLock().lock();
+        try {
+            if (active.count > 0 && active.count + orders.size() > generationSize) {
+                seal();
+            }
+            for (Order order : orders) {
+                active.add(order, clock.getAsLong());
+                hotById.put(order.getId(), order);
+            }
+            hotLines += orders.size();
+            lines = hotLines;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        afterAppend(lines);
+    }
+
+    /**
+     * Add one line to the active generation; caller holds the write lock
+     */
+    private void append(Order order) {
+        if (active.count >= generationSize) {
+            seal();
+        }
+        active.add(order, clock.getAsLong());
+        hotById.put(order.getId(), order);
+        hotLines++;
+    }
+
+    /**
+     * Seal the active generation and start a new one; caller holds the write lock
+     */
+    private void seal() {
+        sealed.addLast(active);
+        active = new Generation(generationSize);
+    }
+
+    private void afterAppend(int lines) {
+        if (lines > 2 * hotCapacity) {
+            // The spill thread is behind: hold this saver until the hot tier is back in bounds
+            spillQuietly();
+        } else if (lines > hotCapacity && spillPending.compareAndSet(false, true)) {
+            spillExecutor.execute(() -> {
+                spillPending.set(false);
+                spillQuietly();
+            });
+        }
+    }
+
+    @Override
+    public Order findById(long id) {
+        Order order = hotById.get(id);
+        if (order != null) {
+            return order;
+        }
+        // Spills register the segment before evicting its lines, so an order is always in one tier
+        return cold.findById(id);
+    }
+
+    @Override
+    public Slice findByProduct(long productId, long after, int limit) {
+        Merge merge = new Merge(limit);
+        lock.readLock().lock();
+        try {
+            for (Generation generation : sealed) {
+                merge.add(generation.hits(generation.index.findByProduct(productId, after, limit)));
+            }
+            merge.add(active.hits(active.index.findByProduct(productId, after, limit)));
+            for (OrderSegment segment : cold.segments) {
+                Hits hits = merge.next();
+                segment.collectByProduct(productId, after, hits);
+                merge.add(hits);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return merge.slice();
+    }
+
+    @Override
+    public Slice findCreatedBetween(long fromMillis, long toMillis, long after, int limit) {
+        long end = OrderIndex.firstIdAt(toMillis);
+        long lower = Math.max(after, OrderIndex.firstIdAt(fromMillis) - 1);
+        Merge merge = new Merge(limit);
+        lock.readLock().lock();
+        try {
+            for (Generation generation : sealed) {
+                if (generation.overlaps(lower, end)) {
+                    merge.add(generation.hits(
+                            generation.index.findCreatedBetween(fromMillis, toMillis, after, limit)));
+                }
+            }
+            merge.add(active.hits(active.index.findCreatedBetween(fromMillis, toMillis, after, limit)));
+            for (OrderSegment segment : cold.segments) {
+                Hits hits = merge.next();
+                segment.collectBetween(lower, end, hits);
+                merge.add(hits);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return merge.slice();
+    }
+
+    /**
+     * Spill sealed generations until the hot tier is within its capacity and age
+     */
+    void spill() throws IOException {
+        spillLock.lock();
+        try {
+            while (true) {
+                Generation oldest;
+                lock.readLock().lock();
+                try {
+                    oldest = sealed.peekFirst();
+                    if (oldest == null || (hotLines <= hotCapacity && !isAged(oldest))) {
+                        return;
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                // Sealed generations are immutable: write the file without holding the lock
+                Order[] lines = Arrays.copyOf(oldest.rows, oldest.count);
+                Path file = directory.resolve(String.format("orders-%06d.seg", ++segmentSequence));
+                OrderSegment segment = OrderSegment.write(file, lines);
+                lock.writeLock().lock();
+                try {
+                    OrderSegment[] segments = Arrays.copyOf(cold.segments, cold.segments.length + 1);
+                    segments[segments.length - 1] = segment;
+                    cold = new ColdTier(segments);
+                    sealed.removeFirst();
+                    hotLines -= oldest.count;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                for (Order line : lines) {
+                    // A later save of the same ID stays hot
+                    hotById.remove(line.getId(), line);
+                }
+                logger.debug("Spilled {} order lines to {}", lines.length, file);
+                merge();
+            }
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    /**
+     * Merge the newest segments while {@value #FAN_IN} of them share a level; caller
+     * holds the spill lock, so only this thread replaces segments meanwhile
+     */
+    private void merge() throws IOException {
+        while (true) {
+            OrderSegment[] segments = cold.segments;
+            int first = segments.length - FAN_IN;
+            if (first < 0) {
+                return;
+            }
+            long rows = 0;
+            for (int i = first; i < segments.length; i++) {
+                if (segments[i].level() != segments[first].level()) {
+                    return;
+                }
+                rows += segments[i].count();
+            }
+            if (rows > OrderSegment.MAX_ROWS) {
+                return;
+            }
+            OrderSegment[] sources = Arrays.copyOfRange(segments, first, segments.length);
+            Path file = directory.resolve(String.format("orders-%06d.seg", ++segmentSequence));
+            OrderSegment merged = OrderSegment.merge(file, sources);
+            lock.writeLock().lock();
+            try {
+                OrderSegment[] replaced = Arrays.copyOf(segments, first + 1);
+                replaced[first] = merged;
+                cold = new ColdTier(replaced);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            for (OrderSegment source : sources) {
+                source.delete();
+            }
+            logger.debug("Merged {} order segments into {}, level {}", sources.length, file, merged.level());
+        }
+    }
+
+    /**
+     * Seal the active generation once its first line has aged out, then spill
+     */
+    void spillAged() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (active.count > 0 && isAged(active)) {
+                seal();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        spill();
+    }
+
+    private boolean isAged(Generation generation) {
+        return clock.getAsLong() - generation.startedMillis >= maxAgeMillis;
+    }
+
+    private void spillQuietly() {
+        try {
+            spill();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Order spill to {} failed: {}", directory, e.getMessage(), e);
+        }
+    }
+
+    private void spillAgedQuietly() {
+        try {
+            spillAged();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Order spill to {} failed: {}", directory, e.getMessage(), e);
+        }
+    }
+
+    /** Order lines on the heap */
+    int hotLines() {
+        lock.readLock().lock();
+        try {
+            return hotLines;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Segment files in the cold tier */
+    int segmentCount() {
+        return cold.segments.length;
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        spillExecutor.shutdown();
+        spillExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        spillLock.lock();
+        try {
+            OrderSegment[] segments = cold.segments;
+            cold = ColdTier.EMPTY;
+            for (OrderSegment segment : segments) {
+                segment.delete();
+            }
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    /**
+     * Segments of the cold tier, oldest first, with their ID ranges folded so the
+     * segments that may hold an order ID are found by binary search
+     */
+    private static final class ColdTier {
+
+        static final ColdTier EMPTY = new ColdTier(new OrderSegment[0]);
+
+        final OrderSegment[] segments;
+        /** Largest max ID of the segments up to each one, non-decreasing */
+        private final long[] maxIdUpTo;
+        /** Smallest min ID of the segments from each one on, non-decreasing */
+        private final long[] minIdFrom;
+
+        ColdTier(OrderSegment[] segments) {
+            this.segments = segments;
+            int count = segments.length;
+            this.maxIdUpTo = new long[count];
+            this.minIdFrom = new long[count];
+            for (int i = 0; i < count; i++) {
+                maxIdUpTo[i] = Math.max(i > 0 ? maxIdUpTo[i - 1] : Long.MIN_VALUE, segments[i].maxId());
+            }
+            for (int i = count - 1; i >= 0; i--) {
+                minIdFrom[i] = Math.min(i < count - 1 ? minIdFrom[i + 1] : Long.MAX_VALUE, segments[i].minId());
+            }
+        }
+
+        Order findById(long id) {
+            // A segment covering the ID lies after every segment ending below it and
+            // before every segment starting above it
+            int first = firstAbove(maxIdUpTo, id - 1);
+            int end = firstAbove(minIdFrom, id);
+            for (int i = end - 1; i >= first; i--) {
+                Order order = segments[i].findById(id);
+                if (order != null) {
+                    return order;
+                }
+            }
+            return null;
+        }
+
+        /** Index of the first value greater than the given one in a non-decreasing array */
+        private static int firstAbove(long[] values, long value) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Hot-tier generation: lines in save order and their secondary indexes
+     */
+    private static final class Generation {
+
+        private Order[] rows;
+        private int count;
+        private long startedMillis;
+        private long minId = Long.MAX_VALUE;
+        private long maxId = Long.MIN_VALUE;
+        private final OrderIndex index = new OrderIndex();
+
+        Generation(int capacity) {
+            this.rows = new Order[Math.min(capacity, 1024)];
+        }
+
+        void add(Order order, long nowMillis) {
+            if (count == 0) {
+                startedMillis = nowMillis;
+            }
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            index.add(order.getId(), order.getProductId(), count);
+            rows[count++] = order;
+            minId = Math.min(minId, order.getId());
+            maxId = Math.max(maxId, order.getId());
+        }
+
+        /** Whether any line has an ID in (after, end) */
+        boolean overlaps(long after, long end) {
+            return maxId > after && minId < end;
+        }
+
+        Hits hits(OrderIndex.Hits found) {
+            Hits hits = new Hits(found.count(), Long.MAX_VALUE);
+            for (int i = 0; i < found.count(); i++) {
+                hits.orders.add(rows[(int) found.row(i)]);
+            }
+            hits.more = found.more();
+            return hits;
+        }
+    }
+
+    /**
+     * Page of a query, merged from the hits of every source
+     * Each source holds at least {@code limit} lines unless it ran out, so the first
+     * {@code limit} merged lines, plus the rest of the last order, are the page. Once the
+     * merged lines reach the limit, the page cannot end past the last of them, so later
+     * sources stop there instead of reading a full page of their own.
+     */
+    private static final class Merge {
+
+        private final int limit;
+        private final List<Order> lines = new ArrayList<>();
+        private long ceiling = Long.MAX_VALUE;
+        private boolean more;
+
+        Merge(int limit) {
+            this.limit = limit;
+        }
+
+        /** Empty hits for the next source */
+        Hits next() {
+            return new Hits(limit, ceiling);
+        }
+
+        void add(Hits hits) {
+            more |= hits.more;
+            if (hits.orders.isEmpty()) {
+                return;
+            }
+            lines.addAll(hits.orders);
+            if (lines.size() >= limit) {
+                // Stable, so lines of one order keep their save order
+                lines.sort(Comparator.comparingLong(Order::getId));
+                ceiling = Math.min(ceiling, lines.get(limit - 1).getId());
+            }
+        }
+
+        Slice slice() {
+            lines.sort(Comparator.comparingLong(Order::getId));
+            int count = Math.min(limit, lines.size());
+            while (count > 0 && count < lines.size() && lines.get(count).getId() == lines.get(count - 1).getId()) {
+                count++;
+            }
+            return new Slice(new ArrayList<>(lines.subList(0, count)), more || count < lines.size());
+        }
+    }
+
+    /**
+     * Lines one source contributes to a query, in order ID order
+     * Like {@link OrderIndex.Hits}, accepts lines until the limit is reached and then
+     * only the remaining lines of the last order, and none of orders past the ceiling.
+     */
+    static final class Hits {
+
+        private final int limit;
+        private final long ceiling;
+        private final List<Order> orders = new ArrayList<>();
+        private int accepted;
+        private long lastOrderId;
+        private boolean more;
+
+        Hits(int limit, long ceiling) {
+            this.limit = limit;
+            this.ceiling = ceiling;
+        }
+
+        /**
+         * Count a matching line, the next in order ID order
+         * @param orderId Order ID of the line
+         * @return false, noting that more lines match, once the hits are complete
+         */
+        boolean accept(long orderId) {
+            if (orderId > ceiling || (accepted >= limit && orderId != lastOrderId)) {
+                more = true;
+                return false;
+            }
+            accepted++;
+            lastOrderId = orderId;
+            return true;
+        }
+
+        /** Add the accepted lines */
+        void addAll(List<Order> lines) {
+            orders.addAll(lines);
+        }
+    }
+}
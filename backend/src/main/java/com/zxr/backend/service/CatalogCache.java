@@ -0,0 +1,203 @@
+package com.zxr.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.zxr.backend.model.Product;
+import com.zxr.backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Catalog response cache
+ * <p>
+ * Holds the product list response pre-encoded as JSON bytes, optionally pre-gzipped,
+ * together with a strong ETag derived from the content. A snapshot is versioned by the
+ * catalog version of {@link ProductRepository} and the stock level of every product it
+ * contains; at most once per refresh interval a request checks that version and rebuilds
+ * the snapshot if it changed. Requests in between, and requests arriving while another
+ * thread rebuilds, are served the current snapshot without any serialization.
+ * </p>
+ */
+@Component
+public class CatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCache.class);
+
+    private final ProductRepository repository;
+    private final ObjectWriter writer;
+    private final long refreshNanos;
+    private final boolean gzip;
+    private final ReentrantLock rebuild = new ReentrantLock();
+    private volatile Snapshot snapshot;
+    private volatile long nextCheckNanos;
+
+    /**
+     * Construct catalog cache
+     * @param repository Product repository
+     * @param objectMapper JSON mapper the API uses for products
+     * @param refreshInterval Shortest time between two version checks
+     * @param gzip Whether to keep a gzipped copy of every snapshot
+     */
+    public CatalogCache(ProductRepository repository, ObjectMapper objectMapper,
+            @Value("${catalog.cache.refresh-interval:500ms}") Duration refreshInterval,
+            @Value("${catalog.cache.gzip:true}") boolean gzip) {
+        this.repository = repository;
+        this.writer = objectMapper.writer();
+        this.refreshNanos = refreshInterval.toNanos();
+        this.gzip = gzip;
+    }
+
+    /**
+     * Get the current catalog snapshot, rebuilding it if the catalog changed
+     * @return Catalog snapshot
+     */
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && System.nanoTime() - nextCheckNanos < 0) {
+            return current;
+        }
+        if (current == null) {
+            rebuild.lock();
+        } else if (!rebuild.tryLock()) {
+            // Another request is checking or rebuilding; keep serving this one meanwhile
+            return current;
+        }
+        try {
+            current = snapshot;
+            if (current != null && System.nanoTime() - nextCheckNanos < 0) {
+                return current;
+            }
+            if (current == null || !current.isCurrent(repository.version())) {
+                current = build();
+                snapshot = current;
+            }
+            nextCheckNanos = System.nanoTime() + refreshNanos;
+            return current;
+        } finally {
+            rebuild.unlock();
+        }
+    }
+
+    private Snapshot build() {
+        long start = System.nanoTime();
+        // Read the version before the content, so a change made meanwhile is caught by the next check
+        long version = repository.version();
+        Product[] products = repository.findAll().toArray(new Product[0]);
+        int[] stocks = new int[products.length];
+        for (int i = 0; i < products.length; i++) {
+            stocks[i] = products[i].getStock();
+        }
+        try {
+            byte[] json = writer.writeValueAsBytes(products);
+            Snapshot built = new Snapshot(json, gzip ? gzip(json) : null, etagOf(json), version, products, stocks);
+            logger.debug("Catalog snapshot {} built in {} us", built.etag(), (System.nanoTime() - start) / 1000);
+            return built;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Catalog could not be serialized", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+            zip.write(json);
+        }
+        return out.toByteArray();
+    }
+
+    private static String etagOf(byte[] json) {
+        CRC32C crc = new CRC32C();
+        crc.update(json);
+        return "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(json.length) + "\"";
+    }
+
+    /**
+     * Check whether an {@code If-None-Match} header matches an ETag
+     * @param ifNoneMatch Header value, may be null
+     * @param etag Quoted strong ETag
+     * @return true if the client already has this representation
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pre-encoded catalog response
+     */
+    public static final class Snapshot {
+
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String etag;
+        private final long version;
+        private final Product[] products;
+        private final int[] stocks;
+
+        Snapshot(byte[] json, byte[] gzip, String etag, long version, Product[] products, int[] stocks) {
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag;
+            this.version = version;
+            this.products = products;
+            this.stocks = stocks;
+        }
+
+        /**
+         * Get the product list as JSON
+         * @return JSON bytes, not to be modified
+         */
+        public byte[] json() {
+            return json;
+        }
+
+        /**
+         * Get the gzipped product list
+         * @return Gzipped JSON bytes, not to be modified, or null if gzip is disabled
+         */
+        public byte[] gzip() {
+            return gzip;
+        }
+
+        /**
+         * Get the entity tag
+         * @return Quoted strong ETag
+         */
+        public String etag() {
+            return etag;
+        }
+
+        boolean isCurrent(long catalogVersion) {
+            if (catalogVersion != version) {
+                return false;
+            }
+            for (int i = 0; i < products.length; i++) {
+                if (products[i].getStock() != stocks[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
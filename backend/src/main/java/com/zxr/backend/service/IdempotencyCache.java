@@ -0,0 +1,159 @@
+package com.zxr.backend.service;
+
+import com.zxr.backend.dto.CartCommand;
+import com.zxr.backend.dto.CreateOrderResponse;
+import com.zxr.backend.exception.IdempotencyKeyReuseException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency key cache for order creation
+ * <p>
+ * Remembers the order created for each {@code Idempotency-Key}: the first request with
+ * a key creates the order, requests arriving while it runs share its future, and later
+ * ones get the same response without creating another order. A key whose order fails
+ * is forgotten, so the client can retry it.
+ * </p>
+ * <p>
+ * Memory is bounded twice: entries expire after a fixed time to live, and beyond the
+ * size cap the oldest entries are evicted early. Every entry lives equally long, so
+ * insertion order is expiry order and one FIFO queue serves both evictions, run by the
+ * thread that inserts. The cap counts queued entries, so forgotten keys still waiting
+ * in the queue count against it too.
+ * </p>
+ */
+@Component
+public class IdempotencyCache {
+
+    /** Longest accepted key */
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    /** Length of {@link #insertionOrder}, which also holds keys already forgotten after a failure */
+    private final AtomicInteger queued = new AtomicInteger();
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LongSupplier clock;
+
+    /**
+     * Construct idempotency cache
+     * @param ttl How long a key is remembered after its first request
+     * @param maxEntries Most keys remembered at once
+     */
+    @Autowired
+    public IdempotencyCache(@Value("${order.idempotency.ttl:10m}") Duration ttl,
+            @Value("${order.idempotency.max-entries:100000}") int maxEntries) {
+        this(ttl, maxEntries, System::nanoTime);
+    }
+
+    IdempotencyCache(Duration ttl, int maxEntries, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Idempotency cache needs room for at least one key");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Create an order once per key
+     * @param key Idempotency key sent by the client
+     * @param cart Order lines; a key may only be sent again with the same lines
+     * @param order Creates the order, called at most once per live key
+     * @return Response of the order created for the key, and whether it was created by an earlier request
+     * @throws IllegalArgumentException if the key is blank or too long
+     * @throws IdempotencyKeyReuseException if the key was sent with different order lines
+     */
+    public Outcome execute(String key, CartCommand cart, Supplier<CompletableFuture<CreateOrderResponse>> order) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        long now = clock.getAsLong();
+        Entry entry = new Entry(key, cart.copy(), now + ttlNanos);
+        Entry existing;
+        while ((existing = entries.putIfAbsent(key, entry)) != null) {
+            if (!existing.isExpired(now)) {
+                if (!existing.cart.equals(cart)) {
+                    throw new IdempotencyKeyReuseException("Idempotency key was used for a different order: " + key);
+                }
+                return new Outcome(existing.response, true);
+            }
+            entries.remove(key, existing);
+        }
+        insertionOrder.add(entry);
+        queued.incrementAndGet();
+        evict(now);
+
+        CompletableFuture<CreateOrderResponse> created;
+        try {
+            created = order.get();
+        } catch (RuntimeException e) {
+            created = CompletableFuture.failedFuture(e);
+        }
+        created.whenComplete((response, failure) -> {
+            if (failure != null) {
+                // Forget the key first, so a retry after the failure creates the order
+                entries.remove(key, entry);
+                entry.response.completeExceptionally(failure);
+            } else {
+                entry.response.complete(response);
+            }
+        });
+        return new Outcome(entry.response, false);
+    }
+
+    /**
+     * Get number of remembered keys
+     * @return Keys in the cache, including expired ones not yet evicted
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict(long now) {
+        Entry oldest;
+        while ((oldest = insertionOrder.peek()) != null && (oldest.isExpired(now) || queued.get() > maxEntries)) {
+            // The oldest entry is at the head, so this removal does not scan
+            if (insertionOrder.remove(oldest)) {
+                queued.decrementAndGet();
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    /**
+     * Response of an idempotent order
+     * @param response Future of the order response, shared by every request with the key
+     * @param replayed Whether an earlier request with the key created the order
+     */
+    public record Outcome(CompletableFuture<CreateOrderResponse> response, boolean replayed) {
+    }
+
+    private static final class Entry {
+
+        final String key;
+        final CartCommand cart;
+        final long expiresAtNanos;
+        final CompletableFuture<CreateOrderResponse> response = new CompletableFuture<>();
+
+        Entry(String key, CartCommand cart, long expiresAtNanos) {
+            this.key = key;
+            this.cart = cart;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.zxr.backend.service;
+
+import com.zxr.backend.dto.BatchOrderResult;
+import com.zxr.backend.model.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A chunk of batch carts moving through the order pipeline
+ * Each cart either holds a {@link PreparedOrder} with its reserved stock or has already
+ * been rejected. Created by {@link OrderService#prepareOrderBatch} and passed back to
+ * {@link OrderService#recordOrderBatch} and {@link OrderService#completeOrderBatch}
+ */
+public final class OrderBatch {
+
+    private final int firstIndex;
+    private final PreparedOrder[] orders;
+    private final BatchOrderResult[] rejected;
+
+    OrderBatch(int firstIndex, int size) {
+        this.firstIndex = firstIndex;
+        this.orders = new PreparedOrder[size];
+        this.rejected = new BatchOrderResult[size];
+    }
+
+    /**
+     * Get number of carts
+     * @return Cart count
+     */
+    public int size() {
+        return orders.length;
+    }
+
+    void prepared(int cart, PreparedOrder order) {
+        orders[cart] = order;
+    }
+
+    void reject(int cart, BatchOrderResult.Status status, String message) {
+        orders[cart] = null;
+        rejected[cart] = BatchOrderResult.rejected(firstIndex + cart, status, message);
+    }
+
+    /**
+     * Prepared orders still holding reserved stock
+     */
+    List<PreparedOrder> preparedOrders() {
+        List<PreparedOrder> prepared = new ArrayList<>(orders.length);
+        for (PreparedOrder order : orders) {
+            if (order != null) {
+                prepared.add(order);
+            }
+        }
+        return prepared;
+    }
+
+    /**
+     * Order lines of every prepared order, for one journal or repository write
+     */
+    List<Order> lines() {
+        List<Order> lines = new ArrayList<>();
+        for (PreparedOrder order : orders) {
+            if (order != null) {
+                lines.addAll(order.orders());
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Reject every prepared order, e.g. when the batch could not be made durable;
+     * the caller gives the reserved stock back
+     */
+    void failPrepared(String message) {
+        for (int cart = 0; cart < orders.length; cart++) {
+            if (orders[cart] != null) {
+                reject(cart, BatchOrderResult.Status.FAILED, message);
+            }
+        }
+    }
+
+    /**
+     * Build the result of every cart, in request order
+     */
+    List<BatchOrderResult> results() {
+        List<BatchOrderResult> results = new ArrayList<>(orders.length);
+        for (int cart = 0; cart < orders.length; cart++) {
+            PreparedOrder order = orders[cart];
+            results.add(order != null
+                    ? BatchOrderResult.created(firstIndex + cart, order.getOrderId(), order.getTotalPriceCents())
+                    : rejected[cart]);
+        }
+        return results;
+    }
+}
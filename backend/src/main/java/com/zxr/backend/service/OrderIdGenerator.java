@@ -0,0 +1,20 @@
+package com.zxr.backend.service;
+
+/**
+ * Order ID generator
+ * Produces numeric order IDs, see {@link com.zxr.backend.model.OrderIds} for the layout and text form
+ */
+public interface OrderIdGenerator {
+
+    /**
+     * Generate the next order ID
+     * @return Order ID, unique for this generator and greater than every ID it returned before
+     */
+    long nextId();
+
+    /**
+     * Make every later ID greater than an ID issued before, e.g. one recovered at startup
+     * @param maxId Highest ID already in use, 0 if none
+     */
+    void advancePast(long maxId);
+}
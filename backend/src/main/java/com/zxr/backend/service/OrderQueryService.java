@@ -0,0 +1,127 @@
+package com.zxr.backend.service;
+
+import com.zxr.backend.dto.OrderPage;
+import com.zxr.backend.model.Order;
+import com.zxr.backend.model.OrderIds;
+import com.zxr.backend.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Order query service class
+ * Responsible for looking up saved orders, by ID, by product or by creation time,
+ * for support and reconciliation
+ */
+@Service
+public class OrderQueryService {
+
+    private final OrderRepository orderRepository;
+    private final int maxPageSize;
+
+    /**
+     * Construct order query service
+     * @param orderRepository Order repository
+     * @param maxPageSize Largest page a client may request
+     */
+    public OrderQueryService(OrderRepository orderRepository,
+            @Value("${order.query.max-limit:1000}") int maxPageSize) {
+        this.orderRepository = orderRepository;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Get order by ID
+     * @param id Order ID in its text form
+     * @return Every line of the order, or null if not found or not a valid order ID
+     */
+    public OrderPage getOrder(String id) {
+        long orderId = OrderIds.parse(id);
+        if (orderId <= 0) {
+            return null;
+        }
+        List<Order> lines = orderRepository.findLines(orderId);
+        return lines.isEmpty() ? null : new OrderPage(lines, null);
+    }
+
+    /**
+     * Query orders by product or by creation time
+     * Exactly one of a product ID or a complete time range must be given.
+     * @param productId Product ID, or null to query by time
+     * @param from Range start, inclusive, or null to query by product
+     * @param to Range end, exclusive, or null to query by product
+     * @param after Cursor: last order ID of the previous page, null for the first page
+     * @param limit Page size in order lines, capped at the configured maximum
+     * @return Order page with the cursor of the next page
+     * @throws IllegalArgumentException if the query, the cursor or the limit is invalid
+     */
+    public OrderPage findOrders(Long productId, Instant from, Instant to, String after, int limit) {
+        if (productId != null && from == null && to == null) {
+            return getOrdersByProduct(productId, after, limit);
+        }
+        if (productId == null && from != null && to != null) {
+            return getOrdersCreatedBetween(from, to, after, limit);
+        }
+        throw new IllegalArgumentException("Query by either productId or both from and to");
+    }
+
+    /**
+     * Get one page of the order lines of a product
+     * @param productId Product ID
+     * @param after Cursor: last order ID of the previous page, null for the first page
+     * @param limit Page size in order lines, capped at the configured maximum
+     * @return Order page with the cursor of the next page
+     * @throws IllegalArgumentException if the product ID, the cursor or the limit is invalid
+     */
+    public OrderPage getOrdersByProduct(long productId, String after, int limit) {
+        if (productId <= 0) {
+            throw new IllegalArgumentException("Product ID must be a positive number");
+        }
+        return toPage(orderRepository.findByProduct(productId, parseCursor(after), pageSize(limit)));
+    }
+
+    /**
+     * Get one page of the order lines created in a time range
+     * @param from Range start, inclusive
+     * @param to Range end, exclusive
+     * @param after Cursor: last order ID of the previous page, null for the first page
+     * @param limit Page size in order lines, capped at the configured maximum
+     * @return Order page with the cursor of the next page
+     * @throws IllegalArgumentException if the range, the cursor or the limit is invalid
+     */
+    public OrderPage getOrdersCreatedBetween(Instant from, Instant to, String after, int limit) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        return toPage(orderRepository.findCreatedBetween(from.toEpochMilli(), to.toEpochMilli(),
+                parseCursor(after), pageSize(limit)));
+    }
+
+    private int pageSize(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be greater than 0");
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    private static long parseCursor(String after) {
+        if (after == null) {
+            return 0;
+        }
+        long orderId = OrderIds.parse(after);
+        if (orderId < 0) {
+            throw new IllegalArgumentException("Cursor must be an order ID");
+        }
+        return orderId;
+    }
+
+    private static OrderPage toPage(OrderRepository.Slice slice) {
+        if (!slice.more()) {
+            return new OrderPage(slice.orders(), null);
+        }
+        Order last = slice.orders().get(slice.orders().size() - 1);
+        return new OrderPage(slice.orders(), OrderIds.format(last.getId()));
+    }
+}
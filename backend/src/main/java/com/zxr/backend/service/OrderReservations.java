@@ -0,0 +1,299 @@
+package com.zxr.backend.service;
+
+import com.zxr.backend.config.BackgroundThreads;
+import com.zxr.backend.event.OrderEventType;
+import com.zxr.backend.event.OrderEvents;
+import com.zxr.backend.exception.OrderPersistenceException;
+import com.zxr.backend.inventory.CartReservation;
+import com.zxr.backend.inventory.TimingWheel;
+import com.zxr.backend.model.OrderStatus;
+import com.zxr.backend.model.Product;
+import com.zxr.backend.persistence.OpenReservation;
+import com.zxr.backend.persistence.OrderJournal;
+import com.zxr.backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Order reservations class
+ * <p>
+ * Responsible for the stock of unpaid orders. A created order only reserves its stock
+ * for {@code order.reservation.ttl}: confirming it keeps the stock deducted, cancelling
+ * it or letting the reservation expire gives the stock back to the products. A ttl of
+ * zero turns reservations off, and orders are confirmed when created.
+ * </p>
+ * <p>
+ * Expiries are kept in a {@link TimingWheel} advanced every {@code order.reservation.tick},
+ * so opening, confirming and expiring a reservation each cost O(1) however many are open,
+ * with no task per reservation and no scan. Whichever of confirm, cancel or expiry removes
+ * the reservation from the open map first decides its outcome. Every outcome is written to
+ * the order journal, and reservations still open at shutdown are picked up again from it.
+ * </p>
+ */
+@Service
+public class OrderReservations implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderReservations.class);
+
+    private static final Product[] NONE = new Product[0];
+
+    /**
+     * Stock held by one order until its expiry
+     */
+    static final class Reservation {
+        private final long orderId;
+        private final Product[] products;
+        private final int[] quantities;
+        private final long expiresAtMillis;
+        /** Null until scheduled; a reservation claimed before that simply fires without effect */
+        private volatile TimingWheel.Timeout<Reservation> timeout;
+
+        Reservation(long orderId, Product[] products, int[] quantities, long expiresAtMillis) {
+            this.orderId = orderId;
+            this.products = products;
+            this.quantities = quantities;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private final long ttlMillis;
+    private final OrderJournal orderJournal;
+    private final ProductRepository productRepository;
+    private final OrderEvents orderEvents;
+    private final LongSupplier clock;
+    private final TimingWheel<Reservation> wheel;
+    private final Map<Long, Reservation> open = new ConcurrentHashMap<>();
+    private final LongAdder expired = new LongAdder();
+    private final ScheduledExecutorService ticker;
+
+    /**
+     * Construct order reservations and reopen those the journal still holds
+     * @param ttl Time an order's stock stays reserved without confirmation, zero to disable reservations
+     * @param tick Resolution of expiries
+     * @param orderJournal Order journal, records every outcome
+     * @param productRepository Product repository, resolves reopened reservations
+     * @param orderEvents Order event channel
+     * @param backgroundThreads Creates the expiry thread
+     */
+    @Autowired
+    public OrderReservations(@Value("${order.reservation.ttl:15m}") Duration ttl,
+            @Value("${order.reservation.tick:100ms}") Duration tick, OrderJournal orderJournal,
+            ProductRepository productRepository, OrderEvents orderEvents, BackgroundThreads backgroundThreads) {
+        this(ttl, tick, orderJournal, productRepository, orderEvents, backgroundThreads, System::currentTimeMillis);
+    }
+
+    OrderReservations(Duration ttl, Duration tick, OrderJournal orderJournal, ProductRepository productRepository,
+            OrderEvents orderEvents, BackgroundThreads backgroundThreads, LongSupplier clock) {
+        if (ttl.isNegative() || tick.isZero() || tick.isNegative()) {
+            throw new IllegalArgumentException("Reservation ttl must not be negative and tick must be positive: "
+                    + ttl + ", " + tick);
+        }
+        this.ttlMillis = ttl.toMillis();
+        this.orderJournal = orderJournal;
+        this.productRepository = productRepository;
+        this.orderEvents = orderEvents;
+        this.clock = clock;
+        this.wheel = new TimingWheel<>(tick.toMillis(), clock.getAsLong());
+        // Runs even with reservations disabled, to expire those reopened from the journal
+        this.ticker = backgroundThreads.newScheduler("reservation-expiry");
+        long tickMillis = tick.toMillis();
+        ticker.scheduleAtFixedRate(this::expireDueQuietly, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        orderJournal.openReservations().thenAccept(this::reopen);
+        logger.info("Order reservations initialized, ttl {}", ttlMillis > 0 ? ttl : "disabled");
+    }
+
+    /**
+     * Get the expiry of a reservation opened now
+     * @return Expiry in epoch milliseconds, 0 if reservations are disabled
+     */
+    public long expiresAt() {
+        return ttlMillis > 0 ? clock.getAsLong() + ttlMillis : 0L;
+    }
+
+    /**
+     * Hold the stock of a saved order until it is confirmed, cancelled or expires
+     * @param orderId Order ID
+     * @param products Products of the order lines, stock already reserved
+     * @param quantities Reserved quantities, same indexes as products
+     * @param expiresAtMillis Expiry from {@link #expiresAt()}, 0 if the stock is deducted for good
+     */
+    void open(long orderId, Product[] products, int[] quantities, long expiresAtMillis) {
+        if (expiresAtMillis == 0) {
+            return;
+        }
+        Reservation reservation = new Reservation(orderId, products, quantities, expiresAtMillis);
+        // Open before scheduling, so an expiry always finds the reservation
+        open.put(orderId, reservation);
+        reservation.timeout = wheel.schedule(reservation, expiresAtMillis);
+    }
+
+    /**
+     * Confirm a reservation, keeping its stock deducted
+     * @param orderId Order ID
+     * @return true if confirmed, false if the order has no open reservation
+     * @throws OrderPersistenceException if the confirmation could not be made durable; the reservation stays open
+     */
+    public boolean confirm(long orderId) {
+        Reservation reservation = claim(orderId);
+        if (reservation == null) {
+            return false;
+        }
+        record(reservation, OrderStatus.CONFIRMED, NONE);
+        orderEvents.publish(OrderEventType.CONFIRMED, orderId, 0L, reservation.products.length, 0L);
+        return true;
+    }
+
+    /**
+     * Cancel a reservation, giving its stock back
+     * @param orderId Order ID
+     * @return true if cancelled, false if the order has no open reservation
+     * @throws OrderPersistenceException if the cancellation could not be made durable; the reservation stays open
+     */
+    public boolean cancel(long orderId) {
+        Reservation reservation = claim(orderId);
+        if (reservation == null) {
+            return false;
+        }
+        record(reservation, OrderStatus.CANCELLED, reservation.products);
+        CartReservation.releaseAll(reservation.products, reservation.quantities, reservation.products.length);
+        orderEvents.publish(OrderEventType.CANCELLED, orderId, 0L, reservation.products.length, 0L);
+        return true;
+    }
+
+    /**
+     * Get the status of an order's reservation
+     * @param orderId Order ID
+     * @return {@link OrderStatus#PENDING} while the reservation is open, otherwise null
+     */
+    public OrderStatus status(long orderId) {
+        return open.containsKey(orderId) ? OrderStatus.PENDING : null;
+    }
+
+    /**
+     * Expire every reservation whose expiry has passed
+     * Runs on the expiry thread every tick; callable directly to expire without waiting for it.
+     * @return Number of reservations expired
+     */
+    public int expireDue() {
+        return wheel.advance(clock.getAsLong(), this::expire);
+    }
+
+    /**
+     * Get the number of open reservations
+     * @return Reservations neither confirmed, cancelled nor expired
+     */
+    public int openCount() {
+        return open.size();
+    }
+
+    /**
+     * Get the number of expired reservations
+     * @return Reservations expired since startup
+     */
+    public long expiredCount() {
+        return expired.sum();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        ticker.shutdown();
+        ticker.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private Reservation claim(long orderId) {
+        Reservation reservation = open.remove(orderId);
+        if (reservation != null) {
+            TimingWheel.Timeout<Reservation> timeout = reservation.timeout;
+            if (timeout != null) {
+                wheel.cancel(timeout);
+            }
+        }
+        return reservation;
+    }
+
+    /**
+     * Make the outcome of a claimed reservation durable, reopening it if that fails
+     */
+    private void record(Reservation reservation, OrderStatus status, Product[] released) {
+        CompletableFuture<Void> write;
+        try {
+            write = orderJournal.recordStatus(reservation.orderId, status, released, reservation.quantities);
+        } catch (RuntimeException e) {
+            write = CompletableFuture.failedFuture(e);
+        }
+        try {
+            write.join();
+        } catch (CompletionException e) {
+            open(reservation.orderId, reservation.products, reservation.quantities, reservation.expiresAtMillis);
+            throw new OrderPersistenceException("Order status could not be persisted", e.getCause());
+        }
+    }
+
+    private void expire(Reservation reservation) {
+        if (!open.remove(reservation.orderId, reservation)) {
+            return;
+        }
+        CartReservation.releaseAll(reservation.products, reservation.quantities, reservation.products.length);
+        expired.increment();
+        orderEvents.publish(OrderEventType.EXPIRED, reservation.orderId, 0L, reservation.products.length, 0L);
+        // Not awaited: if the record is lost, the reservation reopens on restart and expires again
+        CompletableFuture<Void> write;
+        try {
+            write = orderJournal.recordStatus(reservation.orderId, OrderStatus.EXPIRED, reservation.products,
+                    reservation.quantities);
+        } catch (RuntimeException e) {
+            write = CompletableFuture.failedFuture(e);
+        }
+        write.whenComplete((done, failure) -> {
+            if (failure != null) {
+                logger.warn("Expiry of order {} could not be persisted: {}", reservation.orderId, failure.getMessage());
+            }
+        });
+    }
+
+    private void expireDueQuietly() {
+        try {
+            expireDue();
+        } catch (RuntimeException e) {
+            logger.error("Reservation expiry failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reopen the reservations the journal found open; those already past their expiry go with the next tick
+     */
+    private void reopen(List<OpenReservation> reservations) {
+        for (OpenReservation reservation : reservations) {
+            Product[] products = productRepository.findByIds(reservation.productIds());
+            for (int i = 0; i < products.length; i++) {
+                if (products[i] == null) {
+                    logger.warn("Skipping reservation of order {} for unknown product {}", reservation.orderId(),
+                            reservation.productIds()[i]);
+                    products = null;
+                    break;
+                }
+            }
+            if (products != null) {
+                open(reservation.orderId(), products, reservation.quantities(), reservation.expiresAtMillis());
+            }
+        }
+        if (!reservations.isEmpty()) {
+            logger.info("Reopened {} order reservations from the journal", reservations.size());
+        }
+    }
+}
@@ -1,49 +1,86 @@
 package com.zxr.backend.service;
 
+import com.zxr.backend.model.Money;
 import com.zxr.backend.model.Order;
+import com.zxr.backend.model.OrderIds;
+import com.zxr.backend.model.OrderStatus;
 import com.zxr.backend.model.Product;
 import com.zxr.backend.repository.OrderRepository;
 import com.zxr.backend.repository.ProductRepository;
+import com.zxr.backend.dto.BatchOrderResult;
+import com.zxr.backend.dto.CartCommand;
 import com.zxr.backend.dto.CreateOrderResponse;
 import com.zxr.backend.exception.ProductNotFoundException;
 import com.zxr.backend.exception.InsufficientStockException;
+import com.zxr.backend.exception.OrderNotFoundException;
+import com.zxr.backend.exception.OrderNotPendingException;
+import com.zxr.backend.exception.OrderPersistenceException;
+import com.zxr.backend.event.OrderEventType;
+import com.zxr.backend.event.OrderEvents;
+import com.zxr.backend.event.RejectReason;
+import com.zxr.backend.inventory.CartReservation;
+import com.zxr.backend.inventory.StockReservations;
+import com.zxr.backend.metrics.OrderMetrics;
+import com.zxr.backend.persistence.OrderJournal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 /**
  * Order service class
- * Responsible for handling order-related business logic
+ * Responsible for handling order-related business logic.
+ * Per-request outcomes go to the {@link OrderEvents} channel rather than the log;
+ * rejections are also counted by cause in {@link OrderMetrics}.
  */
 @Service
 public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
-    private static final DateTimeFormatter ORDER_ID_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
 
     private final ProductRepository productRepository;
     private final OrderRepository orderRepository;
+    private final OrderIdGenerator orderIdGenerator;
+    private final OrderJournal orderJournal;
+    private final OrderEvents orderEvents;
+    private final StockReservations stockReservations;
+    private final OrderReservations orderReservations;
+    private final OrderMetrics orderMetrics;
 
     /**
      * Construct order service
      * 
      * @param productRepository Product repository
      * @param orderRepository   Order repository
+     * @param orderIdGenerator  Order ID generator, moved past the orders the journal recovered
+     * @param orderJournal      Order journal, makes orders durable
+     * @param orderEvents       Order event channel
+     * @param stockReservations Stock reservation strategy
+     * @param orderReservations Stock reservations of unpaid orders
+     * @param orderMetrics      Metrics registry, counts rejections by cause
      */
-    public OrderService(ProductRepository productRepository, OrderRepository orderRepository) {
+    public OrderService(ProductRepository productRepository, OrderRepository orderRepository,
+            OrderIdGenerator orderIdGenerator, OrderJournal orderJournal, OrderEvents orderEvents,
+            StockReservations stockReservations, OrderReservations orderReservations,
+            OrderMetrics orderMetrics) {
         this.productRepository = productRepository;
         this.orderRepository = orderRepository;
+        this.orderIdGenerator = orderIdGenerator;
+        this.orderJournal = orderJournal;
+        this.orderEvents = orderEvents;
+        this.stockReservations = stockReservations;
+        this.orderReservations = orderReservations;
+        this.orderMetrics = orderMetrics;
+        // Never hand out an ID the journal recovered, even if the clock went back across the restart
+        orderIdGenerator.advancePast(orderJournal.maxRecoveredOrderId());
         logger.info("Order service initialized");
     }
 
@@ -57,118 +94,509 @@ public class OrderService {
      * @throws RuntimeException         if product not found or insufficient stock
      */
     public Order createOrder(Long productId, int quantity) {
-        logger.info("Creating order, product ID: {}, quantity: {}", productId, quantity);
-
         // Validate order request
+        if (productId == null) {
+            reject(RejectReason.INVALID_REQUEST, 0L, 0L, quantity);
+            throw new IllegalArgumentException("Product ID must be a positive number");
+        }
         validateOrderRequest(productId, quantity);
 
         // Query product
-        Product product = productRepository.findById(productId);
-        if (product == null) {
-            logger.error("Order creation failed: Product ID[{}] not found", productId);
-            throw new ProductNotFoundException("Product not found: " + productId);
-        }
+        Product product = findProduct(productId, quantity);
+        orderEvents.publish(OrderEventType.ACCEPTED, 0L, productId, 1, 0L);
+
+        // Calculate total price first, so an out of range total leaves the stock untouched
+        long totalPrice = calculateTotalPrice(product, quantity);
 
         // Check and deduct stock
         checkAndDeductStock(product, quantity);
 
-        // Calculate total price
-        double totalPrice = calculateTotalPrice(product, quantity);
-
         // Generate order ID
-        String orderId = generateOrderId();
+        long orderId = orderIdGenerator.nextId();
 
         // Create order object
         Order order = new Order(orderId, productId, quantity, totalPrice);
 
-        // Save order
-        orderRepository.save(order);
-
-        logger.info("Order created successfully: Order ID[{}], Product name[{}], Total price[{}]",
-                orderId, product.getName(), totalPrice);
+        // Make the order durable, then save it
+        long expiresAt = orderReservations.expiresAt();
+        awaitDurable(journal(List.of(order), expiresAt, () -> {
+            product.releaseStock(quantity);
+            reject(RejectReason.PERSISTENCE_FAILED, orderId, 0L, 0);
+        }));
+        try {
+            orderRepository.save(order);
+        } catch (RuntimeException e) {
+            cancelUnsaved(orderId, new Product[] {product}, new int[] {quantity}, expiresAt);
+            throw e;
+        }
+        orderEvents.publish(OrderEventType.PERSISTED, orderId, productId, quantity, totalPrice);
+        orderReservations.open(orderId, new Product[] {product}, new int[] {quantity}, expiresAt);
 
         return order;
     }
 
     /**
      * Create order with multiple products
+     * Runs {@link #prepareOrder}, {@link #recordOrder} and {@link #completeOrder} on the calling thread.
+     * 
+     * @param cart Cart command with product IDs and quantities
+     * @return CreateOrderResponse containing orderId and totalPrice
+     * @throws IllegalArgumentException   if parameters are invalid
+     * @throws ProductNotFoundException   if a product is missing
+     * @throws InsufficientStockException if stock is insufficient
+     * @throws OrderPersistenceException  if the order could not be made durable
+     */
+    public CreateOrderResponse createOrderWithItems(CartCommand cart) {
+        PreparedOrder order = prepareOrder(cart);
+        awaitDurable(recordOrder(order));
+        return completeOrder(order);
+    }
+
+    /**
+     * Create order with multiple products given as item maps
+     * Compatibility adapter for callers of the untyped contract; converts the maps to a
+     * {@link CartCommand} and runs {@link #createOrderWithItems(CartCommand)}.
      * 
      * @param items List of order items with product ID and quantity
      * @return CreateOrderResponse containing orderId and totalPrice
      * @throws IllegalArgumentException   if parameters are invalid
      * @throws ProductNotFoundException   if a product is missing
      * @throws InsufficientStockException if stock is insufficient
+     * @throws OrderPersistenceException  if the order could not be made durable
      */
     public CreateOrderResponse createOrderWithItems(List<Map<String, Object>> items) {
-        logger.info("Creating order with multiple items: {}", items);
+        return createOrderWithItems(toCartCommand(items));
+    }
 
-        // Validate items
-        if (items == null || items.isEmpty()) {
-            logger.error("Order creation failed: No items in request");
+    /**
+     * Validate, look up, reserve and price a multi-product order.
+     * Never blocks: stock is reserved with compare-and-set and nothing is written yet.
+     * 
+     * @param cart Cart command with product IDs and quantities
+     * @return Priced order holding the reserved stock
+     * @throws IllegalArgumentException   if parameters are invalid
+     * @throws ProductNotFoundException   if a product is missing
+     * @throws InsufficientStockException if stock is insufficient
+     */
+    public PreparedOrder prepareOrder(CartCommand cart) {
+        CartLines lines = parseCart(cart);
+        int count = lines.count();
+        Product[] products = findProducts(lines);
+
+        // Reserve stock for all lines at once; nothing stays deducted on failure
+        reserveAllStock(products, lines.quantities(), count);
+        return price(products, lines.quantities(), count);
+    }
+
+    /**
+     * Like {@link #prepareOrder}, but without waiting for the stock reservation.
+     * With the inventory sequencer the future completes on a shard owner thread, so
+     * callers should move further work elsewhere.
+     * 
+     * @param cart Cart command with product IDs and quantities
+     * @return Future of the priced order holding the reserved stock, completed with the
+     *         exceptions {@link #prepareOrder} throws
+     */
+    public CompletableFuture<PreparedOrder> prepareOrderAsync(CartCommand cart) {
+        CartLines lines;
+        Product[] products;
+        try {
+            lines = parseCart(cart);
+            products = findProducts(lines);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        int count = lines.count();
+        return stockReservations.reserve(products, lines.quantities(), count).thenApply(failed -> {
+            checkReserved(failed, products, lines.quantities(), count);
+            return price(products, lines.quantities(), count);
+        });
+    }
+
+    /**
+     * Start making a prepared order durable, with the expiry of its stock reservation.
+     * If the write fails, the reserved stock is given back and the future completes
+     * with an {@link OrderPersistenceException}. The future may complete on the
+     * journal's writer thread, so callers should not do further work on it.
+     * 
+     * @param order Prepared order
+     * @return Future completed once the order is durable
+     */
+    public CompletableFuture<Void> recordOrder(PreparedOrder order) {
+        order.setExpiresAtMillis(orderReservations.expiresAt());
+        return journal(order.orders(), order.getExpiresAtMillis(), () -> rollback(order));
+    }
+
+    /**
+     * Save a durable order to the order repository and open its stock reservation
+     * 
+     * @param order Prepared order, already recorded
+     * @return CreateOrderResponse containing orderId, totalPrice and the reservation expiry
+     */
+    public CreateOrderResponse completeOrder(PreparedOrder order) {
+        try {
+            // Persist orders; rely on transactional semantics when using a DB-backed repository
+            for (Order line : order.orders()) {
+                orderRepository.save(line);
+                orderEvents.publish(OrderEventType.PERSISTED, line.getId(), line.getProductId(), line.getQuantity(),
+                        line.getTotalPriceCents());
+            }
+        } catch (RuntimeException e) {
+            // Already durable, so its stock only goes back with a logged cancellation
+            cancelUnsaved(order.getOrderId(), order.products(), order.quantities(), order.getExpiresAtMillis());
+            throw e;
+        }
+        order.openReservation(orderReservations);
+        return new CreateOrderResponse(order.getOrderId(), order.getTotalPriceCents(), order.getExpiresAtMillis());
+    }
+
+    /**
+     * Confirm an order, keeping its reserved stock deducted
+     * 
+     * @param orderId Order ID in its text form
+     * @return {@link OrderStatus#CONFIRMED}
+     * @throws OrderNotFoundException    if the order does not exist
+     * @throws OrderNotPendingException  if the order was already confirmed, cancelled or expired
+     * @throws OrderPersistenceException if the confirmation could not be made durable
+     */
+    public OrderStatus confirmOrder(String orderId) {
+        long id = OrderIds.parse(orderId);
+        if (!orderReservations.confirm(id)) {
+            throw notPending(id, orderId);
+        }
+        return OrderStatus.CONFIRMED;
+    }
+
+    /**
+     * Cancel an order, giving its reserved stock back
+     * 
+     * @param orderId Order ID in its text form
+     * @return {@link OrderStatus#CANCELLED}
+     * @throws OrderNotFoundException    if the order does not exist
+     * @throws OrderNotPendingException  if the order was already confirmed, cancelled or expired
+     * @throws OrderPersistenceException if the cancellation could not be made durable
+     */
+    public OrderStatus cancelOrder(String orderId) {
+        long id = OrderIds.parse(orderId);
+        if (!orderReservations.cancel(id)) {
+            throw notPending(id, orderId);
+        }
+        return OrderStatus.CANCELLED;
+    }
+
+    /**
+     * Explain why an order has no open reservation
+     * 
+     * @param id      Order ID, -1 if malformed
+     * @param orderId Order ID in its text form
+     * @return Exception to throw
+     */
+    private RuntimeException notPending(long id, String orderId) {
+        if (id <= 0 || orderRepository.findById(id) == null) {
+            return new OrderNotFoundException("Order not found: " + orderId);
+        }
+        return new OrderNotPendingException("Order is no longer pending: " + orderId);
+    }
+
+    /**
+     * Create many orders at once
+     * Runs {@link #prepareOrderBatch}, {@link #recordOrderBatch} and {@link #completeOrderBatch}
+     * on the calling thread.
+     * 
+     * @param carts      Cart commands, each with product IDs and quantities
+     * @param firstIndex Index of the first cart in the whole request, used in the results
+     * @return One result per cart, in cart order
+     */
+    public List<BatchOrderResult> createOrderBatch(List<CartCommand> carts, int firstIndex) {
+        OrderBatch batch = prepareOrderBatch(carts, firstIndex);
+        recordOrderBatch(batch).join();
+        return completeOrderBatch(batch);
+    }
+
+    /**
+     * Validate, look up, reserve and price a batch of carts.
+     * All product IDs of the batch are looked up together; each cart is then reserved
+     * all or nothing on its own, with every reservation submitted before any is awaited.
+     * A cart that cannot be created is rejected in its result instead of failing the
+     * batch. Blocks only while the inventory sequencer applies the reservations.
+     * 
+     * @param carts      Cart commands, each with product IDs and quantities
+     * @param firstIndex Index of the first cart in the whole request, used in the results
+     * @return Batch holding the prepared orders and the rejected carts
+     */
+    public OrderBatch prepareOrderBatch(List<CartCommand> carts, int firstIndex) {
+        int size = carts.size();
+        OrderBatch batch = new OrderBatch(firstIndex, size);
+        CartLines[] parsed = new CartLines[size];
+        int lineCount = 0;
+        for (int cart = 0; cart < size; cart++) {
+            try {
+                parsed[cart] = parseCart(carts.get(cart));
+                lineCount += parsed[cart].count();
+            } catch (IllegalArgumentException e) {
+                batch.reject(cart, BatchOrderResult.Status.INVALID, e.getMessage());
+            }
+        }
+
+        // One lookup for every line of the batch
+        long[] productIds = new long[lineCount];
+        int offset = 0;
+        for (CartLines lines : parsed) {
+            if (lines != null) {
+                System.arraycopy(lines.productIds(), 0, productIds, offset, lines.count());
+                offset += lines.count();
+            }
+        }
+        Product[] found = productRepository.findByIds(productIds);
+
+        // Submit every cart's reservation before waiting for any of them
+        Product[][] products = new Product[size][];
+        List<CompletableFuture<Integer>> reservations = new ArrayList<>(size);
+        offset = 0;
+        for (int cart = 0; cart < size; cart++) {
+            CartLines lines = parsed[cart];
+            reservations.add(null);
+            if (lines == null) {
+                continue;
+            }
+            int count = lines.count();
+            products[cart] = Arrays.copyOfRange(found, offset, offset + count);
+            offset += count;
+            int missing = indexOfMissing(products[cart]);
+            if (missing >= 0) {
+                reject(RejectReason.PRODUCT_NOT_FOUND, 0L, lines.productIds()[missing],
+                        lines.quantities()[missing]);
+                batch.reject(cart, BatchOrderResult.Status.NOT_FOUND,
+                        "Product not found: " + lines.productIds()[missing]);
+                continue;
+            }
+            orderEvents.publish(OrderEventType.ACCEPTED, 0L, 0L, count, 0L);
+            CompletableFuture<Integer> reservation;
+            try {
+                reservation = stockReservations.reserve(products[cart], lines.quantities(), count);
+            } catch (RuntimeException e) {
+                reservation = CompletableFuture.failedFuture(e);
+            }
+            reservations.set(cart, reservation);
+        }
+
+        for (int cart = 0; cart < size; cart++) {
+            CompletableFuture<Integer> reservation = reservations.get(cart);
+            if (reservation == null) {
+                continue;
+            }
+            CartLines lines = parsed[cart];
+            try {
+                checkReserved(awaitReserved(reservation), products[cart], lines.quantities(), lines.count());
+                batch.prepared(cart, price(products[cart], lines.quantities(), lines.count()));
+            } catch (InsufficientStockException e) {
+                batch.reject(cart, BatchOrderResult.Status.INSUFFICIENT_STOCK, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                // Total out of range; its reserved stock was already given back
+                batch.reject(cart, BatchOrderResult.Status.INVALID, e.getMessage());
+            } catch (RuntimeException e) {
+                // The reservation itself failed and holds no stock; the other carts go on
+                logger.error("Stock reservation failed: {}", e.getMessage(), e);
+                batch.reject(cart, BatchOrderResult.Status.FAILED, "Order could not be created");
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Start making every prepared order of a batch durable with one journal write,
+     * with one expiry for all their stock reservations.
+     * If the write fails, all reserved stock of the batch is given back and its orders
+     * are reported as failed; the future itself always completes normally, possibly
+     * on the journal's writer thread.
+     * 
+     * @param batch Prepared batch
+     * @return Future completed once the batch is durable or has been failed
+     */
+    public CompletableFuture<Void> recordOrderBatch(OrderBatch batch) {
+        List<PreparedOrder> prepared = batch.preparedOrders();
+        if (prepared.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long expiresAt = orderReservations.expiresAt();
+        prepared.forEach(order -> order.setExpiresAtMillis(expiresAt));
+        return journal(batch.lines(), expiresAt, () -> prepared.forEach(this::rollback))
+                .exceptionally(failure -> {
+                    batch.failPrepared("Order could not be persisted");
+                    return null;
+                });
+    }
+
+    /**
+     * Save the durable orders of a batch to the order repository in one write and
+     * open their stock reservations
+     * 
+     * @param batch Prepared batch, already recorded
+     * @return One result per cart, in cart order
+     */
+    public List<BatchOrderResult> completeOrderBatch(OrderBatch batch) {
+        List<PreparedOrder> prepared = batch.preparedOrders();
+        if (prepared.isEmpty()) {
+            return batch.results();
+        }
+        List<Order> lines = batch.lines();
+        try {
+            orderRepository.saveAll(lines);
+        } catch (RuntimeException e) {
+            // Already durable, so their stock only goes back with a logged cancellation
+            logger.error("Batch orders could not be saved: {}", e.getMessage(), e);
+            for (PreparedOrder order : prepared) {
+                cancelUnsaved(order.getOrderId(), order.products(), order.quantities(), order.getExpiresAtMillis());
+            }
+            batch.failPrepared("Order could not be saved");
+            return batch.results();
+        }
+        for (Order line : lines) {
+            orderEvents.publish(OrderEventType.PERSISTED, line.getId(), line.getProductId(), line.getQuantity(),
+                    line.getTotalPriceCents());
+        }
+        for (PreparedOrder order : prepared) {
+            order.openReservation(orderReservations);
+        }
+        return batch.results();
+    }
+
+    /**
+     * Product IDs and quantities of a parsed cart, same indexes
+     */
+    private record CartLines(long[] productIds, int[] quantities) {
+
+        int count() {
+            return productIds.length;
+        }
+    }
+
+    /**
+     * Validate the lines of a cart and copy them out of the command
+     * The copy is what the prepared order keeps, so the caller may reuse the command.
+     * 
+     * @param cart Cart command with product IDs and quantities
+     * @return Parsed cart lines
+     * @throws IllegalArgumentException if the cart is empty or a line is invalid
+     */
+    private CartLines parseCart(CartCommand cart) {
+        if (cart == null || cart.count() == 0) {
+            reject(RejectReason.INVALID_REQUEST, 0L, 0L, 0);
             throw new IllegalArgumentException("No items in order request");
         }
+        if (cart.count() > CartCommand.MAX_LINES) {
+            reject(RejectReason.INVALID_REQUEST, 0L, 0L, 0);
+            throw new IllegalArgumentException("Order must have at most " + CartCommand.MAX_LINES + " items");
+        }
 
-        double totalPrice = 0.0;
-        List<Order> orders = new ArrayList<>();
-        String orderId = generateOrderId();
+        int count = cart.count();
+        long[] productIds = new long[count];
+        int[] quantities = new int[count];
+        cart.copyProductIds(productIds, 0);
+        cart.copyQuantities(quantities, 0);
+        for (int i = 0; i < count; i++) {
+            validateOrderRequest(productIds[i], quantities[i]);
+        }
+        return new CartLines(productIds, quantities);
+    }
 
-        // Process each item
+    /**
+     * Convert item maps of the untyped order contract to a cart command
+     * 
+     * @param items List of order items with product ID and quantity
+     * @return Cart command, empty if there are no items
+     * @throws IllegalArgumentException if an item is missing a field or has a malformed one
+     */
+    private CartCommand toCartCommand(List<Map<String, Object>> items) {
+        if (items == null) {
+            return new CartCommand();
+        }
+        CartCommand cart = new CartCommand(items.size());
         for (Map<String, Object> item : items) {
             // Get product ID and quantity from map (defensive parsing)
             Object pidObj = item.get("productId");
             Object qtyObj = item.get("quantity");
             if (pidObj == null || qtyObj == null) {
+                reject(RejectReason.INVALID_REQUEST, 0L, 0L, 0);
                 throw new IllegalArgumentException("Each item must contain productId and quantity");
             }
-            Long productId;
-            int quantity;
             try {
-                if (pidObj instanceof Number)
-                    productId = ((Number) pidObj).longValue();
-                else
-                    productId = Long.valueOf(pidObj.toString());
-
-                if (qtyObj instanceof Number)
-                    quantity = ((Number) qtyObj).intValue();
-                else
-                    quantity = Integer.valueOf(qtyObj.toString());
-            } catch (NumberFormatException | NullPointerException e) {
+                long productId = pidObj instanceof Number ? ((Number) pidObj).longValue()
+                        : Long.parseLong(pidObj.toString());
+                int quantity = qtyObj instanceof Number ? ((Number) qtyObj).intValue()
+                        : Integer.parseInt(qtyObj.toString());
+                cart.add(productId, quantity);
+            } catch (NumberFormatException e) {
+                reject(RejectReason.INVALID_REQUEST, 0L, 0L, 0);
                 throw new IllegalArgumentException("Invalid productId or quantity format", e);
             }
+        }
+        return cart;
+    }
 
-            // Validate each item
-            validateOrderRequest(productId, quantity);
+    /**
+     * Look up the product of every cart line before touching any stock
+     * 
+     * @param lines Parsed cart lines
+     * @return Products, same indexes as the lines
+     * @throws ProductNotFoundException if a product is missing
+     */
+    private Product[] findProducts(CartLines lines) {
+        int count = lines.count();
+        Product[] products = new Product[count];
+        for (int i = 0; i < count; i++) {
+            products[i] = findProduct(lines.productIds()[i], lines.quantities()[i]);
+        }
+        orderEvents.publish(OrderEventType.ACCEPTED, 0L, 0L, count, 0L);
+        return products;
+    }
 
-            // Query product
-            Product product = productRepository.findById(productId);
-            if (product == null) {
-                logger.error("Order creation failed: Product ID[{}] not found", productId);
-                throw new ProductNotFoundException("Product not found: " + productId);
+    /**
+     * Find the first cart line whose product was not found
+     * 
+     * @param products Looked up products of the cart lines
+     * @return Line index, or -1 if every product exists
+     */
+    private static int indexOfMissing(Product[] products) {
+        for (int i = 0; i < products.length; i++) {
+            if (products[i] == null) {
+                return i;
             }
-
-            // Check and deduct stock
-            checkAndDeductStock(product, quantity);
-
-            // Calculate item price and add to total
-            double itemPrice = calculateTotalPrice(product, quantity);
-            totalPrice += itemPrice;
-
-            // Create order for each item (or use single order with items)
-            Order order = new Order(orderId, productId, quantity, itemPrice);
-            orders.add(order);
         }
+        return -1;
+    }
 
-        // Persist orders; rely on transactional semantics when using a DB-backed repository
-        for (Order order : orders) {
-            orderRepository.save(order);
+    /**
+     * Price the reserved lines of a cart under a new order ID
+     * 
+     * @param products   Products of the cart lines, stock already reserved
+     * @param quantities Purchase quantities, same indexes as products
+     * @param count      Number of cart lines
+     * @return Priced order holding the reserved stock
+     */
+    private PreparedOrder price(Product[] products, int[] quantities, int count) {
+        long totalPrice = 0;
+        long orderId = orderIdGenerator.nextId();
+        try {
+            List<Order> orders = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                // Calculate item price and add to total
+                long itemPrice = calculateTotalPrice(products[i], quantities[i]);
+                totalPrice = Money.plus(totalPrice, itemPrice);
+
+                // Create order for each item (or use single order with items)
+                orders.add(new Order(orderId, products[i].getId(), quantities[i], itemPrice));
+            }
+            return new PreparedOrder(orderId, products, quantities, orders, totalPrice);
+        } catch (RuntimeException e) {
+            // Give the reserved stock back if the order could not be priced
+            CartReservation.releaseAll(products, quantities, count);
+            if (e instanceof ArithmeticException) {
+                reject(RejectReason.INVALID_REQUEST, orderId, 0L, 0);
+                throw new IllegalArgumentException("Order total price is out of range");
+            }
+            throw e;
         }
-
-        // Round total price to 2 decimals for consistency with API contract
-        double roundedTotal = BigDecimal.valueOf(totalPrice).setScale(2, RoundingMode.HALF_UP).doubleValue();
-        logger.info("Multi-item order created successfully: Order ID[{}], Total price[{}]",
-                orderId, roundedTotal);
-
-        return new CreateOrderResponse(orderId, roundedTotal);
     }
 
     /**
@@ -177,17 +605,32 @@ public class OrderService {
      * @param productId Product ID
      * @param quantity  Purchase quantity
      */
-    private void validateOrderRequest(Long productId, int quantity) {
-        if (productId == null || productId <= 0) {
-            logger.error("Order creation failed: Invalid product ID: {}", productId);
+    private void validateOrderRequest(long productId, int quantity) {
+        if (productId <= 0) {
+            reject(RejectReason.INVALID_REQUEST, 0L, productId, quantity);
             throw new IllegalArgumentException("Product ID must be a positive number");
         }
         if (quantity <= 0) {
-            logger.error("Order creation failed: Invalid quantity: {}", quantity);
+            reject(RejectReason.INVALID_REQUEST, 0L, productId, quantity);
             throw new IllegalArgumentException("Purchase quantity must be greater than 0");
         }
-        logger.debug("Order request parameters validated successfully: Product ID[{}], Quantity[{}]", productId,
-                quantity);
+    }
+
+    /**
+     * Look up the product of an order line
+     * 
+     * @param productId Product ID
+     * @param quantity  Purchase quantity, recorded if the product is missing
+     * @return Product object
+     * @throws ProductNotFoundException if the product does not exist
+     */
+    private Product findProduct(long productId, int quantity) {
+        Product product = productRepository.findById(productId);
+        if (product == null) {
+            reject(RejectReason.PRODUCT_NOT_FOUND, 0L, productId, quantity);
+            throw new ProductNotFoundException("Product not found: " + productId);
+        }
+        return product;
     }
 
     /**
@@ -197,56 +640,174 @@ public class OrderService {
      * @param quantity Purchase quantity
      */
     private void checkAndDeductStock(Product product, int quantity) {
-        logger.debug("Checking stock for product[{}]: Current stock[{}], Requested quantity[{}]",
-                product.getName(), product.getStock(), quantity);
+        reserveAllStock(new Product[] {product}, new int[] {quantity}, 1);
+    }
+
+    /**
+     * Reserve stock for every cart line, all or nothing
+     * Waits for the inventory sequencer when it is enabled.
+     * 
+     * @param products   Products of the cart lines
+     * @param quantities Purchase quantities, same indexes as products
+     * @param count      Number of cart lines
+     * @throws InsufficientStockException if any line cannot be reserved
+     */
+    private void reserveAllStock(Product[] products, int[] quantities, int count) {
+        checkReserved(awaitReserved(stockReservations.reserve(products, quantities, count)),
+                products, quantities, count);
+    }
+
+    /**
+     * Record the outcome of a cart reservation
+     * 
+     * @param failed     {@link CartReservation#RESERVED}, or the index of the line that could not be reserved
+     * @param products   Products of the cart lines
+     * @param quantities Purchase quantities, same indexes as products
+     * @param count      Number of cart lines
+     * @throws InsufficientStockException if the reservation failed
+     */
+    private void checkReserved(int failed, Product[] products, int[] quantities, int count) {
+        if (failed != CartReservation.RESERVED) {
+            Product product = products[failed];
+            reject(RejectReason.INSUFFICIENT_STOCK, 0L, product.getId(), quantities[failed]);
+            throw new InsufficientStockException(
+                    "Insufficient stock for product: " + product.getName());
+        }
+        for (int i = 0; i < count; i++) {
+            orderEvents.publish(OrderEventType.STOCK_RESERVED, 0L, products[i].getId(), quantities[i], 0L);
+        }
+    }
+
+    /**
+     * Write order lines to the journal, rolling the orders back if the write fails
+     * 
+     * @param lines     Order lines, of one order or of a whole batch
+     * @param expiresAt Expiry of the orders' stock reservations, 0 if the stock is deducted for good
+     * @param rollback  Gives the reserved stock back and records the failure
+     * @return Future completed once the lines are durable, or with an {@link OrderPersistenceException}
+     */
+    private CompletableFuture<Void> journal(List<Order> lines, long expiresAt, Runnable rollback) {
+        CompletableFuture<Void> write;
+        try {
+            write = orderJournal.recordOrder(lines, expiresAt);
+        } catch (RuntimeException e) {
+            write = CompletableFuture.failedFuture(e);
+        }
+        return write.handle((done, failure) -> {
+            if (failure == null) {
+                return null;
+            }
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause()
+                    : failure;
+            rollback.run();
+            throw new OrderPersistenceException("Order could not be persisted", cause);
+        });
+    }
+
+    /**
+     * Take back an order that is durable but could not be saved to the order repository.
+     * Its cancellation is journaled together with the stock it gives back before the
+     * stock goes back, so a restart replays the same outcome. If that write fails too,
+     * the order keeps its stock as the log says, and its reservation is opened so the
+     * stock still comes back when it expires.
+     * 
+     * @param orderId    Order ID
+     * @param products   Products of the order lines, stock reserved
+     * @param quantities Reserved quantities, same indexes as products
+     * @param expiresAt  Expiry of the order's stock reservation, 0 if the stock is deducted for good
+     */
+    private void cancelUnsaved(long orderId, Product[] products, int[] quantities, long expiresAt) {
+        CompletableFuture<Void> write;
+        try {
+            write = orderJournal.recordStatus(orderId, OrderStatus.CANCELLED, products, quantities);
+        } catch (RuntimeException e) {
+            write = CompletableFuture.failedFuture(e);
+        }
+        try {
+            write.join();
+        } catch (CompletionException e) {
+            logger.error("Cancellation of unsaved order {} could not be persisted: {}", orderId,
+                    e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            orderReservations.open(orderId, products, quantities, expiresAt);
+            return;
+        }
+        CartReservation.releaseAll(products, quantities, products.length);
+        reject(RejectReason.PERSISTENCE_FAILED, orderId, 0L, 0);
+    }
+
+    /**
+     * Give back the stock of a prepared order whose journal write failed
+     * 
+     * @param order Prepared order
+     */
+    private void rollback(PreparedOrder order) {
+        order.release();
+        reject(RejectReason.PERSISTENCE_FAILED, order.getOrderId(), 0L, 0);
+    }
 
-        // Use synchronized lock to ensure thread safety for stock deduction
-        synchronized (product) {
-            if (product.getStock() < quantity) {
-                logger.error(
-                        "Order creation failed: Insufficient stock for product[{}], Current stock[{}], Requested quantity[{}]",
-                        product.getName(), product.getStock(), quantity);
-                throw new InsufficientStockException(
-                        "Insufficient stock for product: " + product.getName());
+    /**
+     * Wait until a stock reservation has been applied
+     * 
+     * @param reservation Pending reservation
+     * @return Reservation outcome
+     */
+    private static int awaitReserved(CompletableFuture<Integer> reservation) {
+        try {
+            return reservation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
+            throw e;
+        }
+    }
 
-            // Deduct stock
-            int newStock = product.getStock() - quantity;
-            product.setStock(newStock);
-            logger.info("Stock deducted successfully for product[{}]: Original stock[{}], Deducted[{}], New stock[{}]",
-                    product.getName(), product.getStock() + quantity, quantity, newStock);
+    /**
+     * Wait until a journal write is durable
+     * 
+     * @param write Pending journal write
+     * @throws OrderPersistenceException if the write failed
+     */
+    private static void awaitDurable(CompletableFuture<Void> write) {
+        try {
+            write.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new OrderPersistenceException("Order could not be persisted", e.getCause());
         }
     }
 
     /**
      * Calculate order total price
+     * Exact and allocation-free in cents; package-private so the JMH benchmarks can measure it directly.
      * 
      * @param product  Product object
      * @param quantity Purchase quantity
-     * @return Order total price
+     * @return Order total price in cents
+     * @throws IllegalArgumentException if the total does not fit in cents
      */
-    private double calculateTotalPrice(Product product, int quantity) {
-        // Use BigDecimal for precise decimal arithmetic
-        BigDecimal price = BigDecimal.valueOf(product.getPrice());
-        BigDecimal qty = BigDecimal.valueOf(quantity);
-        BigDecimal totalPrice = price.multiply(qty).setScale(2, RoundingMode.HALF_UP);
-
-        logger.debug("Calculating order total price: Product price[{}] * Quantity[{}] = {}",
-                product.getPrice(), quantity, totalPrice);
-        return totalPrice.doubleValue();
+    long calculateTotalPrice(Product product, int quantity) {
+        try {
+            return Money.times(product.getPriceCents(), quantity);
+        } catch (ArithmeticException e) {
+            reject(RejectReason.INVALID_REQUEST, 0L, product.getId(), quantity);
+            throw new IllegalArgumentException("Order total price is out of range");
+        }
     }
 
     /**
-     * Generate unique order ID
+     * Publish a rejection and count it by cause
      * 
-     * @return Order ID
+     * @param reason    Why the request was rejected
+     * @param orderId   Order ID, 0 before one is assigned
+     * @param productId Product ID, 0 if not known
+     * @param quantity  Purchase quantity
      */
-    private String generateOrderId() {
-        // Generate order ID using timestamp + short random suffix to reduce collision
-        // risk
-        String orderId = "ORD-" + LocalDateTime.now().format(ORDER_ID_FORMATTER) + "-"
-                + ThreadLocalRandom.current().nextInt(1000, 10000);
-        logger.debug("Generated order ID: {}", orderId);
-        return orderId;
+    private void reject(RejectReason reason, long orderId, long productId, int quantity) {
+        orderEvents.reject(reason, orderId, productId, quantity);
+        orderMetrics.recordRejection(reason);
     }
-}
\ No newline at end of file
+}
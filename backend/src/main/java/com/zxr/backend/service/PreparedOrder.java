@@ -0,0 +1,87 @@
+package com.zxr.backend.service;
+
+import com.zxr.backend.inventory.CartReservation;
+import com.zxr.backend.model.Order;
+import com.zxr.backend.model.Product;
+
+import java.util.List;
+
+/**
+ * Multi-product order that has been validated, priced and holds its reserved stock,
+ * but is not durable yet
+ * Created by {@link OrderService#prepareOrder} and passed back to
+ * {@link OrderService#recordOrder} and {@link OrderService#completeOrder}
+ */
+public final class PreparedOrder {
+
+    private final long orderId;
+    private final Product[] products;
+    private final int[] quantities;
+    private final List<Order> orders;
+    private final long totalPriceCents;
+    /** Set when the order is recorded, 0 if its stock is deducted for good */
+    private long expiresAtMillis;
+
+    PreparedOrder(long orderId, Product[] products, int[] quantities, List<Order> orders, long totalPriceCents) {
+        this.orderId = orderId;
+        this.products = products;
+        this.quantities = quantities;
+        this.orders = orders;
+        this.totalPriceCents = totalPriceCents;
+    }
+
+    /**
+     * Get order ID
+     * @return Order ID
+     */
+    public long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Get order total price
+     * @return Total price in cents
+     */
+    public long getTotalPriceCents() {
+        return totalPriceCents;
+    }
+
+    /**
+     * Get the expiry of the order's stock reservation
+     * @return Expiry in epoch milliseconds, 0 if the stock is deducted for good
+     */
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    void setExpiresAtMillis(long expiresAtMillis) {
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    List<Order> orders() {
+        return orders;
+    }
+
+    Product[] products() {
+        return products;
+    }
+
+    int[] quantities() {
+        return quantities;
+    }
+
+    /**
+     * Hold the reserved stock until the order is confirmed, cancelled or expires
+     * @param reservations Order reservations
+     */
+    void openReservation(OrderReservations reservations) {
+        reservations.open(orderId, products, quantities, expiresAtMillis);
+    }
+
+    /**
+     * Give the reserved stock back
+     */
+    void release() {
+        CartReservation.releaseAll(products, quantities, products.length);
+    }
+}
@@ -1,13 +1,18 @@
 package com.zxr.backend.service;
 
+import com.zxr.backend.dto.ProductPage;
+import com.zxr.backend.dto.ProductSearchPage;
 import com.zxr.backend.model.Product;
 import com.zxr.backend.repository.ProductRepository;
+import com.zxr.backend.repository.ProductSearchIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Product service class
@@ -19,13 +24,35 @@ public class ProductService {
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
     
     private final ProductRepository repository;
+    private final CatalogCache catalogCache;
+    private final int maxPageSize;
+    private final int maxSearchLimit;
+    private final int maxSearchWindow;
 
     /**
      * Construct product service
      * @param repository Product repository
+     * @param catalogCache Pre-encoded catalog response cache
+     * @param maxPageSize Largest page a client may request
+     * @param maxSearchLimit Largest search page a client may request
+     * @param maxSearchWindow Deepest search hit a client may page to
+     * @param stripedProducts IDs of hot products whose stock starts out striped
      */
-    public ProductService(ProductRepository repository) {
+    public ProductService(ProductRepository repository, CatalogCache catalogCache,
+            @Value("${catalog.page.max-limit:1000}") int maxPageSize,
+            @Value("${catalog.search.max-limit:100}") int maxSearchLimit,
+            @Value("${catalog.search.max-window:1000}") int maxSearchWindow,
+            @Value("${order.inventory.striped-products:}") long[] stripedProducts) {
         this.repository = repository;
+        this.catalogCache = catalogCache;
+        this.maxPageSize = maxPageSize;
+        this.maxSearchLimit = maxSearchLimit;
+        this.maxSearchWindow = maxSearchWindow;
+        for (long id : stripedProducts) {
+            if (setStripedStock(id, true) == null) {
+                logger.warn("Striped stock configured for unknown product: {}", id);
+            }
+        }
         logger.info("Product service initialized");
     }
 
@@ -34,10 +61,69 @@ public class ProductService {
      * @return Product collection
      */
     public Collection<Product> getProducts() {
-        logger.info("Getting all products");
-        Collection<Product> products = repository.findAll();
-        logger.info("Retrieved {} products", products.size());
-        return products;
+        return repository.findAll();
+    }
+
+    /**
+     * Get all products as a pre-encoded catalog snapshot
+     * @return Current catalog snapshot
+     */
+    public CatalogCache.Snapshot getCatalog() {
+        return catalogCache.current();
+    }
+
+    /**
+     * Get one page of products after a cursor
+     * @param after Cursor: last product ID of the previous page, 0 for the first page
+     * @param limit Page size, capped at the configured maximum
+     * @return Product page with the cursor of the next page
+     * @throws IllegalArgumentException if the cursor is negative or the limit not positive
+     */
+    public ProductPage getProductPage(long after, int limit) {
+        if (after < 0) {
+            throw new IllegalArgumentException("Cursor must not be negative");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be greater than 0");
+        }
+        int size = Math.min(limit, maxPageSize);
+        // Read one extra product to know whether another page follows
+        List<Product> products = repository.findPage(after, size + 1);
+        if (products.size() <= size) {
+            return new ProductPage(products, null);
+        }
+        List<Product> page = products.subList(0, size);
+        return new ProductPage(page, page.get(size - 1).getId());
+    }
+
+    /**
+     * Search products by name
+     * Every query term must prefix a term of the product name; exact term matches and
+     * names starting with the first term rank higher.
+     * @param query Query text
+     * @param offset Ranked hits to skip
+     * @param limit Page size, capped at the configured maximum
+     * @return Page of ranked hits
+     * @throws IllegalArgumentException if the query is blank or the page lies beyond the search window
+     */
+    public ProductSearchPage searchProducts(String query, int offset, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query cannot be empty");
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("Search offset must not be negative");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be greater than 0");
+        }
+        if (offset >= maxSearchWindow) {
+            throw new IllegalArgumentException("Search results are limited to the first " + maxSearchWindow + " hits");
+        }
+        int size = Math.min(Math.min(limit, maxSearchLimit), maxSearchWindow - offset);
+        ProductSearchIndex.Result result = repository.search(query, offset, size);
+        int next = offset + result.products().size();
+        Integer nextOffset = next < result.total() && next < maxSearchWindow ? next : null;
+        return new ProductSearchPage(result.products(), result.total(), nextOffset);
     }
 
     /**
@@ -48,14 +134,28 @@ public class ProductService {
      */
     public Product getProduct(Long id) {
         if (id == null || id <= 0) {
-            logger.error("Invalid product ID: {}", id);
             throw new IllegalArgumentException("Product ID must be a positive number");
         }
-        logger.info("Getting product by ID: {}", id);
-        Product product = repository.findById(id);
+        return repository.findById(id);
+    }
+
+    /**
+     * Turn striped stock of a product on or off
+     * Meant for hot products reserved from many threads at once, see {@link Product#enableStripedStock()}
+     * @param id Product ID
+     * @param striped Whether the stock should be striped
+     * @return Product object, or null if it does not exist
+     * @throws IllegalArgumentException if ID is null or invalid
+     */
+    public Product setStripedStock(Long id, boolean striped) {
+        Product product = getProduct(id);
         if (product == null) {
-            logger.warn("Product not found with ID: {}", id);
+            return null;
+        }
+        boolean changed = striped ? product.enableStripedStock() : product.disableStripedStock();
+        if (changed) {
+            logger.info("Striped stock of product {} turned {}", id, striped ? "on" : "off");
         }
         return product;
     }
-}
\ No newline at end of file
+}
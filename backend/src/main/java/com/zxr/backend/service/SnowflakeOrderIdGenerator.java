@@ -0,0 +1,74 @@
+package com.zxr.backend.service;
+
+import com.zxr.backend.model.OrderIds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style order ID generator
+ * <p>
+ * Keeps one monotonic counter holding (milliseconds since epoch, sequence) and
+ * advances it with a CAS, so IDs are unique per node and ordered by creation
+ * time without any lock. When the 12-bit sequence of a millisecond runs out, or
+ * the wall clock steps back, the counter simply keeps counting into the next
+ * millisecond instead of waiting or repeating an ID. The counter starts past
+ * the highest order ID recovered at startup, so a clock that stepped back across
+ * a restart does not repeat an ID either.
+ * </p>
+ */
+@Component
+public class SnowflakeOrderIdGenerator implements OrderIdGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnowflakeOrderIdGenerator.class);
+
+    private static final long SEQUENCE_MASK = (1L << OrderIds.SEQUENCE_BITS) - 1;
+
+    /** Node ID already shifted into place */
+    private final long nodeBits;
+
+    /** (milliseconds since epoch << SEQUENCE_BITS) | sequence of the last issued ID */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * Construct order ID generator
+     * @param nodeId Node ID, unique per running instance, 0 to {@link OrderIds#MAX_NODE_ID}
+     * @throws IllegalArgumentException if node ID is out of range
+     */
+    public SnowflakeOrderIdGenerator(@Value("${order.id.node-id:0}") int nodeId) {
+        if (nodeId < 0 || nodeId > OrderIds.MAX_NODE_ID) {
+            throw new IllegalArgumentException("Order ID node must be between 0 and " + OrderIds.MAX_NODE_ID);
+        }
+        this.nodeBits = (long) nodeId << OrderIds.SEQUENCE_BITS;
+        logger.info("Order ID generator initialized for node {}", nodeId);
+    }
+
+    @Override
+    public long nextId() {
+        long now = (System.currentTimeMillis() - OrderIds.EPOCH_MILLIS) << OrderIds.SEQUENCE_BITS;
+        long prev;
+        long next;
+        do {
+            prev = state.get();
+            next = Math.max(prev + 1, now);
+        } while (!state.compareAndSet(prev, next));
+        return ((next >>> OrderIds.SEQUENCE_BITS) << OrderIds.TIMESTAMP_SHIFT) | nodeBits | (next & SEQUENCE_MASK);
+    }
+
+    @Override
+    public void advancePast(long maxId) {
+        if (maxId <= 0) {
+            return;
+        }
+        // Last state of the ID's millisecond, so the next ID falls in a later one whatever node issued it
+        long floor = (((maxId >>> OrderIds.TIMESTAMP_SHIFT) + 1) << OrderIds.SEQUENCE_BITS) - 1;
+        long prev;
+        do {
+            prev = state.get();
+        } while (prev < floor && !state.compareAndSet(prev, floor));
+        logger.info("Order IDs continue past recovered order {}", maxId);
+    }
+}
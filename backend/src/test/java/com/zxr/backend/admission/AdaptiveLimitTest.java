@@ -0,0 +1,131 @@
+package com.zxr.backend.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimitTest {
+
+      static final long MS = 1_000_000L;
+
+      /** Simulated service: 8 workers, 8-12 ms per request, FIFO queue in front */
+      static final int WORKERS = 8;
+      static final long MEAN_SERVICE = 10 * MS;
+      static final double CAPACITY_PER_SECOND = WORKERS * 1e9 / MEAN_SERVICE;
+
+      record Run(long p99FirstHalf, long p99SecondHalf, long admitted, long shed, int finalLimit) {
+      }
+
+      /**
+       * Discrete-event simulation in virtual time: Poisson arrivals at a multiple of the
+       * service capacity for 20 s; latencies of the last 15 s are measured
+       */
+      static Run simulate(double overload, AdaptiveLimit limit) {
+            Random random = new Random(42);
+            long end = 20_000 * MS;
+            long warmup = 5_000 * MS;
+            long middle = (warmup + end) / 2;
+            double meanGap = 1e9 / (CAPACITY_PER_SECOND * overload);
+            // Completions as {time, arrival}; waiting requests as {arrival, service time}
+            PriorityQueue<long[]> running = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+            ArrayDeque<long[]> waiting = new ArrayDeque<>();
+            long[] first = new long[400_000];
+            long[] second = new long[400_000];
+            int firstCount = 0;
+            int secondCount = 0;
+            long admitted = 0;
+            long shed = 0;
+            long nextArrival = 0;
+            while (nextArrival < end || !running.isEmpty()) {
+                  if (!running.isEmpty() && (running.peek()[0] <= nextArrival || nextArrival >= end)) {
+                        long[] done = running.poll();
+                        long now = done[0];
+                        long latency = now - done[1];
+                        if (limit != null) {
+                              limit.release(latency);
+                        }
+                        if (done[1] >= warmup && done[1] < middle) {
+                              first[firstCount++] = latency;
+                        } else if (done[1] >= middle && done[1] < end) {
+                              second[secondCount++] = latency;
+                        }
+                        long[] next = waiting.poll();
+                        if (next != null) {
+                              running.add(new long[] {now + next[1], next[0]});
+                        }
+                        continue;
+                  }
+                  long now = nextArrival;
+                  nextArrival += (long) (-Math.log(1 - random.nextDouble()) * meanGap);
+                  long service = 8 * MS + (long) (random.nextDouble() * 4 * MS);
+                  if (limit != null && !limit.tryAcquire()) {
+                        shed++;
+                        continue;
+                  }
+                  admitted++;
+                  if (running.size() < WORKERS) {
+                        running.add(new long[] {now + service, now});
+                  } else {
+                        waiting.add(new long[] {now, service});
+                  }
+            }
+            return new Run(p99(first, firstCount), p99(second, secondCount), admitted, shed,
+                        limit != null ? limit.limit() : -1);
+      }
+
+      static long p99(long[] latencies, int count) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted[(int) (count * 0.99)];
+      }
+
+      @Test
+      void twiceTheCapacity_keepsP99StableAndThroughputNearCapacity() {
+            Run limited = simulate(2.0, new AdaptiveLimit(64, 4, 1000));
+
+            // Latency close to the 12 ms worst-case service time, and not growing over time
+            assertTrue(limited.p99FirstHalf() < 40 * MS, "p99 " + limited.p99FirstHalf() / MS + " ms");
+            assertTrue(limited.p99SecondHalf() < 40 * MS, "p99 " + limited.p99SecondHalf() / MS + " ms");
+            assertTrue(limited.p99SecondHalf() < 2 * limited.p99FirstHalf());
+            // The workers stay busy: at least 85% of capacity is admitted, the excess is shed
+            assertTrue(limited.admitted() > 0.85 * CAPACITY_PER_SECOND * 20, "admitted " + limited.admitted());
+            assertTrue(limited.shed() > 0.3 * (limited.admitted() + limited.shed()));
+            assertTrue(limited.finalLimit() >= WORKERS && limited.finalLimit() < 64, "limit " + limited.finalLimit());
+
+            // Without the limit the queue grows for as long as the overload lasts
+            Run unlimited = simulate(2.0, null);
+            assertTrue(unlimited.p99SecondHalf() > 1_000 * MS);
+            assertTrue(unlimited.p99SecondHalf() > 1.5 * unlimited.p99FirstHalf());
+      }
+
+      @Test
+      void belowCapacity_shedsNothing() {
+            Run run = simulate(0.5, new AdaptiveLimit(64, 4, 1000));
+
+            assertEquals(0, run.shed(), run.toString());
+            assertTrue(run.p99SecondHalf() < 30 * MS);
+      }
+
+      @Test
+      void backOff_shrinksTheLimitDownToTheMinimum() {
+            AdaptiveLimit limit = new AdaptiveLimit(20, 5, 100);
+            assertTrue(limit.tryAcquire());
+
+            limit.backOff();
+            assertEquals(18, limit.limit());
+            for (int i = 0; i < 50; i++) {
+                  limit.backOff();
+            }
+            assertEquals(5, limit.limit());
+            for (int i = 0; i < 4; i++) {
+                  assertTrue(limit.tryAcquire());
+            }
+            assertFalse(limit.tryAcquire());
+            assertEquals(5, limit.inFlight());
+      }
+}
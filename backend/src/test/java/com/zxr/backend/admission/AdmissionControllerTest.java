@@ -0,0 +1,74 @@
+package com.zxr.backend.admission;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControllerTest {
+
+      AdmissionController admission = new AdmissionController(2, 2, 100, 20, 5, 100, Duration.ofMillis(1500));
+
+      @Test
+      void workload_coversCatalogReadsAndOrderWritesOnly() {
+            assertEquals(Workload.CATALOG_READS, Workload.of("GET", "/products"));
+            assertEquals(Workload.CATALOG_READS, Workload.of("GET", "/products/7"));
+            assertEquals(Workload.ORDER_WRITES, Workload.of("POST", "/orders/batch"));
+            assertNull(Workload.of("GET", "/orders/1"));
+            assertNull(Workload.of("PUT", "/products/1/stock"));
+            assertNull(Workload.of("GET", "/productsearch"));
+      }
+
+      @Test
+      void shedCatalogRead_backsOffOrderWrites() {
+            assertTrue(admission.tryAdmit(Workload.CATALOG_READS));
+            assertTrue(admission.tryAdmit(Workload.CATALOG_READS));
+
+            assertFalse(admission.tryAdmit(Workload.CATALOG_READS));
+            assertEquals(1, admission.shed(Workload.CATALOG_READS));
+            assertEquals(18, admission.limit(Workload.ORDER_WRITES).limit());
+            assertEquals(2, admission.limit(Workload.CATALOG_READS).limit());
+
+            admission.complete(Workload.CATALOG_READS, 1_000_000);
+            assertTrue(admission.tryAdmit(Workload.CATALOG_READS));
+      }
+
+      @Test
+      void filter_rejectsBeyondTheLimitWith429() throws Exception {
+            AdmissionFilter filter = new AdmissionFilter(admission);
+            assertTrue(admission.tryAdmit(Workload.CATALOG_READS));
+            assertTrue(admission.tryAdmit(Workload.CATALOG_READS));
+
+            MockHttpServletResponse shed = new MockHttpServletResponse();
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request("GET", "/api/products/1"), shed, chain);
+            assertEquals(429, shed.getStatus());
+            assertEquals("2", shed.getHeader("Retry-After"));
+            assertTrue(shed.getContentAsString().contains("Server overloaded"));
+            assertNull(chain.getRequest());
+
+            // Other endpoints are not limited
+            MockHttpServletResponse passed = new MockHttpServletResponse();
+            chain = new MockFilterChain();
+            filter.doFilter(request("GET", "/api/orders/1"), passed, chain);
+            assertEquals(200, passed.getStatus());
+            assertNotNull(chain.getRequest());
+
+            // An admitted request releases its slot when it completes
+            admission.complete(Workload.CATALOG_READS, 1_000_000);
+            chain = new MockFilterChain();
+            filter.doFilter(request("GET", "/api/products/1"), new MockHttpServletResponse(), chain);
+            assertNotNull(chain.getRequest());
+            assertEquals(1, admission.limit(Workload.CATALOG_READS).inFlight());
+      }
+
+      static MockHttpServletRequest request(String method, String uri) {
+            MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+            request.setContextPath("/api");
+            return request;
+      }
+}
@@ -0,0 +1,363 @@
+package com.zxr.backend.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HTTP contract shared by the servlet and the reactive stack
+ */
+abstract class ApiContractTests {
+
+      @LocalServerPort
+      int port;
+
+      WebTestClient client;
+
+      @BeforeEach
+      void setUp() {
+            client = WebTestClient.bindToServer().baseUrl("http://localhost:" + port + "/api").build();
+      }
+
+      @Test
+      void getProducts_returnsCatalog() {
+            client.get().uri("/products").exchange()
+                        .expectStatus().isOk()
+                        .expectBody()
+                        .jsonPath("$.length()").isEqualTo(20)
+                        .jsonPath("$[0].id").isEqualTo(1)
+                        .jsonPath("$[0].name").isEqualTo("Red Fuji Apple");
+      }
+
+      @Test
+      void getProducts_supportsEtagAndGzip() throws Exception {
+            byte[] json = client.get().uri("/products").exchange()
+                        .expectStatus().isOk()
+                        .expectHeader().valueMatches(HttpHeaders.ETAG, "\"[0-9a-f]+-[0-9a-f]+\"")
+                        .expectBody().returnResult().getResponseBody();
+            String etag = client.get().uri("/products").exchange()
+                        .returnResult(byte[].class).getResponseHeaders().getETag();
+
+            client.get().uri("/products").header(HttpHeaders.IF_NONE_MATCH, etag).exchange()
+                        .expectStatus().isNotModified()
+                        .expectHeader().valueEquals(HttpHeaders.ETAG, etag)
+                        .expectBody().isEmpty();
+
+            // WebTestClient decompresses transparently, so fetch the raw gzip bytes
+            HttpResponse<byte[]> gzipped = HttpClient.newHttpClient().send(
+                        HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/products"))
+                                    .header(HttpHeaders.ACCEPT_ENCODING, "gzip").build(),
+                        HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, gzipped.statusCode());
+            assertEquals("gzip", gzipped.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.body()))) {
+                  assertArrayEquals(json, in.readAllBytes());
+            }
+      }
+
+      @Test
+      void getProducts_pagesWithCursor() {
+            client.get().uri("/products?limit=8").exchange()
+                        .expectStatus().isOk()
+                        .expectBody()
+                        .jsonPath("$.items.length()").isEqualTo(8)
+                        .jsonPath("$.items[0].id").isEqualTo(1)
+                        .jsonPath("$.nextCursor").isEqualTo(8);
+            client.get().uri("/products?after=16&limit=8").exchange()
+                        .expectStatus().isOk()
+                        .expectBody()
+                        .jsonPath("$.items.length()").isEqualTo(4)
+                        .jsonPath("$.items[0].id").isEqualTo(17)
+                        .jsonPath("$.nextCursor").doesNotExist();
+            client.get().uri("/products?after=3").exchange()
+                        .expectStatus().isOk()
+                        .expectBody().jsonPath("$.items[0].id").isEqualTo(4);
+            client.get().uri("/products?limit=0").exchange()
+                        .expectStatus().isBadRequest();
+            client.get().uri("/products?after=abc").exchange()
+                        .expectStatus().isBadRequest();
+      }
+
+      @Test
+      void searchProducts_ranksAndPages() {
+            client.get().uri("/products/search?q=orange").exchange()
+                        .expectStatus().isOk()
+                        .expectBody()
+                        .jsonPath("$.total").isEqualTo(2)
+                        .jsonPath("$.items[0].id").isEqualTo(5)
+                        .jsonPath("$.items[1].id").isEqualTo(12)
+                        .jsonPath("$.nextOffset").doesNotExist();
+            client.get().uri("/products/search?q=hainan&limit=1").exchange()
+                        .expectStatus().isOk()
+                        .expectBody()
+                        .jsonPath("$.items.length()").isEqualTo(1)
+                        .jsonPath("$.items[0].name").isEqualTo("Hainan Mango")
+                        .jsonPath("$.nextOffset").isEqualTo(1);
+            client.get().uri("/products/search?q=haina co").exchange()
+                        .expectStatus().isOk()
+                        .expectBody().jsonPath("$.items[0].name").isEqualTo("Hainan Coconut");
+            client.get().uri("/products/search?q=").exchange()
+                        .expectStatus().isBadRequest();
+            client.get().uri("/products/search").exchange()
+                        .expectStatus().isBadRequest();
+      }
+
+      @Test
+      void streamProducts_writesOneProductPerLine() {
+            String body = client.get().uri("/products/stream").accept(MediaType.APPLICATION_NDJSON).exchange()
+                        .expectStatus().isOk()
+                        .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                        .expectBody(String.class).returnResult().getResponseBody();
+
+            String[] lines = body.strip().split("\n");
+            assertEquals(20, lines.length);
+            assertTrue(lines[0].startsWith("{\"id\":1,\"name\":\"Red Fuji Apple\""));
+            assertTrue(lines[19].startsWith("{\"id\":20,"));
+      }
+
+      @Test
+      void getProduct_knownAndUnknown() {
+            client.get().uri("/products/3").exchange()
+                        .expectStatus().isOk()
+                        .expectBody().jsonPath("$.price").isEqualTo(4.99);
+            client.get().uri("/products/9999").exchange()
+                        .expectStatus().isNotFound();
+      }
+
+      @Test
+      void createOrder_returnsCreatedOrder() {
+            client.post().uri("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{\"items\":[{\"productId\":2,\"quantity\":1},{\"productId\":5,\"quantity\":2}]}")
+                        .exchange()
+                        .expectStatus().isCreated()
+                        .expectBody()
+                        .jsonPath("$.orderId").value(id -> assertTrue(id.toString().matches("ORD-\\d{19}")))
+                        .jsonPath("$.totalPrice").isEqualTo(3.97)
+                        .jsonPath("$.status").isEqualTo("pending");
+
+            String metrics = client.get().uri("/metrics").exchange()
+                        .expectStatus().isOk()
+                        .expectBody(String.class).returnResult().getResponseBody();
+            assertFalse(metrics.contains("http_request_duration_seconds_count{method=\"POST\",route=\"/orders\"} 0"));
+      }
+
+      @Test
+      void createOrder_withIdempotencyKey_createsOnceAndReplays() {
+            String order = "{\"items\":[{\"productId\":6,\"quantity\":1}]}";
+            String first = client.post().uri("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .header("Idempotency-Key", "retry-" + getClass().getSimpleName())
+                        .bodyValue(order)
+                        .exchange()
+                        .expectStatus().isCreated()
+                        .expectHeader().doesNotExist("Idempotent-Replayed")
+                        .expectBody(String.class).returnResult().getResponseBody();
+            String replayed = client.post().uri("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .header("Idempotency-Key", "retry-" + getClass().getSimpleName())
+                        .bodyValue(order)
+                        .exchange()
+                        .expectStatus().isCreated()
+                        .expectHeader().valueEquals("Idempotent-Replayed", "true")
+                        .expectBody(String.class).returnResult().getResponseBody();
+            assertEquals(first, replayed);
+
+            client.post().uri("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .header("Idempotency-Key", "retry-" + getClass().getSimpleName())
+                        .bodyValue("{\"items\":[{\"productId\":6,\"quantity\":2}]}")
+                        .exchange()
+                        .expectStatus().isEqualTo(422);
+      }
+
+      @Test
+      void getOrder_returnsEveryLineOfTheCart() {
+            String orderId = client.post().uri("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{\"items\":[{\"productId\":9,\"quantity\":1},{\"productId\":10,\"quantity\":2}]}")
+                        .exchange()
+                        .expectStatus().isCreated()
+                        .expectBody(Map.class).returnResult().getResponseBody().get("orderId").toString();
+
+            client.get().uri("/orders/" + orderId).exchange()
+                        .expectStatus().isOk()
+                        .expectBody()
+                        .jsonPath("$.items.length()").isEqualTo(2)
+                        .jsonPath("$.items[0].id").isEqualTo(orderId)
+                        .jsonPath("$.items[0].productId").isEqualTo(9)
+                        .jsonPath("$.items[0].quantity").isEqualTo(1)
+                        .jsonPath("$.items[1].id").isEqualTo(orderId)
+                        .jsonPath("$.items[1].productId").isEqualTo(10)
+                        .jsonPath("$.items[1].quantity").isEqualTo(2);
+      }
+
+      @Test
+      void queryOrders_byIdProductAndTime() {
+            Instant before = Instant.now().minusSeconds(1);
+            String orderId = client.post().uri("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{\"items\":[{\"productId\":8,\"quantity\":1}]}")
+                        .exchange()
+                        .expectStatus().isCreated()
+                        .expectBody(Map.class).returnResult().getResponseBody().get("orderId").toString();
+
+            client.get().uri("/orders/" + orderId).exchange()
+                        .expectStatus().isOk()
+                        .expectBody()
+                        .jsonPath("$.items.length()").isEqualTo(1)
+                        .jsonPath("$.items[0].id").isEqualTo(orderId)
+                        .jsonPath("$.items[0].productId").isEqualTo(8)
+                        .jsonPath("$.items[0].totalPrice").isEqualTo(2.49)
+                        .jsonPath("$.nextCursor").doesNotExist();
+            client.get().uri("/orders/ORD-0000000000000000001").exchange().expectStatus().isNotFound();
+            client.get().uri("/orders?productId=8&limit=10").exchange()
+                        .expectStatus().isOk()
+                        .expectBody()
+                        .jsonPath("$.items[0].id").isEqualTo(orderId)
+                        .jsonPath("$.nextCursor").doesNotExist();
+            String created = client.get().uri(uri -> uri.path("/orders").queryParam("from", before.toString())
+                                    .queryParam("to", Instant.now().plusSeconds(60).toString()).build())
+                        .exchange()
+                        .expectStatus().isOk()
+                        .expectBody(String.class).returnResult().getResponseBody();
+            assertTrue(created.contains("{\"id\":\"" + orderId + "\",\"productId\":8,\"quantity\":1,\"totalPrice\":2.49}"));
+            client.get().uri("/orders?productId=8&from=" + before).exchange().expectStatus().isBadRequest();
+            client.get().uri("/orders?productId=8&after=nope").exchange().expectStatus().isBadRequest();
+      }
+
+      @Test
+      void stockStriping_togglesWithoutChangingStock() {
+            Map<?, ?> product = client.get().uri("/products/12").exchange()
+                        .expectStatus().isOk()
+                        .expectBody(Map.class).returnResult().getResponseBody();
+            int stock = ((Number) product.get("stock")).intValue();
+            client.put().uri("/products/12/stock-striping?enabled=true").exchange()
+                        .expectStatus().isOk()
+                        .expectBody().jsonPath("$.stock").isEqualTo(stock);
+            client.post().uri("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{\"items\":[{\"productId\":12,\"quantity\":2}]}")
+                        .exchange()
+                        .expectStatus().isCreated();
+            client.put().uri("/products/12/stock-striping?enabled=false").exchange()
+                        .expectStatus().isOk()
+                        .expectBody().jsonPath("$.stock").isEqualTo(stock - 2);
+            client.put().uri("/products/9999/stock-striping?enabled=true").exchange()
+                        .expectStatus().isNotFound();
+      }
+
+      @Test
+      void confirmAndCancel_endTheReservationOnce() {
+            int stock = stockOf(14);
+            String confirmed = createOrderFor(14, 1);
+            String cancelled = createOrderFor(14, 2);
+            assertEquals(stock - 3, stockOf(14));
+
+            client.post().uri("/orders/" + confirmed + "/confirm").exchange()
+                        .expectStatus().isOk()
+                        .expectBody()
+                        .jsonPath("$.orderId").isEqualTo(confirmed)
+                        .jsonPath("$.status").isEqualTo("confirmed");
+            client.post().uri("/orders/" + cancelled + "/cancel").exchange()
+                        .expectStatus().isOk()
+                        .expectBody().jsonPath("$.status").isEqualTo("cancelled");
+            assertEquals(stock - 1, stockOf(14));
+
+            client.post().uri("/orders/" + confirmed + "/cancel").exchange()
+                        .expectStatus().isEqualTo(409)
+                        .expectBody().jsonPath("$.message").isEqualTo("Order is no longer pending: " + confirmed);
+            client.post().uri("/orders/ORD-0000000000000000001/confirm").exchange()
+                        .expectStatus().isNotFound();
+            assertEquals(stock - 1, stockOf(14));
+      }
+
+      int stockOf(long productId) {
+            Map<?, ?> product = client.get().uri("/products/" + productId).exchange()
+                        .expectStatus().isOk()
+                        .expectBody(Map.class).returnResult().getResponseBody();
+            return ((Number) product.get("stock")).intValue();
+      }
+
+      String createOrderFor(long productId, int quantity) {
+            Map<?, ?> order = client.post().uri("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{\"items\":[{\"productId\":" + productId + ",\"quantity\":" + quantity + "}]}")
+                        .exchange()
+                        .expectStatus().isCreated()
+                        .expectBody(Map.class).returnResult().getResponseBody();
+            assertEquals("pending", order.get("status"));
+            assertNotNull(order.get("expiresAt"));
+            return (String) order.get("orderId");
+      }
+
+      @Test
+      void createOrder_rejectsMissingProductAndShortStock() {
+            client.post().uri("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{\"items\":[{\"productId\":9999,\"quantity\":1}]}")
+                        .exchange()
+                        .expectStatus().isNotFound()
+                        .expectBody().jsonPath("$.message").isEqualTo("Product not found: 9999");
+            client.post().uri("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{\"items\":[{\"productId\":1,\"quantity\":1000}]}")
+                        .exchange()
+                        .expectStatus().isEqualTo(409)
+                        .expectBody().jsonPath("$.message").isEqualTo("Insufficient stock for product: Red Fuji Apple");
+      }
+
+      @Test
+      void createOrder_rejectsInvalidAndMalformedItems() {
+            client.post().uri("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{\"items\":[{\"productId\":2,\"quantity\":0}]}")
+                        .exchange()
+                        .expectStatus().isBadRequest()
+                        .expectBody().jsonPath("$.message").isEqualTo("Purchase quantity must be greater than 0");
+            client.post().uri("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{\"items\":[{\"productId\":\"two\",\"quantity\":1}]}")
+                        .exchange()
+                        .expectStatus().isBadRequest()
+                        .expectBody().jsonPath("$.message").isEqualTo("Malformed request");
+            client.post().uri("/orders").contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{\"items\":[]}")
+                        .exchange()
+                        .expectStatus().isBadRequest();
+      }
+
+      @Test
+      void createOrderBatch_streamsOneResultPerCart() {
+            String body = client.post().uri("/orders/batch").contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .bodyValue("{\"orders\":["
+                                    + "{\"items\":[{\"productId\":2,\"quantity\":1}]},"
+                                    + "{\"items\":[{\"productId\":9999,\"quantity\":1}]},"
+                                    + "{\"items\":[{\"productId\":1,\"quantity\":1000}]},"
+                                    + "{\"items\":[]}]}")
+                        .exchange()
+                        .expectStatus().isOk()
+                        .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                        .expectBody(String.class).returnResult().getResponseBody();
+
+            String[] lines = body.strip().split("\n");
+            assertEquals(4, lines.length);
+            assertTrue(lines[0].matches("\\{\"index\":0,\"status\":\"created\",\"orderId\":\"ORD-\\d{19}\",\"totalPrice\":0.99}"));
+            assertEquals("{\"index\":1,\"status\":\"not_found\",\"message\":\"Product not found: 9999\"}", lines[1]);
+            assertEquals("{\"index\":2,\"status\":\"insufficient_stock\","
+                        + "\"message\":\"Insufficient stock for product: Red Fuji Apple\"}", lines[2]);
+            assertEquals("{\"index\":3,\"status\":\"invalid\",\"message\":\"No items in order request\"}", lines[3]);
+      }
+
+      @Test
+      void createOrderBatch_rejectsEmptyBatch() {
+            client.post().uri("/orders/batch").contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{\"orders\":[]}")
+                        .exchange()
+                        .expectStatus().isBadRequest()
+                        .expectBody().jsonPath("$.message").isEqualTo("orders must not be empty");
+      }
+}
@@ -0,0 +1,23 @@
+package com.zxr.backend.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+class ReactiveApiContractTest extends ApiContractTests {
+
+      @Autowired
+      WebServerApplicationContext context;
+
+      @Test
+      void runsOnNetty() {
+            assertInstanceOf(NettyWebServer.class, context.getWebServer());
+      }
+}
@@ -0,0 +1,11 @@
+package com.zxr.backend.controller;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * The HTTP contract with stock reserved through the inventory sequencer
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = "order.inventory.mode=sequencer")
+class SequencerApiContractTest extends ApiContractTests {
+}
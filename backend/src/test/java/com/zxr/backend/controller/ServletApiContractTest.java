@@ -0,0 +1,7 @@
+package com.zxr.backend.controller;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ServletApiContractTest extends ApiContractTests {
+}
@@ -0,0 +1,77 @@
+package com.zxr.backend.dto;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartCommandTest {
+
+      private final ObjectMapper mapper = new ObjectMapper();
+
+      @Test
+      void read_fillsLinesInOrderAndSkipsUnknownFields() throws Exception {
+            CartCommand cart = mapper.readValue("{\"note\":{\"gift\":[1,2]},\"items\":["
+                        + "{\"productId\":2,\"quantity\":1},"
+                        + "{\"quantity\":\"3\",\"extra\":[{}],\"productId\":\"9000000000\"},"
+                        + "{\"productId\":5}]}", CartCommand.class);
+
+            assertEquals(3, cart.count());
+            assertEquals(2L, cart.productId(0));
+            assertEquals(1, cart.quantity(0));
+            assertEquals(9_000_000_000L, cart.productId(1));
+            assertEquals(3, cart.quantity(1));
+            assertEquals(5L, cart.productId(2));
+            assertEquals(CartCommand.MISSING, cart.quantity(2));
+      }
+
+      @Test
+      void read_emptyOrMissingItemsGiveEmptyCart() throws Exception {
+            assertEquals(0, mapper.readValue("{}", CartCommand.class).count());
+            assertEquals(0, mapper.readValue("{\"items\":null}", CartCommand.class).count());
+            assertEquals(0, mapper.readValue("{\"items\":[]}", CartCommand.class).count());
+      }
+
+      @Test
+      void read_rejectsMalformedValues() {
+            assertThrows(JsonMappingException.class,
+                        () -> mapper.readValue("{\"items\":{\"productId\":1}}", CartCommand.class));
+            assertThrows(JsonMappingException.class,
+                        () -> mapper.readValue("{\"items\":[{\"productId\":\"one\",\"quantity\":1}]}", CartCommand.class));
+            assertThrows(JsonMappingException.class,
+                        () -> mapper.readValue("{\"items\":[{\"productId\":1,\"quantity\":3000000000}]}", CartCommand.class));
+            assertThrows(JsonMappingException.class,
+                        () -> mapper.readValue("{\"items\":[[1,2]]}", CartCommand.class));
+      }
+
+      @Test
+      void read_rejectsCartsOverTheLineLimit() throws Exception {
+            StringBuilder items = new StringBuilder();
+            for (int i = 0; i < CartCommand.MAX_LINES; i++) {
+                  items.append(i == 0 ? "" : ",").append("{\"productId\":1,\"quantity\":1}");
+            }
+            String full = "{\"items\":[" + items + "]}";
+            assertEquals(CartCommand.MAX_LINES, mapper.readValue(full, CartCommand.class).count());
+
+            String over = "{\"items\":[" + items + ",{\"productId\":1,\"quantity\":1}]}";
+            assertThrows(JsonMappingException.class, () -> mapper.readValue(over, CartCommand.class));
+      }
+
+      @Test
+      void add_growsAndClearKeepsCommandReusable() {
+            CartCommand cart = new CartCommand(1);
+            for (int i = 1; i <= 10; i++) {
+                  cart.add(i, i * 2);
+            }
+            assertEquals(10, cart.count());
+            assertEquals(20, cart.quantity(9));
+
+            cart.clear();
+            assertEquals(0, cart.count());
+            assertThrows(IndexOutOfBoundsException.class, () -> cart.productId(0));
+            cart.add(7L, 1);
+            assertEquals(7L, cart.productId(0));
+            assertThrows(IllegalArgumentException.class, () -> CartCommand.of(new long[2], new int[1]));
+      }
+}
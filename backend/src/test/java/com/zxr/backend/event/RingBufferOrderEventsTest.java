@@ -0,0 +1,71 @@
+package com.zxr.backend.event;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferOrderEventsTest {
+
+      @TempDir
+      Path dir;
+
+      @Test
+      void publishedEvents_areWrittenInOrderAsFixedRecords() throws Exception {
+            RingBufferOrderEvents events = new RingBufferOrderEvents(8, dir.toString(), DataSize.ofMegabytes(1), 2);
+            events.publish(OrderEventType.ACCEPTED, 0L, 0L, 2, 0L);
+            events.reject(RejectReason.INSUFFICIENT_STOCK, 0L, 4L, 9);
+            events.publish(OrderEventType.PERSISTED, 77L, 3L, 2, 998L);
+            events.destroy();
+
+            ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(singleFile())).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(3 * RingBufferOrderEvents.RECORD_BYTES, records.remaining());
+
+            records.position(RingBufferOrderEvents.RECORD_BYTES);
+            records.getLong();
+            assertEquals(OrderEventType.REJECTED.ordinal(), records.get());
+            assertEquals(RejectReason.INSUFFICIENT_STOCK.ordinal(), records.get());
+            records.getShort();
+            assertEquals(9, records.getInt());
+            assertEquals(0L, records.getLong());
+            assertEquals(4L, records.getLong());
+
+            records.position(2 * RingBufferOrderEvents.RECORD_BYTES + 8);
+            assertEquals(OrderEventType.PERSISTED.ordinal(), records.get());
+            assertEquals(RejectReason.NONE.ordinal(), records.get());
+            records.getShort();
+            assertEquals(2, records.getInt());
+            assertEquals(77L, records.getLong());
+            assertEquals(3L, records.getLong());
+            assertEquals(998L, records.getLong());
+      }
+
+      @Test
+      void moreEventsThanSlots_areWrittenOrCounted() throws Exception {
+            RingBufferOrderEvents events = new RingBufferOrderEvents(4, dir.toString(), DataSize.ofMegabytes(1), 2);
+            for (int i = 1; i <= 10_000; i++) {
+                  events.publish(OrderEventType.STOCK_RESERVED, 0L, i, 1, 0L);
+            }
+            events.destroy();
+
+            long written = Files.size(singleFile()) / RingBufferOrderEvents.RECORD_BYTES;
+            assertEquals(10_000, written + events.dropped());
+            assertEquals(written, events.drained());
+      }
+
+      private Path singleFile() throws Exception {
+            try (Stream<Path> files = Files.list(dir)) {
+                  List<Path> list = files.toList();
+                  assertEquals(1, list.size());
+                  return list.get(0);
+            }
+      }
+}
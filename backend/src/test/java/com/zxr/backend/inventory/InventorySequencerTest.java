@@ -0,0 +1,121 @@
+package com.zxr.backend.inventory;
+
+import com.zxr.backend.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventorySequencerTest {
+
+      @Test
+      void flashSale_sellsExactlyTheStockAndRejectsTheRest() throws Exception {
+            InventorySequencer sequencer = new InventorySequencer(2, 1024, 64);
+            Product hot = new Product(1L, "Hot", 100, 100);
+            int requests = 1000;
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService clients = Executors.newFixedThreadPool(8);
+            List<CompletableFuture<CompletableFuture<Integer>>> submitted = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                  submitted.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                              start.await();
+                        } catch (InterruptedException e) {
+                              Thread.currentThread().interrupt();
+                        }
+                        return sequencer.reserve(new Product[] {hot}, new int[] {1}, 1);
+                  }, clients));
+            }
+            start.countDown();
+            for (CompletableFuture<CompletableFuture<Integer>> future : submitted) {
+                  results.add(future.join());
+            }
+            clients.shutdown();
+
+            long reserved = results.stream().filter(r -> r.join() == CartReservation.RESERVED).count();
+            assertEquals(100, reserved);
+            assertEquals(0, hot.getStock());
+            assertTrue(sequencer.batches() > 0);
+            // Every request beyond the stock was rejected by a shard owner, none fell back
+            assertEquals(0, sequencer.overflowed());
+            assertEquals(requests - 100, sequencer.bulkRejected());
+            sequencer.destroy();
+      }
+
+      @Test
+      void soldOutProduct_isRejectedWithoutTouchingStock() throws Exception {
+            InventorySequencer sequencer = new InventorySequencer(1, 16, 16);
+            Product soldOut = new Product(2L, "Sold out", 100, 0);
+
+            assertEquals(0, sequencer.reserve(new Product[] {soldOut}, new int[] {1}, 1).join());
+            assertEquals(0, soldOut.getStock());
+            assertEquals(1, sequencer.bulkRejected());
+            sequencer.destroy();
+      }
+
+      @Test
+      void multiLineCart_isAllOrNothingInAndAcrossShards() throws Exception {
+            InventorySequencer sequencer = new InventorySequencer(2, 16, 16);
+            Product a = new Product(2L, "A", 100, 5);
+            Product b = new Product(4L, "B", 100, 1);
+            Product c = new Product(3L, "C", 100, 5);
+
+            // Same shard: the second line fails, the first is given back
+            assertEquals(1, sequencer.reserve(new Product[] {a, b}, new int[] {2, 2}, 2).join());
+            assertEquals(5, a.getStock());
+            assertEquals(1, b.getStock());
+
+            // Different shards: reserved directly on the calling thread
+            assertEquals(CartReservation.RESERVED, sequencer.reserve(new Product[] {a, c}, new int[] {2, 2}, 2).join());
+            assertEquals(3, a.getStock());
+            assertEquals(3, c.getStock());
+            sequencer.destroy();
+      }
+
+      @Test
+      void afterShutdown_reservesDirectly() throws Exception {
+            InventorySequencer sequencer = new InventorySequencer(1, 16, 16);
+            sequencer.destroy();
+            Product product = new Product(1L, "P", 100, 1);
+
+            CompletableFuture<Integer> result = sequencer.reserve(new Product[] {product}, new int[] {1}, 1);
+            assertTrue(result.isDone());
+            assertEquals(CartReservation.RESERVED, result.join());
+            assertEquals(0, product.getStock());
+      }
+
+      @Test
+      void shutdown_completesEveryRequestPublishedMeanwhile() throws Exception {
+            Product product = new Product(1L, "P", 100, 1_000_000);
+            for (int round = 0; round < 20; round++) {
+                  InventorySequencer sequencer = new InventorySequencer(1, 64, 16);
+                  ExecutorService threads = Executors.newFixedThreadPool(4);
+                  List<Future<List<CompletableFuture<Integer>>>> callers = new ArrayList<>();
+                  for (int t = 0; t < 4; t++) {
+                        callers.add(threads.submit(() -> {
+                              List<CompletableFuture<Integer>> results = new ArrayList<>();
+                              for (int i = 0; i < 500; i++) {
+                                    results.add(sequencer.reserve(new Product[] {product}, new int[] {1}, 1));
+                              }
+                              return results;
+                        }));
+                  }
+                  sequencer.destroy();
+                  for (var caller : callers) {
+                        for (CompletableFuture<Integer> result : caller.get(10, TimeUnit.SECONDS)) {
+                              assertEquals(CartReservation.RESERVED, result.get(10, TimeUnit.SECONDS));
+                        }
+                  }
+                  threads.shutdown();
+            }
+      }
+}
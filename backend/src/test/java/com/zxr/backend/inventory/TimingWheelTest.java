@@ -0,0 +1,94 @@
+package com.zxr.backend.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+      static final long START = 1_700_000_000_050L;
+
+      @Test
+      void advance_firesAfterTheDeadlineWithinOneTick() {
+            TimingWheel<String> wheel = new TimingWheel<>(100, START);
+            wheel.schedule("a", START + 250);
+            wheel.schedule("b", START + 250);
+            wheel.schedule("overdue", START - 5_000);
+            List<String> fired = new ArrayList<>();
+
+            assertEquals(1, wheel.advance(START + 50, fired::add));
+            assertEquals(List.of("overdue"), fired);
+            assertEquals(0, wheel.advance(START + 249, fired::add));
+            assertEquals(2, wheel.advance(START + 350, fired::add));
+            assertTrue(fired.containsAll(List.of("a", "b")));
+            assertEquals(0, wheel.size());
+      }
+
+      @Test
+      void cancel_removesTheTimeoutOnce() {
+            TimingWheel<String> wheel = new TimingWheel<>(100, START);
+            TimingWheel.Timeout<String> a = wheel.schedule("a", START + 1_000);
+            TimingWheel.Timeout<String> b = wheel.schedule("b", START + 1_000);
+
+            assertTrue(wheel.cancel(a));
+            assertFalse(wheel.cancel(a));
+            assertEquals(1, wheel.size());
+            List<String> fired = new ArrayList<>();
+            wheel.advance(START + 2_000, fired::add);
+            assertEquals(List.of("b"), fired);
+            assertFalse(wheel.cancel(b));
+      }
+
+      @Test
+      void randomDeadlines_acrossEveryLevel_fireInTheirOwnTick() {
+            long tick = 10;
+            TimingWheel<Long> wheel = new TimingWheel<>(tick, START);
+            Random random = new Random(7);
+            Map<Long, TimingWheel.Timeout<Long>> timeouts = new HashMap<>();
+            // Up to 64^4 ticks away and beyond, so deadlines sit on every level and past the last
+            for (int i = 0; i < 20_000; i++) {
+                  long deadline = START + (long) (Math.pow(random.nextDouble(), 4) * 200_000_000L * tick);
+                  if (!timeouts.containsKey(deadline)) {
+                        timeouts.put(deadline, wheel.schedule(deadline, deadline));
+                  }
+            }
+            Set<Long> cancelled = new HashSet<>();
+            for (Map.Entry<Long, TimingWheel.Timeout<Long>> timeout : timeouts.entrySet()) {
+                  if (random.nextInt(4) == 0) {
+                        assertTrue(wheel.cancel(timeout.getValue()));
+                        cancelled.add(timeout.getKey());
+                  }
+            }
+
+            int fired = 0;
+            long now = START;
+            while (wheel.size() > 0) {
+                  // Uneven steps, some skipping many ticks at once
+                  now += random.nextInt(3) == 0 ? random.nextInt(5_000_000) : random.nextInt(50);
+                  long at = now;
+                  fired += wheel.advance(now, deadline -> {
+                        assertTrue(deadline <= at, "fired early");
+                        assertFalse(cancelled.contains(deadline), "fired after cancel");
+                  });
+            }
+            assertEquals(timeouts.size() - cancelled.size(), fired);
+
+            // Each timeout fires in the first advance past its deadline, not a later one
+            TimingWheel<Long> exact = new TimingWheel<>(tick, START);
+            for (long deadline : timeouts.keySet()) {
+                  exact.schedule(deadline, deadline);
+            }
+            for (now = START; exact.size() > 0; now += tick) {
+                  long earliest = now - tick;
+                  exact.advance(now, deadline -> assertTrue(deadline > earliest, "fired late: " + deadline));
+            }
+      }
+}
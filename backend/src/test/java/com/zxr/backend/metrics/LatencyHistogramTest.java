@@ -0,0 +1,41 @@
+package com.zxr.backend.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+      @Test
+      void bucketHighestValue_coversEveryValueWithinSixPercent() {
+            for (long value = 0; value < 1L << 30; value = value * 3 / 2 + 1) {
+                  long highest = LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(value));
+                  assertTrue(highest >= value, "bucket below " + value);
+                  assertTrue(highest - value <= value / LatencyHistogram.SUB_BUCKETS, "bucket too wide at " + value);
+            }
+      }
+
+      @Test
+      void snapshot_mergesStripesIntoQuantiles() throws Exception {
+            LatencyHistogram histogram = new LatencyHistogram(4);
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                  threads[t] = new Thread(() -> {
+                        for (int i = 1; i <= 1000; i++) {
+                              histogram.record(i * 1000L);
+                        }
+                  });
+                  threads[t].start();
+            }
+            for (Thread thread : threads) {
+                  thread.join();
+            }
+
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            assertEquals(4000, snapshot.count());
+            assertEquals(4 * 500_500_000L, snapshot.sum());
+            assertEquals(500_000, snapshot.valueAt(0.5), 500_000 / 16.0);
+            assertEquals(990_000, snapshot.valueAt(0.99), 990_000 / 16.0);
+            assertEquals(1_000_000, snapshot.max(), 1_000_000 / 16.0);
+      }
+}
@@ -0,0 +1,48 @@
+package com.zxr.backend.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+      @Test
+      void arithmetic_isExactInCents() {
+            // 0.1 + 0.2 style errors cannot happen in cents
+            long total = 0;
+            for (int i = 0; i < 1000; i++) {
+                  total = Money.plus(total, Money.times(10, 3));
+            }
+            assertEquals(30_000, total);
+            assertEquals(1497, Money.times(Money.ofDecimal(4.99), 3));
+            assertEquals(101, Money.ofDecimal(1.005 + 0.0000001));
+      }
+
+      @Test
+      void arithmetic_failsOnOverflow() {
+            assertThrows(ArithmeticException.class, () -> Money.times(Long.MAX_VALUE / 2, 3));
+            assertThrows(ArithmeticException.class, () -> Money.plus(Long.MAX_VALUE, 1));
+            assertThrows(IllegalArgumentException.class, () -> Money.ofDecimal(Double.NaN));
+            assertThrows(IllegalArgumentException.class, () -> Money.ofDecimal(1e18));
+      }
+
+      @Test
+      void format_writesTwoDecimals() {
+            assertEquals("12.99", Money.format(1299));
+            assertEquals("0.05", Money.format(5));
+            assertEquals("0.00", Money.format(0));
+            assertEquals("-1.50", Money.format(-150));
+            assertEquals("-92233720368547758.08", Money.format(Long.MIN_VALUE));
+            assertEquals(new BigDecimal("3.97"), Money.toDecimal(397));
+      }
+
+      @Test
+      void serializer_writesDecimalJsonNumbers() throws Exception {
+            String json = new ObjectMapper().writeValueAsString(new Product(1L, "Apple", 199, 5));
+
+            assertEquals("{\"id\":1,\"name\":\"Apple\",\"price\":1.99,\"stock\":5}", json);
+      }
+}
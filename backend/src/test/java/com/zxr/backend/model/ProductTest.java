@@ -0,0 +1,50 @@
+package com.zxr.backend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductTest {
+
+      @Test
+      void tryReserveStock_insufficientLeavesStockUnchanged() {
+            Product p = new Product(1L, "P1", 200, 3);
+
+            assertFalse(p.tryReserveStock(4));
+            assertEquals(3, p.getStock());
+            assertTrue(p.tryReserveStock(3));
+            assertEquals(0, p.getStock());
+      }
+
+      @Test
+      void tryReserveStock_concurrentReservationsNeverOversell() throws Exception {
+            Product p = new Product(1L, "P1", 200, 1000);
+            int threads = 16;
+            AtomicInteger reserved = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                  pool.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < 200; i++) {
+                              if (p.tryReserveStock(1)) {
+                                    reserved.incrementAndGet();
+                              }
+                        }
+                        return null;
+                  });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+            assertEquals(1000, reserved.get());
+            assertEquals(0, p.getStock());
+      }
+}
@@ -0,0 +1,109 @@
+package com.zxr.backend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedStockTest {
+
+      @Test
+      void enableAndDisable_keepTheStock() {
+            Product p = new Product(1L, "P1", 200, 10);
+
+            assertTrue(p.enableStripedStock(4));
+            assertFalse(p.enableStripedStock(4));
+            assertTrue(p.hasStripedStock());
+            assertEquals(10, p.getStock());
+            assertEquals(0, p.centralStock());
+
+            // No stripe holds 7 on its own: the slow path consolidates them
+            assertTrue(p.tryReserveStock(7));
+            assertFalse(p.tryReserveStock(4));
+            assertEquals(3, p.getStock());
+            p.releaseStock(2);
+            p.setStock(20);
+            assertEquals(20, p.getStock());
+            assertTrue(p.toString().contains("stock=20"));
+
+            assertTrue(p.disableStripedStock());
+            assertFalse(p.disableStripedStock());
+            assertFalse(p.hasStripedStock());
+            assertEquals(20, p.centralStock());
+      }
+
+      @Test
+      void tryReserveStock_concurrentReservationsNeverOversellOrUndersell() throws Exception {
+            Product p = new Product(1L, "P1", 200, 10_000);
+            p.enableStripedStock(8);
+            int threads = 16;
+            AtomicInteger reserved = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                  int quantity = t % 3 + 1;
+                  pool.submit(() -> {
+                        start.await();
+                        while (p.tryReserveStock(quantity)) {
+                              reserved.addAndGet(quantity);
+                        }
+                        // Out of the larger quantities: take the rest one by one
+                        while (p.tryReserveStock(1)) {
+                              reserved.incrementAndGet();
+                        }
+                        return null;
+                  });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+            assertEquals(10_000, reserved.get());
+            assertEquals(0, p.getStock());
+      }
+
+      @Test
+      void toggling_underLoadLosesNoStock() throws Exception {
+            Product p = new Product(1L, "P1", 200, 1_000);
+            int threads = 8;
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicInteger held = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            Future<?>[] workers = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                  workers[t] = pool.submit(() -> {
+                        int mine = 0;
+                        while (running.get()) {
+                              if (p.tryReserveStock(3)) {
+                                    mine += 3;
+                              }
+                              if (mine >= 30) {
+                                    p.releaseStock(mine);
+                                    mine = 0;
+                              }
+                        }
+                        held.addAndGet(mine);
+                  });
+            }
+            for (int i = 0; i < 200; i++) {
+                  p.enableStripedStock(4);
+                  Thread.onSpinWait();
+                  p.disableStripedStock();
+            }
+            running.set(false);
+            for (Future<?> worker : workers) {
+                  worker.get(30, TimeUnit.SECONDS);
+            }
+            pool.shutdown();
+
+            assertEquals(1_000, p.getStock() + held.get());
+            assertEquals(p.getStock(), p.centralStock());
+      }
+}
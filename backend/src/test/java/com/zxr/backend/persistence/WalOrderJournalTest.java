@@ -0,0 +1,196 @@
+package com.zxr.backend.persistence;
+
+import com.zxr.backend.config.BackgroundThreads;
+import com.zxr.backend.model.Order;
+import com.zxr.backend.model.OrderIds;
+import com.zxr.backend.model.OrderStatus;
+import com.zxr.backend.model.Product;
+import com.zxr.backend.repository.InMemoryOrderRepository;
+import com.zxr.backend.repository.ProductRepository;
+import com.zxr.backend.service.SnowflakeOrderIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalOrderJournalTest {
+
+      @TempDir
+      Path dir;
+
+      @Test
+      void restart_replaysOrdersAndStock() throws Exception {
+            ProductRepository products = new ProductRepository();
+            WalOrderJournal journal = open("group-commit", products, new InMemoryOrderRepository());
+            int appleStock = products.findById(1L).getStock();
+            int bananaStock = products.findById(2L).getStock();
+            assertTrue(products.findById(1L).tryReserveStock(3));
+            assertTrue(products.findById(2L).tryReserveStock(1));
+            journal.recordOrder(List.of(new Order(101L, 1L, 3, 597), new Order(101L, 2L, 1, 99))).join();
+            journal.destroy();
+
+            // a restarted catalog is seeded with fresh random stock; replay must restore the logged levels
+            ProductRepository restartedProducts = new ProductRepository();
+            InMemoryOrderRepository restartedOrders = new InMemoryOrderRepository();
+            open("sync", restartedProducts, restartedOrders).destroy();
+
+            assertEquals(appleStock - 3, restartedProducts.findById(1L).getStock());
+            assertEquals(bananaStock - 1, restartedProducts.findById(2L).getStock());
+            assertEquals(99, restartedOrders.findById(101L).getTotalPriceCents());
+      }
+
+      @Test
+      void groupCommit_completesEveryConcurrentAppend() throws Exception {
+            ProductRepository products = new ProductRepository();
+            WalOrderJournal journal = open("group-commit", products, new InMemoryOrderRepository());
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (long id = 1; id <= 500; id++) {
+                  writes.add(journal.recordOrder(List.of(new Order(id, 1L + id % 20, 1, 100))));
+            }
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+            journal.destroy();
+
+            InMemoryOrderRepository restarted = new InMemoryOrderRepository();
+            open("os-buffered", new ProductRepository(), restarted).destroy();
+            for (long id = 1; id <= 500; id++) {
+                  assertNotNull(restarted.findById(id));
+            }
+      }
+
+      @Test
+      void replay_truncatesTornTail() throws Exception {
+            Path file = dir.resolve("torn.wal");
+            WriteAheadLog log = new WriteAheadLog(file, Durability.SYNC, Duration.ZERO);
+            log.replay(0, (payload, end) -> fail("log should be empty"));
+            log.start();
+            long valid = log.append(ByteBuffer.wrap(new byte[] {1, 2, 3})).join();
+            log.close();
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                  channel.write(ByteBuffer.wrap(new byte[] {9, 0, 0, 0, 1, 2}), valid);
+            }
+
+            WriteAheadLog reopened = new WriteAheadLog(file, Durability.SYNC, Duration.ZERO);
+            List<Long> frames = new ArrayList<>();
+            assertEquals(valid, reopened.replay(0, (payload, end) -> frames.add(end)));
+            reopened.close();
+            assertEquals(List.of(valid), frames);
+            assertEquals(valid, file.toFile().length());
+      }
+
+      @Test
+      void close_failsWhatTheWriterDidNotGetTo() throws Exception {
+            // Never started, so nothing queued is written
+            WriteAheadLog log = new WriteAheadLog(dir.resolve("closed.wal"), Durability.SYNC, Duration.ZERO);
+            log.replay(0, (payload, end) -> fail("log should be empty"));
+            CompletableFuture<Long> queued = log.append(ByteBuffer.wrap(new byte[] {1}));
+            CompletableFuture<Long> barrier = log.atPosition(pos -> pos);
+            log.close();
+
+            assertThrows(ExecutionException.class, () -> queued.get(1, TimeUnit.SECONDS));
+            assertThrows(ExecutionException.class, () -> barrier.get(1, TimeUnit.SECONDS));
+            CompletableFuture<Long> late = log.append(ByteBuffer.wrap(new byte[] {2}));
+            assertTrue(late.isCompletedExceptionally());
+      }
+
+      @Test
+      void restart_withClockBehindTheLog_issuesLargerIds() throws Exception {
+            // Orders logged while the clock was a day ahead, one on each side of the snapshot
+            long ahead = (System.currentTimeMillis() + 86_400_000L - OrderIds.EPOCH_MILLIS) << OrderIds.TIMESTAMP_SHIFT;
+            long beforeSnapshot = ahead | (5L << OrderIds.SEQUENCE_BITS);
+            long afterSnapshot = beforeSnapshot - 1;
+            WalOrderJournal journal = open("group-commit", new ProductRepository(), new InMemoryOrderRepository());
+            journal.recordOrder(List.of(new Order(beforeSnapshot, 1L, 1, 199))).join();
+            journal.snapshot();
+            journal.recordOrder(List.of(new Order(afterSnapshot, 1L, 1, 199))).join();
+            journal.destroy();
+
+            // The tail holds only the smaller ID, so the larger one has to come from the snapshot
+            WalOrderJournal restarted = open("group-commit", new ProductRepository(), new InMemoryOrderRepository());
+            assertEquals(beforeSnapshot, restarted.maxRecoveredOrderId());
+            SnowflakeOrderIdGenerator generator = new SnowflakeOrderIdGenerator(0);
+            generator.advancePast(restarted.maxRecoveredOrderId());
+            restarted.destroy();
+
+            assertTrue(generator.nextId() > beforeSnapshot);
+      }
+
+      private WalOrderJournal open(String durability, ProductRepository products, InMemoryOrderRepository orders)
+                  throws Exception {
+            return new WalOrderJournal(dir.toString(), durability, Duration.ofMillis(1), Duration.ZERO, 2,
+                        products, orders, new BackgroundThreads(false));
+      }
+
+      @Test
+      void restart_fromSnapshotReplaysOnlyTheTail() throws Exception {
+            ProductRepository products = new ProductRepository();
+            WalOrderJournal journal = open("group-commit", products, new InMemoryOrderRepository());
+            int appleStock = products.findById(1L).getStock();
+            assertTrue(products.findById(1L).tryReserveStock(2));
+            journal.recordOrder(List.of(new Order(201L, 1L, 2, 398))).join();
+            long snapshotPosition = journal.snapshot();
+            assertTrue(products.findById(1L).tryReserveStock(1));
+            journal.recordOrder(List.of(new Order(202L, 1L, 1, 199))).join();
+            journal.destroy();
+
+            // drop the logged baseline so only the snapshot can explain the stock level
+            try (FileChannel channel = FileChannel.open(dir.resolve(WalOrderJournal.LOG_FILE),
+                        StandardOpenOption.WRITE)) {
+                  channel.write(ByteBuffer.wrap(new byte[8]), 0);
+            }
+
+            ProductRepository restartedProducts = new ProductRepository();
+            InMemoryOrderRepository restartedOrders = new InMemoryOrderRepository();
+            WalOrderJournal restarted = open("group-commit", restartedProducts, restartedOrders);
+
+            assertTrue(snapshotPosition > 0);
+            assertEquals(appleStock - 3, restartedProducts.findById(1L).getStock());
+            assertNotNull(restartedOrders.findById(202L));
+            restarted.destroy();
+      }
+
+      @Test
+      void restart_reportsReservationsStillOpen_acrossTheSnapshot() throws Exception {
+            ProductRepository products = new ProductRepository();
+            products.findById(1L).setStock(100);
+            WalOrderJournal journal = open("group-commit", products, new InMemoryOrderRepository());
+            Product apple = products.findById(1L);
+            assertTrue(apple.tryReserveStock(6));
+            journal.recordOrder(List.of(new Order(301L, 1L, 1, 199), new Order(301L, 2L, 1, 99)), 5_000L).join();
+            journal.recordOrder(List.of(new Order(302L, 1L, 2, 398), new Order(303L, 1L, 3, 597)), 6_000L).join();
+            journal.snapshot();
+            // One reservation closed on each side of the snapshot, one cancelled with its stock given back
+            journal.recordStatus(302L, OrderStatus.CONFIRMED, new Product[0], new int[0]).join();
+            apple.releaseStock(3);
+            journal.recordStatus(303L, OrderStatus.CANCELLED, new Product[] {apple}, new int[] {3}).join();
+            assertTrue(apple.tryReserveStock(4));
+            journal.recordOrder(List.of(new Order(304L, 1L, 4, 796)), 7_000L).join();
+            journal.recordOrder(List.of(new Order(305L, 1L, 1, 199))).join();
+            journal.destroy();
+
+            ProductRepository restartedProducts = new ProductRepository();
+            WalOrderJournal restarted = open("group-commit", restartedProducts, new InMemoryOrderRepository());
+            List<OpenReservation> open = restarted.openReservations().get(10, TimeUnit.SECONDS);
+            restarted.destroy();
+
+            assertEquals(List.of(301L, 304L), open.stream().map(OpenReservation::orderId).sorted().toList());
+            OpenReservation first = open.stream().filter(r -> r.orderId() == 301L).findFirst().orElseThrow();
+            assertEquals(5_000L, first.expiresAtMillis());
+            assertArrayEquals(new long[] {1L, 2L}, first.productIds());
+            assertArrayEquals(new int[] {1, 1}, first.quantities());
+            // 100 less the open, confirmed and unreserved orders; the cancelled one gave its stock back
+            assertEquals(100 - 1 - 2 - 4 - 1, restartedProducts.findById(1L).getStock());
+      }
+}
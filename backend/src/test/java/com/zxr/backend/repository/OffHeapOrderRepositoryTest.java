@@ -0,0 +1,66 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.model.Order;
+import com.zxr.backend.model.OrderIds;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapOrderRepositoryTest {
+
+      @Test
+      void findById_materializesSavedColumns() {
+            OffHeapOrderRepository repository = new OffHeapOrderRepository(16);
+            repository.save(new Order(42L, 7L, 3, 597));
+
+            Order order = repository.findById(42L);
+
+            assertEquals(42L, order.getId());
+            assertEquals(7L, order.getProductId());
+            assertEquals(3, order.getQuantity());
+            assertEquals(597, order.getTotalPriceCents());
+            assertSame(null, repository.findById(43L));
+            assertEquals(order.getId(), repository.findById(OrderIds.format(42L)).getId());
+      }
+
+      @Test
+      void save_spansSegmentsAndGrowsIndex() {
+            OffHeapOrderRepository repository = new OffHeapOrderRepository(16);
+            int orders = 20_000;
+            for (int i = 1; i <= orders; i++) {
+                  repository.save(new Order(i, (long) i % 20 + 1, i % 5 + 1, i));
+            }
+
+            assertEquals(orders, repository.rowCount());
+            for (int i = 1; i <= orders; i++) {
+                  Order order = repository.findById(i);
+                  assertEquals(i % 5 + 1, order.getQuantity());
+                  assertEquals(i, order.getTotalPriceCents());
+            }
+      }
+
+      @Test
+      void save_growsIndexAcrossPages() {
+            // 64 slots per page, so the ID table spans hundreds of pages
+            OffHeapOrderRepository repository = new OffHeapOrderRepository(16, 6);
+            int orders = 20_000;
+            for (int i = 1; i <= orders; i++) {
+                  repository.save(new Order(i, 1L, 1, i));
+            }
+            repository.save(new Order(777L, 2L, 2, 0));
+
+            for (int i = 1; i <= orders; i++) {
+                  assertEquals(i == 777 ? 0 : i, repository.findById(i).getTotalPriceCents());
+            }
+            assertNull(repository.findById(orders + 1));
+      }
+
+      @Test
+      void save_sameIdLatestRowWins() {
+            OffHeapOrderRepository repository = new OffHeapOrderRepository(16);
+            repository.save(new Order(9L, 1L, 1, 100));
+            repository.save(new Order(9L, 2L, 4, 800));
+
+            assertEquals(2L, repository.findById(9L).getProductId());
+      }
+}
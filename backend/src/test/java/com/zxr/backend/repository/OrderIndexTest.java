@@ -0,0 +1,108 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.model.Order;
+import com.zxr.backend.model.OrderIds;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderIndexTest {
+
+      static final long T0 = OrderIds.EPOCH_MILLIS + 100 * OrderIndex.BUCKET_MILLIS;
+
+      /** Order ID created at a time, with a sequence to tell orders of the same millisecond apart */
+      static long idAt(long epochMillis, int sequence) {
+            return ((epochMillis - OrderIds.EPOCH_MILLIS) << OrderIds.TIMESTAMP_SHIFT) | sequence;
+      }
+
+      static long[] rows(OrderIndex.Hits hits) {
+            long[] rows = new long[hits.count()];
+            for (int i = 0; i < rows.length; i++) {
+                  rows[i] = hits.row(i);
+            }
+            return rows;
+      }
+
+      @Test
+      void findCreatedBetween_readsOnlyTheRangeAcrossBuckets() {
+            OrderIndex index = new OrderIndex();
+            long hour = OrderIndex.BUCKET_MILLIS;
+            index.add(idAt(T0 - 1, 0), 1L, 0);
+            index.add(idAt(T0, 0), 1L, 1);
+            index.add(idAt(T0 + hour / 2, 0), 2L, 2);
+            index.add(idAt(T0 + 2 * hour, 0), 1L, 3);
+            // Saved late but created early: still returned in creation order
+            index.add(idAt(T0 + 1, 0), 2L, 4);
+            index.add(idAt(T0 + 3 * hour, 0), 1L, 5);
+
+            assertArrayEquals(new long[] {1, 4, 2, 3}, rows(index.findCreatedBetween(T0, T0 + 3 * hour, 0, 10)));
+            assertArrayEquals(new long[] {4, 2}, rows(index.findCreatedBetween(T0 + 1, T0 + hour, 0, 10)));
+            assertEquals(0, index.findCreatedBetween(T0 + 4 * hour, T0 + 5 * hour, 0, 10).count());
+
+            OrderIndex.Hits first = index.findCreatedBetween(T0, T0 + 3 * hour, 0, 2);
+            assertArrayEquals(new long[] {1, 4}, rows(first));
+            assertTrue(first.more());
+            OrderIndex.Hits second = index.findCreatedBetween(T0, T0 + 3 * hour, first.lastOrderId(), 2);
+            assertArrayEquals(new long[] {2, 3}, rows(second));
+            assertFalse(second.more());
+      }
+
+      @Test
+      void findByProduct_pagesWithoutSplittingOrders() {
+            OrderIndex index = new OrderIndex();
+            long order1 = idAt(T0, 1);
+            long order2 = idAt(T0, 2);
+            long order3 = idAt(T0 + 5, 0);
+            index.add(order1, 7L, 0);
+            index.add(order2, 7L, 1);
+            index.add(order2, 8L, 2);
+            index.add(order2, 7L, 3);
+            index.add(order3, 7L, 4);
+
+            OrderIndex.Hits first = index.findByProduct(7L, 0, 2);
+            assertArrayEquals(new long[] {0, 1, 3}, rows(first));
+            assertEquals(order2, first.lastOrderId());
+            assertTrue(first.more());
+            OrderIndex.Hits second = index.findByProduct(7L, first.lastOrderId(), 2);
+            assertArrayEquals(new long[] {4}, rows(second));
+            assertFalse(second.more());
+            assertArrayEquals(new long[] {2}, rows(index.findByProduct(8L, 0, 10)));
+            assertEquals(0, index.findByProduct(9L, 0, 10).count());
+      }
+
+      @Test
+      void directPostings_growAndStaySortedByOrderId() {
+            OrderIndex index = new OrderIndex(true);
+            // Pairs saved in reverse creation order
+            for (int i = 0; i < 1_000; i += 2) {
+                  index.add(idAt(T0 + i + 1, 0), 1L, i + 1);
+                  index.add(idAt(T0 + i, 0), 1L, i);
+            }
+
+            long[] expected = new long[1_000];
+            for (int i = 0; i < expected.length; i++) {
+                  expected[i] = i;
+            }
+            assertArrayEquals(expected, rows(index.findByProduct(1L, 0, 1_000)));
+            assertArrayEquals(new long[] {10, 11}, rows(index.findCreatedBetween(T0 + 10, T0 + 12, 0, 10)));
+      }
+
+      @Test
+      void repositories_materializeEveryLineOfAnOrder() {
+            long id = idAt(T0, 3);
+            for (OrderRepository repository : List.of(new InMemoryOrderRepository(), new OffHeapOrderRepository(16))) {
+                  repository.saveAll(List.of(new Order(id, 1L, 2, 398), new Order(id, 2L, 1, 99)));
+                  repository.save(new Order(idAt(T0 + 1, 0), 1L, 1, 199));
+
+                  OrderRepository.Slice byProduct = repository.findByProduct(1L, 0, 10);
+                  assertEquals(List.of(2, 1), byProduct.orders().stream().map(Order::getQuantity).toList());
+                  OrderRepository.Slice byTime = repository.findCreatedBetween(T0, T0 + 1, 0, 10);
+                  assertEquals(List.of(1L, 2L), byTime.orders().stream().map(Order::getProductId).toList());
+                  assertFalse(byTime.more());
+                  assertEquals(List.of(1L, 2L), repository.findLines(id).stream().map(Order::getProductId).toList());
+                  assertEquals(List.of(), repository.findLines(idAt(T0, 4)));
+            }
+      }
+}
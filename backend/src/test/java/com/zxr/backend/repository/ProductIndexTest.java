@@ -0,0 +1,99 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductIndexTest {
+
+      @Test
+      void put_growsAcrossPagesAndIteratesInIdOrder() {
+            ProductIndex index = new ProductIndex();
+            long far = 3L * ProductIndex.PAGE_SIZE + 5;
+            index.put(new Product(far, "Far", 100, 1));
+            index.put(new Product(2L, "Two", 100, 1));
+            index.put(new Product(1L, "One", 100, 1));
+
+            assertEquals("Far", index.get(far).getName());
+            assertNull(index.get(far + 1));
+            assertNull(index.get(100L * ProductIndex.PAGE_SIZE));
+            assertNull(index.get(0));
+            assertEquals(3, index.size());
+
+            List<Long> ids = new ArrayList<>();
+            index.values().forEach(p -> ids.add(p.getId()));
+            assertEquals(List.of(1L, 2L, far), ids);
+      }
+
+      @Test
+      void iteratorAfter_seeksPastTheCursorAcrossPages() {
+            ProductIndex index = new ProductIndex();
+            long far = 2L * ProductIndex.PAGE_SIZE + 1;
+            for (long id : new long[] {1L, 2L, ProductIndex.PAGE_SIZE - 1, far}) {
+                  index.put(new Product(id, "P" + id, 100, 1));
+            }
+
+            List<Long> ids = new ArrayList<>();
+            index.iteratorAfter(2L).forEachRemaining(p -> ids.add(p.getId()));
+            assertEquals(List.of((long) ProductIndex.PAGE_SIZE - 1, far), ids);
+
+            assertEquals(far, index.iteratorAfter(ProductIndex.PAGE_SIZE - 1).next().getId());
+            assertEquals(1L, index.iteratorAfter(0L).next().getId());
+            assertFalse(index.iteratorAfter(far).hasNext());
+            assertFalse(index.iteratorAfter(Long.MAX_VALUE).hasNext());
+      }
+
+      @Test
+      void put_replacesWithoutChangingSize() {
+            ProductIndex index = new ProductIndex();
+            index.put(new Product(1L, "Old", 100, 1));
+
+            Product previous = index.put(new Product(1L, "New", 100, 1));
+
+            assertEquals("Old", previous.getName());
+            assertEquals("New", index.get(1L).getName());
+            assertEquals(1, index.size());
+      }
+
+      @Test
+      void put_concurrentInsertsAreAllVisible() throws Exception {
+            ProductIndex index = new ProductIndex();
+            int threads = 4;
+            int perThread = 20_000;
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                  int offset = t;
+                  futures.add(pool.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < perThread; i++) {
+                              long id = 1L + (long) i * threads + offset;
+                              index.put(new Product(id, "P" + id, 100, 1));
+                              assertNotNull(index.get(id));
+                        }
+                        return null;
+                  }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                  future.get();
+            }
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+            assertEquals(threads * perThread, index.size());
+            for (long id = 1; id <= threads * perThread; id++) {
+                  assertEquals(id, index.get(id).getId());
+            }
+      }
+}
@@ -0,0 +1,91 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+      private ProductIndex store;
+      private ProductSearchIndex index;
+
+      @BeforeEach
+      void setUp() {
+            store = new ProductIndex();
+            index = new ProductSearchIndex(store);
+            save(new Product(1L, "Red Fuji Apple", 100, 1));
+            save(new Product(2L, "Apple Juice", 100, 1));
+            save(new Product(3L, "Pineapple", 100, 1));
+            save(new Product(4L, "Applesauce, Red", 100, 1));
+            save(new Product(5L, "Green Apple", 100, 1));
+      }
+
+      private void save(Product product) {
+            index.update(product, store.put(product));
+      }
+
+      private List<Long> ids(ProductSearchIndex.Result result) {
+            return result.products().stream().map(Product::getId).toList();
+      }
+
+      @Test
+      void search_ranksExactAndLeadingMatchesFirst() {
+            ProductSearchIndex.Result result = index.search("apple", 0, 10);
+
+            // Apple Juice is an exact match at the start; an exact match elsewhere ties with
+            // a prefix match at the start and falls back to ID order; Pineapple is no term match
+            assertEquals(List.of(2L, 1L, 4L, 5L), ids(result));
+            assertEquals(4, result.total());
+      }
+
+      @Test
+      void search_requiresEveryTermAndMatchesPrefixes() {
+            assertEquals(List.of(1L, 4L), ids(index.search("RED app", 0, 10)));
+            assertEquals(List.of(4L), ids(index.search("apples", 0, 10)));
+            assertEquals(List.of(3L), ids(index.search("pine", 0, 10)));
+            assertTrue(index.search("red juice", 0, 10).products().isEmpty());
+            assertTrue(index.search("kiwi", 0, 10).products().isEmpty());
+            assertTrue(index.search("  ,  ", 0, 10).products().isEmpty());
+      }
+
+      @Test
+      void search_combinesEveryPrefixExpansionOfAProduct() {
+            save(new Product(6L, "Applesauce with Apple", 100, 1));
+            save(new Product(7L, "Apricot Apple Jam", 100, 1));
+
+            // 6 is listed under both "apple" and "applesauce": exact and leading, counted once
+            ProductSearchIndex.Result result = index.search("apple", 0, 10);
+            assertEquals(List.of(2L, 6L, 1L, 4L, 5L, 7L), ids(result));
+            assertEquals(6, result.total());
+
+            // The second term expands to "apple", "applesauce" and "apricot"
+            assertEquals(List.of(7L), ids(index.search("jam ap", 0, 10)));
+      }
+
+      @Test
+      void search_returnsTheRequestedWindow() {
+            ProductSearchIndex.Result page = index.search("apple", 1, 2);
+
+            assertEquals(List.of(1L, 4L), ids(page));
+            assertEquals(4, page.total());
+            assertTrue(index.search("apple", 4, 2).products().isEmpty());
+      }
+
+      @Test
+      void update_reindexesRenamedProducts() {
+            save(new Product(3L, "Golden Kiwi", 100, 1));
+            save(new Product(6L, "Kiwi Apple Mix", 100, 1));
+
+            assertTrue(index.search("pineapple", 0, 10).products().isEmpty());
+            assertEquals(List.of(6L, 3L), ids(index.search("kiwi", 0, 10)));
+
+            int terms = index.termCount();
+            save(new Product(6L, "Kiwi Apple Mix", 200, 1));
+            assertEquals(terms, index.termCount());
+            assertEquals(List.of(6L), ids(index.search("mix", 0, 10)));
+      }
+}
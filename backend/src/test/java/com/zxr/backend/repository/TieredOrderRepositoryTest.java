@@ -0,0 +1,178 @@
+package com.zxr.backend.repository;
+
+import com.zxr.backend.config.BackgroundThreads;
+import com.zxr.backend.model.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.zxr.backend.repository.OrderIndexTest.T0;
+import static com.zxr.backend.repository.OrderIndexTest.idAt;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredOrderRepositoryTest {
+
+      @TempDir
+      Path directory;
+
+      final AtomicLong clock = new AtomicLong(1_000_000);
+
+      TieredOrderRepository repository;
+
+      TieredOrderRepository open(int hotCapacity, int generationSize) throws Exception {
+            repository = new TieredOrderRepository(directory, hotCapacity, generationSize, Duration.ofMinutes(10),
+                        new BackgroundThreads(false), clock::get);
+            return repository;
+      }
+
+      @AfterEach
+      void tearDown() throws Exception {
+            if (repository != null) {
+                  repository.destroy();
+            }
+      }
+
+      static List<Long> ids(OrderRepository.Slice slice) {
+            return slice.orders().stream().map(Order::getId).toList();
+      }
+
+      @Test
+      void spill_keepsHeapBoundedAndEvictedOrdersFindable() throws Exception {
+            open(8, 4);
+            int orders = 100;
+            for (int i = 0; i < orders; i++) {
+                  repository.save(new Order(idAt(T0 + i, 0), (long) i % 3 + 1, i % 5 + 1, i));
+            }
+            repository.spill();
+
+            assertTrue(repository.hotLines() <= 8, "hot lines: " + repository.hotLines());
+            // 23 spilled generations, merged eight at a time
+            assertTrue(repository.segmentCount() < 2 * TieredOrderRepository.FAN_IN,
+                        "segments: " + repository.segmentCount());
+            try (var files = Files.list(directory)) {
+                  assertEquals(repository.segmentCount(), files.count());
+            }
+            for (int i = 0; i < orders; i++) {
+                  Order order = repository.findById(idAt(T0 + i, 0));
+                  assertEquals(i % 5 + 1, order.getQuantity());
+                  assertEquals(i, order.getTotalPriceCents());
+            }
+            assertNull(repository.findById(idAt(T0 + orders, 0)));
+
+            // A later line of a spilled order wins
+            repository.save(new Order(idAt(T0, 0), 9L, 7, 700));
+            assertEquals(9L, repository.findById(idAt(T0, 0)).getProductId());
+      }
+
+      @Test
+      void findLines_readsEveryLineOfASpilledOrder() throws Exception {
+            open(2, 2);
+            long id = idAt(T0, 1);
+            // The order's lines end up in two spilled generations
+            repository.saveAll(List.of(new Order(idAt(T0, 0), 3L, 1, 100), new Order(id, 1L, 2, 398),
+                        new Order(id, 2L, 1, 99), new Order(idAt(T0, 2), 3L, 1, 100)));
+            for (int i = 3; i < 8; i++) {
+                  repository.save(new Order(idAt(T0 + 1, i), 3L, 1, 100));
+            }
+            repository.spill();
+
+            assertTrue(repository.segmentCount() >= 2, "segments: " + repository.segmentCount());
+            assertEquals(List.of(1L, 2L), repository.findLines(id).stream().map(Order::getProductId).toList());
+      }
+
+      @Test
+      void merge_keepsTheLatestLineOfAnOrderSavedAcrossSegments() throws Exception {
+            open(2, 2);
+            long resaved = idAt(T0, 0);
+            repository.save(new Order(resaved, 1L, 1, 100));
+            // Each generation after the first holds a newer line of the same order
+            for (int i = 1; i < 4 * TieredOrderRepository.FAN_IN * TieredOrderRepository.FAN_IN; i++) {
+                  repository.save(new Order(i % 2 == 0 ? resaved : idAt(T0 + i, 0), 1L, 1, 100 + i));
+                  repository.spill();
+            }
+            repository.save(new Order(idAt(T0 + 1_000, 0), 1L, 1, 0));
+            repository.save(new Order(idAt(T0 + 1_001, 0), 1L, 1, 0));
+            repository.spill();
+
+            // Only the two lines just saved stay hot
+            assertEquals(2, repository.hotLines());
+            assertTrue(repository.segmentCount() < 2 * TieredOrderRepository.FAN_IN,
+                        "segments: " + repository.segmentCount());
+            int last = 4 * TieredOrderRepository.FAN_IN * TieredOrderRepository.FAN_IN - 2;
+            assertEquals(100 + last, repository.findById(resaved).getTotalPriceCents());
+            for (int i = 1; i < last; i += 2) {
+                  assertEquals(100 + i, repository.findById(idAt(T0 + i, 0)).getTotalPriceCents());
+            }
+            try (var files = Files.list(directory)) {
+                  assertEquals(repository.segmentCount(), files.count());
+            }
+      }
+
+      @Test
+      void queries_mergeHotAndColdTiersLikeTheInMemoryStore() throws Exception {
+            open(8, 4);
+            InMemoryOrderRepository expected = new InMemoryOrderRepository();
+            for (int i = 0; i < 60; i++) {
+                  // Every third order has two lines, saved in one call so they stay together
+                  long id = idAt(T0 + 59 - i, i);
+                  List<Order> lines = new ArrayList<>(List.of(new Order(id, (long) i % 4 + 1, 1, i)));
+                  if (i % 3 == 0) {
+                        lines.add(new Order(id, 1L, 2, i));
+                  }
+                  repository.saveAll(lines);
+                  expected.saveAll(lines);
+            }
+            repository.spill();
+            assertTrue(repository.segmentCount() > 0);
+
+            for (long product = 1; product <= 5; product++) {
+                  long productId = product;
+                  assertPagesMatch(after -> repository.findByProduct(productId, after, 3),
+                              after -> expected.findByProduct(productId, after, 3));
+            }
+            assertPagesMatch(after -> repository.findCreatedBetween(T0 + 10, T0 + 50, after, 7),
+                        after -> expected.findCreatedBetween(T0 + 10, T0 + 50, after, 7));
+      }
+
+      interface Page {
+            OrderRepository.Slice after(long cursor);
+      }
+
+      static void assertPagesMatch(Page actual, Page wanted) {
+            long cursor = 0;
+            while (true) {
+                  OrderRepository.Slice got = actual.after(cursor);
+                  OrderRepository.Slice want = wanted.after(cursor);
+                  assertEquals(ids(want), ids(got));
+                  assertEquals(want.orders().stream().map(Order::getQuantity).toList(),
+                              got.orders().stream().map(Order::getQuantity).toList());
+                  assertEquals(want.more(), got.more());
+                  if (!got.more()) {
+                        return;
+                  }
+                  cursor = got.orders().get(got.orders().size() - 1).getId();
+            }
+      }
+
+      @Test
+      void spillAged_evictsOldLinesBelowCapacity() throws Exception {
+            open(100, 10);
+            repository.save(new Order(idAt(T0, 0), 1L, 1, 100));
+            repository.spillAged();
+            assertEquals(1, repository.hotLines());
+
+            clock.addAndGet(Duration.ofMinutes(10).toMillis());
+            repository.spillAged();
+
+            assertEquals(0, repository.hotLines());
+            assertEquals(1, repository.segmentCount());
+            assertEquals(100, repository.findById(idAt(T0, 0)).getTotalPriceCents());
+      }
+}
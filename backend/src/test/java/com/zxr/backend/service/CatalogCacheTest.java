@@ -0,0 +1,73 @@
+package com.zxr.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zxr.backend.model.Product;
+import com.zxr.backend.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogCacheTest {
+
+      ProductRepository repository = new ProductRepository();
+      ObjectMapper objectMapper = new ObjectMapper();
+
+      @Test
+      void unchangedCatalog_reusesTheSnapshot() {
+            CatalogCache cache = new CatalogCache(repository, objectMapper, Duration.ZERO, true);
+
+            CatalogCache.Snapshot first = cache.current();
+            assertSame(first, cache.current());
+            assertArrayEquals(assertDoesNotThrow(() -> objectMapper.writeValueAsBytes(repository.findAll())),
+                        first.json());
+      }
+
+      @Test
+      void stockOrCatalogChange_rebuildsWithNewEtag() {
+            CatalogCache cache = new CatalogCache(repository, objectMapper, Duration.ZERO, false);
+            CatalogCache.Snapshot first = cache.current();
+
+            assertTrue(repository.findById(3L).tryReserveStock(1));
+            CatalogCache.Snapshot afterStock = cache.current();
+            assertNotSame(first, afterStock);
+            assertNotEquals(first.etag(), afterStock.etag());
+
+            repository.save(new Product(21L, "Dragon Fruit", 319, 7));
+            CatalogCache.Snapshot afterCatalog = cache.current();
+            assertNotEquals(afterStock.etag(), afterCatalog.etag());
+            assertTrue(new String(afterCatalog.json()).contains("Dragon Fruit"));
+            assertNull(afterCatalog.gzip());
+      }
+
+      @Test
+      void changesWithinRefreshInterval_serveTheCurrentSnapshot() {
+            CatalogCache cache = new CatalogCache(repository, objectMapper, Duration.ofHours(1), true);
+            CatalogCache.Snapshot first = cache.current();
+
+            assertTrue(repository.findById(3L).tryReserveStock(1));
+            assertSame(first, cache.current());
+      }
+
+      @Test
+      void gzipCopy_decompressesToTheJson() throws Exception {
+            CatalogCache.Snapshot snapshot = new CatalogCache(repository, objectMapper, Duration.ZERO, true).current();
+
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(snapshot.gzip()))) {
+                  assertArrayEquals(snapshot.json(), in.readAllBytes());
+            }
+      }
+
+      @Test
+      void ifNoneMatch_acceptsListsWeakTagsAndWildcard() {
+            String etag = "\"abc-1f\"";
+            assertTrue(CatalogCache.matches("\"x\", \"abc-1f\"", etag));
+            assertTrue(CatalogCache.matches("W/\"abc-1f\"", etag));
+            assertTrue(CatalogCache.matches("*", etag));
+            assertFalse(CatalogCache.matches("\"abc\"", etag));
+            assertFalse(CatalogCache.matches(null, etag));
+      }
+}
@@ -0,0 +1,85 @@
+package com.zxr.backend.service;
+
+import com.zxr.backend.dto.CartCommand;
+import com.zxr.backend.dto.CreateOrderResponse;
+import com.zxr.backend.exception.IdempotencyKeyReuseException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+
+      AtomicLong now = new AtomicLong();
+      AtomicInteger created = new AtomicInteger();
+      CartCommand cart = new CartCommand().add(1L, 2);
+
+      CompletableFuture<CreateOrderResponse> create() {
+            return CompletableFuture.completedFuture(new CreateOrderResponse(created.incrementAndGet(), 398));
+      }
+
+      @Test
+      void repeatedKey_replaysTheFirstResponse() {
+            IdempotencyCache cache = new IdempotencyCache(Duration.ofMinutes(1), 10, now::get);
+
+            IdempotencyCache.Outcome first = cache.execute("k1", cart, this::create);
+            IdempotencyCache.Outcome second = cache.execute("k1", new CartCommand().add(1L, 2), this::create);
+
+            assertFalse(first.replayed());
+            assertTrue(second.replayed());
+            assertSame(first.response().join(), second.response().join());
+            assertEquals(1, created.get());
+            assertThrows(IdempotencyKeyReuseException.class,
+                        () -> cache.execute("k1", new CartCommand().add(1L, 3), this::create));
+            assertThrows(IllegalArgumentException.class, () -> cache.execute(" ", cart, this::create));
+      }
+
+      @Test
+      void duplicateWhileInFlight_sharesTheFuture() {
+            IdempotencyCache cache = new IdempotencyCache(Duration.ofMinutes(1), 10, now::get);
+            CompletableFuture<CreateOrderResponse> pending = new CompletableFuture<>();
+
+            IdempotencyCache.Outcome first = cache.execute("k1", cart, () -> pending);
+            IdempotencyCache.Outcome duplicate = cache.execute("k1", cart, this::create);
+            assertFalse(duplicate.response().isDone());
+
+            pending.complete(new CreateOrderResponse(7L, 398));
+            assertEquals(7L, duplicate.response().join().getOrderId());
+            assertSame(first.response().join(), duplicate.response().join());
+            assertEquals(0, created.get());
+      }
+
+      @Test
+      void failedOrder_forgetsTheKey() {
+            IdempotencyCache cache = new IdempotencyCache(Duration.ofMinutes(1), 10, now::get);
+
+            IdempotencyCache.Outcome failed = cache.execute("k1", cart, () -> {
+                  throw new IllegalStateException("sold out");
+            });
+            assertTrue(failed.response().isCompletedExceptionally());
+            assertEquals(0, cache.size());
+
+            IdempotencyCache.Outcome retry = cache.execute("k1", cart, this::create);
+            assertFalse(retry.replayed());
+            assertEquals(1L, retry.response().join().getOrderId());
+      }
+
+      @Test
+      void expiredAndOldestKeys_areEvicted() {
+            IdempotencyCache cache = new IdempotencyCache(Duration.ofSeconds(10), 2, now::get);
+            cache.execute("k1", cart, this::create);
+            cache.execute("k2", cart, this::create);
+            cache.execute("k3", cart, this::create);
+            assertEquals(2, cache.size());
+            assertFalse(cache.execute("k1", cart, this::create).replayed());
+
+            now.addAndGet(Duration.ofSeconds(10).toNanos());
+            assertFalse(cache.execute("k3", cart, this::create).replayed());
+            assertEquals(1, cache.size());
+            assertEquals(5, created.get());
+      }
+}
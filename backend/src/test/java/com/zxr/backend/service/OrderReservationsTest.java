@@ -0,0 +1,159 @@
+package com.zxr.backend.service;
+
+import com.zxr.backend.config.BackgroundThreads;
+import com.zxr.backend.event.NoopOrderEvents;
+import com.zxr.backend.exception.OrderPersistenceException;
+import com.zxr.backend.model.Order;
+import com.zxr.backend.model.OrderStatus;
+import com.zxr.backend.model.Product;
+import com.zxr.backend.persistence.OpenReservation;
+import com.zxr.backend.persistence.OrderJournal;
+import com.zxr.backend.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderReservationsTest {
+
+      final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+      final ProductRepository products = new ProductRepository();
+      final RecordingJournal journal = new RecordingJournal();
+      OrderReservations reservations;
+
+      /** Journal keeping the recorded statuses, optionally failing them */
+      static class RecordingJournal implements OrderJournal {
+            final List<String> statuses = new ArrayList<>();
+            List<OpenReservation> open = List.of();
+            boolean failing;
+
+            @Override
+            public CompletableFuture<Void> recordOrder(List<Order> lines, long expiresAtMillis) {
+                  return CompletableFuture.completedFuture(null);
+            }
+
+            @Override
+            public synchronized CompletableFuture<Void> recordStatus(long orderId, OrderStatus status,
+                        Product[] released, int[] quantities) {
+                  if (failing) {
+                        return CompletableFuture.failedFuture(new IllegalStateException("disk full"));
+                  }
+                  statuses.add(orderId + ":" + status.label() + ":" + released.length);
+                  return CompletableFuture.completedFuture(null);
+            }
+
+            @Override
+            public CompletableFuture<List<OpenReservation>> openReservations() {
+                  return CompletableFuture.completedFuture(open);
+            }
+      }
+
+      OrderReservations open() {
+            reservations = new OrderReservations(Duration.ofMinutes(15), Duration.ofMillis(100), journal, products,
+                        new NoopOrderEvents(), new BackgroundThreads(false), clock::get);
+            return reservations;
+      }
+
+      @AfterEach
+      void tearDown() throws Exception {
+            reservations.destroy();
+      }
+
+      /** Reserve stock the way an order does and hold it in a reservation */
+      void reserve(long orderId, Product product, int quantity) {
+            assertTrue(product.tryReserveStock(quantity));
+            reservations.open(orderId, new Product[] {product}, new int[] {quantity}, reservations.expiresAt());
+      }
+
+      @Test
+      void confirmAndCancel_decideTheStockOnce() {
+            open();
+            Product product = products.findById(1L);
+            int stock = product.getStock();
+            reserve(11L, product, 2);
+            reserve(12L, product, 3);
+            assertEquals(OrderStatus.PENDING, reservations.status(11L));
+
+            assertTrue(reservations.confirm(11L));
+            assertTrue(reservations.cancel(12L));
+            assertFalse(reservations.confirm(11L));
+            assertFalse(reservations.cancel(11L));
+            assertFalse(reservations.confirm(12L));
+
+            assertEquals(stock - 2, product.getStock());
+            assertNull(reservations.status(11L));
+            assertEquals(0, reservations.openCount());
+            assertEquals(List.of("11:confirmed:0", "12:cancelled:1"), journal.statuses);
+
+            // Confirmed orders never expire
+            clock.addAndGet(Duration.ofHours(1).toMillis());
+            reservations.expireDue();
+            assertEquals(stock - 2, product.getStock());
+            assertEquals(0, reservations.expiredCount());
+      }
+
+      @Test
+      void unconfirmed_expiresAfterTheTtlAndGivesStockBack() {
+            open();
+            Product product = products.findById(2L);
+            int stock = product.getStock();
+            reserve(21L, product, 1);
+            clock.addAndGet(Duration.ofMinutes(10).toMillis());
+            reserve(22L, product, 4);
+
+            clock.addAndGet(Duration.ofMinutes(5).toMillis() - 1);
+            reservations.expireDue();
+            assertEquals(2, reservations.openCount());
+
+            clock.addAndGet(101);
+            reservations.expireDue();
+            assertEquals(stock - 4, product.getStock());
+            assertEquals(1, reservations.expiredCount());
+            assertEquals(OrderStatus.PENDING, reservations.status(22L));
+            assertFalse(reservations.confirm(21L));
+            assertEquals(List.of("21:expired:1"), journal.statuses);
+      }
+
+      @Test
+      void journalFailure_keepsTheReservationOpen() {
+            open();
+            Product product = products.findById(3L);
+            int stock = product.getStock();
+            reserve(31L, product, 2);
+
+            journal.failing = true;
+            assertThrows(OrderPersistenceException.class, () -> reservations.cancel(31L));
+            assertEquals(stock - 2, product.getStock());
+            assertEquals(OrderStatus.PENDING, reservations.status(31L));
+
+            journal.failing = false;
+            clock.addAndGet(Duration.ofMinutes(16).toMillis());
+            reservations.expireDue();
+            assertEquals(stock, product.getStock());
+            assertEquals(List.of("31:expired:1"), journal.statuses);
+      }
+
+      @Test
+      void reopensJournaledReservations_expiringThoseAlreadyPast() {
+            Product product = products.findById(4L);
+            int stock = product.getStock();
+            assertTrue(product.tryReserveStock(5));
+            journal.open = List.of(
+                        new OpenReservation(41L, clock.get() - 1_000, new long[] {4L}, new int[] {2}),
+                        new OpenReservation(42L, clock.get() + 60_000, new long[] {4L}, new int[] {3}),
+                        new OpenReservation(43L, clock.get() + 60_000, new long[] {9_999L}, new int[] {1}));
+            open();
+
+            assertEquals(2, reservations.openCount());
+            reservations.expireDue();
+            assertEquals(stock - 3, product.getStock());
+            assertTrue(reservations.confirm(42L));
+            assertEquals(stock - 3, product.getStock());
+      }
+}
@@ -1,8 +1,23 @@
 package com.zxr.backend.service;
 
+import com.zxr.backend.dto.BatchOrderResult;
+import com.zxr.backend.dto.CartCommand;
 import com.zxr.backend.dto.CreateOrderResponse;
+import com.zxr.backend.event.NoopOrderEvents;
+import com.zxr.backend.event.OrderEvents;
+import com.zxr.backend.event.RejectReason;
 import com.zxr.backend.exception.InsufficientStockException;
+import com.zxr.backend.exception.OrderNotFoundException;
+import com.zxr.backend.exception.OrderNotPendingException;
+import com.zxr.backend.inventory.DirectStockReservations;
+import com.zxr.backend.inventory.StockReservations;
+import com.zxr.backend.metrics.OrderMetrics;
+import com.zxr.backend.model.Order;
+import com.zxr.backend.model.OrderIds;
+import com.zxr.backend.model.OrderStatus;
 import com.zxr.backend.model.Product;
+import com.zxr.backend.persistence.NoopOrderJournal;
+import com.zxr.backend.persistence.OrderJournal;
 import com.zxr.backend.repository.OrderRepository;
 import com.zxr.backend.repository.ProductRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,15 +25,23 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,6 +53,24 @@ class OrderServiceTest {
       @Mock
       OrderRepository orderRepository;
 
+      @Spy
+      OrderIdGenerator orderIdGenerator = new SnowflakeOrderIdGenerator(0);
+
+      @Spy
+      OrderJournal orderJournal = new NoopOrderJournal();
+
+      @Spy
+      OrderEvents orderEvents = new NoopOrderEvents();
+
+      @Spy
+      StockReservations stockReservations = new DirectStockReservations();
+
+      @Mock
+      OrderReservations orderReservations;
+
+      @Mock
+      OrderMetrics orderMetrics;
+
       @InjectMocks
       OrderService orderService;
 
@@ -38,8 +79,8 @@ class OrderServiceTest {
 
       @BeforeEach
       void setUp() {
-            p1 = new Product(1L, "P1", 2.00, 5);
-            p2 = new Product(2L, "P2", 3.00, 3);
+            p1 = new Product(1L, "P1", 200, 5);
+            p2 = new Product(2L, "P2", 300, 3);
       }
 
       @Test
@@ -51,13 +92,36 @@ class OrderServiceTest {
                         Map.of("productId", 1L, "quantity", 2),
                         Map.of("productId", 2L, "quantity", 1)));
 
-            assertEquals("ORD-", resp.getOrderId().substring(0, 4));
-            assertEquals(7.00, resp.getTotalPrice(), 0.001);
+            assertEquals("ORD-", OrderIds.format(resp.getOrderId()).substring(0, 4));
+            assertEquals(700, resp.getTotalPriceCents());
             org.mockito.Mockito.verify(orderRepository, org.mockito.Mockito.times(2)).save(any());
             assertEquals(3, p1.getStock());
             assertEquals(2, p2.getStock());
       }
 
+      @Test
+      void createOrderWithItems_cartCommand_isNotRetained() {
+            when(productRepository.findById(1L)).thenReturn(p1);
+            CartCommand cart = new CartCommand().add(1L, 2);
+
+            PreparedOrder order = orderService.prepareOrder(cart);
+            cart.clear();
+            cart.add(2L, 3);
+
+            assertEquals(400, order.getTotalPriceCents());
+            assertEquals(1L, order.orders().get(0).getProductId());
+            assertEquals(2, order.orders().get(0).getQuantity());
+            assertEquals(3, p1.getStock());
+      }
+
+      @Test
+      void createOrderWithItems_cartCommand_rejectsInvalidLine() {
+            IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                        () -> orderService.createOrderWithItems(new CartCommand().add(CartCommand.MISSING, 1)));
+            assertEquals("Product ID must be a positive number", ex.getMessage());
+            assertThrows(IllegalArgumentException.class, () -> orderService.createOrderWithItems(new CartCommand()));
+      }
+
       @Test
       void createOrderWithItems_invalidPayload_missingField() {
             IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
@@ -67,7 +131,7 @@ class OrderServiceTest {
 
       @Test
       void createOrderWithItems_insufficientStock() {
-            when(productRepository.findById(1L)).thenReturn(new Product(1L, "P1", 2.0, 1));
+            when(productRepository.findById(1L)).thenReturn(new Product(1L, "P1", 200, 1));
 
             assertThrows(InsufficientStockException.class,
                         () -> orderService.createOrderWithItems(List.of(Map.of("productId", 1L, "quantity", 2))));
@@ -75,4 +139,154 @@ class OrderServiceTest {
             // ensure no order persisted and stock unchanged
             verify(orderRepository, org.mockito.Mockito.never()).save(any());
       }
+
+      @Test
+      void createOrderWithItems_insufficientStock_releasesEarlierLines() {
+            when(productRepository.findById(1L)).thenReturn(p1);
+            when(productRepository.findById(2L)).thenReturn(p2);
+
+            assertThrows(InsufficientStockException.class,
+                        () -> orderService.createOrderWithItems(List.of(
+                                    Map.of("productId", 1L, "quantity", 2),
+                                    Map.of("productId", 2L, "quantity", 4))));
+
+            // all or nothing: the line that fit must not keep its stock
+            verify(orderRepository, org.mockito.Mockito.never()).save(any());
+            assertEquals(5, p1.getStock());
+            assertEquals(3, p2.getStock());
+      }
+
+      @Test
+      void createOrderWithItems_saveFails_releasesStock() {
+            when(productRepository.findById(1L)).thenReturn(p1);
+            doThrow(new IllegalStateException("store unavailable")).when(orderRepository).save(any());
+
+            assertThrows(IllegalStateException.class,
+                        () -> orderService.createOrderWithItems(List.of(Map.of("productId", 1L, "quantity", 2))));
+
+            // The order was already durable, so its stock only goes back with a logged cancellation
+            verify(orderJournal).recordStatus(anyLong(), eq(OrderStatus.CANCELLED), any(), any());
+            assertEquals(5, p1.getStock());
+      }
+
+      @Test
+      void createOrder_saveAndCancellationFail_keepsTheLoggedStock() {
+            when(productRepository.findById(1L)).thenReturn(p1);
+            doThrow(new IllegalStateException("store unavailable")).when(orderRepository).save(any());
+            doReturn(CompletableFuture.failedFuture(new IllegalStateException("disk full")))
+                        .when(orderJournal).recordStatus(anyLong(), any(), any(), any());
+
+            assertThrows(IllegalStateException.class, () -> orderService.createOrder(1L, 2));
+
+            // Stock stays with the order, as the log says, and comes back when it expires
+            assertEquals(3, p1.getStock());
+            verify(orderReservations).open(anyLong(), any(), any(), anyLong());
+      }
+
+      @Test
+      void createOrder_totalOutOfRange_leavesStockUntouched() {
+            Product pricey = new Product(3L, "P3", Long.MAX_VALUE / 2, 5);
+            when(productRepository.findById(3L)).thenReturn(pricey);
+
+            assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(3L, 3));
+
+            assertEquals(5, pricey.getStock());
+      }
+
+      @Test
+      void createOrderBatch_reportsEveryCartAndSavesOnce() {
+            when(productRepository.findByIds(any())).thenReturn(new Product[] {p1, p2, null, p2});
+
+            List<BatchOrderResult> results = orderService.createOrderBatch(List.of(
+                        new CartCommand().add(1L, 2).add(2L, 1),
+                        new CartCommand().add(9L, 1),
+                        new CartCommand().add(2L, 5),
+                        new CartCommand()), 10);
+
+            assertEquals(4, results.size());
+            assertEquals(BatchOrderResult.Status.CREATED, results.get(0).getStatus());
+            assertEquals(10, results.get(0).getIndex());
+            assertEquals(700L, results.get(0).getTotalPriceCents());
+            assertEquals(BatchOrderResult.Status.NOT_FOUND, results.get(1).getStatus());
+            assertEquals(BatchOrderResult.Status.INSUFFICIENT_STOCK, results.get(2).getStatus());
+            assertEquals(BatchOrderResult.Status.INVALID, results.get(3).getStatus());
+            assertEquals(13, results.get(3).getIndex());
+            assertEquals(3, p1.getStock());
+            assertEquals(2, p2.getStock());
+            verify(productRepository).findByIds(new long[] {1L, 2L, 9L, 2L});
+            verify(orderRepository).saveAll(any());
+            verify(orderJournal).recordOrder(any(), anyLong());
+            // Every rejected cart is counted once, by its cause
+            verify(orderMetrics).recordRejection(RejectReason.PRODUCT_NOT_FOUND);
+            verify(orderMetrics).recordRejection(RejectReason.INSUFFICIENT_STOCK);
+            verify(orderMetrics).recordRejection(RejectReason.INVALID_REQUEST);
+            verifyNoMoreInteractions(orderMetrics);
+      }
+
+      @Test
+      void createOrderBatch_totalOutOfRange_rejectsOnlyThatCart() {
+            Product pricey = new Product(3L, "P3", Long.MAX_VALUE / 2, 5);
+            when(productRepository.findByIds(any())).thenReturn(new Product[] {pricey, p1});
+
+            List<BatchOrderResult> results = orderService.createOrderBatch(List.of(
+                        new CartCommand().add(3L, 3),
+                        new CartCommand().add(1L, 1)), 0);
+
+            assertEquals(BatchOrderResult.Status.INVALID, results.get(0).getStatus());
+            assertEquals(BatchOrderResult.Status.CREATED, results.get(1).getStatus());
+            assertEquals(5, pricey.getStock());
+            assertEquals(4, p1.getStock());
+            verify(orderMetrics).recordRejection(RejectReason.INVALID_REQUEST);
+            verifyNoMoreInteractions(orderMetrics);
+      }
+
+      @Test
+      void createOrderBatch_reservationFails_failsOnlyThatCart() {
+            when(productRepository.findByIds(any())).thenReturn(new Product[] {p1, p2, p1});
+            doCallRealMethod()
+                        .doReturn(CompletableFuture.failedFuture(new IllegalStateException("shard failed")))
+                        .doCallRealMethod()
+                        .when(stockReservations).reserve(any(), any(), anyInt());
+
+            List<BatchOrderResult> results = orderService.createOrderBatch(List.of(
+                        new CartCommand().add(1L, 2),
+                        new CartCommand().add(2L, 1),
+                        new CartCommand().add(1L, 1)), 0);
+
+            assertEquals(BatchOrderResult.Status.CREATED, results.get(0).getStatus());
+            assertEquals(BatchOrderResult.Status.FAILED, results.get(1).getStatus());
+            assertEquals(BatchOrderResult.Status.CREATED, results.get(2).getStatus());
+            assertEquals(2, p1.getStock());
+            assertEquals(3, p2.getStock());
+            verify(orderRepository).saveAll(any());
+      }
+
+      @Test
+      void createOrderBatch_journalFails_releasesStockAndFailsCarts() {
+            when(productRepository.findByIds(any())).thenReturn(new Product[] {p1, p2});
+            doReturn(CompletableFuture.failedFuture(new IllegalStateException("disk full")))
+                        .when(orderJournal).recordOrder(any(), anyLong());
+
+            List<BatchOrderResult> results = orderService.createOrderBatch(List.of(
+                        new CartCommand().add(1L, 2),
+                        new CartCommand().add(2L, 1)), 0);
+
+            assertEquals(BatchOrderResult.Status.FAILED, results.get(0).getStatus());
+            assertEquals(BatchOrderResult.Status.FAILED, results.get(1).getStatus());
+            assertEquals(5, p1.getStock());
+            assertEquals(3, p2.getStock());
+            verify(orderRepository, org.mockito.Mockito.never()).saveAll(any());
+      }
+
+      @Test
+      void confirmOrder_withoutOpenReservation_isNotFoundOrNotPending() {
+            long id = orderIdGenerator.nextId();
+            when(orderRepository.findById(id)).thenReturn(new Order(id, 1L, 1, 200));
+
+            assertThrows(OrderNotPendingException.class, () -> orderService.confirmOrder(OrderIds.format(id)));
+            assertThrows(OrderNotFoundException.class, () -> orderService.cancelOrder("ORD-123"));
+
+            when(orderReservations.confirm(id)).thenReturn(true);
+            assertEquals(OrderStatus.CONFIRMED, orderService.confirmOrder(OrderIds.format(id)));
+      }
 }
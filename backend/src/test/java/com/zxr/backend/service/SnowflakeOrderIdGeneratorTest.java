@@ -0,0 +1,87 @@
+package com.zxr.backend.service;
+
+import com.zxr.backend.model.OrderIds;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeOrderIdGeneratorTest {
+
+      @Test
+      void nextId_isIncreasingAndCarriesNodeAndTime() {
+            SnowflakeOrderIdGenerator generator = new SnowflakeOrderIdGenerator(7);
+            long before = System.currentTimeMillis();
+
+            long previous = 0;
+            for (int i = 0; i < 100_000; i++) {
+                  long id = generator.nextId();
+                  assertTrue(id > previous);
+                  previous = id;
+            }
+
+            assertEquals(7, (previous >>> OrderIds.SEQUENCE_BITS) & OrderIds.MAX_NODE_ID);
+            assertTrue(OrderIds.createdAtMillis(previous) >= before);
+      }
+
+      @Test
+      void nextId_concurrentCallersNeverCollide() throws Exception {
+            SnowflakeOrderIdGenerator generator = new SnowflakeOrderIdGenerator(1);
+            int threads = 8;
+            int perThread = 50_000;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                  results.add(pool.submit(() -> {
+                        long[] ids = new long[perThread];
+                        for (int i = 0; i < perThread; i++) {
+                              ids[i] = generator.nextId();
+                        }
+                        return ids;
+                  }));
+            }
+            long[] all = new long[threads * perThread];
+            for (int t = 0; t < threads; t++) {
+                  System.arraycopy(results.get(t).get(), 0, all, t * perThread, perThread);
+            }
+            pool.shutdown();
+
+            assertEquals(all.length, Arrays.stream(all).distinct().count());
+      }
+
+      @Test
+      void advancePast_skipsRecoveredIdsOfAnyNode() {
+            SnowflakeOrderIdGenerator generator = new SnowflakeOrderIdGenerator(0);
+            long future = (System.currentTimeMillis() + 60_000L - OrderIds.EPOCH_MILLIS) << OrderIds.TIMESTAMP_SHIFT;
+            long recovered = future | ((long) OrderIds.MAX_NODE_ID << OrderIds.SEQUENCE_BITS) | 7;
+
+            generator.advancePast(recovered);
+            long first = generator.nextId();
+            generator.advancePast(0);
+
+            assertTrue(first > recovered);
+            assertTrue(generator.nextId() > first);
+      }
+
+      @Test
+      void format_roundTripsThroughParse() {
+            long id = new SnowflakeOrderIdGenerator(3).nextId();
+
+            String text = OrderIds.format(id);
+
+            assertTrue(text.startsWith("ORD-"));
+            assertEquals(id, OrderIds.parse(text));
+            assertEquals(-1, OrderIds.parse("ORD-20260204094616945-1234"));
+      }
+
+      @Test
+      void constructor_rejectsOutOfRangeNode() {
+            assertThrows(IllegalArgumentException.class, () -> new SnowflakeOrderIdGenerator(OrderIds.MAX_NODE_ID + 1));
+      }
+}